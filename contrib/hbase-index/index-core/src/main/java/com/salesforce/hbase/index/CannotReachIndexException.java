@@ -1,5 +1,7 @@
 package com.salesforce.hbase.index;
 
+import java.util.List;
+
 import org.apache.hadoop.hbase.client.Mutation;
 
 /**
@@ -11,4 +13,11 @@ public class CannotReachIndexException extends Exception {
   public CannotReachIndexException(String targetTableName, Mutation m, Exception cause) {
     super("Cannot reach index table " + targetTableName + " to update index for edit: " + m, cause);
   }
+
+  public CannotReachIndexException(String targetTableName, List<Mutation> mutations,
+      Exception cause) {
+    super("Cannot reach index table " + targetTableName + " to update index for "
+        + mutations.size() + " edits, starting with: "
+        + (mutations.isEmpty() ? null : mutations.get(0)), cause);
+  }
 }
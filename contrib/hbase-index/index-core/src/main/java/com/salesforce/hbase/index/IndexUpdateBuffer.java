@@ -0,0 +1,122 @@
+package com.salesforce.hbase.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+
+/**
+ * Accumulates index updates so they can be written in large batches, rather than one small batch
+ * per source update. Used while replaying the WAL, where nothing else is waiting on any single
+ * update.
+ * <p>
+ * Updates are deduplicated: an update to the same index table, of the same type, at the same row
+ * and timestamp and covering exactly the same cells as an earlier one replaces it, as it would
+ * overwrite all of the earlier one's cells in the index table anyway. This happens when the same
+ * edits are replayed more than once, for instance after a failed recovery.
+ * <p>
+ * Not thread-safe.
+ */
+public class IndexUpdateBuffer {
+
+  private final Map<UpdateKey, Pair<Mutation, String>> updates =
+      new LinkedHashMap<UpdateKey, Pair<Mutation, String>>();
+
+  /**
+   * @param mutation index update to buffer
+   * @param indexTable name of the index table to which to write the update
+   */
+  public void add(Mutation mutation, String indexTable) {
+    updates.put(new UpdateKey(mutation, indexTable), new Pair<Mutation, String>(mutation,
+        indexTable));
+  }
+
+  /**
+   * @return the number of buffered updates
+   */
+  public int size() {
+    return updates.size();
+  }
+
+  /**
+   * Remove all the buffered updates.
+   * @return the updates that were buffered, in the order they were first added
+   */
+  public Collection<Pair<Mutation, String>> drain() {
+    List<Pair<Mutation, String>> drained = new ArrayList<Pair<Mutation, String>>(updates.values());
+    updates.clear();
+    return drained;
+  }
+
+  /**
+   * Identifies an update by its target table, type, row, timestamp and the keys of all of its
+   * cells, but not their values.
+   */
+  private static class UpdateKey {
+    private final Mutation mutation;
+    private final String table;
+    private final int hashCode;
+
+    public UpdateKey(Mutation mutation, String table) {
+      this.mutation = mutation;
+      this.table = table;
+      int hash = table.hashCode();
+      hash = 31 * hash + mutation.getClass().hashCode();
+      hash = 31 * hash + Bytes.hashCode(mutation.getRow());
+      hash = 31 * hash + (int) (mutation.getTimeStamp() ^ (mutation.getTimeStamp() >>> 32));
+      hash = 31 * hash + mutation.size();
+      this.hashCode = hash;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof UpdateKey)) {
+        return false;
+      }
+      UpdateKey other = (UpdateKey) o;
+      Mutation m = other.mutation;
+      return hashCode == other.hashCode && table.equals(other.table)
+          && mutation.getClass() == m.getClass() && Bytes.equals(mutation.getRow(), m.getRow())
+          && mutation.getTimeStamp() == m.getTimeStamp() && sameCells(mutation, m);
+    }
+
+    private static boolean sameCells(Mutation m1, Mutation m2) {
+      Map<byte[], List<KeyValue>> families1 = m1.getFamilyMap();
+      Map<byte[], List<KeyValue>> families2 = m2.getFamilyMap();
+      if (families1.size() != families2.size()) {
+        return false;
+      }
+      // family maps are sorted, so the families come out in the same order
+      Iterator<Entry<byte[], List<KeyValue>>> iter2 = families2.entrySet().iterator();
+      for (Entry<byte[], List<KeyValue>> family1 : families1.entrySet()) {
+        List<KeyValue> kvs1 = family1.getValue();
+        List<KeyValue> kvs2 = iter2.next().getValue();
+        if (kvs1.size() != kvs2.size()) {
+          return false;
+        }
+        for (int i = 0; i < kvs1.size(); i++) {
+          if (KeyValue.COMPARATOR.compare(kvs1.get(i), kvs2.get(i)) != 0) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+  }
+}
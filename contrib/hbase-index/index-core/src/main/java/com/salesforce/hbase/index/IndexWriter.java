@@ -4,58 +4,120 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.Abortable;
-import org.apache.hadoop.hbase.client.HBaseAdmin;
 import org.apache.hadoop.hbase.client.HTableInterface;
 import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.regionserver.wal.IndexedWALEdit;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 import org.apache.hadoop.hbase.util.Pair;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.salesforce.hbase.index.table.CachingHTableFactory;
 import com.salesforce.hbase.index.table.HTableFactory;
 import com.salesforce.hbase.index.table.HTableInterfaceReference;
 
 /**
  * Do the actual work of writing to the index tables. Ensures that if we do fail to write to the
  * index table that we cleanly kill the region/server to ensure that the region's WAL gets replayed.
+ * <p>
+ * Updates are grouped by target index table and each group is sent as a single batch. When there
+ * is more than one target table, the batches are written in parallel on a dedicated thread pool.
+ * Opened tables are cached between writes (see {@link CachingHTableFactory}) and failed batches are
+ * retried, with exponential backoff, before the write is considered failed.
  */
 public class IndexWriter {
 
   private static final Log LOG = LogFactory.getLog(IndexWriter.class);
 
+  /** Max number of threads used to write to the index tables in parallel */
+  public static final String NUM_THREADS_CONF_KEY = "index.writer.threads.max";
+  public static final int DEFAULT_NUM_THREADS = 10;
+  /** Number of times a batch is retried before the write is considered failed */
+  public static final String NUM_RETRIES_CONF_KEY = "index.writer.retries.number";
+  public static final int DEFAULT_NUM_RETRIES = 3;
+  /** Initial time to wait (ms) before retrying a batch. Doubled after each subsequent attempt */
+  public static final String RETRY_PAUSE_CONF_KEY = "index.writer.retries.pause";
+  public static final long DEFAULT_RETRY_PAUSE = 100;
+  /** Max number of idle tables to keep open for each index table */
+  public static final String MAX_CACHED_TABLES_CONF_KEY = "index.writer.tables.cached.max";
+  public static final int DEFAULT_MAX_CACHED_TABLES = 10;
+  private static final long THREAD_KEEP_ALIVE_SECONDS = 60;
+
   private final String sourceInfo;
   private final Abortable abortable;
-  private final HTableFactory factory;
+  private final CachingHTableFactory factory;
+  private final ExecutorService pool;
+  private final int numRetries;
+  private final long retryPause;
+  private final IndexWriterMetrics metrics = new IndexWriterMetrics();
 
   /**
    * @param sourceInfo log info string about where we are writing from
    * @param abortable to notify in the case of failure
-   * @param factory Factory to use when resolving the {@link HTableInterfaceReference}. If
-   *          <tt>null</tt>, its assumed that the {@link HTableInterfaceReference} already has its
-   *          factory set (e.g. by {@link HTableInterfaceReference#setFactory(HTableFactory)} - if
-   *          its not already set, a {@link NullPointerException} is thrown.
+   * @param factory Factory to use when resolving the index tables
    */
   public IndexWriter(String sourceInfo, Abortable abortable, HTableFactory factory) {
+    this(sourceInfo, abortable, factory, null);
+  }
+
+  /**
+   * @param sourceInfo log info string about where we are writing from
+   * @param abortable to notify in the case of failure
+   * @param factory Factory to use when resolving the index tables
+   * @param conf to read the writer settings from. If <tt>null</tt>, the defaults are used.
+   */
+  public IndexWriter(String sourceInfo, Abortable abortable, HTableFactory factory,
+      Configuration conf) {
     this.sourceInfo = sourceInfo;
     this.abortable = abortable;
-    this.factory = factory;
+    int numThreads = DEFAULT_NUM_THREADS;
+    int maxCachedTables = DEFAULT_MAX_CACHED_TABLES;
+    int retries = DEFAULT_NUM_RETRIES;
+    long pause = DEFAULT_RETRY_PAUSE;
+    if (conf != null) {
+      numThreads = conf.getInt(NUM_THREADS_CONF_KEY, DEFAULT_NUM_THREADS);
+      maxCachedTables = conf.getInt(MAX_CACHED_TABLES_CONF_KEY, DEFAULT_MAX_CACHED_TABLES);
+      retries = conf.getInt(NUM_RETRIES_CONF_KEY, DEFAULT_NUM_RETRIES);
+      pause = conf.getLong(RETRY_PAUSE_CONF_KEY, DEFAULT_RETRY_PAUSE);
+    }
+    this.numRetries = retries;
+    this.retryPause = pause;
+    this.factory = new CachingHTableFactory(factory, maxCachedTables);
+
+    // threads are only created as needed and go away when the writer is idle, so lots of quiet
+    // regions don't hold onto lots of threads
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(numThreads, numThreads, THREAD_KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactoryBuilder().setDaemon(true)
+                .setNameFormat("index-writer-" + sourceInfo + "-%d").build());
+    executor.allowCoreThreadTimeOut(true);
+    this.pool = executor;
   }
 
   /**
    * Just write the index update portions of of the edit, if it is an {@link IndexedWALEdit}. If it
    * is not passed an {@link IndexedWALEdit}, any further actions are ignored.
    * <p>
-   * Internally, uses {@link #wri to make the write and if is receives a {
-   * @link CannotReachIndexException}, it attempts to move (
-   * {@link HBaseAdmin#unassign(byte[], boolean)}) the region and then failing that calls
-   * {@link System#exit(int)} to kill the server.
+   * Internally, uses {@link #write(Collection)} to make the write and if is receives a
+   * {@link CannotReachIndexException}, it attempts to abort the server via the {@link Abortable}
+   * and then, failing that, calls {@link System#exit(int)} to kill the server.
    */
   public void writeAndKillYourselfOnFailure(Collection<Pair<Mutation, String>> indexUpdates) {
     try {
@@ -64,58 +126,149 @@ public class IndexWriter {
       killYourself(e);
     }
   }
+
   /**
-   * Write the mutations to their respective table using the provided factory.
+   * Write the mutations to their respective table.
    * <p>
-   * This method is not thread-safe and if accessed in a non-serial manner could leak HTables.
+   * All the mutations for a single table are sent as one batch. If there is more than one table to
+   * update, the batches are written in parallel and this method blocks until they are all written.
+   * This method is thread-safe.
    * @param updates Updates to write
-   * @throws CannotReachIndexException if we cannot successfully write a single index entry. We stop
-   *           immediately on the first failed index write, rather than attempting all writes.
+   * @throws CannotReachIndexException if we cannot successfully write to one of the index tables,
+   *           even after retrying. Any outstanding writes to other tables are cancelled.
    */
   public void write(Collection<Pair<Mutation, String>> updates)
       throws CannotReachIndexException {
-    // conver the strings to htableinterfaces to which we can talk
-    Collection<Pair<Mutation, HTableInterfaceReference>> toWrite =
-        resolveTableReferences(factory, updates);
-
-    // write each mutation, as a part of a batch, to its respective table
-    List<Mutation> singleMutation = new ArrayList<Mutation>(1);
-    Set<HTableInterface> tables = new HashSet<HTableInterface>();
-    for (Pair<Mutation, HTableInterfaceReference> entry : toWrite) {
-      // do the put into the index table
-      singleMutation.add(entry.getFirst());
-      LOG.info("Writing index update:" + entry.getFirst() + " to table: "
-          + entry.getSecond().getTableName());
-      try {
-        HTableInterface table;
+    long start = EnvironmentEdgeManager.currentTimeMillis();
+    ListMultimap<String, Mutation> toWrite = groupByTable(updates);
+    try {
+      if (toWrite.keySet().size() == 1) {
+        // no need to pay for the hand-off to another thread
+        String tableName = toWrite.keySet().iterator().next();
+        writeToTable(tableName, toWrite.get(tableName));
+      } else {
+        writeInParallel(toWrite);
+      }
+    } catch (CannotReachIndexException e) {
+      metrics.incrementFailures();
+      throw e;
+    }
 
-        if (factory == null) {
-          table = entry.getSecond().getTable();
-        } else {
-          table = entry.getSecond().getTable(factory);
+    long latency = EnvironmentEdgeManager.currentTimeMillis() - start;
+    metrics.updateWrite(updates.size(), latency);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Done writing " + updates.size() + " index updates to " + toWrite.keySet().size()
+          + " tables in " + latency + "ms");
+    }
+  }
+
+  private void writeInParallel(ListMultimap<String, Mutation> toWrite)
+      throws CannotReachIndexException {
+    List<Future<Void>> futures = new ArrayList<Future<Void>>(toWrite.keySet().size());
+    for (final String tableName : toWrite.keySet()) {
+      final List<Mutation> mutations = toWrite.get(tableName);
+      futures.add(pool.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          writeToTable(tableName, mutations);
+          return null;
         }
-        // do the update
-        table.batch(singleMutation);
-        tables.add(table);
-      } catch (IOException e) {
-        throw new CannotReachIndexException(entry.getSecond().getTableName(), entry.getFirst(), e);
-      } catch (InterruptedException e) {
-        throw new CannotReachIndexException(entry.getSecond().getTableName(), entry.getFirst(), e);
+      }));
+    }
+
+    try {
+      for (Future<Void> future : futures) {
+        future.get();
       }
-      singleMutation.clear();
+    } catch (ExecutionException e) {
+      cancel(futures);
+      Throwable cause = e.getCause();
+      if (cause instanceof CannotReachIndexException) {
+        throw (CannotReachIndexException) cause;
+      }
+      throw new CannotReachIndexException(toWrite.keySet().toString(),
+          new ArrayList<Mutation>(toWrite.values()), e);
+    } catch (InterruptedException e) {
+      cancel(futures);
+      Thread.currentThread().interrupt();
+      throw new CannotReachIndexException(toWrite.keySet().toString(),
+          new ArrayList<Mutation>(toWrite.values()), e);
+    }
+  }
+
+  private static void cancel(List<Future<Void>> futures) {
+    for (Future<Void> future : futures) {
+      future.cancel(true);
+    }
+  }
+
+  /**
+   * Write the batch to the given table, retrying with backoff on failure.
+   */
+  private void writeToTable(String tableName, List<Mutation> mutations)
+      throws CannotReachIndexException {
+    if (LOG.isTraceEnabled()) {
+      LOG.trace("Writing index updates:" + mutations + " to table: " + tableName);
     }
-    // go through each reference and close the connection
-    // we can't do this earlier as we may reuse table references between different index entries,
-    // which would prematurely close a table before we could write the later update
-    for (HTableInterface table : tables) {
+    byte[] name = Bytes.toBytes(tableName);
+    long pause = retryPause;
+    for (int attempt = 0;; attempt++) {
+      HTableInterface table = null;
       try {
-        table.close();
+        table = factory.getTable(name);
+        table.batch(mutations);
+        factory.releaseTable(name, table);
+        return;
       } catch (IOException e) {
-        LOG.error("Failed to close connection to table:" + Bytes.toString(table.getTableName()), e);
+        // don't reuse a table that we couldn't write through
+        closeQuietly(tableName, table);
+        if (attempt >= numRetries) {
+          throw new CannotReachIndexException(tableName, mutations, e);
+        }
+        LOG.warn("Failed to write index updates to table: " + tableName + ", retrying in " + pause
+            + "ms (attempt " + (attempt + 1) + " of " + numRetries + ")", e);
+      } catch (InterruptedException e) {
+        closeQuietly(tableName, table);
+        Thread.currentThread().interrupt();
+        throw new CannotReachIndexException(tableName, mutations, e);
       }
+
+      metrics.incrementRetries();
+      try {
+        Thread.sleep(pause);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CannotReachIndexException(tableName, mutations, e);
+      }
+      pause *= 2;
+    }
+  }
+
+  private static void closeQuietly(String tableName, HTableInterface table) {
+    if (table == null) {
+      return;
     }
+    try {
+      table.close();
+    } catch (IOException e) {
+      LOG.error("Failed to close connection to table:" + tableName, e);
+    }
+  }
+
+  /**
+   * @return the metrics for all the writes made through <tt>this</tt>
+   */
+  public IndexWriterMetrics getMetrics() {
+    return metrics;
+  }
 
-    LOG.info("Done writing all index updates");
+  /**
+   * Stop the writer, cancelling any outstanding writes and closing any cached tables.
+   */
+  public void stop() {
+    LOG.info("Stopping index writer for " + sourceInfo + ", " + metrics);
+    pool.shutdownNow();
+    factory.shutdown();
   }
 
   /**
@@ -134,6 +287,21 @@ public class IndexWriter {
     }
   }
 
+  /**
+   * Group the updates by the table to which they should be written, keeping the original order of
+   * the updates within each table.
+   * @param updates from the index builder
+   * @return the updates for each table
+   */
+  public static ListMultimap<String, Mutation> groupByTable(
+      Collection<Pair<Mutation, String>> updates) {
+    ListMultimap<String, Mutation> tables = ArrayListMultimap.<String, Mutation> create();
+    for (Pair<Mutation, String> entry : updates) {
+      tables.put(entry.getSecond(), entry.getFirst());
+    }
+    return tables;
+  }
+
   /**
    * Convert the passed index updates to {@link HTableInterfaceReference}s.
    * @param factory factory to use when resolving the table references.
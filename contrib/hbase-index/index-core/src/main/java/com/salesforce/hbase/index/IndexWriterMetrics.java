@@ -0,0 +1,74 @@
+package com.salesforce.hbase.index;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simple, thread-safe counters describing the work done by an {@link IndexWriter}. Latencies are
+ * tracked in milliseconds and cover an entire call to {@link IndexWriter#write}, including any
+ * retries.
+ */
+public class IndexWriterMetrics {
+
+  private final AtomicLong writes = new AtomicLong();
+  private final AtomicLong mutations = new AtomicLong();
+  private final AtomicLong retries = new AtomicLong();
+  private final AtomicLong failures = new AtomicLong();
+  private final AtomicLong totalLatency = new AtomicLong();
+  private final AtomicLong maxLatency = new AtomicLong();
+
+  void updateWrite(int numMutations, long latency) {
+    writes.incrementAndGet();
+    mutations.addAndGet(numMutations);
+    totalLatency.addAndGet(latency);
+    long max;
+    do {
+      max = maxLatency.get();
+    } while (latency > max && !maxLatency.compareAndSet(max, latency));
+  }
+
+  void incrementRetries() {
+    retries.incrementAndGet();
+  }
+
+  void incrementFailures() {
+    failures.incrementAndGet();
+  }
+
+  /** @return number of successful calls to {@link IndexWriter#write} */
+  public long getWrites() {
+    return writes.get();
+  }
+
+  /** @return number of index mutations successfully written */
+  public long getMutations() {
+    return mutations.get();
+  }
+
+  /** @return number of batches that were retried after a failed attempt */
+  public long getRetries() {
+    return retries.get();
+  }
+
+  /** @return number of writes that failed after exhausting all retries */
+  public long getFailures() {
+    return failures.get();
+  }
+
+  /** @return average latency of a successful write, in milliseconds */
+  public double getAverageLatency() {
+    long count = writes.get();
+    return count == 0 ? 0 : (double) totalLatency.get() / count;
+  }
+
+  /** @return max latency of a successful write, in milliseconds */
+  public long getMaxLatency() {
+    return maxLatency.get();
+  }
+
+  @Override
+  public String toString() {
+    return "writes=" + getWrites() + ", mutations=" + getMutations() + ", retries=" + getRetries()
+        + ", failures=" + getFailures() + ", avgLatencyMs=" + getAverageLatency()
+        + ", maxLatencyMs=" + getMaxLatency();
+  }
+}
@@ -3,7 +3,10 @@ package com.salesforce.hbase.index;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
 
@@ -11,6 +14,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.CoprocessorEnvironment;
+import org.apache.hadoop.hbase.HConstants.OperationStatusCode;
 import org.apache.hadoop.hbase.HRegionInfo;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.client.Delete;
@@ -19,8 +23,10 @@ import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.coprocessor.BaseRegionObserver;
 import org.apache.hadoop.hbase.coprocessor.ObserverContext;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.regionserver.InternalScanner;
 import org.apache.hadoop.hbase.regionserver.KeyValueScanner;
+import org.apache.hadoop.hbase.regionserver.MiniBatchOperationInProgress;
 import org.apache.hadoop.hbase.regionserver.ScanType;
 import org.apache.hadoop.hbase.regionserver.Store;
 import org.apache.hadoop.hbase.regionserver.wal.HLog;
@@ -35,7 +41,10 @@ import com.salesforce.hbase.index.wal.IndexedKeyValue;
 
 /**
  * Do all the work of managing index updates from a single coprocessor. All Puts/Delets are passed
- * to an {@link IndexBuilder} to determine the actual updates to make.
+ * to an {@link IndexBuilder} to determine the actual updates to make. Mutations the builder indexes
+ * in batches (see {@link IndexBuilder#isBatchIndexed(Mutation)}) are passed together once the rows
+ * of their batch are locked (see
+ * {@link #preBatchMutate(ObserverContext, MiniBatchOperationInProgress)}).
  * <p>
  * If the WAL is enabled, these updates are then added to the WALEdit and attempted to be written to
  * the WAL after the WALEdit has been saved. If any of the index updates fail, this server is
@@ -44,6 +53,10 @@ import com.salesforce.hbase.index.wal.IndexedKeyValue;
  * <p>
  * If the WAL is disabled, the updates are attempted immediately. No consistency guarantees are made
  * if the WAL is disabled - some or none of the index updates may be successful.
+ * <p>
+ * When the WAL is replayed, the index updates of the replayed edits are buffered and written in
+ * large batches (see {@link #REPLAY_BATCH_SIZE_CONF_KEY}). Any updates still buffered are written
+ * before the replayed edits are flushed and the region is opened.
  */
 public class Indexer extends BaseRegionObserver {
 
@@ -68,6 +81,17 @@ public class Indexer extends BaseRegionObserver {
    */
   public static final String CHECK_VERSION_CONF_KEY = "com.saleforce.hbase.index.checkversion";
 
+  /**
+   * Configuration key for the number of index updates from replayed WAL edits to buffer before
+   * writing them out as a batch.
+   */
+  public static final String REPLAY_BATCH_SIZE_CONF_KEY = "index.replay.batch.size";
+  public static final int DEFAULT_REPLAY_BATCH_SIZE = 5000;
+
+  /** index updates from WAL edits replayed, but not yet written */
+  private final IndexUpdateBuffer replayedUpdates = new IndexUpdateBuffer();
+  private int replayBatchSize;
+
   @Override
   public void start(CoprocessorEnvironment e) throws IOException {
     this.factory = new CoprocessorHTableFactory(e);
@@ -106,28 +130,43 @@ public class Indexer extends BaseRegionObserver {
 
     // and setup the actual index writer
     this.writer = new IndexWriter("Region: " + env.getRegion().getRegionNameAsString(),
-            env.getRegionServerServices(), factory);
+            env.getRegionServerServices(), factory, conf);
+    this.replayBatchSize = conf.getInt(REPLAY_BATCH_SIZE_CONF_KEY, DEFAULT_REPLAY_BATCH_SIZE);
+  }
+
+  @Override
+  public void stop(CoprocessorEnvironment e) throws IOException {
+    if (this.writer != null) {
+      this.writer.stop();
+    }
   }
 
   @Override
   public void prePut(final ObserverContext<RegionCoprocessorEnvironment> c, final Put put,
       final WALEdit edit, final boolean writeToWAL) throws IOException {
+    // this hook runs before the row is locked, so leave batch indexed mutations to preBatchMutate
+    if (this.builder.isBatchIndexed(put)) {
+      return;
+    }
     // get the mapping for index column -> target index table
     Collection<Pair<Mutation, String>> indexUpdates = this.builder.getIndexUpdate(put);
 
-    doPre(indexUpdates, edit, writeToWAL);
+    doPre(put.getRow(), indexUpdates, edit, writeToWAL);
   }
 
   @Override
   public void preDelete(ObserverContext<RegionCoprocessorEnvironment> e, Delete delete,
       WALEdit edit, boolean writeToWAL) throws IOException {
+    if (this.builder.isBatchIndexed(delete)) {
+      return;
+    }
     // get the mapping for index column -> target index table
     Collection<Pair<Mutation, String>> indexUpdates = this.builder.getIndexUpdate(delete);
 
-    doPre(indexUpdates, edit, writeToWAL);
+    doPre(delete.getRow(), indexUpdates, edit, writeToWAL);
   }
 
-  private void doPre(Collection<Pair<Mutation, String>> updates,
+  private void doPre(byte[] dataRow, Collection<Pair<Mutation, String>> updates,
       final WALEdit edit, final boolean writeToWAL) throws IOException {
     // no index updates, so we are done
     if (updates == null || updates.size() == 0) {
@@ -148,13 +187,94 @@ public class Indexer extends BaseRegionObserver {
 
     // we have all the WAL durability, so we just update the WAL entry and move on
     for (Pair<Mutation, String> entry : updates) {
-      edit.add(new IndexedKeyValue(entry.getSecond(), entry.getFirst()));
+      edit.add(new IndexedKeyValue(entry.getSecond(), entry.getFirst(), dataRow));
     }
 
     // lock the log, so we are sure that index write gets atomically committed
     INDEX_UPDATE_LOCK.lock();
   }
 
+  /**
+   * Build the index updates of the batch indexed mutations of each row together, now that their
+   * rows are locked and before any of them is applied, so that each index update reflects the state
+   * of its row after all of the row's mutations in the batch. The updates are added to the WAL edit
+   * of the first of these mutations that is written to the WAL, which the batch shares with all its
+   * mutations.
+   */
+  @Override
+  public void preBatchMutate(ObserverContext<RegionCoprocessorEnvironment> c,
+      MiniBatchOperationInProgress<Pair<Mutation, Integer>> miniBatchOp) throws IOException {
+    Map<ImmutableBytesWritable, List<Mutation>> rowMutations = null;
+    int walIndex = -1;
+    for (int i = 0; i < miniBatchOp.size(); i++) {
+      // skip any mutation that already failed its checks or was bypassed by a pre hook
+      if (miniBatchOp.getOperationStatus(i).getOperationStatusCode() != OperationStatusCode.NOT_RUN) {
+        continue;
+      }
+      Mutation m = miniBatchOp.getOperation(i).getFirst();
+      if (!this.builder.isBatchIndexed(m)) {
+        continue;
+      }
+      if (rowMutations == null) {
+        rowMutations = new LinkedHashMap<ImmutableBytesWritable, List<Mutation>>();
+      }
+      ImmutableBytesWritable row = new ImmutableBytesWritable(m.getRow());
+      List<Mutation> mutations = rowMutations.get(row);
+      if (mutations == null) {
+        mutations = new ArrayList<Mutation>(2);
+        rowMutations.put(row, mutations);
+      }
+      mutations.add(m);
+      if (walIndex < 0 && m.getWriteToWAL()) {
+        walIndex = i;
+      }
+    }
+    if (rowMutations == null) {
+      return;
+    }
+    Collection<Pair<Mutation, String>> indexUpdates = new ArrayList<Pair<Mutation, String>>();
+    List<byte[]> dataRows = new ArrayList<byte[]>();
+    for (Entry<ImmutableBytesWritable, List<Mutation>> row : rowMutations.entrySet()) {
+      Collection<Pair<Mutation, String>> rowUpdates =
+          this.builder.getBatchIndexUpdate(row.getValue());
+      if (rowUpdates == null) {
+        continue;
+      }
+      for (Pair<Mutation, String> update : rowUpdates) {
+        indexUpdates.add(update);
+        dataRows.add(row.getKey().get());
+      }
+    }
+    if (indexUpdates.size() == 0) {
+      return;
+    }
+
+    // none of the mutations are written to the WAL, so do the index update right away
+    if (walIndex < 0) {
+      try {
+        this.writer.write(indexUpdates);
+        return;
+      } catch (CannotReachIndexException e) {
+        LOG.error("Failed to update index with entries:" + indexUpdates, e);
+        throw new IOException(e);
+      }
+    }
+
+    WALEdit edit = miniBatchOp.getWalEdit(walIndex);
+    if (edit == null) {
+      edit = new WALEdit();
+      miniBatchOp.setWalEdit(walIndex, edit);
+    }
+    int i = 0;
+    for (Pair<Mutation, String> entry : indexUpdates) {
+      edit.add(new IndexedKeyValue(entry.getSecond(), entry.getFirst(), dataRows.get(i++), true));
+    }
+
+    // lock the log, so we are sure that index write gets atomically committed. The batch takes the
+    // lock once, so it is released once, when its updates are written.
+    INDEX_UPDATE_LOCK.lock();
+  }
+
   @Override
   public void postPut(ObserverContext<RegionCoprocessorEnvironment> e, Put put, WALEdit edit,
       boolean writeToWAL) throws IOException {
@@ -177,7 +297,24 @@ public class Indexer extends BaseRegionObserver {
       return;
     }
 
-    Collection<Pair<Mutation, String>> indexUpdates = extractIndexUpdate(edit);
+    Collection<Pair<Mutation, String>> indexUpdates = new ArrayList<Pair<Mutation, String>>();
+    boolean singleUpdates = false;
+    boolean batchUpdates = false;
+    for (KeyValue kv : edit.getKeyValues()) {
+      if (kv instanceof IndexedKeyValue) {
+        IndexedKeyValue ikv = (IndexedKeyValue) kv;
+        if (ikv.isBatchUpdate()) {
+          // the batch edit is passed to the post hook of each of its mutations
+          if (!ikv.markBatchWritten()) {
+            continue;
+          }
+          batchUpdates = true;
+        } else {
+          singleUpdates = true;
+        }
+        indexUpdates.add(new Pair<Mutation, String>(ikv.getMutation(), ikv.getIndexTable()));
+      }
+    }
 
     // early exit - we have nothing to write, so we don't need to do anything else. NOTE: we don't
     // release the WAL Rolling lock (INDEX_UPDATE_LOCK) since we never take it in doPre if there are
@@ -192,32 +329,54 @@ public class Indexer extends BaseRegionObserver {
     writer.writeAndKillYourselfOnFailure(indexUpdates);
 
     // release the lock on the index, we wrote everything properly
-    INDEX_UPDATE_LOCK.unlock();
+    if (singleUpdates) {
+      INDEX_UPDATE_LOCK.unlock();
+    }
+    if (batchUpdates) {
+      INDEX_UPDATE_LOCK.unlock();
+    }
   }
 
-  /**
-   * Extract the index updates from the WAL Edit
-   * @param edit to search for index updates
-   * @return the mutations to apply to the index tables
-   */
-  private Collection<Pair<Mutation, String>> extractIndexUpdate(WALEdit edit) {
-    Collection<Pair<Mutation, String>> indexUpdates = new ArrayList<Pair<Mutation, String>>();
-    for (KeyValue kv : edit.getKeyValues()) {
+  @Override
+  public void preWALRestore(ObserverContext<RegionCoprocessorEnvironment> env, HRegionInfo info,
+      HLogKey logKey, WALEdit logEdit) throws IOException {
+    for (KeyValue kv : logEdit.getKeyValues()) {
       if (kv instanceof IndexedKeyValue) {
         IndexedKeyValue ikv = (IndexedKeyValue) kv;
-        indexUpdates.add(new Pair<Mutation, String>(ikv.getMutation(), ikv
-            .getIndexTable()));
+        replayedUpdates.add(ikv.getMutation(), ikv.getIndexTable());
       }
     }
+    if (replayedUpdates.size() >= replayBatchSize) {
+      writeReplayedUpdates();
+    }
+  }
 
-    return indexUpdates;
+  /**
+   * The replayed edits are flushed before the recovered edits are removed, so make sure all the
+   * index updates they carried are written by then.
+   */
+  @Override
+  public InternalScanner preFlush(ObserverContext<RegionCoprocessorEnvironment> c, Store store,
+      InternalScanner scanner) throws IOException {
+    writeReplayedUpdates();
+    return super.preFlush(c, store, scanner);
   }
 
+  /**
+   * Barrier for the index updates of replayed edits that didn't need a flush (e.g. the edits were
+   * already persisted) - they are all written before the region is opened.
+   */
   @Override
-  public void preWALRestore(ObserverContext<RegionCoprocessorEnvironment> env, HRegionInfo info,
-      HLogKey logKey, WALEdit logEdit) throws IOException {
-    Collection<Pair<Mutation, String>> indexUpdates = extractIndexUpdate(logEdit);
-    writer.writeAndKillYourselfOnFailure(indexUpdates);
+  public void postOpen(ObserverContext<RegionCoprocessorEnvironment> c) {
+    writeReplayedUpdates();
+    super.postOpen(c);
+  }
+
+  private void writeReplayedUpdates() {
+    if (replayedUpdates.size() == 0) {
+      return;
+    }
+    writer.writeAndKillYourselfOnFailure(replayedUpdates.drain());
   }
 
   /**
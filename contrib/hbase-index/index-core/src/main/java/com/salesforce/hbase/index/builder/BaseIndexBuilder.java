@@ -1,8 +1,15 @@
 package com.salesforce.hbase.index.builder;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.util.Pair;
 
 /**
  * Basic implementation of the {@link IndexBuilder} that doesn't do any actual work of indexing.
@@ -19,4 +26,30 @@ public abstract class BaseIndexBuilder implements IndexBuilder {
   public void setup(RegionCoprocessorEnvironment conf) throws IOException {
     // noop
   }
+
+  /**
+   * By default, each mutation is indexed on its own.
+   */
+  @Override
+  public boolean isBatchIndexed(Mutation m) {
+    return false;
+  }
+
+  /**
+   * By default, the index updates of each mutation are built on their own, in the order of the
+   * batch.
+   */
+  @Override
+  public Collection<Pair<Mutation, String>> getBatchIndexUpdate(List<Mutation> mutations)
+      throws IOException {
+    Collection<Pair<Mutation, String>> updates = new ArrayList<Pair<Mutation, String>>();
+    for (Mutation m : mutations) {
+      Collection<Pair<Mutation, String>> mutationUpdates =
+          m instanceof Put ? getIndexUpdate((Put) m) : getIndexUpdate((Delete) m);
+      if (mutationUpdates != null) {
+        updates.addAll(mutationUpdates);
+      }
+    }
+    return updates;
+  }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.salesforce.hbase.index.builder;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.hadoop.hbase.KeyValue;
@@ -53,6 +54,31 @@ public interface IndexBuilder {
    */
   public Collection<Pair<Mutation, String>> getIndexUpdate(Delete delete) throws IOException;
 
+  /**
+   * @param m {@link Mutation} to the primary table that may be indexed
+   * @return <tt>true</tt> if the index updates for the mutation should be built together with the
+   *         other mutations of its batch, through {@link #getBatchIndexUpdate(List)}, rather than
+   *         on their own through {@link #getIndexUpdate(Put)} or {@link #getIndexUpdate(Delete)}.
+   *         Batch indexed mutations must be applied through a batch (e.g. HTable#batch or
+   *         HTable#put) - a {@link Delete} applied on its own through HTable#delete isn't indexed.
+   */
+  public boolean isBatchIndexed(Mutation m);
+
+  /**
+   * Build the index updates for the mutations of a row in a batch for which
+   * {@link #isBatchIndexed(Mutation)} is <tt>true</tt>. This is called once per row of the batch,
+   * once the rows of the batch are locked and before any of the mutations is applied, so the index
+   * updates can be derived from the state of the row after all of its mutations in the batch are
+   * applied, without another write to the row interleaving.
+   * @param mutations to a single row of the primary table, in the order they are applied in the
+   *          batch. A row may have more than one mutation, e.g. the {@link Put} and the
+   *          {@link Delete} of a RowMutations.
+   * @return a Map of the mutations to make -> target index table name
+   * @throws IOException on failure
+   */
+  public Collection<Pair<Mutation, String>> getBatchIndexUpdate(List<Mutation> mutations)
+      throws IOException;
+
   /**
    * Build an index update to cleanup the index when we remove {@link KeyValue}s via the normal
    * flush or compaction mechanisms.
@@ -14,10 +14,13 @@ public class CoveredColumn {
   public static final String SEPARATOR = ":";
   String family;
   byte[] qualifier;
+  /** serialized family, so it doesn't have to be converted for every update */
+  final byte[] familyBytes;
 
   public CoveredColumn(String family, byte[] qualifier) {
     this.family = family;
     this.qualifier = qualifier;
+    this.familyBytes = Bytes.toBytes(family);
   }
 
   public static CoveredColumn parse(String spec) {
@@ -60,6 +63,16 @@ public class CoveredColumn {
     return qualifier == null || Arrays.equals(qual, qualifier);
   }
 
+  /**
+   * Same as {@link #matchesQualifier(byte[])}, but without copying the qualifier out of the
+   * {@link KeyValue}.
+   * @param kv to check against
+   * @return <tt>true</tt> if this column covers the qualifier of the given {@link KeyValue}.
+   */
+  public boolean matchesQualifier(KeyValue kv) {
+    return qualifier == null || kv.matchingQualifier(qualifier);
+  }
+
   /**
    * @return <tt>true</tt> if this should include all column qualifiers, <tt>false</tt> otherwise
    */
@@ -1,6 +1,5 @@
 package com.salesforce.hbase.index.builder.covered;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -10,21 +9,15 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import org.apache.commons.lang.ArrayUtils;
-import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
-import org.apache.hadoop.hbase.filter.BinaryComparator;
-import org.apache.hadoop.hbase.regionserver.ExposedMemStore;
-import org.apache.hadoop.hbase.regionserver.KeyValueScanner;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.Pair;
 
-import com.salesforce.hbase.index.builder.covered.util.FamilyOnlyFilter;
-import com.salesforce.hbase.index.builder.covered.util.FilteredKeyValueScanner;
+import com.salesforce.hbase.index.builder.covered.util.RowState;
 
 /**
  * Handle serialization to/from a column-covered index.
@@ -34,21 +27,15 @@ public class CoveredColumnIndexCodec {
   private static final byte[] EMPTY_BYTE_ARRAY = new byte[0];
   private static final long NO_NEWER_PRIMARY_TABLE_ENTRY_TIMESTAMP = Long.MAX_VALUE;
   public static final byte[] INDEX_ROW_COLUMN_FAMILY = Bytes.toBytes("INDEXED_COLUMNS");
-  private static final Configuration conf = HBaseConfiguration.create();
-  {
-    // keep it all on the heap - hopefully this should be a bit faster and shouldn't need to grow
-    // very large as we are just handling a single row.
-    conf.setBoolean("hbase.hregion.memstore.mslab.enabled", false);
-  }
 
   private ColumnGroup group;
-  private ExposedMemStore memstore;
+  private RowState state;
   private byte[] pk;
 
   public CoveredColumnIndexCodec(byte[] primaryKey, Result currentRow, ColumnGroup group) {
     this.pk =primaryKey;
     this.group = group;
-    this.memstore = new ExposedMemStore(conf, KeyValue.COMPARATOR);
+    this.state = new RowState();
     if (currentRow != null && !currentRow.isEmpty()) {
       addAll(currentRow.list());
     }
@@ -81,14 +68,14 @@ public class CoveredColumnIndexCodec {
   }
 
   /**
-   * Add all the {@link KeyValue}s in the list to the memstore. This is just a small utility method
-   * around {@link ExposedMemStore#add(KeyValue)} to make it easier to deal with batches of
+   * Add all the {@link KeyValue}s in the list to the state of the current row. This is just a small
+   * utility method around {@link RowState#add(KeyValue)} to make it easier to deal with batches of
    * {@link KeyValue}s.
    * @param list keyvalues to add
    */
   public void addAll(Iterable<KeyValue> list) {
     for (KeyValue kv : list) {
-      this.memstore.add(kv);
+      this.state.add(kv);
     }
   }
 
@@ -121,10 +108,8 @@ public class CoveredColumnIndexCodec {
     long nextNewestTs = NO_NEWER_PRIMARY_TABLE_ENTRY_TIMESTAMP;
     // go through each group,in order, to find the matching value (or none)
     for (CoveredColumn column : group) {
-      final byte[] family = Bytes.toBytes(column.family);
-      // filter families that aren't what we are looking for
-      FamilyOnlyFilter familyFilter = new FamilyOnlyFilter(new BinaryComparator(family));
-      KeyValueScanner scanner = new FilteredKeyValueScanner(familyFilter, this.memstore);
+      // only the family we are looking for, already in sorted order
+      List<KeyValue> kvs = this.state.getFamily(column.familyBytes);
 
       /*
        * now we have two possibilities. (1) the CoveredColumn has a specific column - this is the
@@ -134,7 +119,7 @@ public class CoveredColumnIndexCodec {
        * mapping if its the first key
        */
 
-      Collection<ColumnEntry> entries = getNextEntries(column, scanner, timestamp);
+      Collection<ColumnEntry> entries = getNextEntries(column, kvs, timestamp);
       for (ColumnEntry entry : entries) {
         topValues.add(entry.value);
         columns.add(entry.column);
@@ -165,129 +150,119 @@ public class CoveredColumnIndexCodec {
   }
 
   /**
-   * Find the next batch of entries from the scanner for the given column. The scanner is expected
-   * to to filter out rows that do not match the passed column.
+   * Find the next batch of entries from the {@link KeyValue}s of the given column's family. We walk
+   * the entire family because we may have a family delete on top that covers everything below it,
+   * which we would miss if we only looked at the family:qualifier.
    * @param column
-   * @param scanner
+   * @param kvs all the {@link KeyValue}s of the column's family, in sorted order
    * @param timestamp
    * @return
    */
-  private Collection<ColumnEntry> getNextEntries(CoveredColumn column, KeyValueScanner scanner,
+  private Collection<ColumnEntry> getNextEntries(CoveredColumn column, List<KeyValue> kvs,
       long timestamp) {
-    Collection<ColumnEntry> entries = new ArrayList<ColumnEntry>();
-    // key to seek. We can only seek to the family because we may have a family delete on top that
-    // covers everything below it, which we would miss if we seek right to the family:qualifier
-    KeyValue first = KeyValue.createFirstOnRow(pk, Bytes.toBytes(column.family), null);
     ColumnEntry nextEntry = new ColumnEntry(column);
-    try {
-      // seek to right before the key in the scanner
-      byte[] value = EMPTY_BYTE_ARRAY;
-      // no values, so add a null against the entire CoveredColumn
-      if (!scanner.seek(first)) {
-        nextEntry.value = value;
-        return Collections.singleton(nextEntry);
+    byte[] value = EMPTY_BYTE_ARRAY;
+    // no values, so add a null against the entire CoveredColumn
+    if (kvs.isEmpty()) {
+      nextEntry.value = value;
+      return Collections.singleton(nextEntry);
+    }
+    Collection<ColumnEntry> entries = new ArrayList<ColumnEntry>();
+    byte[] prevCol = null;
+    int index = 0;
+    KeyValue coveringDelete = null;
+    boolean done = false;
+    do {
+      KeyValue next = kvs.get(index++);
+      boolean columnMatches = column.matchesQualifier(next);
+
+      // first check the timestamp to figure out if it even matches the given row
+      if (next.getTimestamp() > timestamp) {
+        // newer timestamp, so we need to update the entry's seen ts
+        nextEntry.prevTs = next.getTimestamp();
+        // we skip this entry because its newer than the index update we want to make
+        continue;
       }
 
-      byte[] prevCol = null;
-      // not null because seek() returned true
-      KeyValue next = scanner.next();
-      KeyValue coveringDelete = null;
-      boolean done = false;
-      do {
-        byte[] qual = next.getQualifier();
-        boolean columnMatches = column.matchesQualifier(qual);
-
-        // first check the timestamp to figure out if it even matches the given row
-        if (next.getTimestamp() > timestamp) {
-          // newer timestamp, so we need to update the entry's seen ts
-          nextEntry.prevTs = next.getTimestamp();
-          // we skip this entry because its newer than the index update we want to make
-          continue;
-        }
+      // at this point, we are sure the entry has our target timestamp or is older
 
-        // at this point, we are sure the entry has our target timestamp or is older
-
-        /*
-         * check for a delete to see if we can just replace this with a single delete; if its a
-         * family delete, then we have deleted all columns and are definitely done with this
-         * coveredcolumn. This works because deletes will always sort first, so we can be sure that
-         * if we see a delete, we can skip everything else.
-         */
-        if (next.isDeleteFamily()) {
-          // count it as a non-match for all rows, so we add a single null for the entire column
+      /*
+       * check for a delete to see if we can just replace this with a single delete; if its a
+       * family delete, then we have deleted all columns and are definitely done with this
+       * coveredcolumn. This works because deletes will always sort first, so we can be sure that
+       * if we see a delete, we can skip everything else.
+       */
+      if (next.isDeleteFamily()) {
+        // count it as a non-match for all rows, so we add a single null for the entire column
+        value = EMPTY_BYTE_ARRAY;
+        break;
+      }
+      // its not a family delete and it matches the target column and is <= the target timestamp
+      else if (columnMatches) {
+        switch (KeyValue.Type.codeToType(next.getType())) {
+        case DeleteColumn:
+          // if its the delete of the entire column, then there are no more possible columns it
+          // could be and we are done.
           value = EMPTY_BYTE_ARRAY;
           break;
-        }
-        // its not a family delete and it matches the target column and is <= the target timestamp
-        else if (columnMatches) {
-          switch (KeyValue.Type.codeToType(next.getType())) {
-          case DeleteColumn:
-            // if its the delete of the entire column, then there are no more possible columns it
-            // could be and we are done.
-            value = EMPTY_BYTE_ARRAY;
-            break;
-          case Delete:
-            // we are just deleting the single column value at this point.
-            // therefore we just skip this entry and go onto the next one. The only caveat is that
-            // we should still cover the next entry if this delete applies to the next entry, so we
-            // have to keep around a reference to the KV to compare against the next valid entry
-            coveringDelete = next;
-            value = EMPTY_BYTE_ARRAY;
-            continue;
-          default:
-            // its definitely not a DeleteFamily, since we checked that already, so its a valid
-            // entry and we can just add it, as long as it isn't directly covered by the previous
-            // delete
-            if (coveringDelete != null
-                && coveringDelete.matchingColumn(next.getFamily(), next.getQualifier())) {
-              // check to see if the match applies directly to this version
-              if (coveringDelete.getTimestamp() == next.getTimestamp()) {
-                // this covers this exact key. Therefore, we can skip this key AND discard the
-                // covering delete because it must only match this single version
-                coveringDelete = null;
-                value = EMPTY_BYTE_ARRAY;
-                continue;
-              }
-            } else {
-              // delete no longer applies, we are onto a new cf/cq
+        case Delete:
+          // we are just deleting the single column value at this point.
+          // therefore we just skip this entry and go onto the next one. The only caveat is that
+          // we should still cover the next entry if this delete applies to the next entry, so we
+          // have to keep around a reference to the KV to compare against the next valid entry
+          coveringDelete = next;
+          value = EMPTY_BYTE_ARRAY;
+          continue;
+        default:
+          // its definitely not a DeleteFamily, since we checked that already, so its a valid
+          // entry and we can just add it, as long as it isn't directly covered by the previous
+          // delete
+          if (coveringDelete != null
+              && coveringDelete.matchingColumn(next.getFamily(), next.getQualifier())) {
+            // check to see if the match applies directly to this version
+            if (coveringDelete.getTimestamp() == next.getTimestamp()) {
+              // this covers this exact key. Therefore, we can skip this key AND discard the
+              // covering delete because it must only match this single version
               coveringDelete = null;
-              value = next.getValue();
-            }
-
-          }
-
-          done = true;
-          // we are covering a single column, then we are done.
-          if (column.allColumns()) {
-            /*
-             * we are matching all columns, so we need to make sure that this is a new qualifier. If
-             * its a new qualifier, then we want to add that value, but otherwise we can skip ahead
-             * to the next key.
-             */
-            if (prevCol == null || !Bytes.equals(prevCol, qual)) {
-              prevCol = qual;
-            } else {
+              value = EMPTY_BYTE_ARRAY;
               continue;
             }
+          } else {
+            // delete no longer applies, we are onto a new cf/cq
+            coveringDelete = null;
+            value = next.getValue();
           }
+
         }
 
-        // add the array to the list
-        nextEntry.value = value;
-        entries.add(nextEntry);
-        //create a new entry, for the next iteration
-        nextEntry = new ColumnEntry(column);
-        // only go around again if there is more data and we are matching against all column
-      } while ((!done || column.allColumns()) && (next = scanner.next()) != null);
-
-      // we never found a match, so we need to add an empty entry
-      if (!done) {
-        nextEntry.value = value;
-        entries.add(nextEntry);
+        done = true;
+        // we are covering a single column, then we are done.
+        if (column.allColumns()) {
+          /*
+           * we are matching all columns, so we need to make sure that this is a new qualifier. If
+           * its a new qualifier, then we want to add that value, but otherwise we can skip ahead
+           * to the next key.
+           */
+          if (prevCol == null || !next.matchingQualifier(prevCol)) {
+            prevCol = next.getQualifier();
+          } else {
+            continue;
+          }
+        }
       }
 
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+      // add the array to the list
+      nextEntry.value = value;
+      entries.add(nextEntry);
+      //create a new entry, for the next iteration
+      nextEntry = new ColumnEntry(column);
+      // only go around again if there is more data and we are matching against all column
+    } while ((!done || column.allColumns()) && index < kvs.size());
+
+    // we never found a match, so we need to add an empty entry
+    if (!done) {
+      nextEntry.value = value;
+      entries.add(nextEntry);
     }
 
     return entries;
@@ -0,0 +1,62 @@
+package com.salesforce.hbase.index.builder.covered.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * The state of a single row, as the {@link KeyValue}s of each of its column families.
+ * <p>
+ * This is a lightweight replacement for a full memstore: each family is just a list of
+ * {@link KeyValue}s kept in {@link KeyValue#COMPARATOR} order - by qualifier, then newest timestamp
+ * first and deletes ahead of puts - so the index codec can walk a family in a single pass, without
+ * seeking or filtering out the other families. As in the memstore, adding a {@link KeyValue} with
+ * the same key as one that is already present replaces it.
+ * <p>
+ * Updates generally arrive in (nearly) sorted order, so adding them is usually an append.
+ */
+public class RowState {
+
+  private final Map<byte[], List<KeyValue>> families = new TreeMap<byte[], List<KeyValue>>(
+      Bytes.BYTES_COMPARATOR);
+
+  /**
+   * Add a {@link KeyValue} to the row, replacing any with the exact same key.
+   * @param kv to add. Must belong to the same row as all the other added {@link KeyValue}s.
+   */
+  public void add(KeyValue kv) {
+    byte[] family = kv.getFamily();
+    List<KeyValue> kvs = families.get(family);
+    if (kvs == null) {
+      kvs = new ArrayList<KeyValue>();
+      families.put(family, kvs);
+    }
+    int size = kvs.size();
+    // fast path for updates added in order
+    if (size == 0 || KeyValue.COMPARATOR.compare(kvs.get(size - 1), kv) < 0) {
+      kvs.add(kv);
+      return;
+    }
+    int index = Collections.binarySearch(kvs, kv, KeyValue.COMPARATOR);
+    if (index >= 0) {
+      kvs.set(index, kv);
+    } else {
+      kvs.add(-(index + 1), kv);
+    }
+  }
+
+  /**
+   * @param family column family to get
+   * @return the {@link KeyValue}s of the family, in {@link KeyValue#COMPARATOR} order. Empty if the
+   *         row has none. Must not be modified.
+   */
+  public List<KeyValue> getFamily(byte[] family) {
+    List<KeyValue> kvs = families.get(family);
+    return kvs == null ? Collections.<KeyValue> emptyList() : kvs;
+  }
+}
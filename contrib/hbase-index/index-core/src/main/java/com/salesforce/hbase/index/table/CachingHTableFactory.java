@@ -0,0 +1,129 @@
+package com.salesforce.hbase.index.table;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hbase.client.HTableInterface;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * {@link HTableFactory} that keeps a small pool of already-opened {@link HTableInterface}s per
+ * table, so repeated index writes don't pay to resolve a new table on every batch.
+ * <p>
+ * {@link HTableInterface}s are not thread-safe, so a table handed out by {@link #getTable(byte[])}
+ * is owned by the caller until it is given back via {@link #releaseTable(byte[], HTableInterface)}.
+ * At most <tt>maxCachedPerTable</tt> idle tables are kept for each table name; any extras are just
+ * closed when they are released.
+ */
+public class CachingHTableFactory implements HTableFactory {
+
+  private static final Log LOG = LogFactory.getLog(CachingHTableFactory.class);
+
+  private final HTableFactory delegate;
+  private final int maxCachedPerTable;
+  private final ConcurrentMap<ImmutableBytesWritable, Pool> pools =
+      new ConcurrentHashMap<ImmutableBytesWritable, Pool>();
+  private volatile boolean stopped = false;
+
+  /**
+   * @param delegate factory used to actually open a table when there isn't one cached
+   * @param maxCachedPerTable max number of idle tables to keep open for any single table name
+   */
+  public CachingHTableFactory(HTableFactory delegate, int maxCachedPerTable) {
+    this.delegate = delegate;
+    this.maxCachedPerTable = maxCachedPerTable;
+  }
+
+  @Override
+  public HTableInterface getTable(byte[] tablename) throws IOException {
+    HTableInterface table = getPool(tablename).poll();
+    if (table != null) {
+      return table;
+    }
+    return delegate.getTable(tablename);
+  }
+
+  /**
+   * Give back a table previously obtained from {@link #getTable(byte[])}. The caller must not use
+   * the table after it is released.
+   * @param tablename name of the table
+   * @param table table to return to the cache
+   */
+  public void releaseTable(byte[] tablename, HTableInterface table) {
+    if (stopped || !getPool(tablename).offer(table)) {
+      closeQuietly(table);
+    }
+  }
+
+  /**
+   * Close all the idle tables and stop caching any tables that are released afterwards.
+   */
+  public void shutdown() {
+    stopped = true;
+    for (Pool pool : pools.values()) {
+      HTableInterface table;
+      while ((table = pool.poll()) != null) {
+        closeQuietly(table);
+      }
+    }
+    pools.clear();
+  }
+
+  private Pool getPool(byte[] tablename) {
+    ImmutableBytesWritable key = new ImmutableBytesWritable(tablename);
+    Pool pool = pools.get(key);
+    if (pool == null) {
+      pool = new Pool(maxCachedPerTable);
+      Pool existing = pools.putIfAbsent(key, pool);
+      if (existing != null) {
+        pool = existing;
+      }
+    }
+    return pool;
+  }
+
+  private static void closeQuietly(HTableInterface table) {
+    try {
+      table.close();
+    } catch (IOException e) {
+      LOG.error("Failed to close connection to table:" + Bytes.toString(table.getTableName()), e);
+    }
+  }
+
+  /**
+   * Bounded collection of idle tables for a single table name.
+   */
+  private static class Pool {
+    private final Queue<HTableInterface> idle = new ConcurrentLinkedQueue<HTableInterface>();
+    private final AtomicInteger size = new AtomicInteger(0);
+    private final int maxSize;
+
+    private Pool(int maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    private HTableInterface poll() {
+      HTableInterface table = idle.poll();
+      if (table != null) {
+        size.decrementAndGet();
+      }
+      return table;
+    }
+
+    private boolean offer(HTableInterface table) {
+      if (size.incrementAndGet() > maxSize) {
+        size.decrementAndGet();
+        return false;
+      }
+      idle.offer(table);
+      return true;
+    }
+  }
+}
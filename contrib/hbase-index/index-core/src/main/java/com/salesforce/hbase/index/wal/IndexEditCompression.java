@@ -0,0 +1,64 @@
+package com.salesforce.hbase.index.wal;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Writes and reads the names that repeat across the compact encoding of {@link IndexedKeyValue}s -
+ * index table names, families and qualifiers. When the WAL is compressed, these are encoded against
+ * the same dictionaries the WAL uses for regular {@link org.apache.hadoop.hbase.KeyValue}s, so a
+ * name is only written out in full the first time it is seen.
+ */
+public interface IndexEditCompression {
+
+  /**
+   * Writes each name in full, for uncompressed WALs.
+   */
+  public static final IndexEditCompression NONE = new IndexEditCompression() {
+
+    @Override
+    public void writeTable(DataOutput out, byte[] table) throws IOException {
+      Bytes.writeByteArray(out, table);
+    }
+
+    @Override
+    public byte[] readTable(DataInput in) throws IOException {
+      return Bytes.readByteArray(in);
+    }
+
+    @Override
+    public void writeFamily(DataOutput out, byte[] family) throws IOException {
+      Bytes.writeByteArray(out, family);
+    }
+
+    @Override
+    public byte[] readFamily(DataInput in) throws IOException {
+      return Bytes.readByteArray(in);
+    }
+
+    @Override
+    public void writeQualifier(DataOutput out, byte[] qualifier) throws IOException {
+      Bytes.writeByteArray(out, qualifier);
+    }
+
+    @Override
+    public byte[] readQualifier(DataInput in) throws IOException {
+      return Bytes.readByteArray(in);
+    }
+  };
+
+  public void writeTable(DataOutput out, byte[] table) throws IOException;
+
+  public byte[] readTable(DataInput in) throws IOException;
+
+  public void writeFamily(DataOutput out, byte[] family) throws IOException;
+
+  public byte[] readFamily(DataInput in) throws IOException;
+
+  public void writeQualifier(DataOutput out, byte[] qualifier) throws IOException;
+
+  public byte[] readQualifier(DataInput in) throws IOException;
+}
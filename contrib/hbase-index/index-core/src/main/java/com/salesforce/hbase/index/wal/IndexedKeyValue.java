@@ -4,17 +4,35 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
 
 import org.apache.commons.io.output.ByteArrayOutputStream;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.regionserver.wal.HLog;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
 
 public class IndexedKeyValue extends KeyValue {
 
+  /** Mutation types of the compact encoding */
+  private static final byte PUT_TYPE = 0;
+  private static final byte DELETE_TYPE = 1;
+
   String indexTableName;
   Mutation mutation;
+  /** Row of the primary table mutation the update was made for, if known */
+  byte[] dataRow;
+  /** Not persisted - only tracks the writing of the update in the running region server */
+  private boolean batchUpdate;
+  private boolean batchWritten;
   
   public IndexedKeyValue() {
   }
@@ -24,6 +42,30 @@ public class IndexedKeyValue extends KeyValue {
     this.mutation = mutation;
   }
 
+  /**
+   * @param target index table name
+   * @param mutation to apply to the index table
+   * @param dataRow row of the primary table mutation the update was made for, or <tt>null</tt> if
+   *          unknown. The row of the index update is written to the WAL encoded against it.
+   */
+  public IndexedKeyValue(String target, Mutation mutation, byte[] dataRow) {
+    this(target, mutation);
+    this.dataRow = dataRow;
+  }
+
+  /**
+   * @param target index table name
+   * @param mutation to apply to the index table
+   * @param dataRow row of the primary table mutation the update was made for, or <tt>null</tt> if
+   *          unknown
+   * @param batchUpdate <tt>true</tt> if the update was built for a whole batch of primary table
+   *          mutations, rather than for the single mutation whose edit it was added to
+   */
+  public IndexedKeyValue(String target, Mutation mutation, byte[] dataRow, boolean batchUpdate) {
+    this(target, mutation, dataRow);
+    this.batchUpdate = batchUpdate;
+  }
+
   public String getIndexTable() {
     return indexTableName;
   }
@@ -32,6 +74,34 @@ public class IndexedKeyValue extends KeyValue {
     return mutation;
   }
 
+  /**
+   * @return row of the primary table mutation the update was made for, or <tt>null</tt> if unknown.
+   *         Only kept in the WAL by the compact encoding.
+   */
+  public byte[] getDataRow() {
+    return dataRow;
+  }
+
+  /**
+   * @return <tt>true</tt> if the update was built for a whole batch of primary table mutations
+   */
+  public boolean isBatchUpdate() {
+    return batchUpdate;
+  }
+
+  /**
+   * The edit of a batch is passed to the post hook of each of its mutations, so a batch update is
+   * seen once per mutation of the batch, but must only be written once.
+   * @return <tt>true</tt> if the update hadn't been marked as written yet
+   */
+  public boolean markBatchWritten() {
+    if (batchWritten) {
+      return false;
+    }
+    batchWritten = true;
+    return true;
+  }
+
   /**
    * This is a KeyValue that shouldn't actually be replayed, so we always mark it as an
    * {@link HLog#METAFAMILY} so it isn't replayed via the normal replay mechanism
@@ -104,6 +174,147 @@ public class IndexedKeyValue extends KeyValue {
     this.mutation.write(out);
   }
 
+  /**
+   * @return <tt>true</tt> if the mutation can be written via
+   *         {@link #writeCompactData(DataOutput, byte[], IndexEditCompression)}. Only plain
+   *         {@link Put}s and {@link Delete}s that don't hold a row lock can be.
+   */
+  boolean supportsCompactData() {
+    Class<?> clazz = this.mutation.getClass();
+    return (clazz == Put.class || clazz == Delete.class) && this.mutation.getLockId() == -1L;
+  }
+
+  /**
+   * Write the underlying data for the entry in the compact encoding. Rather than the full
+   * serialization of the mutation, this writes its row once and each of its families and qualifiers
+   * through the given compression, instead of repeating them in every {@link KeyValue}. The row of
+   * the primary table mutation the update was made for is written first, encoded against the one
+   * of the previous compact update of the edit, as the updates of a batch are often made for the
+   * same or neighbouring rows. The row of the update is then encoded against it. This doesn't
+   * depend on the order of the update and the primary table {@link KeyValue}s in the edit - HRegion
+   * adds the updates of a coprocessor before the {@link KeyValue}s of the mutations. Does not do
+   * any special prefixing - writing should be done via
+   * {@link KeyValueCodec#write(DataOutput, KeyValue, byte[], IndexEditCompression)}.
+   * @param out to write data to. Does not close or flush the passed object.
+   * @param previousDataRow data row of the previous compact update written to the same edit, or
+   *          <tt>null</tt>
+   * @param compression to write the table, family and qualifier names
+   * @throws IOException if there is a problem writing the underlying data
+   */
+  void writeCompactData(DataOutput out, byte[] previousDataRow, IndexEditCompression compression)
+      throws IOException {
+    compression.writeTable(out, Bytes.toBytes(this.indexTableName));
+    out.writeByte(this.mutation instanceof Put ? PUT_TYPE : DELETE_TYPE);
+    byte[] dataRow = this.dataRow == null ? HConstants.EMPTY_BYTE_ARRAY : this.dataRow;
+    writeRow(out, dataRow, previousDataRow);
+    writeRow(out, this.mutation.getRow(), dataRow);
+    WritableUtils.writeVLong(out, this.mutation.getTimeStamp());
+    out.writeBoolean(this.mutation.getWriteToWAL());
+    Map<byte[], List<KeyValue>> families = this.mutation.getFamilyMap();
+    WritableUtils.writeVInt(out, families.size());
+    for (Entry<byte[], List<KeyValue>> family : families.entrySet()) {
+      compression.writeFamily(out, family.getKey());
+      List<KeyValue> kvs = family.getValue();
+      WritableUtils.writeVInt(out, kvs.size());
+      for (KeyValue kv : kvs) {
+        compression.writeQualifier(out, kv.getQualifier());
+        WritableUtils.writeVLong(out, kv.getTimestamp());
+        out.writeByte(kv.getType());
+        WritableUtils.writeVInt(out, kv.getValueLength());
+        out.write(kv.getBuffer(), kv.getValueOffset(), kv.getValueLength());
+      }
+    }
+    Map<String, byte[]> attributes = this.mutation.getAttributesMap();
+    WritableUtils.writeVInt(out, attributes.size());
+    for (Entry<String, byte[]> attribute : attributes.entrySet()) {
+      WritableUtils.writeString(out, attribute.getKey());
+      Bytes.writeByteArray(out, attribute.getValue());
+    }
+  }
+
+  /**
+   * Read an entry written by {@link #writeCompactData(DataOutput, byte[], IndexEditCompression)}.
+   * @param in to read from
+   * @param previousDataRow data row of the previous compact update read from the same edit, or
+   *          <tt>null</tt>
+   * @param compression to read the table, family and qualifier names
+   * @return the next {@link IndexedKeyValue}
+   * @throws IOException if there is a problem reading the underlying data
+   */
+  static IndexedKeyValue readCompactData(DataInput in, byte[] previousDataRow,
+      IndexEditCompression compression) throws IOException {
+    String table = Bytes.toString(compression.readTable(in));
+    byte type = in.readByte();
+    byte[] dataRow = readRow(in, previousDataRow);
+    byte[] row = readRow(in, dataRow);
+    long ts = WritableUtils.readVLong(in);
+    Mutation mutation = type == PUT_TYPE ? new Put(row, ts) : new Delete(row, ts, null);
+    mutation.setWriteToWAL(in.readBoolean());
+    int numFamilies = WritableUtils.readVInt(in);
+    Map<byte[], List<KeyValue>> families = new TreeMap<byte[], List<KeyValue>>(Bytes.BYTES_COMPARATOR);
+    for (int i = 0; i < numFamilies; i++) {
+      byte[] family = compression.readFamily(in);
+      int numKvs = WritableUtils.readVInt(in);
+      List<KeyValue> kvs = new ArrayList<KeyValue>(numKvs);
+      for (int j = 0; j < numKvs; j++) {
+        byte[] qualifier = compression.readQualifier(in);
+        long kvTs = WritableUtils.readVLong(in);
+        KeyValue.Type kvType = KeyValue.Type.codeToType(in.readByte());
+        byte[] value = new byte[WritableUtils.readVInt(in)];
+        in.readFully(value);
+        kvs.add(new KeyValue(row, family, qualifier, kvTs, kvType, value));
+      }
+      families.put(family, kvs);
+    }
+    mutation.setFamilyMap(families);
+    int numAttributes = WritableUtils.readVInt(in);
+    for (int i = 0; i < numAttributes; i++) {
+      mutation.setAttribute(WritableUtils.readString(in), Bytes.readByteArray(in));
+    }
+    return new IndexedKeyValue(table, mutation, dataRow.length == 0 ? null : dataRow);
+  }
+
+  /**
+   * Index rows usually share a prefix (e.g. a salt or tenant) or a suffix (the primary row key) with
+   * the row they index, so only write the part of the row that differs from the given base row.
+   */
+  private static void writeRow(DataOutput out, byte[] row, byte[] base) throws IOException {
+    int prefix = 0;
+    int suffix = 0;
+    if (base != null) {
+      int max = Math.min(base.length, row.length);
+      while (prefix < max && row[prefix] == base[prefix]) {
+        prefix++;
+      }
+      while (suffix < max - prefix
+          && row[row.length - 1 - suffix] == base[base.length - 1 - suffix]) {
+        suffix++;
+      }
+    }
+    WritableUtils.writeVInt(out, prefix);
+    WritableUtils.writeVInt(out, suffix);
+    WritableUtils.writeVInt(out, row.length - prefix - suffix);
+    out.write(row, prefix, row.length - prefix - suffix);
+  }
+
+  private static byte[] readRow(DataInput in, byte[] base) throws IOException {
+    int prefix = WritableUtils.readVInt(in);
+    int suffix = WritableUtils.readVInt(in);
+    int middle = WritableUtils.readVInt(in);
+    if ((prefix > 0 || suffix > 0) && base == null) {
+      throw new IOException("Index update row is encoded against a data row, but none was read");
+    }
+    byte[] row = new byte[prefix + middle + suffix];
+    if (prefix > 0) {
+      System.arraycopy(base, 0, row, 0, prefix);
+    }
+    in.readFully(row, prefix, middle);
+    if (suffix > 0) {
+      System.arraycopy(base, base.length - suffix, row, prefix + middle, suffix);
+    }
+    return row;
+  }
+
   /**
    * This method shouldn't be used - you should use {@link KeyValueCodec#readKeyValue(DataInput)}
    * instead. Its the complement to {@link #writeData(DataOutput)}.
@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.regionserver.wal.WALEdit;
 
@@ -21,6 +22,12 @@ public class KeyValueCodec {
    */
   public static final int INDEX_TYPE_LENGTH_MARKER = -1;
 
+  /**
+   * KeyValue length marker specifying that its an {@link IndexedKeyValue} in the compact encoding.
+   * @see IndexedKeyValue#writeCompactData(DataOutput, byte[], IndexEditCompression)
+   */
+  public static final int COMPACT_INDEX_TYPE_LENGTH_MARKER = -2;
+
   /**
    * Read a {@link List} of {@link KeyValue} from the input stream - may contain regular
    * {@link KeyValue}s or {@link IndexedKeyValue}s.
@@ -48,12 +55,29 @@ public class KeyValueCodec {
    * @throws IOException if the next {@link KeyValue} cannot be read
    */
   public static KeyValue readKeyValue(DataInput in) throws IOException {
+    return readKeyValue(in, null, IndexEditCompression.NONE);
+  }
+
+  /**
+   * Read a single {@link KeyValue} from the input stream - may either be a regular {@link KeyValue}
+   * or an {@link IndexedKeyValue}.
+   * @param in to read from
+   * @param dataRow the data row tracked so far in the same edit (see
+   *          {@link #getDataRow(KeyValue, byte[])}), or <tt>null</tt> at the start of the edit
+   * @param compression to read the names of a compact {@link IndexedKeyValue}
+   * @return the next {@link KeyValue}, if one is available
+   * @throws IOException if the next {@link KeyValue} cannot be read
+   */
+  public static KeyValue readKeyValue(DataInput in, byte[] dataRow,
+      IndexEditCompression compression) throws IOException {
     int length = in.readInt();
     KeyValue kv;
     // its a special IndexedKeyValue
     if (length == INDEX_TYPE_LENGTH_MARKER) {
       kv = new IndexedKeyValue();
       kv.readFields(in);
+    } else if (length == COMPACT_INDEX_TYPE_LENGTH_MARKER) {
+      kv = IndexedKeyValue.readCompactData(in, dataRow, compression);
     } else {
       kv = new KeyValue();
       kv.readFields(length, in);
@@ -69,11 +93,54 @@ public class KeyValueCodec {
    * @throws IOException if there is an error writing
    */
   public static void write(DataOutput out, KeyValue kv) throws IOException {
+    write(out, kv, null, IndexEditCompression.NONE);
+  }
+
+  /**
+   * Write a {@link KeyValue} or an {@link IndexedKeyValue} to the output stream. These can be read
+   * back via {@link #readKeyValue(DataInput, byte[], IndexEditCompression)}, given the same data
+   * row and compression.
+   * <p>
+   * {@link IndexedKeyValue}s are written in the compact encoding, unless their mutation doesn't
+   * support it.
+   * @param out to write to
+   * @param kv {@link KeyValue} to which to write
+   * @param dataRow the data row tracked so far in the same edit (see
+   *          {@link #getDataRow(KeyValue, byte[])}), or <tt>null</tt> at the start of the edit
+   * @param compression to write the names of a compact {@link IndexedKeyValue}
+   * @throws IOException if there is an error writing
+   */
+  public static void write(DataOutput out, KeyValue kv, byte[] dataRow,
+      IndexEditCompression compression) throws IOException {
     if (kv instanceof IndexedKeyValue) {
-      out.writeInt(INDEX_TYPE_LENGTH_MARKER);
-      ((IndexedKeyValue) kv).writeData(out);
+      IndexedKeyValue ikv = (IndexedKeyValue) kv;
+      if (ikv.supportsCompactData()) {
+        out.writeInt(COMPACT_INDEX_TYPE_LENGTH_MARKER);
+        ikv.writeCompactData(out, dataRow, compression);
+      } else {
+        out.writeInt(INDEX_TYPE_LENGTH_MARKER);
+        ikv.writeData(out);
+      }
     } else {
       kv.write(out);
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * The data row of each compact {@link IndexedKeyValue} is encoded against the data row of the
+   * previous compact one in the same edit. Writers and readers of an edit track it the same way,
+   * through this method, starting from <tt>null</tt>.
+   * @param kv the {@link KeyValue} just written or read
+   * @param dataRow the data row tracked so far in the edit
+   * @return the data row to write or read the next {@link KeyValue} of the edit with
+   */
+  public static byte[] getDataRow(KeyValue kv, byte[] dataRow) {
+    if (kv instanceof IndexedKeyValue) {
+      IndexedKeyValue ikv = (IndexedKeyValue) kv;
+      if (ikv.supportsCompactData()) {
+        return ikv.getDataRow() == null ? HConstants.EMPTY_BYTE_ARRAY : ikv.getDataRow();
+      }
+    }
+    return dataRow;
+  }
+}
@@ -14,6 +14,7 @@ import org.apache.hadoop.hbase.codec.Decoder;
 import org.apache.hadoop.hbase.codec.Encoder;
 import org.apache.hadoop.hbase.regionserver.wal.WALEditCodec;
 
+import com.salesforce.hbase.index.wal.IndexEditCompression;
 import com.salesforce.hbase.index.wal.IndexedKeyValue;
 import com.salesforce.hbase.index.wal.KeyValueCodec;
 
@@ -24,6 +25,11 @@ import com.salesforce.hbase.index.wal.KeyValueCodec;
  * Currently, we don't support reading older WAL files - only new WAL files. Therefore, this should
  * not be installed on a running cluster, but rather one that has been cleanly shutdown and requires
  * no WAL replay on startup.
+ * <p>
+ * {@link IndexedKeyValue}s are written in a compact encoding: their row is encoded against the row
+ * of the last regular {@link KeyValue} of the same edit and, when the WAL is compressed, their table,
+ * family and qualifier names are encoded against the WAL's dictionaries. Index updates written in the
+ * original encoding can still be read.
  */
 public class IndexedWALEditCodec extends WALEditCodec {
 
@@ -56,7 +62,8 @@ public class IndexedWALEditCodec extends WALEditCodec {
     // there is compression, so we get the standard decoder to handle reading those kvs
     Decoder decoder = super.getDecoder(is);
     // compression is on, reqturn our custom decoder
-    return new CompressedIndexKeyValueDecoder(is, decoder);
+    return new CompressedIndexKeyValueDecoder(is, decoder, new DictionaryIndexEditCompression(
+        this.compression));
   }
 
   @Override
@@ -68,7 +75,51 @@ public class IndexedWALEditCodec extends WALEditCodec {
 
     // compression is on, return our one that will handle putting in the correct markers
     Encoder encoder = super.getEncoder(os);
-    return new CompressedIndexKeyValueEncoder(os, encoder);
+    return new CompressedIndexKeyValueEncoder(os, encoder, new DictionaryIndexEditCompression(
+        this.compression));
+  }
+
+  /**
+   * Encodes the names of compact {@link IndexedKeyValue}s against the dictionaries of the WAL's
+   * {@link CompressionContext}. Reads and writes happen in the same order as those of the regular
+   * {@link KeyValue}s sharing the dictionaries, so both sides stay in sync.
+   */
+  private static class DictionaryIndexEditCompression implements IndexEditCompression {
+    private final CompressionContext compression;
+
+    public DictionaryIndexEditCompression(CompressionContext compression) {
+      this.compression = compression;
+    }
+
+    @Override
+    public void writeTable(DataOutput out, byte[] table) throws IOException {
+      Compressor.writeCompressed(table, 0, table.length, out, compression.tableDict);
+    }
+
+    @Override
+    public byte[] readTable(DataInput in) throws IOException {
+      return Compressor.readCompressed(in, compression.tableDict);
+    }
+
+    @Override
+    public void writeFamily(DataOutput out, byte[] family) throws IOException {
+      Compressor.writeCompressed(family, 0, family.length, out, compression.familyDict);
+    }
+
+    @Override
+    public byte[] readFamily(DataInput in) throws IOException {
+      return Compressor.readCompressed(in, compression.familyDict);
+    }
+
+    @Override
+    public void writeQualifier(DataOutput out, byte[] qualifier) throws IOException {
+      Compressor.writeCompressed(qualifier, 0, qualifier.length, out, compression.qualifierDict);
+    }
+
+    @Override
+    public byte[] readQualifier(DataInput in) throws IOException {
+      return Compressor.readCompressed(in, compression.qualifierDict);
+    }
   }
 
   /**
@@ -81,19 +132,26 @@ public class IndexedWALEditCodec extends WALEditCodec {
      * generic {@link KeyValue}s.
      * @param is stream to read from
      */
+    private byte[] dataRow;
+
     public IndexKeyValueDecoder(InputStream is){
       super(is);
     }
 
     @Override
     protected KeyValue parseCell() throws IOException{
-      return KeyValueCodec.readKeyValue((DataInput) this.in);
+      KeyValue kv = KeyValueCodec.readKeyValue((DataInput) this.in, dataRow,
+        IndexEditCompression.NONE);
+      dataRow = KeyValueCodec.getDataRow(kv, dataRow);
+      return kv;
     }
   }
 
   public class CompressedIndexKeyValueDecoder extends BaseDecoder {
 
     private Decoder decoder;
+    private IndexEditCompression compression;
+    private byte[] dataRow;
 
     /**
      * Create a {@link Decoder} on the given input stream with the given {@link Decoder} to parse
@@ -101,10 +159,13 @@ public class IndexedWALEditCodec extends WALEditCodec {
      * @param is stream to read from
      * @param compressedDecoder decoder for generic {@link KeyValue}s. Should support the expected
      *          compression.
+     * @param compression to read the names of compact {@link IndexedKeyValue}s
      */
-    public CompressedIndexKeyValueDecoder(InputStream is, Decoder compressedDecoder) {
+    public CompressedIndexKeyValueDecoder(InputStream is, Decoder compressedDecoder,
+        IndexEditCompression compression) {
       super(is);
       this.decoder = compressedDecoder;
+      this.compression = compression;
     }
 
     @Override
@@ -125,7 +186,9 @@ public class IndexedWALEditCodec extends WALEditCodec {
       }
 
       // its an indexedKeyValue, so parse it out specially
-      return KeyValueCodec.readKeyValue((DataInput) this.in);
+      KeyValue kv = KeyValueCodec.readKeyValue((DataInput) this.in, dataRow, compression);
+      dataRow = KeyValueCodec.getDataRow(kv, dataRow);
+      return kv;
     }
   }
 
@@ -134,6 +197,8 @@ public class IndexedWALEditCodec extends WALEditCodec {
    * compression.
    */
   private static class IndexKeyValueEncoder extends BaseEncoder {
+    private byte[] dataRow;
+
     public IndexKeyValueEncoder(OutputStream os) {
       super(os);
     }
@@ -149,7 +214,8 @@ public class IndexedWALEditCodec extends WALEditCodec {
       checkFlushed();
 
       // use the standard encoding mechanism
-      KeyValueCodec.write((DataOutput) this.out, cell);
+      KeyValueCodec.write((DataOutput) this.out, cell, dataRow, IndexEditCompression.NONE);
+      dataRow = KeyValueCodec.getDataRow(cell, dataRow);
     }
   }
 
@@ -160,10 +226,14 @@ public class IndexedWALEditCodec extends WALEditCodec {
    */
   private static class CompressedIndexKeyValueEncoder extends BaseEncoder {
     private Encoder compressedKvEncoder;
+    private IndexEditCompression compression;
+    private byte[] dataRow;
 
-    public CompressedIndexKeyValueEncoder(OutputStream os, Encoder compressedKvEncoder) {
+    public CompressedIndexKeyValueEncoder(OutputStream os, Encoder compressedKvEncoder,
+        IndexEditCompression compression) {
       super(os);
       this.compressedKvEncoder = compressedKvEncoder;
+      this.compression = compression;
     }
 
     @Override
@@ -189,7 +259,8 @@ public class IndexedWALEditCodec extends WALEditCodec {
         this.compressedKvEncoder.write(cell);
       }
       else{
-        KeyValueCodec.write((DataOutput) out, cell);
+        KeyValueCodec.write((DataOutput) out, cell, dataRow, compression);
+        dataRow = KeyValueCodec.getDataRow(cell, dataRow);
       }
     }
   }
@@ -0,0 +1,56 @@
+package com.salesforce.hbase.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+import org.junit.Test;
+
+public class TestIndexUpdateBuffer {
+
+  private static final String TABLE1 = "index1";
+  private static final String TABLE2 = "index2";
+  private static final byte[] ROW = Bytes.toBytes("row");
+  private static final byte[] FAMILY = Bytes.toBytes("family");
+  private static final byte[] QUAL = Bytes.toBytes("qual");
+
+  @Test
+  public void testDeduplicatesReplayedUpdates() {
+    IndexUpdateBuffer buffer = new IndexUpdateBuffer();
+    Put p1 = new Put(ROW, 10);
+    p1.add(FAMILY, QUAL, Bytes.toBytes("v1"));
+    Put replayed = new Put(ROW, 10);
+    replayed.add(FAMILY, QUAL, Bytes.toBytes("v2"));
+    buffer.add(p1, TABLE1);
+    buffer.add(replayed, TABLE1);
+    assertEquals("Same cells of the same row weren't deduplicated", 1, buffer.size());
+
+    // not duplicates: different table, timestamp, cells or type
+    buffer.add(p1, TABLE2);
+    Put newer = new Put(ROW, 11);
+    newer.add(FAMILY, QUAL, 11, Bytes.toBytes("v1"));
+    buffer.add(newer, TABLE1);
+    Put otherColumn = new Put(ROW, 10);
+    otherColumn.add(FAMILY, Bytes.toBytes("qual2"), Bytes.toBytes("v1"));
+    buffer.add(otherColumn, TABLE1);
+    Delete d = new Delete(ROW, 10, null);
+    buffer.add(d, TABLE1);
+    assertEquals(5, buffer.size());
+
+    List<Pair<Mutation, String>> drained = new ArrayList<Pair<Mutation, String>>(buffer.drain());
+    assertEquals(0, buffer.size());
+    assertEquals(5, drained.size());
+    // the later update replaces the earlier one, but keeps its place
+    assertSame(replayed, drained.get(0).getFirst());
+    assertSame(p1, drained.get(1).getFirst());
+    assertEquals(TABLE2, drained.get(1).getSecond());
+    assertSame(d, drained.get(4).getFirst());
+  }
+}
@@ -0,0 +1,91 @@
+package com.salesforce.hbase.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Abortable;
+import org.apache.hadoop.hbase.client.HTableInterface;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Row;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+import org.junit.Test;
+
+import com.salesforce.hbase.index.table.HTableFactory;
+
+public class TestIndexWriter {
+
+  private static final String TABLE1 = "index1";
+  private static final String TABLE2 = "index2";
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testBatchesUpdatesPerTableAndCachesTables() throws Exception {
+    HTableInterface table1 = mock(HTableInterface.class);
+    HTableInterface table2 = mock(HTableInterface.class);
+    HTableFactory factory = mock(HTableFactory.class);
+    when(factory.getTable(Bytes.toBytes(TABLE1))).thenReturn(table1);
+    when(factory.getTable(Bytes.toBytes(TABLE2))).thenReturn(table2);
+
+    IndexWriter writer = new IndexWriter("test", mock(Abortable.class), factory);
+    List<Pair<Mutation, String>> updates = new ArrayList<Pair<Mutation, String>>();
+    updates.add(new Pair<Mutation, String>(new Put(Bytes.toBytes("a")), TABLE1));
+    updates.add(new Pair<Mutation, String>(new Put(Bytes.toBytes("b")), TABLE2));
+    updates.add(new Pair<Mutation, String>(new Put(Bytes.toBytes("c")), TABLE1));
+
+    writer.write(updates);
+    writer.write(updates);
+
+    // one batch per table per write, but the table is only opened once
+    verify(table1, times(2)).batch((List<? extends Row>) any());
+    verify(table2, times(2)).batch((List<? extends Row>) any());
+    verify(factory, times(1)).getTable(Bytes.toBytes(TABLE1));
+    verify(factory, times(1)).getTable(Bytes.toBytes(TABLE2));
+    assertEquals(2, writer.getMetrics().getWrites());
+    assertEquals(6, writer.getMetrics().getMutations());
+
+    writer.stop();
+    verify(table1).close();
+    verify(table2).close();
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testRetriesBeforeFailing() throws Exception {
+    HTableInterface table = mock(HTableInterface.class);
+    doThrow(new IOException("Injected failure")).when(table).batch((List<? extends Row>) any());
+    HTableFactory factory = mock(HTableFactory.class);
+    when(factory.getTable(Bytes.toBytes(TABLE1))).thenReturn(table);
+
+    Configuration conf = new Configuration(false);
+    conf.setInt(IndexWriter.NUM_RETRIES_CONF_KEY, 2);
+    conf.setLong(IndexWriter.RETRY_PAUSE_CONF_KEY, 1);
+    IndexWriter writer = new IndexWriter("test", mock(Abortable.class), factory, conf);
+    List<Pair<Mutation, String>> updates = new ArrayList<Pair<Mutation, String>>();
+    updates.add(new Pair<Mutation, String>(new Put(Bytes.toBytes("a")), TABLE1));
+    try {
+      writer.write(updates);
+      fail("Should not have been able to write to an unreachable index table");
+    } catch (CannotReachIndexException e) {
+      // expected
+    }
+
+    // first attempt + 2 retries
+    verify(table, times(3)).batch((List<? extends Row>) any());
+    assertEquals(2, writer.getMetrics().getRetries());
+    assertEquals(1, writer.getMetrics().getFailures());
+    writer.stop();
+  }
+}
@@ -0,0 +1,61 @@
+package com.salesforce.hbase.index.builder.covered;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Microbenchmark of building the index updates for a row with many columns and versions, all in
+ * the covered family. It isn't a unit test, so it doesn't run as part of the build; run it by hand
+ * with:
+ * 
+ * <pre>
+ * CoveredColumnIndexCodecBenchmark [columns] [versions] [iterations]
+ * </pre>
+ * @see TestCoveredColumnIndexCodec#testWideRowIndexUpdates()
+ */
+public class CoveredColumnIndexCodecBenchmark {
+  private static final byte[] PK = new byte[] { 'a' };
+  private static final String FAMILY_STRING = "family";
+  private static final byte[] FAMILY = Bytes.toBytes(FAMILY_STRING);
+
+  public static void main(String[] args) {
+    int numColumns = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    int numVersions = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+    int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+    ColumnGroup group = new ColumnGroup("benchmark");
+    group.add(new CoveredColumn(FAMILY_STRING, null));
+    List<KeyValue> kvs = new ArrayList<KeyValue>(numColumns * numVersions);
+    for (int i = 0; i < numColumns; i++) {
+      for (int ts = numVersions; ts > 0; ts--) {
+        kvs.add(new KeyValue(PK, FAMILY, TestCoveredColumnIndexCodec.getWideRowQualifier(i), ts,
+            TestCoveredColumnIndexCodec.getWideRowValue(i, ts)));
+      }
+    }
+    Result r = new Result(kvs);
+
+    // warm up, so that the timed runs are compiled
+    run(r, group, numVersions, iterations);
+    long start = System.nanoTime();
+    int updates = run(r, group, numVersions, iterations);
+    long elapsed = System.nanoTime() - start;
+    System.out.println("Built " + updates + " index updates for a row with " + numColumns
+        + " columns of " + numVersions + " versions: " + (elapsed / iterations / 1000)
+        + "us per row");
+  }
+
+  private static int run(Result r, ColumnGroup group, int numVersions, int iterations) {
+    int updates = 0;
+    for (int i = 0; i < iterations; i++) {
+      CoveredColumnIndexCodec codec = new CoveredColumnIndexCodec(r, group);
+      // the latest state, as for a new put, and the oldest, as for an out of order update
+      updates += codec.getIndexUpdate(numVersions).size();
+      updates += codec.getIndexUpdate(1).size();
+    }
+    return updates;
+  }
+}
@@ -12,6 +12,8 @@ import java.util.List;
 
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.junit.Test;
@@ -246,6 +248,109 @@ public class TestCoveredColumnIndexCodec {
       indexValue);
   }
 
+  /**
+   * A later update to the exact same key replaces the earlier value, as it would in the memstore.
+   */
+  @Test
+  public void testUpdateReplacesSameKey() {
+    ColumnGroup group = new ColumnGroup("testUpdateReplacesSameKey");
+    group.add(new CoveredColumn(FAMILY_STRING, QUAL));
+    byte[] v1 = Bytes.toBytes("v1");
+    Result r = new Result(Lists.newArrayList(new KeyValue(PK, FAMILY, QUAL, 1, v1)));
+    CoveredColumnIndexCodec codec = new CoveredColumnIndexCodec(r, group);
+
+    byte[] v2 = Bytes.toBytes("v2");
+    codec.addAll(Lists.newArrayList(new KeyValue(PK, FAMILY, QUAL, 1, v2)));
+    byte[] expected = CoveredColumnIndexCodec.composeRowKey(PK, v2.length, Arrays.asList(v2));
+    assertArrayEquals("Update at the same timestamp didn't replace the value", expected,
+      getLatestIndexKey(codec));
+  }
+
+  /**
+   * Index updates for a row with many columns and versions, all in the covered family, hold the
+   * value of every column as of the requested timestamp. Timing for the same kind of row is in
+   * {@link CoveredColumnIndexCodecBenchmark}.
+   */
+  @Test
+  public void testWideRowIndexUpdates() {
+    int numColumns = 1000;
+    int numVersions = 3;
+    ColumnGroup group = new ColumnGroup("testWideRowIndexUpdates");
+    group.add(new CoveredColumn(FAMILY_STRING, null));
+
+    List<KeyValue> kvs = new ArrayList<KeyValue>(numColumns * numVersions);
+    for (int i = 0; i < numColumns; i++) {
+      for (int ts = numVersions; ts > 0; ts--) {
+        kvs.add(new KeyValue(PK, FAMILY, getWideRowQualifier(i), ts, getWideRowValue(i, ts)));
+      }
+    }
+    Result r = new Result(kvs);
+    CoveredColumnIndexCodec codec = new CoveredColumnIndexCodec(r, group);
+
+    // the latest version of each column, with nothing newer to clean up
+    List<Mutation> updates = new ArrayList<Mutation>(codec.getIndexUpdate(numVersions));
+    assertEquals("Should only have a put when there are no newer entries", 1, updates.size());
+    assertWideRowIndexPut(updates.get(0), getWideRowValues(numColumns, numVersions, -1),
+      numVersions);
+
+    // the oldest version of each column, which the next newest version has to delete
+    updates = new ArrayList<Mutation>(codec.getIndexUpdate(1));
+    assertEquals("Should have a put and a cleanup delete for an older timestamp", 2,
+      updates.size());
+    assertWideRowIndexPut(updates.get(0), getWideRowValues(numColumns, 1, -1), 1);
+    Delete cleanup = (Delete) updates.get(1);
+    assertArrayEquals("Cleanup delete isn't for the index row of the put", updates.get(0)
+        .getRow(), cleanup.getRow());
+    assertEquals("Cleanup delete isn't at the next newest timestamp", 2, cleanup.getTimeStamp());
+
+    // deleting a column in the middle of the row leaves a null in its place
+    int deleted = numColumns / 2;
+    codec.addUpdateForTesting(new Delete(PK).deleteColumns(FAMILY, getWideRowQualifier(deleted),
+      numVersions + 1));
+    updates = new ArrayList<Mutation>(codec.getIndexUpdate(numVersions + 1));
+    assertEquals("Should only have a put when there are no newer entries", 1, updates.size());
+    assertWideRowIndexPut(updates.get(0), getWideRowValues(numColumns, numVersions, deleted),
+      numVersions + 1);
+  }
+
+  static byte[] getWideRowQualifier(int column) {
+    return Bytes.toBytes(String.format("qual%05d", column));
+  }
+
+  static byte[] getWideRowValue(int column, long ts) {
+    return Bytes.toBytes("v" + column + "-" + ts);
+  }
+
+  private static List<byte[]> getWideRowValues(int numColumns, long ts, int deleted) {
+    List<byte[]> values = new ArrayList<byte[]>(numColumns);
+    for (int i = 0; i < numColumns; i++) {
+      values.add(i == deleted ? new byte[0] : getWideRowValue(i, ts));
+    }
+    return values;
+  }
+
+  private static void assertWideRowIndexPut(Mutation update, List<byte[]> values, long ts) {
+    assertTrue("Index update isn't a put: " + update, update instanceof Put);
+    int length = 0;
+    for (byte[] value : values) {
+      length += value.length;
+    }
+    byte[] expected = CoveredColumnIndexCodec.composeRowKey(PK, length, values);
+    assertArrayEquals("Didn't get the expected value of every column", expected, update.getRow());
+
+    List<KeyValue> columns = update.getFamilyMap().get(
+      CoveredColumnIndexCodec.INDEX_ROW_COLUMN_FAMILY);
+    assertEquals("Didn't get a column for every value in the index row key", values.size(),
+      columns.size());
+    byte[] qualifier = Bytes.toBytes(FAMILY_STRING + CoveredColumn.SEPARATOR);
+    for (int i = 0; i < columns.size(); i++) {
+      KeyValue kv = columns.get(i);
+      assertArrayEquals("Index column " + i + " doesn't point at the covered family",
+        Bytes.add(Bytes.toBytes(i), qualifier), kv.getQualifier());
+      assertEquals("Index column " + i + " has the wrong timestamp", ts, kv.getTimestamp());
+    }
+  }
+
   @Test
   public void testCheckRowKeyForAllNulls() {
     byte[] pk = new byte[] { 'a', 'b', 'z' };
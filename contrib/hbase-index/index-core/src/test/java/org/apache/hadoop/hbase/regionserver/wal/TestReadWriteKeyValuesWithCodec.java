@@ -1,9 +1,16 @@
 package org.apache.hadoop.hbase.regionserver.wal;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.hadoop.conf.Configuration;
@@ -16,11 +23,14 @@ import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.codec.Decoder;
+import org.apache.hadoop.hbase.codec.Encoder;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import com.salesforce.hbase.index.wal.IndexedKeyValue;
+import com.salesforce.hbase.index.wal.KeyValueCodec;
 
 /**
  * Simple test to read/write simple files via our custom {@link WALEditCodec} to ensure properly
@@ -64,6 +74,139 @@ public class TestReadWriteKeyValuesWithCodec {
     writeReadAndVerify(codec, fs, edits, testFile);
   }
 
+  /**
+   * Compare the WAL bytes taken by the index updates of a typical indexed write in the compact
+   * encoding to those taken in the original, full serialization of the index mutation.
+   */
+  @Test
+  public void testCompactIndexUpdateSize() throws Exception {
+    int numWrites = 1000;
+    long originalBytes = 0;
+    List<WALEdit> edits = new ArrayList<WALEdit>(numWrites);
+    for (int i = 0; i < numWrites; i++) {
+      byte[] row = Bytes.toBytes("row-" + i);
+      Put p = new Put(row);
+      p.add(FAMILY, Bytes.toBytes("indexed"), Bytes.toBytes("value-" + (i % 10)));
+      Put indexPut = new Put(Bytes.add(Bytes.toBytes("value-" + (i % 10)), row));
+      indexPut.add(FAMILY, Bytes.toBytes("indexed"), new byte[0]);
+      IndexedKeyValue ikv = new IndexedKeyValue("indexTable", indexPut, row);
+      // HRegion adds the index update of the coprocessor ahead of the KeyValues of the mutation
+      WALEdit edit = new WALEdit();
+      edit.add(ikv);
+      addMutation(edit, p, FAMILY);
+      edits.add(edit);
+
+      // the original encoding: length marker, table and class names and the full mutation
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bos);
+      out.writeInt(KeyValueCodec.INDEX_TYPE_LENGTH_MARKER);
+      out.writeUTF(ikv.getIndexTable());
+      out.writeUTF(indexPut.getClass().getName());
+      indexPut.write(out);
+      out.flush();
+      originalBytes += bos.size();
+    }
+
+    long uncompressedBytes = getIndexUpdateBytes(edits, false);
+    long compressedBytes = getIndexUpdateBytes(edits, true);
+    assertTrue("Compact index updates (" + uncompressedBytes
+        + " bytes) aren't smaller than the original encoding (" + originalBytes + " bytes)",
+      uncompressedBytes < originalBytes);
+    assertTrue("Compression didn't shrink compact index updates (" + compressedBytes + " vs "
+        + uncompressedBytes + " bytes)", compressedBytes < uncompressedBytes);
+  }
+
+  /**
+   * HRegion writes the index updates of a batch ahead of all the KeyValues of its mutations, in the
+   * edit of the first mutation of the batch. The rows of the index updates are encoded against the
+   * data rows they were made for, which must be read back without any of the mutations' KeyValues.
+   */
+  @Test
+  public void testIndexUpdatesAheadOfDataKeyValues() throws Exception {
+    List<Put> puts = new ArrayList<Put>();
+    List<IndexedKeyValue> ikvs = new ArrayList<IndexedKeyValue>();
+    for (int i = 0; i < 10; i++) {
+      byte[] row = Bytes.toBytes("row-" + i);
+      Put p = new Put(row);
+      p.add(FAMILY, Bytes.toBytes("indexed"), Bytes.toBytes("value-" + i));
+      puts.add(p);
+      Delete indexDelete = new Delete(Bytes.add(Bytes.toBytes("old-value-" + i), row));
+      indexDelete.deleteFamily(FAMILY, 10);
+      ikvs.add(new IndexedKeyValue("indexTable", indexDelete, row));
+      Put indexPut = new Put(Bytes.add(Bytes.toBytes("value-" + i), row));
+      indexPut.add(FAMILY, Bytes.toBytes("indexed"), new byte[0]);
+      ikvs.add(new IndexedKeyValue("indexTable", indexPut, row));
+    }
+    WALEdit edit = new WALEdit();
+    WALEdit editWithoutDataRows = new WALEdit();
+    for (IndexedKeyValue ikv : ikvs) {
+      edit.add(ikv);
+      editWithoutDataRows.add(new IndexedKeyValue(ikv.getIndexTable(), ikv.getMutation()));
+    }
+    for (Put p : puts) {
+      addMutation(edit, p, FAMILY);
+      addMutation(editWithoutDataRows, p, FAMILY);
+    }
+    List<WALEdit> edits = Collections.singletonList(edit);
+    List<WALEdit> editsWithoutDataRows = Collections.singletonList(editWithoutDataRows);
+
+    for (boolean compressed : new boolean[] { false, true }) {
+      WALEditCodec codec = WALEditCodec.create(UTIL.getConfiguration(),
+        compressed ? new CompressionContext(LRUDictionary.class) : null);
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      Encoder encoder = codec.getEncoder(bos);
+      for (KeyValue kv : edit.getKeyValues()) {
+        encoder.write(kv);
+      }
+      encoder.flush();
+
+      Decoder decoder = codec.getDecoder(new ByteArrayInputStream(bos.toByteArray()));
+      for (KeyValue expected : edit.getKeyValues()) {
+        assertTrue("Missing KeyValue " + expected, decoder.advance());
+        KeyValue found = decoder.current();
+        assertEquals(expected, found);
+        if (expected instanceof IndexedKeyValue) {
+          assertArrayEquals(((IndexedKeyValue) expected).getDataRow(),
+            ((IndexedKeyValue) found).getDataRow());
+          assertArrayEquals(((IndexedKeyValue) expected).getMutation().getRow(),
+            ((IndexedKeyValue) found).getMutation().getRow());
+        }
+      }
+      assertFalse(decoder.advance());
+
+      // only the part of each index row that isn't shared with its data row is written
+      assertTrue("Index rows aren't encoded against their data rows",
+        getIndexUpdateBytes(edits, compressed) < getIndexUpdateBytes(editsWithoutDataRows,
+          compressed));
+    }
+  }
+
+  /**
+   * @return the number of bytes the codec writes for the edits, less the bytes it writes for the
+   *         regular {@link KeyValue}s alone.
+   */
+  private long getIndexUpdateBytes(List<WALEdit> edits, boolean compressed) throws Exception {
+    return getEncodedBytes(edits, compressed, true) - getEncodedBytes(edits, compressed, false);
+  }
+
+  private long getEncodedBytes(List<WALEdit> edits, boolean compressed, boolean withIndexUpdates)
+      throws Exception {
+    // each run gets a new codec, so it starts out with empty dictionaries
+    WALEditCodec codec = WALEditCodec.create(UTIL.getConfiguration(),
+      compressed ? new CompressionContext(LRUDictionary.class) : null);
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    for (WALEdit edit : edits) {
+      Encoder encoder = codec.getEncoder(bos);
+      for (KeyValue kv : edit.getKeyValues()) {
+        if (withIndexUpdates || !(kv instanceof IndexedKeyValue)) {
+          encoder.write(kv);
+        }
+      }
+      encoder.flush();
+    }
+    return bos.size();
+  }
+
   /**
    * @return a bunch of {@link WALEdit}s that test a range of serialization possibilities.
    */
@@ -99,6 +242,20 @@ public class TestReadWriteKeyValuesWithCodec {
     addMutation(mixed, p, FAMILY);
     edits.add(mixed);
 
+    // index updates whose rows share a prefix and a suffix with their data row, ahead of the
+    // KeyValues of the data row as HRegion writes them
+    WALEdit indexed = new WALEdit();
+    Put indexPut = new Put(Bytes.add(Bytes.toBytes("value"), ROW));
+    indexPut.add(FAMILY, Bytes.toBytes("q1"), Bytes.toBytes("v1"));
+    indexPut.add(Bytes.toBytes("family2"), Bytes.toBytes("q2"), 10, Bytes.toBytes("v2"));
+    indexPut.setAttribute("attribute", Bytes.toBytes("attribute-value"));
+    indexed.add(new IndexedKeyValue("targetTable", indexPut, ROW));
+    Delete indexDelete = new Delete(Bytes.add(ROW, Bytes.toBytes("suffix")));
+    indexDelete.deleteFamily(FAMILY, 10);
+    indexed.add(new IndexedKeyValue("targetTable", indexDelete, ROW));
+    addMutation(indexed, p, FAMILY);
+    edits.add(indexed);
+
     return edits;
   }
 
@@ -94,6 +94,7 @@ tokens
     ENABLE='enable';
     DISABLE='disable';
     SET='set';
+    ANALYZE='analyze';
 }
 
 
@@ -131,6 +132,7 @@ package com.salesforce.phoenix.parse;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
 import org.apache.hadoop.hbase.util.Pair;
 import java.math.BigDecimal;
 import java.util.Arrays;
@@ -350,9 +352,15 @@ non_select_node returns [SQLStatement ret]
     |   s=alter_index_node
     |   s=alter_table_node
     |   s=explain_node
+    |   s=analyze_node
     |   s=show_tables_node) { contextStack.pop();  $ret = s; }
     ;
     
+analyze_node returns [AnalyzeStatement ret]
+    :   ANALYZE t=from_table_name
+        {ret = factory.analyze(factory.namedTable(null,t)); }
+    ;
+
 show_tables_node returns [SQLStatement ret]
     :   SHOW TABLES {$ret=factory.showTables();}
     ;
@@ -660,7 +668,15 @@ condition_not returns [ParseNode ret]
     ;
 
 boolean_expr returns [ParseNode ret]
-    :   (l=expression ((EQ r=expression {$ret = factory.equal(l,r); } )
+    :   (LPAREN expression COMMA) => lv=row_value_constructor (
+                     (EQ rv=row_value_constructor {$ret = factory.rowValueConstructorComparison(CompareOp.EQUAL,lv,rv); } )
+                  |  ((NOEQ1 | NOEQ2) rv=row_value_constructor {$ret = factory.rowValueConstructorComparison(CompareOp.NOT_EQUAL,lv,rv); } )
+                  |  (LT rv=row_value_constructor {$ret = factory.rowValueConstructorComparison(CompareOp.LESS,lv,rv); } )
+                  |  (GT rv=row_value_constructor {$ret = factory.rowValueConstructorComparison(CompareOp.GREATER,lv,rv); } )
+                  |  (LT EQ rv=row_value_constructor {$ret = factory.rowValueConstructorComparison(CompareOp.LESS_OR_EQUAL,lv,rv); } )
+                  |  (GT EQ rv=row_value_constructor {$ret = factory.rowValueConstructorComparison(CompareOp.GREATER_OR_EQUAL,lv,rv); } )
+                  )
+    |   (l=expression ((EQ r=expression {$ret = factory.equal(l,r); } )
                   |  ((NOEQ1 | NOEQ2) r=expression {$ret = factory.notEqual(l,r); } )
                   |  (LT r=expression {$ret = factory.lt(l,r); } )
                   |  (GT r=expression {$ret = factory.gt(l,r); } )
@@ -677,6 +693,12 @@ boolean_expr returns [ParseNode ret]
                       ))))
     ;
 
+// A parenthesized list of two or more expressions, such as (pk1, pk2) in WHERE (pk1, pk2) > (?, ?)
+row_value_constructor returns [List<ParseNode> ret]
+@init{$ret = new ArrayList<ParseNode>(4);}
+    :   LPAREN e=expression {$ret.add(e);} (COMMA e=expression {$ret.add(e);})+ RPAREN
+    ;
+
 bind_expression  returns [BindParseNode ret]
     :   b=bind_name { $ret = factory.bind(b); }
     ;
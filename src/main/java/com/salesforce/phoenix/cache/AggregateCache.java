@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.cache;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.regionserver.MultiVersionConsistencyControl;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Writables;
+
+import com.salesforce.phoenix.util.ImmutableBytesPtr;
+import com.salesforce.phoenix.util.SizedUtil;
+
+
+/**
+ * 
+ * Server-side cache of the partial aggregates computed by the aggregate coprocessors for
+ * a region. An entry is keyed by the region and the scan (which carries the serialized
+ * aggregators, group by, filter and key range) and is only returned while no write has
+ * been made to the region since it was computed, as seen by the {@link RegionWriteTracker}
+ * of the region through both its write count and its read point. The upper bound of the scan time range
+ * is left out of the key, since queries run at successive timestamps see the same
+ * cells as long as every cell in the region is older than both timestamps.
+ * 
+ * The cache assumes that cell timestamps do not run ahead of the region server clock.
+ * Entries also expire after a time-to-live, which bounds how long a result may be served
+ * after cells age out through a column family TTL.
+ *
+ * @since 2.0
+ */
+public class AggregateCache {
+    private static final String SNAPSHOT_ATTRIB = "_AggregateCacheSnapshot";
+    private static final int ENTRY_SIZE = SizedUtil.OBJECT_SIZE + 4 * SizedUtil.POINTER_SIZE + 4 * SizedUtil.LONG_SIZE + SizedUtil.MAP_ENTRY_SIZE + SizedUtil.IMMUTABLE_BYTES_PTR_SIZE;
+    
+    private final long maxSizeBytes;
+    private final long timeToLiveMs;
+    private final ConcurrentMap<ImmutableBytesPtr,RegionWriteTracker> trackers = new ConcurrentHashMap<ImmutableBytesPtr,RegionWriteTracker>();
+    private final LinkedHashMap<ImmutableBytesPtr,Entry> entries = new LinkedHashMap<ImmutableBytesPtr,Entry>(16, 0.75f, true);
+    private long sizeBytes;
+    private long hitCount;
+    private long missCount;
+    
+    private static class Entry {
+        private final RegionWriteTracker tracker;
+        private final long writeCount;
+        private final long readPoint;
+        private final long maxWriteTimeStamp;
+        private final long createdTime;
+        private final List<KeyValue> results;
+        private final long size;
+        
+        private Entry(RegionWriteTracker tracker, long writeCount, long readPoint, long maxWriteTimeStamp, long createdTime, List<KeyValue> results, long size) {
+            this.tracker = tracker;
+            this.writeCount = writeCount;
+            this.readPoint = readPoint;
+            this.maxWriteTimeStamp = maxWriteTimeStamp;
+            this.createdTime = createdTime;
+            this.results = results;
+            this.size = size;
+        }
+    }
+    
+    public AggregateCache(long maxSizeBytes, long timeToLiveMs) {
+        this.maxSizeBytes = maxSizeBytes;
+        this.timeToLiveMs = timeToLiveMs;
+    }
+    
+    public boolean isEnabled() {
+        return maxSizeBytes > 0;
+    }
+    
+    /**
+     * Start tracking the writes of a region. Must be called when the region is opened,
+     * before it accepts any write.
+     * @param regionName the name of the region
+     * @param mvcc the multi-version consistency control of the region
+     * @return the new tracker of the region
+     */
+    public RegionWriteTracker addRegion(byte[] regionName, MultiVersionConsistencyControl mvcc) {
+        RegionWriteTracker tracker = new RegionWriteTracker(mvcc, System.currentTimeMillis());
+        trackers.put(new ImmutableBytesPtr(regionName), tracker);
+        return tracker;
+    }
+    
+    /**
+     * Stop tracking the writes of a region and drop its cached results
+     * @param regionName the name of the region
+     */
+    public void removeRegion(byte[] regionName) {
+        RegionWriteTracker tracker = trackers.remove(new ImmutableBytesPtr(regionName));
+        if (tracker == null) {
+            return;
+        }
+        synchronized (this) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry.tracker == tracker) {
+                    sizeBytes -= entry.size;
+                    iterator.remove();
+                }
+            }
+        }
+    }
+    
+    /**
+     * @param regionName the name of the region
+     * @return the tracker of the region or null if the region was opened before
+     * the tracking started.
+     */
+    public RegionWriteTracker getRegionWriteTracker(byte[] regionName) {
+        return trackers.get(new ImmutableBytesPtr(regionName));
+    }
+    
+    /**
+     * Capture the state of the region before the scanner of an aggregate scan is opened,
+     * so that its results may be cached once computed. Nothing is captured while a write
+     * is in progress, as the scanner may or may not see it.
+     * @param regionName the name of the region
+     * @param scan the aggregate scan
+     */
+    public void snapshot(byte[] regionName, Scan scan) {
+        RegionWriteTracker tracker = getRegionWriteTracker(regionName);
+        if (tracker == null) {
+            return;
+        }
+        long writeCount = tracker.getWriteCount();
+        if (writeCount == RegionWriteTracker.WRITE_IN_PROGRESS) {
+            return;
+        }
+        long readPoint = tracker.getReadPoint();
+        scan.setAttribute(SNAPSHOT_ATTRIB, Bytes.add(Bytes.toBytes(writeCount), Bytes.toBytes(readPoint), Bytes.toBytes(tracker.getMaxTimeStamp(readPoint))));
+    }
+    
+    /**
+     * Form the key of the results of an aggregate scan over a region
+     * @param regionName the name of the region
+     * @param scan the aggregate scan
+     * @return the key
+     */
+    public static ImmutableBytesPtr newKey(byte[] regionName, Scan scan) throws IOException {
+        Scan keyScan = new Scan(scan);
+        keyScan.setAttribute(SNAPSHOT_ATTRIB, null);
+        keyScan.setTimeRange(scan.getTimeRange().getMin(), Long.MAX_VALUE);
+        return new ImmutableBytesPtr(Bytes.add(regionName, Writables.getBytes(keyScan)));
+    }
+    
+    /**
+     * Get the cached results of an aggregate scan
+     * @param regionName the name of the region being scanned
+     * @param key the key formed by {@link #newKey(byte[], Scan)}
+     * @param scan the aggregate scan
+     * @return the results of the scan or null if they are not cached or are no longer current
+     */
+    public List<KeyValue> get(byte[] regionName, ImmutableBytesPtr key, Scan scan) {
+        RegionWriteTracker tracker = getRegionWriteTracker(regionName);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                missCount++;
+                return null;
+            }
+            boolean isCurrent = entry.tracker == tracker
+                    && tracker.getWriteCount() == entry.writeCount
+                    && tracker.getReadPoint() == entry.readPoint;
+            if (!isCurrent
+                    || entry.maxWriteTimeStamp >= scan.getTimeRange().getMax()
+                    || System.currentTimeMillis() - entry.createdTime > timeToLiveMs) {
+                if (!isCurrent) {
+                    sizeBytes -= entry.size;
+                    entries.remove(key);
+                }
+                missCount++;
+                return null;
+            }
+            hitCount++;
+            return entry.results;
+        }
+    }
+    
+    /**
+     * Cache the results of an aggregate scan, provided the state of the region was captured
+     * through {@link #snapshot(byte[], Scan)} before the scan and every cell of the region
+     * fell within the time range of the scan.
+     * @param regionName the name of the region that was scanned
+     * @param key the key formed by {@link #newKey(byte[], Scan)}
+     * @param scan the aggregate scan
+     * @param results the results of the scan
+     */
+    public void put(byte[] regionName, ImmutableBytesPtr key, Scan scan, List<KeyValue> results) {
+        byte[] snapshot = scan.getAttribute(SNAPSHOT_ATTRIB);
+        RegionWriteTracker tracker = getRegionWriteTracker(regionName);
+        if (snapshot == null || tracker == null) {
+            return;
+        }
+        long writeCount = Bytes.toLong(snapshot, 0);
+        long readPoint = Bytes.toLong(snapshot, Bytes.SIZEOF_LONG);
+        long maxWriteTimeStamp = Bytes.toLong(snapshot, 2 * Bytes.SIZEOF_LONG);
+        if (maxWriteTimeStamp >= scan.getTimeRange().getMax()) {
+            return;
+        }
+        long size = ENTRY_SIZE + key.getLength() + SizedUtil.ARRAY_SIZE + results.size() * (SizedUtil.POINTER_SIZE + SizedUtil.KEY_VALUE_SIZE);
+        for (KeyValue keyValue : results) {
+            size += keyValue.getLength();
+        }
+        if (size > maxSizeBytes) {
+            return;
+        }
+        Entry entry = new Entry(tracker, writeCount, readPoint, maxWriteTimeStamp, System.currentTimeMillis(), new ArrayList<KeyValue>(results), size);
+        synchronized (this) {
+            Entry oldEntry = entries.put(key, entry);
+            if (oldEntry != null) {
+                sizeBytes -= oldEntry.size;
+            }
+            sizeBytes += size;
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (sizeBytes > maxSizeBytes && iterator.hasNext()) {
+                Entry eldest = iterator.next();
+                sizeBytes -= eldest.size;
+                iterator.remove();
+            }
+        }
+    }
+    
+    public synchronized long getSize() {
+        return sizeBytes;
+    }
+    
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+    
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+    
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+}
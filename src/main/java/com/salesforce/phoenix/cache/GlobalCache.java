@@ -58,6 +58,8 @@ public class GlobalCache extends TenantCacheImpl {
     private final ConcurrentMap<ImmutableBytesWritable,TenantCache> perTenantCacheMap = new ConcurrentHashMap<ImmutableBytesWritable,TenantCache>();
     // Cache for lastest PTable for a given Phoenix table
     private final ConcurrentHashMap<ImmutableBytesPtr,PTable> metaDataCacheMap = new ConcurrentHashMap<ImmutableBytesPtr,PTable>();
+    // Cache for partial aggregates of regions that have not changed
+    private final AggregateCache aggregateCache;
     
     public static GlobalCache getInstance(Configuration config) {
         if (INSTANCE == null) {
@@ -74,6 +76,10 @@ public class GlobalCache extends TenantCacheImpl {
         return metaDataCacheMap;
     }
     
+    public AggregateCache getAggregateCache() {
+        return aggregateCache;
+    }
+    
     /**
      * Get the tenant cache associated with the tenantId. If tenantId is not applicable, null may be
      * used in which case a global tenant cache is returned.
@@ -94,6 +100,9 @@ public class GlobalCache extends TenantCacheImpl {
                                       config.getInt(MAX_MEMORY_WAIT_MS_ATTRIB, QueryServicesOptions.DEFAULT_MAX_MEMORY_WAIT_MS)),
               config.getInt(QueryServices.MAX_HASH_CACHE_TIME_TO_LIVE_MS, QueryServicesOptions.DEFAULT_MAX_HASH_CACHE_TIME_TO_LIVE_MS));
         this.config = config;
+        this.aggregateCache = new AggregateCache(
+                config.getLong(AGGREGATE_CACHE_SIZE_BYTES_ATTRIB, QueryServicesOptions.DEFAULT_AGGREGATE_CACHE_SIZE_BYTES),
+                config.getLong(AGGREGATE_CACHE_TIME_TO_LIVE_MS_ATTRIB, QueryServicesOptions.DEFAULT_AGGREGATE_CACHE_TIME_TO_LIVE_MS));
     }
     
     public Configuration getConfig() {
@@ -0,0 +1,411 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.cache;
+
+import static com.salesforce.phoenix.query.QueryConstants.*;
+
+import java.sql.SQLException;
+import java.util.*;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.salesforce.phoenix.compile.*;
+import com.salesforce.phoenix.expression.Expression;
+import com.salesforce.phoenix.expression.KeyValueColumnExpression;
+import com.salesforce.phoenix.iterate.MaterializedResultIterator;
+import com.salesforce.phoenix.iterate.ResultIterator;
+import com.salesforce.phoenix.memory.InsufficientMemoryException;
+import com.salesforce.phoenix.memory.MemoryManager;
+import com.salesforce.phoenix.memory.MemoryManager.MemoryChunk;
+import com.salesforce.phoenix.query.Scanner;
+import com.salesforce.phoenix.query.WrappedScanner;
+import com.salesforce.phoenix.schema.*;
+import com.salesforce.phoenix.schema.tuple.MultiKeyValueTuple;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+import com.salesforce.phoenix.util.*;
+
+
+/**
+ * 
+ * Client-side cache of query results, keyed by the statement text, bind values, tenant,
+ * CurrentSCN and max rows of the statement. Rows are cached with every projected column
+ * already evaluated, so that a hit neither compiles nor scans, and the memory they hold
+ * is accounted for through the {@link MemoryManager}. Only results that are read to the
+ * end and fit in a tenth of the cache are kept, least recently used first out.
+ * 
+ * A result of a query run at a CurrentSCN in the past stays valid until evicted, while
+ * one run at the latest timestamp is only served for a configurable staleness window.
+ * Both are dropped when the client writes to or alters a table they were read from.
+ * Writes made by other clients are not seen by the cache.
+ *
+ * @since 2.0
+ */
+public class QueryResultCache {
+    private static final int ENTRY_SIZE = SizedUtil.OBJECT_SIZE + 5 * SizedUtil.POINTER_SIZE + 2 * SizedUtil.LONG_SIZE + SizedUtil.MAP_ENTRY_SIZE;
+    private static final int ROW_SIZE = SizedUtil.OBJECT_SIZE + 2 * SizedUtil.POINTER_SIZE + SizedUtil.ARRAY_SIZE;
+    
+    private final MemoryManager memoryManager;
+    private final long maxSizeBytes;
+    private final long maxEntrySizeBytes;
+    private final long maxStalenessMs;
+    private final LinkedHashMap<Key,Entry> entries = new LinkedHashMap<Key,Entry>(16, 0.75f, true);
+    private long sizeBytes;
+    private long writeCount;
+    private long hitCount;
+    private long missCount;
+    
+    public QueryResultCache(MemoryManager memoryManager, long maxSizeBytes, long maxStalenessMs) {
+        this.memoryManager = memoryManager;
+        this.maxSizeBytes = maxSizeBytes;
+        this.maxEntrySizeBytes = maxSizeBytes / 10;
+        this.maxStalenessMs = maxStalenessMs;
+    }
+    
+    /**
+     * Identity of a cached result. Also remembers whether the query is pinned to a
+     * CurrentSCN in the past and how many invalidations preceded its execution.
+     */
+    public static final class Key {
+        private final Object[] components;
+        private final int hashCode;
+        private final boolean isPinned;
+        private final long writeCount;
+        
+        private Key(Object[] components, boolean isPinned, long writeCount) {
+            this.components = components;
+            this.hashCode = Arrays.deepHashCode(components);
+            this.isPinned = isPinned;
+            this.writeCount = writeCount;
+        }
+        
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null) return false;
+            if (getClass() != obj.getClass()) return false;
+            Key other = (Key)obj;
+            return hashCode == other.hashCode && Arrays.deepEquals(components, other.components);
+        }
+    }
+    
+    private static class Entry {
+        private final RowProjector projector;
+        private final List<Tuple> results;
+        private final Set<ImmutableBytesPtr> tableNames;
+        private final MemoryChunk chunk;
+        private final long createdTime;
+        
+        private Entry(RowProjector projector, List<Tuple> results, Set<ImmutableBytesPtr> tableNames, MemoryChunk chunk, long createdTime) {
+            this.projector = projector;
+            this.results = results;
+            this.tableNames = tableNames;
+            this.chunk = chunk;
+            this.createdTime = createdTime;
+        }
+    }
+    
+    public boolean isEnabled() {
+        return maxSizeBytes > 0;
+    }
+    
+    /**
+     * Create the key under which the result of a query is cached. Must be called
+     * before the query is compiled, so that a write made while it runs keeps its
+     * result out of the cache.
+     * @param query the statement text
+     * @param binds the bind values of the statement
+     * @param tenantId the tenant of the connection or null
+     * @param scn the CurrentSCN of the connection or null
+     * @param maxRows the max rows of the statement
+     */
+    public synchronized Key newKey(String query, List<Object> binds, byte[] tenantId, Long scn, int maxRows) {
+        Object[] components = new Object[binds.size() + 4];
+        components[0] = query;
+        components[1] = tenantId;
+        components[2] = scn;
+        components[3] = maxRows;
+        for (int i = 0; i < binds.size(); i++) {
+            components[i + 4] = binds.get(i);
+        }
+        // An SCN ahead of the clock may still see rows written after the result is cached
+        boolean isPinned = scn != null && scn <= System.currentTimeMillis();
+        return new Key(components, isPinned, writeCount);
+    }
+    
+    /**
+     * Get a scanner over the cached result of a query.
+     * @param key the key from {@link #newKey(String, List, byte[], Long, int)}
+     * @return the scanner or null if the result is not cached
+     */
+    public synchronized Scanner getScanner(Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null && !key.isPinned && System.currentTimeMillis() - entry.createdTime > maxStalenessMs) {
+            removeEntry(key);
+            entry = null;
+        }
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return new WrappedScanner(new MaterializedResultIterator(entry.results), entry.projector);
+    }
+    
+    /**
+     * Wrap the scanner of a query so that its result is cached once read to the end.
+     * Rows are returned with their projected columns evaluated up front.
+     * @param key the key from {@link #newKey(String, List, byte[], Long, int)}
+     * @param scanner the scanner of the query plan
+     * @param tables the tables read by the query
+     */
+    public Scanner newCachingScanner(Key key, Scanner scanner, List<TableRef> tables) {
+        Set<ImmutableBytesPtr> tableNames = Sets.newHashSetWithExpectedSize(tables.size());
+        for (TableRef table : tables) {
+            tableNames.add(new ImmutableBytesPtr(table.getTableName()));
+        }
+        return new CachingScanner(key, scanner, tableNames);
+    }
+    
+    /**
+     * Drop the cached results read from a table. Called when the client writes to it.
+     * @param tableName the HBase table name
+     */
+    public synchronized void invalidate(byte[] tableName) {
+        writeCount++;
+        ImmutableBytesPtr ptr = new ImmutableBytesPtr(tableName);
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.tableNames.contains(ptr)) {
+                iterator.remove();
+                freeEntry(entry);
+            }
+        }
+    }
+    
+    /**
+     * Drop the cached results read from a table or any of its indexes.
+     * @param schemaName the schema name of the table
+     * @param table the table written to
+     */
+    public void invalidate(String schemaName, PTable table) {
+        if (!isEnabled()) {
+            return;
+        }
+        invalidate(SchemaUtil.getTableName(schemaName, table.getName().getString()));
+        for (PTable index : table.getIndexes()) {
+            invalidate(SchemaUtil.getTableName(schemaName, index.getName().getString()));
+        }
+    }
+    
+    /**
+     * Drop all cached results. Called when table metadata changes.
+     */
+    public synchronized void clear() {
+        writeCount++;
+        for (Entry entry : entries.values()) {
+            freeEntry(entry);
+        }
+        entries.clear();
+    }
+    
+    private synchronized void put(Key key, RowProjector projector, List<Tuple> results, long size, Set<ImmutableBytesPtr> tableNames) {
+        if (key.writeCount != writeCount) {
+            return;
+        }
+        size += ENTRY_SIZE;
+        removeEntry(key);
+        MemoryChunk chunk = null;
+        while (chunk == null) {
+            // Make room in the cache first and then in the memory manager, never waiting on the latter
+            if (sizeBytes + size <= maxSizeBytes && memoryManager.getAvailableMemory() >= size) {
+                try {
+                    chunk = memoryManager.allocate(size);
+                    break;
+                } catch (InsufficientMemoryException e) {
+                    // Lost the memory to a concurrent allocation, so evict below and retry
+                }
+            }
+            Iterator<Map.Entry<Key,Entry>> iterator = entries.entrySet().iterator();
+            if (!iterator.hasNext()) {
+                return;
+            }
+            Entry eldest = iterator.next().getValue();
+            iterator.remove();
+            freeEntry(eldest);
+        }
+        sizeBytes += chunk.getSize();
+        entries.put(key, new Entry(projector, results, tableNames, chunk, System.currentTimeMillis()));
+    }
+    
+    private void removeEntry(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            freeEntry(entry);
+        }
+    }
+    
+    private void freeEntry(Entry entry) {
+        sizeBytes -= entry.chunk.getSize();
+        entry.chunk.close();
+    }
+    
+    public synchronized long getSize() {
+        return sizeBytes;
+    }
+    
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+    
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+    
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+    
+    /**
+     * Scanner that passes the rows of a query through while evaluating the projected
+     * columns of each one into a tuple holding one KeyValue per column, which are cached
+     * and read back through a projector of plain column expressions. The evaluated rows
+     * are independent of the aggregators and other state of the query plan, so they may
+     * be replayed by any number of result sets. Once the result grows past the maximum
+     * entry size, the rows are no longer evaluated or buffered.
+     */
+    private class CachingScanner implements Scanner {
+        private final Key key;
+        private final Scanner scanner;
+        private final Set<ImmutableBytesPtr> tableNames;
+        private final RowProjector sourceProjector;
+        private final RowProjector projector;
+        private final byte[][] qualifiers;
+        
+        private CachingScanner(Key key, Scanner scanner, Set<ImmutableBytesPtr> tableNames) {
+            this.key = key;
+            this.scanner = scanner;
+            this.tableNames = tableNames;
+            this.sourceProjector = scanner.getProjection();
+            int columnCount = sourceProjector.getColumnCount();
+            this.qualifiers = new byte[columnCount][];
+            List<ColumnProjector> columnProjectors = Lists.newArrayListWithExpectedSize(columnCount);
+            for (int i = 0; i < columnCount; i++) {
+                ColumnProjector sourceColumn = sourceProjector.getColumnProjector(i);
+                Expression expression = sourceColumn.getExpression();
+                qualifiers[i] = Bytes.toBytes(i);
+                PColumn column = new PColumnImpl(new PNameImpl(qualifiers[i]), SINGLE_COLUMN_FAMILY_NAME, expression.getDataType(),
+                        expression.getMaxLength(), expression.getScale(), true, i, expression.getColumnModifier());
+                columnProjectors.add(new ExpressionProjector(sourceColumn.getName(), sourceColumn.getTableName(),
+                        new KeyValueColumnExpression(column), sourceColumn.isCaseSensitive()));
+            }
+            this.projector = new RowProjector(columnProjectors, sourceProjector.getEstimatedByteSize());
+        }
+        
+        @Override
+        public ResultIterator iterator() throws SQLException {
+            final ResultIterator iterator = scanner.iterator();
+            return new ResultIterator() {
+                private final ImmutableBytesWritable keyPtr = new ImmutableBytesWritable();
+                private final ImmutableBytesWritable valuePtr = new ImmutableBytesWritable();
+                private List<Tuple> results = Lists.newArrayList();
+                private long size;
+                
+                @Override
+                public Tuple next() throws SQLException {
+                    Tuple tuple = iterator.next();
+                    if (tuple == null) {
+                        if (results != null) {
+                            put(key, projector, results, size, tableNames);
+                            results = null;
+                        }
+                        return null;
+                    }
+                    // Once the result is too big to be cached, rows are passed through as is
+                    if (results == null) {
+                        return tuple;
+                    }
+                    tuple.getKey(keyPtr);
+                    List<KeyValue> values = Lists.newArrayListWithExpectedSize(qualifiers.length);
+                    long rowSize = ROW_SIZE;
+                    for (int i = 0; i < qualifiers.length; i++) {
+                        if (!sourceProjector.getColumnProjector(i).getExpression().evaluate(tuple, valuePtr)) {
+                            valuePtr.set(ByteUtil.EMPTY_BYTE_ARRAY);
+                        }
+                        KeyValue value = KeyValueUtil.newKeyValue(keyPtr, SINGLE_COLUMN_FAMILY, qualifiers[i], AGG_TIMESTAMP, valuePtr.get(), valuePtr.getOffset(), valuePtr.getLength());
+                        rowSize += SizedUtil.KEY_VALUE_SIZE + SizedUtil.POINTER_SIZE + value.getLength();
+                        values.add(value);
+                    }
+                    size += rowSize;
+                    if (size > maxEntrySizeBytes) {
+                        results = null;
+                    } else {
+                        results.add(new MultiKeyValueTuple(values));
+                    }
+                    return tuple;
+                }
+                
+                @Override
+                public void close() throws SQLException {
+                    iterator.close();
+                }
+                
+                @Override
+                public void explain(List<String> planSteps) {
+                    iterator.explain(planSteps);
+                }
+            };
+        }
+        
+        @Override
+        public int getEstimatedSize() {
+            return scanner.getEstimatedSize();
+        }
+        
+        @Override
+        public RowProjector getProjection() {
+            // The rows are returned as they come from the scanner, while a copy projected into
+            // a single column family is cached
+            return sourceProjector;
+        }
+        
+        @Override
+        public ExplainPlan getExplainPlan() {
+            return scanner.getExplainPlan();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.hbase.regionserver.MultiVersionConsistencyControl;
+
+/**
+ * 
+ * Tracks the writes made to a region while it is open, so that results computed from
+ * the region's data can later be known to still be current. A write is counted as started
+ * before it is applied and as completed once it is visible to new scanners. Writes that
+ * fail after being started are never completed, which conservatively prevents any further
+ * caching for the region until it is reopened.
+ * 
+ * Not every write to a region goes through a coprocessor hook: in particular the RowMutations
+ * applied through HRegion#mutateRow and HRegion#mutateRowsWithLocks aren't seen by any hook in
+ * HBase 0.94. Every write to the memstore does advance the read point of the region though,
+ * so the read point is tracked as well. Whenever it moved without the hooks accounting for the
+ * timestamps of the cells written, the timestamp bound is raised to the current time.
+ *
+ * @since 2.0
+ */
+public class RegionWriteTracker {
+    public static final long WRITE_IN_PROGRESS = -1;
+    
+    private final AtomicLong startedWriteCount = new AtomicLong();
+    private final AtomicLong completedWriteCount = new AtomicLong();
+    private final AtomicLong maxTimeStamp;
+    private final MultiVersionConsistencyControl mvcc;
+    private long readPoint;
+    
+    /**
+     * @param mvcc the multi-version consistency control of the region
+     * @param maxTimeStamp an upper bound on the timestamp of the cells already
+     * in the region when it was opened.
+     */
+    public RegionWriteTracker(MultiVersionConsistencyControl mvcc, long maxTimeStamp) {
+        this.mvcc = mvcc;
+        this.readPoint = mvcc.memstoreReadPoint();
+        this.maxTimeStamp = new AtomicLong(maxTimeStamp);
+    }
+    
+    public void startWrite() {
+        startedWriteCount.incrementAndGet();
+    }
+    
+    /**
+     * Complete a write previously started through {@link #startWrite()}
+     * @param timeStamp the maximum timestamp of the cells written
+     */
+    public void completeWrite(long timeStamp) {
+        // Raise the timestamp before counting the write, so that anyone seeing
+        // the count also sees the timestamp.
+        raiseMaxTimeStamp(timeStamp);
+        completedWriteCount.incrementAndGet();
+    }
+    
+    private void raiseMaxTimeStamp(long timeStamp) {
+        while (true) {
+            long current = maxTimeStamp.get();
+            if (timeStamp <= current || maxTimeStamp.compareAndSet(current, timeStamp)) {
+                break;
+            }
+        }
+    }
+    
+    /**
+     * @return the number of completed writes, or {@link #WRITE_IN_PROGRESS} if
+     * a write has been started but not completed.
+     */
+    public long getWriteCount() {
+        long completed = completedWriteCount.get();
+        return startedWriteCount.get() == completed ? completed : WRITE_IN_PROGRESS;
+    }
+    
+    /**
+     * @return the read point of the region, which advances with every write made to the
+     * memstore, whether tracked through the hooks or not, and with every flush.
+     */
+    public long getReadPoint() {
+        return mvcc.memstoreReadPoint();
+    }
+    
+    /**
+     * @param readPoint a read point returned by {@link #getReadPoint()}
+     * @return an upper bound on the timestamp of every cell in the region, valid for
+     * the writes counted by a preceding call to {@link #getWriteCount()} and for the
+     * writes visible at the read point.
+     */
+    public long getMaxTimeStamp(long readPoint) {
+        synchronized (this) {
+            if (readPoint > this.readPoint) {
+                // The cells of writes the hooks did not see are no newer than the current
+                // time, since they were visible at the read point, which was read before.
+                raiseMaxTimeStamp(System.currentTimeMillis());
+                this.readPoint = readPoint;
+            }
+        }
+        return maxTimeStamp.get();
+    }
+}
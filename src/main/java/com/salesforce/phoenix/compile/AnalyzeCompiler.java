@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.compile;
+
+import java.io.IOException;
+import java.sql.ParameterMetaData;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.client.*;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.google.common.collect.Lists;
+import com.salesforce.phoenix.compile.GroupByCompiler.GroupBy;
+import com.salesforce.phoenix.compile.OrderByCompiler.OrderBy;
+import com.salesforce.phoenix.coprocessor.UngroupedAggregateRegionObserver;
+import com.salesforce.phoenix.execute.AggregatePlan;
+import com.salesforce.phoenix.execute.MutationState;
+import com.salesforce.phoenix.expression.function.CountAggregateFunction;
+import com.salesforce.phoenix.iterate.ResultIterator;
+import com.salesforce.phoenix.jdbc.PhoenixConnection;
+import com.salesforce.phoenix.parse.*;
+import com.salesforce.phoenix.parse.HintNode.Hint;
+import com.salesforce.phoenix.query.*;
+import com.salesforce.phoenix.query.Scanner;
+import com.salesforce.phoenix.schema.*;
+import com.salesforce.phoenix.schema.stat.StatisticsUtil;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+import com.salesforce.phoenix.util.ServerUtil;
+
+
+/**
+ * Compiles an ANALYZE statement into an ungrouped aggregate query, select COUNT(*) from <table>,
+ * run with a single scan per region. The coprocessor collects the statistics of each region
+ * while scanning it and writes them to the statistics table.
+ *
+ * @since 2.0
+ */
+public class AnalyzeCompiler {
+    private static final ParseNodeFactory NODE_FACTORY = new ParseNodeFactory();
+    
+    private final PhoenixConnection connection;
+    
+    public AnalyzeCompiler(PhoenixConnection connection) {
+        this.connection = connection;
+    }
+    
+    public MutationPlan compile(AnalyzeStatement statement) throws SQLException {
+        final ConnectionQueryServices services = connection.getQueryServices();
+        final ColumnResolver resolver = FromCompiler.getResolver(statement, connection);
+        final TableRef tableRef = resolver.getTables().get(0);
+        if (tableRef.getTable().getType() == PTableType.VIEW) {
+            throw new ReadOnlyTableException("Statistics may not be collected for a view (" + tableRef.getTable() + ")");
+        }
+        Scan scan = new Scan();
+        // Use a single scan per region, so that the statistics cover the entire region
+        HintNode hint = NODE_FACTORY.hint(Hint.NO_INTRA_REGION_PARALLELIZATION.name());
+        final StatementContext context = new StatementContext(connection, resolver, Collections.<Object>emptyList(), 0, scan, hint, false);
+        final int maxSize = services.getProps().getInt(QueryServices.MAX_MUTATION_SIZE_ATTRIB,QueryServicesOptions.DEFAULT_MAX_MUTATION_SIZE);
+        long guidePostWidth = services.getProps().getLong(QueryServices.STATS_GUIDEPOST_WIDTH_BYTES_ATTRIB, QueryServicesOptions.DEFAULT_STATS_GUIDEPOST_WIDTH_BYTES);
+        scan.setAttribute(UngroupedAggregateRegionObserver.ANALYZE_AGG, Bytes.toBytes(guidePostWidth));
+        List<AliasedNode> select = Collections.<AliasedNode>singletonList(
+                NODE_FACTORY.aliasedNode(null, 
+                        NODE_FACTORY.function(CountAggregateFunction.NORMALIZED_NAME, LiteralParseNode.STAR)));
+        final RowProjector projector = ProjectionCompiler.getRowProjector(context, select, false, GroupBy.EMPTY_GROUP_BY, OrderBy.EMPTY_ORDER_BY);
+        // Statistics are collected over all the key values of each row, so undo any
+        // narrowing of the scan done when projecting the COUNT(*)
+        scan.getFamilyMap().clear();
+        scan.setFilter(null);
+        final QueryPlan plan = new AggregatePlan(context, tableRef, projector, null, GroupBy.EMPTY_GROUP_BY, false, null, OrderBy.EMPTY_ORDER_BY);
+        return new MutationPlan() {
+
+            @Override
+            public PhoenixConnection getConnection() {
+                return connection;
+            }
+
+            @Override
+            public ParameterMetaData getParameterMetaData() {
+                return context.getBindManager().getParameterMetaData();
+            }
+
+            @Override
+            public MutationState execute() throws SQLException {
+                Scanner scanner = plan.getScanner();
+                // Remove the statistics of regions that may no longer exist, since each region
+                // only overwrites its own statistics.
+                deleteStatistics(tableRef.getTableName(), context.getScan().getTimeRange().getMax());
+                ResultIterator iterator = scanner.iterator();
+                final long rowCount;
+                try {
+                    Tuple row = iterator.next();
+                    ImmutableBytesWritable ptr = context.getTempPtr();
+                    rowCount = row == null ? 0 : (Long)projector.getColumnProjector(0).getValue(row, PDataType.LONG, ptr);
+                } finally {
+                    iterator.close();
+                }
+                // Make the new statistics available right away to this client
+                services.getStatsManager().updateStats(tableRef);
+                return new MutationState(maxSize, connection) {
+                    @Override
+                    public long getUpdateCount() {
+                        return rowCount;
+                    }
+                };
+            }
+
+            @Override
+            public ExplainPlan getExplainPlan() throws SQLException {
+                List<String> queryPlanSteps =  plan.getExplainPlan().getPlanSteps();
+                List<String> planSteps = Lists.newArrayListWithExpectedSize(queryPlanSteps.size()+1);
+                planSteps.add("ANALYZE");
+                planSteps.addAll(queryPlanSteps);
+                return new ExplainPlan(planSteps);
+            }
+        };
+    }
+
+    private void deleteStatistics(byte[] tableName, long timestamp) throws SQLException {
+        SQLException sqlE = null;
+        HTableInterface statsHTable = connection.getQueryServices().getTable(StatisticsUtil.STATS_TABLE_NAME);
+        try {
+            List<Delete> deletes = Lists.newArrayList();
+            ResultScanner scanner = statsHTable.getScanner(StatisticsUtil.newScan(tableName));
+            try {
+                for (Result result = scanner.next(); result != null; result = scanner.next()) {
+                    @SuppressWarnings("deprecation") // FIXME: Remove when unintentionally deprecated method is fixed (HBASE-7870).
+                    Delete delete = new Delete(result.getRow(), timestamp - 1, null);
+                    deletes.add(delete);
+                }
+            } finally {
+                scanner.close();
+            }
+            if (!deletes.isEmpty()) {
+                statsHTable.delete(deletes);
+            }
+        } catch (IOException e) {
+            sqlE = ServerUtil.parseServerException(e);
+        } finally {
+            try {
+                statsHTable.close();
+            } catch (IOException e) {
+                if (sqlE == null) {
+                    sqlE = ServerUtil.parseServerException(e);
+                } else {
+                    sqlE.setNextException(ServerUtil.parseServerException(e));
+                }
+            } finally {
+                if (sqlE != null) {
+                    throw sqlE;
+                }
+            }
+        }
+    }
+}
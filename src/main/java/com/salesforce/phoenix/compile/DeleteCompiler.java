@@ -43,6 +43,7 @@ import com.salesforce.phoenix.execute.*;
 import com.salesforce.phoenix.expression.Expression;
 import com.salesforce.phoenix.expression.LiteralExpression;
 import com.salesforce.phoenix.expression.function.CountAggregateFunction;
+import com.salesforce.phoenix.index.PhoenixIndexBuilder;
 import com.salesforce.phoenix.iterate.ResultIterator;
 import com.salesforce.phoenix.iterate.SpoolingResultIterator.SpoolingResultIteratorFactory;
 import com.salesforce.phoenix.jdbc.PhoenixConnection;
@@ -57,9 +58,19 @@ public class DeleteCompiler {
     private static final ParseNodeFactory NODE_FACTORY = new ParseNodeFactory();
     
     private final PhoenixConnection connection;
+    private final boolean runSubqueries;
     
     public DeleteCompiler(PhoenixConnection connection) {
+        this(connection, true);
+    }
+    
+    /**
+     * @param runSubqueries false to compile the subqueries of the where clause without running
+     * them, when the statement is only compiled for its metadata or to explain it.
+     */
+    public DeleteCompiler(PhoenixConnection connection, boolean runSubqueries) {
         this.connection = connection;
+        this.runSubqueries = runSubqueries;
     }
     
     public MutationPlan compile(DeleteStatement statement, List<Object> binds) throws SQLException {
@@ -71,7 +82,7 @@ public class DeleteCompiler {
             throw new ReadOnlyTableException("Mutations not allowed for a view (" + tableRef.getTable() + ")");
         }
         Scan scan = new Scan();
-        ParseNode where = statement.getWhere();
+        ParseNode where = SubqueryRewriter.rewrite(statement.getWhere(), connection, binds, runSubqueries);
         final StatementContext context = new StatementContext(connection, resolver, binds, statement.getBindCount(), scan, statement.getHint(), false);
         Integer limit = LimitCompiler.getLimit(context, statement.getLimit());
         OrderBy orderBy = OrderByCompiler.getOrderBy(context, statement.getOrderBy(), GroupBy.EMPTY_GROUP_BY, false, limit, Collections.<String,ParseNode>emptyMap()); 
@@ -107,6 +118,11 @@ public class DeleteCompiler {
         } else if (isAutoCommit && limit == null && orderBy.getOrderByExpressions().isEmpty()) {
             // TODO: better abstraction - DeletePlan ?
             scan.setAttribute(UngroupedAggregateRegionObserver.DELETE_AGG, QueryConstants.TRUE);
+            // The rows are deleted on the server-side, so the indexes must be maintained there too
+            byte[] indexMetaData = PhoenixIndexBuilder.getIndexMetaData(tableRef);
+            if (indexMetaData != null) {
+                scan.setAttribute(PhoenixIndexBuilder.INDEX_MD, indexMetaData);
+            }
             // Build an ungrouped aggregate query: select COUNT(*) from <table> where <where>
             // The coprocessor will delete each row returned from the scan
             List<AliasedNode> select = Collections.<AliasedNode>singletonList(
@@ -160,7 +176,8 @@ public class DeleteCompiler {
                     NODE_FACTORY.aliasedNode(null,
                         NODE_FACTORY.literal(1)));
             final RowProjector projector = ProjectionCompiler.getRowProjector(context, select, false, GroupBy.EMPTY_GROUP_BY, OrderBy.EMPTY_ORDER_BY);
-            final QueryPlan plan = new ScanPlan(context, tableRef, projector, limit, orderBy, new SpoolingResultIteratorFactory(services));
+            // The rows are only collected, so their order only matters when a limit picks which of them are deleted
+            final QueryPlan plan = new ScanPlan(context, tableRef, projector, limit, orderBy, new SpoolingResultIteratorFactory(services), limit != null);
             return new MutationPlan() {
 
                 @Override
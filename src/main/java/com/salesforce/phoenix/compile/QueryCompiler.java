@@ -69,11 +69,21 @@ public class QueryCompiler {
     private final int maxRows;
     private final PColumn[] targetColumns;
     private final ParallelIteratorFactory parallelIteratorFactory;
+    private final boolean runSubqueries;
+    private final boolean isRowKeyOrderRequired;
 
     public QueryCompiler(PhoenixConnection connection, int maxRows) {
         this(connection, maxRows, new Scan());
     }
     
+    public QueryCompiler(PhoenixConnection connection, int maxRows, boolean runSubqueries) {
+        this(connection, maxRows, runSubqueries, true);
+    }
+    
+    public QueryCompiler(PhoenixConnection connection, int maxRows, boolean runSubqueries, boolean isRowKeyOrderRequired) {
+        this(connection, maxRows, new Scan(), null, new SpoolingResultIteratorFactory(connection.getQueryServices()), runSubqueries, isRowKeyOrderRequired);
+    }
+    
     public QueryCompiler(PhoenixConnection connection, int maxRows, Scan scan) {
         this(connection, maxRows, scan, null, new SpoolingResultIteratorFactory(connection.getQueryServices()));
     }
@@ -83,11 +93,32 @@ public class QueryCompiler {
     }
 
     public QueryCompiler(PhoenixConnection connection, int maxRows, Scan scan, PColumn[] targetDatums, ParallelIteratorFactory parallelIteratorFactory) {
+        this(connection, maxRows, scan, targetDatums, parallelIteratorFactory, true);
+    }
+
+    /**
+     * @param runSubqueries false to compile each subquery without running it, when the statement
+     * is only compiled for its metadata or to explain it.
+     */
+    public QueryCompiler(PhoenixConnection connection, int maxRows, Scan scan, PColumn[] targetDatums, ParallelIteratorFactory parallelIteratorFactory, boolean runSubqueries) {
+        this(connection, maxRows, scan, targetDatums, parallelIteratorFactory, runSubqueries, true);
+    }
+
+    /**
+     * @param runSubqueries false to compile each subquery without running it, when the statement
+     * is only compiled for its metadata or to explain it.
+     * @param isRowKeyOrderRequired false if the caller consumes every row of the query without
+     * depending on their order, in which case the rows of a salted table are not merged back
+     * into row key order.
+     */
+    public QueryCompiler(PhoenixConnection connection, int maxRows, Scan scan, PColumn[] targetDatums, ParallelIteratorFactory parallelIteratorFactory, boolean runSubqueries, boolean isRowKeyOrderRequired) {
         this.connection = connection;
         this.maxRows = maxRows;
         this.scan = scan;
         this.targetColumns = targetDatums;
         this.parallelIteratorFactory = parallelIteratorFactory;
+        this.runSubqueries = runSubqueries;
+        this.isRowKeyOrderRequired = isRowKeyOrderRequired;
         if (connection.getQueryServices().getLowestClusterHBaseVersion() >= PhoenixDatabaseMetaData.ESSENTIAL_FAMILY_VERSION_THRESHOLD) {
             this.scan.setAttribute(LOAD_COLUMN_FAMILIES_ON_DEMAND_ATTR, QueryConstants.TRUE);
         }
@@ -118,6 +149,7 @@ public class QueryCompiler {
          */
         assert(binds.size() == statement.getBindCount());
         
+        statement = SubqueryRewriter.rewrite(statement, connection, binds, runSubqueries);
         statement = RHSLiteralStatementRewriter.normalize(statement);
         ColumnResolver resolver = FromCompiler.getResolver(statement, connection);
         TableRef tableRef = resolver.getTables().get(0);
@@ -154,7 +186,7 @@ public class QueryCompiler {
             boolean dedup = !statement.getGroupBy().isEmpty() && statement.isDistinct();
             return new AggregatePlan(context, tableRef, projector, limit, groupBy, dedup, having, orderBy);
         } else {
-            return new ScanPlan(context, tableRef, projector, limit, orderBy, parallelIteratorFactory);
+            return new ScanPlan(context, tableRef, projector, limit, orderBy, parallelIteratorFactory, isRowKeyOrderRequired);
         }
     }
 }
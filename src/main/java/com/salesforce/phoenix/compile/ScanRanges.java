@@ -27,14 +27,15 @@
  ******************************************************************************/
 package com.salesforce.phoenix.compile;
 
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
 
 import com.salesforce.phoenix.filter.SkipScanFilter;
 import com.salesforce.phoenix.query.KeyRange;
+import com.salesforce.phoenix.query.KeyRange.Bound;
 import com.salesforce.phoenix.schema.RowKeySchema;
 import com.salesforce.phoenix.util.ScanUtil;
 
@@ -42,25 +43,36 @@ import com.salesforce.phoenix.util.ScanUtil;
 public class ScanRanges {
     private static final List<List<KeyRange>> EVERYTHING_RANGES = Collections.<List<KeyRange>>emptyList();
     private static final List<List<KeyRange>> NOTHING_RANGES = Collections.<List<KeyRange>>singletonList(Collections.<KeyRange>singletonList(KeyRange.EMPTY_RANGE));
-    public static final ScanRanges EVERYTHING = new ScanRanges(EVERYTHING_RANGES,null);
-    public static final ScanRanges NOTHING = new ScanRanges(NOTHING_RANGES,null);
+    public static final ScanRanges EVERYTHING = new ScanRanges(EVERYTHING_RANGES,null,0);
+    public static final ScanRanges NOTHING = new ScanRanges(NOTHING_RANGES,null,1);
 
     public static ScanRanges create(List<List<KeyRange>> ranges, RowKeySchema schema) {
+        return create(ranges, schema, ranges.size());
+    }
+
+    /**
+     * @param boundPkColumnCount the number of leading row key columns constrained by the ranges,
+     * which is more than the number of ranges when several columns are collapsed into a single
+     * range over the full row key.
+     */
+    public static ScanRanges create(List<List<KeyRange>> ranges, RowKeySchema schema, int boundPkColumnCount) {
         if (ranges.isEmpty()) {
             return EVERYTHING;
         } else if (ranges.size() == 1 && ranges.get(0).size() == 1 && ranges.get(0).get(0) == KeyRange.EMPTY_RANGE) {
             return NOTHING;
         }
-        return new ScanRanges(ranges, schema);
+        return new ScanRanges(ranges, schema, boundPkColumnCount);
     }
 
     private SkipScanFilter filter;
     private final List<List<KeyRange>> ranges;
     private final RowKeySchema schema;
+    private final int boundPkColumnCount;
 
-    private ScanRanges (List<List<KeyRange>> ranges, RowKeySchema schema) {
+    private ScanRanges (List<List<KeyRange>> ranges, RowKeySchema schema, int boundPkColumnCount) {
         this.ranges = ranges;
         this.schema = schema;
+        this.boundPkColumnCount = boundPkColumnCount;
         if (schema != null && !ranges.isEmpty() ) {
             this.filter = new SkipScanFilter(ranges, schema);
         }
@@ -78,6 +90,13 @@ public class ScanRanges {
         return schema;
     }
 
+    /**
+     * @return the number of leading row key columns used to form the start/stop scan key
+     */
+    public int getBoundPkColumnCount() {
+        return boundPkColumnCount;
+    }
+
     public boolean isEverything() {
         return this == EVERYTHING;
     }
@@ -123,6 +142,42 @@ public class ScanRanges {
         return isSingleKey;
     }
 
+    /**
+     * @return true if this represents the full keys to a set of rows
+     */
+    public boolean isPointLookup() {
+        return schema != null && ScanUtil.isAllSingleRowScan(ranges, schema);
+    }
+    
+    /**
+     * @return the number of rows looked up if {@link #isPointLookup()}
+     */
+    public int getPointLookupCount() {
+        int count = 1;
+        for (List<KeyRange> orRanges : ranges) {
+            count *= orRanges.size();
+        }
+        return count;
+    }
+    
+    /**
+     * Form the full row key of every combination of single keys. Only valid
+     * if {@link #isPointLookup()}.
+     * @return the row keys in ascending order
+     */
+    public List<byte[]> getPointKeys() {
+        byte[][] keys = new byte[getPointLookupCount()][];
+        int[] position = new int[ranges.size()];
+        byte[] key = new byte[ScanUtil.estimateMaximumKeyLength(schema, 0, ranges)];
+        int i = 0;
+        do {
+            int length = ScanUtil.setKey(schema, ranges, position, Bound.LOWER, key, 0, 0, ranges.size());
+            keys[i++] = Arrays.copyOf(key, length);
+        } while (ScanUtil.incrementKey(ranges, position));
+        Arrays.sort(keys, Bytes.BYTES_COMPARATOR);
+        return Arrays.asList(keys);
+    }
+    
     public void setScanStartStopRow(Scan scan) {
         if (isEverything()) {
             return;
@@ -35,6 +35,7 @@ import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 
 import com.salesforce.phoenix.jdbc.PhoenixConnection;
+import com.salesforce.phoenix.job.JobPriority;
 import com.salesforce.phoenix.parse.HintNode;
 import com.salesforce.phoenix.parse.HintNode.Hint;
 import com.salesforce.phoenix.query.QueryConstants;
@@ -70,6 +71,7 @@ public class StatementContext {
     
     private long currentTime = QueryConstants.UNSET_TIMESTAMP;
     private ScanRanges scanRanges = ScanRanges.EVERYTHING;
+    private boolean isKeyRangeFromSubquery;
 
     public StatementContext(PhoenixConnection connection, ColumnResolver resolver, List<Object> binds, int bindCount, Scan scan) {
         this(connection, resolver, binds, bindCount, scan, null, false);
@@ -99,6 +101,20 @@ public class StatementContext {
         return hintNode == null ? null : hintNode.getHint(hint);
     }
 
+    /**
+     * Get the priority class of the work queued for this statement, which
+     * a hint may override for the connection.
+     */
+    public JobPriority getPriority() {
+        if (hasHint(Hint.HIGH_PRIORITY)) {
+            return JobPriority.HIGH;
+        }
+        if (hasHint(Hint.LOW_PRIORITY)) {
+            return JobPriority.LOW;
+        }
+        return connection.getQueryPriority();
+    }
+
     public String getDateFormat() {
         return dateFormat;
     }
@@ -177,4 +193,16 @@ public class StatementContext {
         return isAggregate;
     }
 
+    /**
+     * @return true if the leading row key column is constrained by an IN subquery that
+     * was not run, so that the scan ranges don't reflect the keys it would return.
+     */
+    public boolean isKeyRangeFromSubquery() {
+        return isKeyRangeFromSubquery;
+    }
+
+    public void setKeyRangeFromSubquery(boolean isKeyRangeFromSubquery) {
+        this.isKeyRangeFromSubquery = isKeyRangeFromSubquery;
+    }
+
 }
@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.compile;
+
+import java.sql.SQLException;
+import java.util.*;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.salesforce.phoenix.exception.SQLExceptionCode;
+import com.salesforce.phoenix.exception.SQLExceptionInfo;
+import com.salesforce.phoenix.iterate.ResultIterator;
+import com.salesforce.phoenix.jdbc.PhoenixConnection;
+import com.salesforce.phoenix.parse.*;
+import com.salesforce.phoenix.query.QueryServices;
+import com.salesforce.phoenix.query.QueryServicesOptions;
+import com.salesforce.phoenix.schema.PDataType;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+
+
+/**
+ * 
+ * Class that creates a new select statement in which each uncorrelated IN and EXISTS
+ * subquery has been replaced by its result. The subquery is run once, up front, and
+ * an IN subquery becomes an IN list of the distinct values it returned, so that
+ * a subquery on the leading row key columns of the outer table forms a skip scan
+ * instead of a scan of the entire table.
+ *
+ * @since 2.0
+ */
+public class SubqueryRewriter extends ParseNodeRewriter {
+    private final PhoenixConnection connection;
+    private final List<Object> binds;
+    private final boolean runSubqueries;
+    private final int maxRows;
+    
+    private SubqueryRewriter(PhoenixConnection connection, List<Object> binds, boolean runSubqueries) {
+        this.connection = connection;
+        this.binds = binds;
+        this.runSubqueries = runSubqueries;
+        this.maxRows = connection.getQueryServices().getProps().getInt(QueryServices.SUBQUERY_MAX_ROWS_ATTRIB, QueryServicesOptions.DEFAULT_SUBQUERY_MAX_ROWS);
+    }
+    
+    /**
+     * Rewrite the select statement by replacing each IN and EXISTS subquery
+     * with the constants it evaluates to.
+     * @param statement the select statement
+     * @param connection the connection through which to run the subqueries
+     * @param binds the bind values of the select statement
+     * @param runSubqueries false if the statement is only compiled for its metadata or to
+     * explain it, in which case each subquery is compiled but replaced by TRUE instead of run.
+     * @return new select statement
+     * @throws SQLException 
+     */
+    public static SelectStatement rewrite(SelectStatement statement, PhoenixConnection connection, List<Object> binds, boolean runSubqueries) throws SQLException {
+        return rewrite(statement, new SubqueryRewriter(connection, binds, runSubqueries));
+    }
+    
+    /**
+     * Rewrite the where clause of a statement other than a select statement by replacing
+     * each IN and EXISTS subquery with the constants it evaluates to.
+     * @param where the where clause, or null if there is none
+     * @see #rewrite(SelectStatement, PhoenixConnection, List, boolean)
+     */
+    public static ParseNode rewrite(ParseNode where, PhoenixConnection connection, List<Object> binds, boolean runSubqueries) throws SQLException {
+        if (where == null) {
+            return null;
+        }
+        return where.accept(new SubqueryRewriter(connection, binds, runSubqueries));
+    }
+    
+    @Override
+    public boolean visitEnter(CompoundParseNode node) throws SQLException {
+        if (node instanceof InParseNode || node instanceof ExistsParseNode) {
+            // Don't descend into the subquery, as it's replaced as a whole on the way out
+            return false;
+        }
+        return super.visitEnter(node);
+    }
+    
+    @Override
+    public ParseNode visitLeave(CompoundParseNode node, List<ParseNode> nodes) throws SQLException {
+        if (node instanceof InParseNode) {
+            InParseNode inNode = (InParseNode)node;
+            SubqueryParseNode subqueryNode = (SubqueryParseNode)inNode.getChildren().get(1);
+            return inList(inNode.getChildren().get(0), subqueryNode.getSelectNode(), inNode.isNegate());
+        }
+        if (node instanceof ExistsParseNode) {
+            ExistsParseNode existsNode = (ExistsParseNode)node;
+            SubqueryParseNode subqueryNode = (SubqueryParseNode)existsNode.getChildren().get(1);
+            return exists(subqueryNode.getSelectNode(), existsNode.isNegate());
+        }
+        return super.visitLeave(node, nodes);
+    }
+    
+    private ParseNode inList(ParseNode lhs, SelectStatement subquery, boolean isNegate) throws SQLException {
+        // Compile with one more row than allowed so that we can tell when the limit is exceeded
+        QueryPlan plan = compile(subquery, maxRows + 1);
+        RowProjector projector = plan.getProjector();
+        if (projector.getColumnCount() != 1) {
+            throw new SQLExceptionInfo.Builder(SQLExceptionCode.SUBQUERY_RETURNS_MULTIPLE_COLUMNS)
+                .setMessage(subquery.toString()).build().buildException();
+        }
+        if (!runSubqueries) {
+            // Keep the left hand side so that the plan can still tell the keys come from the subquery
+            return NODE_FACTORY.subqueryPlaceholder(isNegate ? null : lhs);
+        }
+        ColumnProjector columnProjector = projector.getColumnProjector(0);
+        PDataType type = columnProjector.getExpression().getDataType();
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        Set<Object> values = Sets.newLinkedHashSet();
+        int rowCount = 0;
+        ResultIterator iterator = plan.getScanner().iterator();
+        try {
+            for (Tuple tuple = iterator.next(); tuple != null; tuple = iterator.next()) {
+                if (++rowCount > maxRows) {
+                    throw new SQLExceptionInfo.Builder(SQLExceptionCode.SUBQUERY_RESULT_TOO_LARGE)
+                        .setMessage("maxRows: " + maxRows).build().buildException();
+                }
+                values.add(columnProjector.getValue(tuple, type, ptr));
+            }
+        } finally {
+            iterator.close();
+        }
+        if (values.isEmpty()) {
+            // Nothing is IN an empty set, and everything is NOT IN it
+            return NODE_FACTORY.literal(isNegate);
+        }
+        List<ParseNode> children = Lists.newArrayListWithExpectedSize(values.size() + 1);
+        children.add(lhs);
+        for (Object value : values) {
+            children.add(NODE_FACTORY.literal(value));
+        }
+        return NODE_FACTORY.inList(children, isNegate);
+    }
+    
+    private ParseNode exists(SelectStatement subquery, boolean isNegate) throws SQLException {
+        QueryPlan plan = compile(subquery, 1);
+        if (!runSubqueries) {
+            return NODE_FACTORY.literal(true);
+        }
+        ResultIterator iterator = plan.getScanner().iterator();
+        try {
+            boolean exists = iterator.next() != null;
+            return NODE_FACTORY.literal(exists != isNegate);
+        } finally {
+            iterator.close();
+        }
+    }
+    
+    private QueryPlan compile(SelectStatement subquery, int maxRows) throws SQLException {
+        // Bind variables are numbered across the entire statement, so the subquery
+        // only sees the ones that occurred up to its end.
+        List<Object> subqueryBinds = binds.subList(0, subquery.getBindCount());
+        // The rows of the subquery are only collected, so their order only matters when its own
+        // limit picks which of them are returned
+        return new QueryCompiler(connection, maxRows, runSubqueries, subquery.getLimit() != null).compile(subquery, subqueryBinds);
+    }
+}
@@ -48,6 +48,7 @@ import com.salesforce.phoenix.execute.MutationState;
 import com.salesforce.phoenix.expression.Expression;
 import com.salesforce.phoenix.expression.LiteralExpression;
 import com.salesforce.phoenix.expression.function.CountAggregateFunction;
+import com.salesforce.phoenix.index.PhoenixIndexBuilder;
 import com.salesforce.phoenix.iterate.ParallelIterators.ParallelIteratorFactory;
 import com.salesforce.phoenix.iterate.*;
 import com.salesforce.phoenix.jdbc.*;
@@ -224,9 +225,19 @@ public class UpsertCompiler {
     }
     
     private final PhoenixStatement statement;
+    private final boolean runSubqueries;
     
     public UpsertCompiler(PhoenixStatement statement) {
+        this(statement, true);
+    }
+    
+    /**
+     * @param runSubqueries false to compile the subqueries of an UPSERT SELECT without running
+     * them, when the statement is only compiled for its metadata or to explain it.
+     */
+    public UpsertCompiler(PhoenixStatement statement, boolean runSubqueries) {
         this.statement = statement;
+        this.runSubqueries = runSubqueries;
     }
     
     public MutationPlan compile(UpsertStatement upsert, List<Object> binds) throws SQLException {
@@ -321,7 +332,9 @@ public class UpsertCompiler {
                 parallelIteratorFactory = upsertParallelIteratorFactoryToBe = new UpsertParallelIteratorFactory(statement, tableRef);
             }
             // Pass scan through if same table in upsert and select so that projection is computed correctly
-            QueryCompiler compiler = new QueryCompiler(connection, 0, sameTable ? scan : new Scan(), targetColumns, parallelIteratorFactory);
+            // The selected rows are only collected into the mutation state, so their order only matters when
+            // a limit picks which of them are upserted
+            QueryCompiler compiler = new QueryCompiler(connection, 0, sameTable ? scan : new Scan(), targetColumns, parallelIteratorFactory, runSubqueries, select.getLimit() != null);
             plan = compiler.compile(select, binds);
             rowProjectorToBe = plan.getProjector();
             nValuesToSet = rowProjectorToBe.getColumnCount();
@@ -440,6 +453,11 @@ public class UpsertCompiler {
                      */
                     scan.setAttribute(UngroupedAggregateRegionObserver.UPSERT_SELECT_TABLE, UngroupedAggregateRegionObserver.serialize(projectedTable));
                     scan.setAttribute(UngroupedAggregateRegionObserver.UPSERT_SELECT_EXPRS, UngroupedAggregateRegionObserver.serialize(projectedExpressions));
+                    // The rows are upserted on the server-side, so the indexes must be maintained there too
+                    byte[] indexMetaData = PhoenixIndexBuilder.getIndexMetaData(tableRef);
+                    if (indexMetaData != null) {
+                        scan.setAttribute(PhoenixIndexBuilder.INDEX_MD, indexMetaData);
+                    }
                     final QueryPlan aggPlan = new AggregatePlan(context, tableRef, projector, null, GroupBy.EMPTY_GROUP_BY, false, null, OrderBy.EMPTY_ORDER_BY);
                     return new MutationPlan() {
     
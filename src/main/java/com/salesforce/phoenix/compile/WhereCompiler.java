@@ -117,6 +117,29 @@ public class WhereCompiler {
             }
             return ref;
         }
+
+        @Override
+        public Expression visit(LiteralParseNode node) throws SQLException {
+            if (node instanceof SubqueryPlaceholderParseNode) {
+                ParseNode lhs = ((SubqueryPlaceholderParseNode)node).getLhs();
+                if (lhs instanceof ColumnParseNode && isLeadingPKColumn((ColumnParseNode)lhs)) {
+                    context.setKeyRangeFromSubquery(true);
+                }
+            }
+            return super.visit(node);
+        }
+
+        private boolean isLeadingPKColumn(ColumnParseNode node) throws SQLException {
+            ColumnRef ref;
+            try {
+                ref = context.getResolver().resolveColumn(node.getSchemaName(), node.getTableName(), node.getName());
+            } catch (ColumnNotFoundException e) {
+                // The placeholder isn't translated when the statement is rewritten against an index
+                return false;
+            }
+            PColumn column = ref.getColumn();
+            return SchemaUtil.isPKColumn(column) && column.getPosition() == (ref.getTable().getBucketNum() == null ? 0 : 1);
+        }
     }
 
     private static final class Counter {
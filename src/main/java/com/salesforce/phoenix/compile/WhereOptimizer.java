@@ -39,6 +39,7 @@ import com.salesforce.phoenix.expression.function.ScalarFunction;
 import com.salesforce.phoenix.expression.visitor.TraverseNoExpressionVisitor;
 import com.salesforce.phoenix.parse.HintNode.Hint;
 import com.salesforce.phoenix.query.KeyRange;
+import com.salesforce.phoenix.query.KeyRange.Bound;
 import com.salesforce.phoenix.query.QueryConstants;
 import com.salesforce.phoenix.schema.*;
 import com.salesforce.phoenix.util.*;
@@ -88,7 +89,10 @@ public class WhereOptimizer {
         KeyExpressionVisitor.KeySlots keySlots = whereClause.accept(visitor);
 
         if (keySlots == null) {
-            context.setScanRanges(ScanRanges.EVERYTHING);
+            KeyRange compositeRange = table.getBucketNum() != null || forcedSkipScanFilter ? null :
+                getRowValueConstructorKeyRange(table, Collections.<List<KeyRange>>emptyList(), whereClause);
+            context.setScanRanges(compositeRange == null ? ScanRanges.EVERYTHING :
+                ScanRanges.create(Collections.singletonList(Collections.singletonList(compositeRange)), SaltingUtil.VAR_BINARY_SCHEMA, 1));
             return whereClause;
         }
         // If a parameter is bound to null (as will be the case for calculating ResultSetMetaData and
@@ -149,22 +153,173 @@ public class WhereOptimizer {
         }
         RowKeySchema schema = table.getRowKeySchema();
         List<List<KeyRange>> ranges = cnf;
+        int boundPkColumnCount = cnf.size();
         if (table.getBucketNum() != null) {
             if (!cnf.isEmpty()) {
                 // If we have all single keys, we can optimize by adding the salt byte up front
+                cnf.addFirst(SALT_PLACEHOLDER);
+                boundPkColumnCount = cnf.size();
                 if (ScanUtil.isAllSingleRowScan(cnf, table.getRowKeySchema())) {
-                    cnf.addFirst(SALT_PLACEHOLDER);
-                    ranges = SaltingUtil.flattenRanges(cnf, table.getRowKeySchema(), table.getBucketNum());
+                    ranges = SaltingUtil.flattenRanges(cnf, table);
                     schema = SaltingUtil.VAR_BINARY_SCHEMA;
                 } else {
-                    cnf.addFirst(SaltingUtil.generateAllSaltingRanges(table.getBucketNum()));
+                    // Only scan the buckets of the leading pk columns the table is salted on, if constrained to single keys
+                    List<KeyRange> saltingRanges = SaltingUtil.getSaltingRanges(cnf, table);
+                    cnf.set(0, saltingRanges == null ? SaltingUtil.generateAllSaltingRanges(table.getBucketNum()) : saltingRanges);
                 }
             }
+        } else if (!forcedSkipScanFilter && !hasUnboundedRange) {
+            // Collapse a row value constructor comparison on the pk columns following the
+            // leading single keys into a single range over the full row key.
+            KeyRange compositeRange = getRowValueConstructorKeyRange(table, cnf, whereClause);
+            if (compositeRange != null) {
+                ranges = Collections.singletonList(Collections.singletonList(compositeRange));
+                schema = SaltingUtil.VAR_BINARY_SCHEMA;
+                // The comparison bounds at least the pk column following the single keys
+                boundPkColumnCount++;
+            }
         }
-        context.setScanRanges(ScanRanges.create(ranges, schema));
+        context.setScanRanges(ScanRanges.create(ranges, schema, boundPkColumnCount));
         return whereClause.accept(new RemoveExtractedNodesVisitor(extractNodes));
     }
 
+    /**
+     * Form a single key range over the full row key from a row value constructor comparison, such as
+     * (pk2, pk3) > (?, ?), when the pk columns before it are all constrained to single keys. The comparison
+     * is recognized in its expanded form, pk2 > ? OR (pk2 = ? AND pk3 > ?), whether it was written as a row
+     * value constructor or by hand. The comparison is not extracted from the where clause, since the
+     * composite key does not filter out rows with null values in the trailing pk columns.
+     * @return the composite key range or null if the where clause has no such comparison
+     */
+    private static KeyRange getRowValueConstructorKeyRange(PTable table, List<List<KeyRange>> cnf, Expression whereClause) {
+        for (List<KeyRange> slot : cnf) {
+            if (slot.size() != 1 || !slot.get(0).isSingleKey()) {
+                return null;
+            }
+        }
+        List<Expression> conjuncts = whereClause instanceof AndExpression ? whereClause.getChildren() : Collections.singletonList(whereClause);
+        for (Expression conjunct : conjuncts) {
+            if (conjunct instanceof OrExpression) {
+                KeyRange range = getRowValueConstructorKeyRange(table, cnf, (OrExpression)conjunct);
+                if (range != null) {
+                    return range;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static KeyRange getRowValueConstructorKeyRange(PTable table, List<List<KeyRange>> cnf, OrExpression or) {
+        List<Expression> disjuncts = or.getChildren();
+        List<PColumn> pkColumns = table.getPKColumns();
+        int nColumns = disjuncts.size();
+        int startPosition = cnf.size();
+        if (startPosition + nColumns > pkColumns.size()) {
+            return null;
+        }
+        // The disjunct with i equality comparisons has an inequality on the pk column at startPosition + i
+        byte[][] keys = new byte[nColumns][];
+        boolean[] isMatched = new boolean[nColumns];
+        Boolean isGreater = null;
+        CompareOp lastOp = null;
+        for (Expression disjunct : disjuncts) {
+            List<Expression> comparisons = disjunct instanceof AndExpression ? disjunct.getChildren() : Collections.singletonList(disjunct);
+            int i = comparisons.size() - 1;
+            if (i >= nColumns || isMatched[i]) {
+                return null;
+            }
+            isMatched[i] = true;
+            boolean[] isColumnMatched = new boolean[i + 1];
+            for (Expression comparison : comparisons) {
+                if (! (comparison instanceof ComparisonExpression)) {
+                    return null;
+                }
+                Expression lhs = comparison.getChildren().get(0);
+                Expression rhs = comparison.getChildren().get(1);
+                if (! (lhs instanceof RowKeyColumnExpression && rhs instanceof LiteralExpression)) {
+                    return null;
+                }
+                int j = ((RowKeyColumnExpression)lhs).getPosition() - startPosition;
+                if (j < 0 || j > i || isColumnMatched[j]) {
+                    return null;
+                }
+                isColumnMatched[j] = true;
+                PColumn column = pkColumns.get(startPosition + j);
+                CompareOp op = ((ComparisonExpression)comparison).getFilterOp();
+                if (column.getColumnModifier() != null || op == CompareOp.NOT_EQUAL || (j < i) != (op == CompareOp.EQUAL)) {
+                    return null;
+                }
+                if (j == i) {
+                    boolean isGreaterOp = op == CompareOp.GREATER || op == CompareOp.GREATER_OR_EQUAL;
+                    if (isGreater != null && isGreater != isGreaterOp) {
+                        return null;
+                    }
+                    isGreater = isGreaterOp;
+                    if (i == nColumns - 1) {
+                        lastOp = op;
+                    } else if (op != CompareOp.GREATER && op != CompareOp.LESS) {
+                        return null;
+                    }
+                }
+                byte[] key = ((LiteralExpression)rhs).getBytes();
+                Integer fixedLength = column.getDataType().isFixedWidth() ? column.getByteSize() : null;
+                if (key.length == 0 || fixedLength != null && key.length != fixedLength) {
+                    return null;
+                }
+                if (keys[j] == null) {
+                    keys[j] = key;
+                } else if (!Arrays.equals(keys[j], key)) {
+                    return null;
+                }
+            }
+        }
+        List<List<KeyRange>> slots = Lists.newArrayListWithExpectedSize(startPosition + nColumns);
+        slots.addAll(cnf);
+        for (int j = 0; j < nColumns; j++) {
+            KeyPart keyPart = new KeyExpressionVisitor.BaseKeyPart(pkColumns.get(startPosition + j), Collections.<Expression>emptyList());
+            slots.add(Collections.singletonList(keyPart.getKeyRange(j == nColumns - 1 ? lastOp : CompareOp.EQUAL, keys[j])));
+        }
+        RowKeySchema schema = table.getRowKeySchema();
+        byte[] lowerRange = KeyRange.UNBOUND;
+        byte[] upperRange = KeyRange.UNBOUND;
+        if (isGreater) {
+            lowerRange = getKey(schema, slots, Bound.LOWER);
+            if (lowerRange == null) {
+                return null;
+            }
+            if (!cnf.isEmpty()) {
+                upperRange = getKey(schema, cnf, Bound.UPPER);
+                if (upperRange == null) {
+                    upperRange = KeyRange.UNBOUND;
+                }
+            }
+        } else {
+            if (!cnf.isEmpty()) {
+                lowerRange = getKey(schema, cnf, Bound.LOWER);
+                if (lowerRange == null) {
+                    return null;
+                }
+            }
+            upperRange = getKey(schema, slots, Bound.UPPER);
+            if (upperRange == null) {
+                return null;
+            }
+        }
+        return PDataType.VARBINARY.getKeyRange(lowerRange, true, upperRange, false);
+    }
+
+    private static byte[] getKey(RowKeySchema schema, List<List<KeyRange>> slots, Bound bound) {
+        int maxLength = 0;
+        for (List<KeyRange> slot : slots) {
+            // Allow for a separator byte after each key
+            maxLength += slot.get(0).getRange(bound).length + 1;
+        }
+        byte[] key = new byte[maxLength];
+        int length = ScanUtil.setKey(schema, slots, new int[slots.size()], bound, key, 0, 0, slots.size());
+        // A non positive length means the key overflowed when incremented
+        return length <= 0 ? null : Arrays.copyOf(key, length);
+    }
+
     private static class RemoveExtractedNodesVisitor extends TraverseNoExpressionVisitor<Expression> {
         private final Set<Expression> nodesToRemove;
 
@@ -28,11 +28,16 @@
 package com.salesforce.phoenix.coprocessor;
 
 import java.io.IOException;
+import java.util.List;
 
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.coprocessor.*;
 import org.apache.hadoop.hbase.regionserver.RegionScanner;
 
+import com.salesforce.phoenix.cache.AggregateCache;
+import com.salesforce.phoenix.cache.GlobalCache;
 import com.salesforce.phoenix.util.ServerUtil;
 
 
@@ -46,6 +51,59 @@ abstract public class BaseScannerRegionObserver extends BaseRegionObserver {
         return this.getClass().getName();
     }
     
+    /**
+     * @return the partial aggregate cache, or null if it is disabled
+     */
+    protected static AggregateCache getAggregateCache(ObserverContext<RegionCoprocessorEnvironment> c) {
+        AggregateCache aggregateCache = GlobalCache.getInstance(c.getEnvironment().getConfiguration()).getAggregateCache();
+        return aggregateCache.isEnabled() ? aggregateCache : null;
+    }
+    
+    /**
+     * Capture the state of the region for the partial aggregate cache. Must be called
+     * before the scanner of an aggregate scan is opened.
+     */
+    protected static void snapshotForAggregateCache(ObserverContext<RegionCoprocessorEnvironment> c, Scan scan) {
+        AggregateCache aggregateCache = getAggregateCache(c);
+        if (aggregateCache != null) {
+            aggregateCache.snapshot(c.getEnvironment().getRegion().getRegionName(), scan);
+        }
+    }
+    
+    /**
+     * Create a scanner that returns already aggregated results in place of the given scanner
+     * @param s the scanner being replaced, closed when the returned scanner is closed
+     * @param aggResults the aggregated results
+     */
+    protected static RegionScanner newResultScanner(final RegionScanner s, final List<KeyValue> aggResults) {
+        return new BaseRegionScanner() {
+            private int index = 0;
+
+            @Override
+            public HRegionInfo getRegionInfo() {
+                return s.getRegionInfo();
+            }
+
+            @Override
+            public boolean isFilterDone() {
+                return index >= aggResults.size();
+            }
+
+            @Override
+            public void close() throws IOException {
+                s.close();
+            }
+
+            @Override
+            public boolean next(List<KeyValue> results) throws IOException {
+                if (index >= aggResults.size()) return false;
+                results.add(aggResults.get(index));
+                index++;
+                return index < aggResults.size();
+            }
+        };
+    }
+    
     abstract protected RegionScanner doPostScannerOpen(final ObserverContext<RegionCoprocessorEnvironment> c, final Scan scan, final RegionScanner s) throws Throwable;
     
     /**
@@ -43,6 +43,7 @@ import org.apache.hadoop.io.WritableUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.salesforce.phoenix.cache.AggregateCache;
 import com.salesforce.phoenix.cache.GlobalCache;
 import com.salesforce.phoenix.cache.TenantCache;
 import com.salesforce.phoenix.expression.Expression;
@@ -75,6 +76,14 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver {
     public static final int MIN_DISTINCT_VALUES = 100;
     
 
+    @Override
+    public RegionScanner preScannerOpen(ObserverContext<RegionCoprocessorEnvironment> c, Scan scan, RegionScanner s) {
+        if (scan.getAttribute(UNORDERED_GROUP_BY_EXPRESSIONS) != null) {
+            snapshotForAggregateCache(c, scan);
+        }
+        return s;
+    }
+
     /**
      * Replaces the RegionScanner s with a RegionScanner that groups by the key formed by the list of expressions from the scan
      * and returns the aggregated rows of each group.  For example, given the following original rows in the RegionScanner:
@@ -118,7 +127,20 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver {
         if (keyOrdered) { // Optimize by taking advantage that the rows are already in the required group by key order
             return scanOrdered(c, scan, innerScanner, expressions, aggregators);
         } else { // Otherwse, collect them all up and sort them at the end
-            return scanUnordered(c, scan, innerScanner, expressions, aggregators);
+            AggregateCache aggregateCache = j == null ? getAggregateCache(c) : null;
+            ImmutableBytesPtr cacheKey = null;
+            if (aggregateCache != null) {
+                byte[] regionName = c.getEnvironment().getRegion().getRegionName();
+                cacheKey = AggregateCache.newKey(regionName, scan);
+                List<KeyValue> cachedResults = aggregateCache.get(regionName, cacheKey, scan);
+                if (cachedResults != null) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Using cached partial aggregates for grouped coprocessor scan " + scan);
+                    }
+                    return newResultScanner(innerScanner, cachedResults);
+                }
+            }
+            return scanUnordered(c, scan, innerScanner, expressions, aggregators, aggregateCache, cacheKey);
         }
     }
 
@@ -177,7 +199,8 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver {
      * we must collect all distinct groups within a region into a map, aggregating as we go, and then at the end of the
      * underlying scan, sort them and return them one by one during iteration.
      */
-    private RegionScanner scanUnordered(ObserverContext<RegionCoprocessorEnvironment> c, Scan scan, final RegionScanner s, List<Expression> expressions, ServerAggregators aggregators) throws IOException {
+    private RegionScanner scanUnordered(ObserverContext<RegionCoprocessorEnvironment> c, Scan scan, final RegionScanner s, List<Expression> expressions, ServerAggregators aggregators,
+            AggregateCache aggregateCache, ImmutableBytesPtr cacheKey) throws IOException {
         
         if (logger.isDebugEnabled()) {
             logger.debug("Grouped aggregation over unordered rows with scan " + scan + ", group by " + expressions + ", aggregators " + aggregators);
@@ -196,20 +219,21 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver {
             // TODO: spool map to disk if map becomes too big
             boolean hasMore;
             int estValueSize = aggregators.getSize();
-            MultiKeyValueTuple result = new MultiKeyValueTuple();
+            // Reuse the same row buffer for every row, as only the key values it holds are referenced
+            List<KeyValue> results = new ArrayList<KeyValue>();
+            MultiKeyValueTuple result = new MultiKeyValueTuple(results);
             Map<ImmutableBytesWritable, Aggregator[]> aggregateMap = new HashMap<ImmutableBytesWritable, Aggregator[]>(estDistVals);
             HRegion region = c.getEnvironment().getRegion();
             MultiVersionConsistencyControl.setThreadReadPoint(s.getMvccReadPoint());
             region.startRegionOperation();
             try {
                 do {
-                    List<KeyValue> results = new ArrayList<KeyValue>();
+                    results.clear();
                     // Results are potentially returned even when the return value of s.next is false
                     // since this is an indication of whether or not there are more values after the
                     // ones returned
                     hasMore = s.nextRaw(results, null) && !s.isFilterDone();
                     if (!results.isEmpty()) {
-                        result.setKeyValues(results);
                         ImmutableBytesWritable key = TupleUtil.getConcatenatedValue(result, expressions);
                         Aggregator[] rowAggregators = aggregateMap.get(key);
                         if (rowAggregators == null) {
@@ -257,6 +281,9 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver {
                 aggResults.add(keyValue);
             }
             Collections.sort(aggResults, KeyValue.COMPARATOR);
+            if (aggregateCache != null) {
+                aggregateCache.put(region.getRegionName(), cacheKey, scan, aggResults);
+            }
             RegionScanner scanner = new BaseRegionScanner() {
                 private int index = 0;
     
@@ -301,6 +328,10 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver {
         }
         return new BaseRegionScanner() {
             private ImmutableBytesWritable currentKey = null;
+            // Row buffer reused across rows and calls. The row that crosses an aggregation
+            // boundary is aggregated before next returns, so it is never read after being cleared.
+            private final List<KeyValue> kvs = new ArrayList<KeyValue>();
+            private final MultiKeyValueTuple result = new MultiKeyValueTuple(kvs);
 
             @Override
             public HRegionInfo getRegionInfo() {
@@ -316,7 +347,6 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver {
             public boolean next(List<KeyValue> results) throws IOException {
                 boolean hasMore;
                 boolean aggBoundary = false;
-                MultiKeyValueTuple result = new MultiKeyValueTuple();
                 ImmutableBytesWritable key = null;
                 Aggregator[] rowAggregators = aggregators.getAggregators();
                 HRegion region = c.getEnvironment().getRegion();
@@ -324,13 +354,12 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver {
                 region.startRegionOperation();
                 try {
                     do {
-                        List<KeyValue> kvs = new ArrayList<KeyValue>();
+                        kvs.clear();
                         // Results are potentially returned even when the return value of s.next is false
                         // since this is an indication of whether or not there are more values after the
                         // ones returned
                         hasMore = s.nextRaw(kvs, null) && !s.isFilterDone();
                         if (!kvs.isEmpty()) {
-                            result.setKeyValues(kvs);
                             key = TupleUtil.getConcatenatedValue(result, expressions);
                             aggBoundary = currentKey != null && currentKey.compareTo(key) != 0;
                             if (!aggBoundary) {
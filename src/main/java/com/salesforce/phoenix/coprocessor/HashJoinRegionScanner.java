@@ -51,6 +51,9 @@ public class HashJoinRegionScanner implements RegionScanner {
     private final ScanProjector projector;
     private final HashJoinInfo joinInfo;
     private Queue<List<KeyValue>> resultQueue;
+    // Only read from the underlying scanner once the queue has been drained, at
+    // which point nothing references the previous contents of this buffer.
+    private final List<KeyValue> tempResult = new ArrayList<KeyValue>();
     private boolean hasMore;
     private TenantCache cache;
     
@@ -159,7 +162,7 @@ public class HashJoinRegionScanner implements RegionScanner {
     @Override
     public boolean nextRaw(List<KeyValue> result, String metric) throws IOException {
         while (shouldAdvance()) {
-            List<KeyValue> tempResult = new ArrayList<KeyValue>();
+            tempResult.clear();
             hasMore = scanner.nextRaw(tempResult, metric);
             processResults(tempResult, false);
         }
@@ -171,7 +174,7 @@ public class HashJoinRegionScanner implements RegionScanner {
     public boolean nextRaw(List<KeyValue> result, int limit, String metric)
             throws IOException {
         while (shouldAdvance()) {
-            List<KeyValue> tempResult = new ArrayList<KeyValue>();
+            tempResult.clear();
             hasMore = scanner.nextRaw(tempResult, limit, metric);
             processResults(tempResult, true);
         }
@@ -192,7 +195,7 @@ public class HashJoinRegionScanner implements RegionScanner {
     @Override
     public boolean next(List<KeyValue> result) throws IOException {
         while (shouldAdvance()) {
-            List<KeyValue> tempResult = new ArrayList<KeyValue>();
+            tempResult.clear();
             hasMore = scanner.next(tempResult);
             processResults(tempResult, false);
         }
@@ -203,7 +206,7 @@ public class HashJoinRegionScanner implements RegionScanner {
     @Override
     public boolean next(List<KeyValue> result, String metric) throws IOException {
         while (shouldAdvance()) {
-            List<KeyValue> tempResult = new ArrayList<KeyValue>();
+            tempResult.clear();
             hasMore = scanner.next(tempResult, metric);
             processResults(tempResult, false);
         }
@@ -214,7 +217,7 @@ public class HashJoinRegionScanner implements RegionScanner {
     @Override
     public boolean next(List<KeyValue> result, int limit) throws IOException {
         while (shouldAdvance()) {
-            List<KeyValue> tempResult = new ArrayList<KeyValue>();
+            tempResult.clear();
             hasMore = scanner.next(tempResult, limit);
             processResults(tempResult, true);
         }
@@ -226,7 +229,7 @@ public class HashJoinRegionScanner implements RegionScanner {
     public boolean next(List<KeyValue> result, int limit, String metric)
             throws IOException {
         while (shouldAdvance()) {
-            List<KeyValue> tempResult = new ArrayList<KeyValue>();
+            tempResult.clear();
             hasMore = scanner.next(tempResult, limit, metric);
             processResults(tempResult, true);
         }
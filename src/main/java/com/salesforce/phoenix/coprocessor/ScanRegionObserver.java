@@ -48,6 +48,8 @@ import com.salesforce.phoenix.expression.OrderByExpression;
 import com.salesforce.phoenix.iterate.*;
 import com.salesforce.phoenix.join.HashJoinInfo;
 import com.salesforce.phoenix.memory.MemoryManager.MemoryChunk;
+import com.salesforce.phoenix.query.QueryServices;
+import com.salesforce.phoenix.query.QueryServicesOptions;
 import com.salesforce.phoenix.schema.PDataType;
 import com.salesforce.phoenix.schema.tuple.Tuple;
 import com.salesforce.phoenix.util.ScanUtil;
@@ -91,7 +93,15 @@ public class ScanRegionObserver extends BaseScannerRegionObserver {
         }
     }
     
-    public static OrderedResultIterator deserializeFromScan(Scan scan, RegionScanner s) {
+    /**
+     * @return true if the scan returns its rows in row key order, which is the case for
+     * a non aggregate query that isn't ordered on the server side.
+     */
+    public static boolean isRowKeyOrdered(Scan scan) {
+        return scan.getAttribute(NON_AGGREGATE_QUERY) != null && scan.getAttribute(TOPN) == null;
+    }
+    
+    public static OrderedResultIterator deserializeFromScan(Scan scan, RegionScanner s, int mergeFanIn) {
         byte[] topN = scan.getAttribute(TOPN);
         if (topN == null) {
             return null;
@@ -110,7 +120,7 @@ public class ScanRegionObserver extends BaseScannerRegionObserver {
                 orderByExpressions.add(orderByExpression);
             }
             ResultIterator inner = new RegionScannerResultIterator(s);
-            return new OrderedResultIterator(inner, orderByExpressions, thresholdBytes, limit >= 0 ? limit : null, estimatedRowSize);
+            return new OrderedResultIterator(inner, orderByExpressions, thresholdBytes, limit >= 0 ? limit : null, estimatedRowSize, mergeFanIn);
         } catch (IOException e) {
             throw new RuntimeException(e);
         } finally {
@@ -132,7 +142,8 @@ public class ScanRegionObserver extends BaseScannerRegionObserver {
         
         final ScanProjector p = ScanProjector.deserializeProjectorFromScan(scan);
         final HashJoinInfo j = HashJoinInfo.deserializeHashJoinFromScan(scan);
-        final OrderedResultIterator iterator = deserializeFromScan(scan,s);
+        int mergeFanIn = c.getEnvironment().getConfiguration().getInt(QueryServices.SORT_MERGE_FAN_IN_ATTRIB, QueryServicesOptions.DEFAULT_SORT_MERGE_FAN_IN);
+        final OrderedResultIterator iterator = deserializeFromScan(scan,s,mergeFanIn);
         final ImmutableBytesWritable tenantId = ScanUtil.getTenantId(scan);
         
         RegionScanner innerScanner = s;
@@ -28,11 +28,13 @@
 package com.salesforce.phoenix.coprocessor;
 
 import static com.salesforce.phoenix.query.QueryConstants.*;
+import static com.salesforce.phoenix.query.QueryServices.AGGREGATE_BATCH_SIZE_ATTRIB;
 import static com.salesforce.phoenix.query.QueryServices.MUTATE_BATCH_SIZE_ATTRIB;
 
 import java.io.*;
 import java.util.*;
 
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.HRegionInfo;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.client.*;
@@ -40,6 +42,7 @@ import org.apache.hadoop.hbase.coprocessor.ObserverContext;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.regionserver.*;
+import org.apache.hadoop.hbase.regionserver.wal.WALEdit;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.Pair;
 import org.apache.hadoop.io.WritableUtils;
@@ -47,15 +50,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
+import com.salesforce.phoenix.cache.AggregateCache;
+import com.salesforce.phoenix.cache.RegionWriteTracker;
 import com.salesforce.phoenix.exception.ValueTypeIncompatibleException;
 import com.salesforce.phoenix.expression.Expression;
 import com.salesforce.phoenix.expression.ExpressionType;
 import com.salesforce.phoenix.expression.aggregator.*;
+import com.salesforce.phoenix.index.PhoenixIndexBuilder;
 import com.salesforce.phoenix.join.HashJoinInfo;
 import com.salesforce.phoenix.query.QueryConstants;
 import com.salesforce.phoenix.query.QueryServicesOptions;
 import com.salesforce.phoenix.schema.*;
+import com.salesforce.phoenix.schema.stat.StatisticsCollector;
+import com.salesforce.phoenix.schema.stat.StatisticsUtil;
 import com.salesforce.phoenix.schema.tuple.MultiKeyValueTuple;
 import com.salesforce.phoenix.util.*;
 
@@ -76,17 +83,161 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
     public static final String DELETE_CQ = "DeleteCQ";
     public static final String DELETE_CF = "DeleteCF";
     public static final String EMPTY_CF = "EmptyCF";
+    public static final String ANALYZE_AGG = "AnalyzeAgg";
     
-    private static void commitBatch(HRegion region, List<Pair<Mutation,Integer>> mutations) throws IOException {
+    private static void commitBatch(HRegion region, List<Pair<Mutation,Integer>> mutations, byte[] indexMetaData) throws IOException {
+        // Mutations built here must carry the index metadata for the indexes to be maintained
+        if (indexMetaData != null) {
+            for (Pair<Mutation,Integer> mutation : mutations) {
+                mutation.getFirst().setAttribute(PhoenixIndexBuilder.INDEX_MD, indexMetaData);
+            }
+        }
         @SuppressWarnings("unchecked")
         Pair<Mutation,Integer>[] mutationArray = new Pair[mutations.size()];
         // TODO: should we use the one that is all or none?
         region.batchMutate(mutations.toArray(mutationArray));
     }
     
+    private static void writeStatistics(RegionCoprocessorEnvironment env, StatisticsCollector statsCollector, long ts) throws IOException {
+        HRegionInfo regionInfo = env.getRegion().getRegionInfo();
+        Put put = StatisticsUtil.toPut(regionInfo.getTableName(), regionInfo.getRegionName(), statsCollector.getStatistics(regionInfo), ts);
+        HTableInterface statsHTable = env.getTable(StatisticsUtil.STATS_TABLE_NAME);
+        try {
+            statsHTable.put(put);
+        } finally {
+            statsHTable.close();
+        }
+    }
+    
     public static void serializeIntoScan(Scan scan) {
         scan.setAttribute(UNGROUPED_AGG, QueryConstants.TRUE);
     }
+    
+    /*
+     * Writes to the region are tracked here on behalf of the partial aggregate cache
+     * used by both this observer and the GroupedAggregateRegionObserver. Writes that
+     * don't go through any of these hooks, such as RowMutations, are caught through the
+     * read point of the region instead (see RegionWriteTracker).
+     */
+    
+    private static RegionWriteTracker getRegionWriteTracker(ObserverContext<RegionCoprocessorEnvironment> c) {
+        AggregateCache aggregateCache = getAggregateCache(c);
+        return aggregateCache == null ? null : aggregateCache.getRegionWriteTracker(c.getEnvironment().getRegion().getRegionName());
+    }
+    
+    private static void startWrite(ObserverContext<RegionCoprocessorEnvironment> c) {
+        RegionWriteTracker tracker = getRegionWriteTracker(c);
+        if (tracker != null) {
+            tracker.startWrite();
+        }
+    }
+    
+    private static void completeWrite(ObserverContext<RegionCoprocessorEnvironment> c, long timeStamp) {
+        RegionWriteTracker tracker = getRegionWriteTracker(c);
+        if (tracker != null) {
+            tracker.completeWrite(timeStamp);
+        }
+    }
+    
+    private static long getMaxTimeStamp(Mutation mutation) {
+        long now = System.currentTimeMillis();
+        long maxTimeStamp = mutation.getTimeStamp() == HConstants.LATEST_TIMESTAMP ? now : mutation.getTimeStamp();
+        for (List<KeyValue> keyValues : mutation.getFamilyMap().values()) {
+            for (KeyValue keyValue : keyValues) {
+                long timeStamp = keyValue.getTimestamp() == HConstants.LATEST_TIMESTAMP ? now : keyValue.getTimestamp();
+                maxTimeStamp = Math.max(maxTimeStamp, timeStamp);
+            }
+        }
+        return maxTimeStamp;
+    }
+    
+    @Override
+    public void postOpen(ObserverContext<RegionCoprocessorEnvironment> c) {
+        AggregateCache aggregateCache = getAggregateCache(c);
+        if (aggregateCache != null) {
+            HRegion region = c.getEnvironment().getRegion();
+            aggregateCache.addRegion(region.getRegionName(), region.getMVCC());
+        }
+    }
+    
+    @Override
+    public void postClose(ObserverContext<RegionCoprocessorEnvironment> c, boolean abortRequested) {
+        AggregateCache aggregateCache = getAggregateCache(c);
+        if (aggregateCache != null) {
+            aggregateCache.removeRegion(c.getEnvironment().getRegion().getRegionName());
+        }
+    }
+    
+    @Override
+    public void prePut(ObserverContext<RegionCoprocessorEnvironment> c, Put put, WALEdit edit, boolean writeToWAL) {
+        startWrite(c);
+    }
+    
+    @Override
+    public void postPut(ObserverContext<RegionCoprocessorEnvironment> c, Put put, WALEdit edit, boolean writeToWAL) {
+        completeWrite(c, getMaxTimeStamp(put));
+    }
+    
+    @Override
+    public void preDelete(ObserverContext<RegionCoprocessorEnvironment> c, Delete delete, WALEdit edit, boolean writeToWAL) {
+        startWrite(c);
+    }
+    
+    @Override
+    public void postDelete(ObserverContext<RegionCoprocessorEnvironment> c, Delete delete, WALEdit edit, boolean writeToWAL) {
+        completeWrite(c, getMaxTimeStamp(delete));
+    }
+    
+    @Override
+    public Result preIncrement(ObserverContext<RegionCoprocessorEnvironment> c, Increment increment) {
+        startWrite(c);
+        return null;
+    }
+    
+    @Override
+    public Result postIncrement(ObserverContext<RegionCoprocessorEnvironment> c, Increment increment, Result result) {
+        completeWrite(c, System.currentTimeMillis());
+        return result;
+    }
+    
+    @Override
+    public long preIncrementColumnValue(ObserverContext<RegionCoprocessorEnvironment> c, byte[] row, byte[] family, byte[] qualifier, long amount, boolean writeToWAL) {
+        startWrite(c);
+        return amount;
+    }
+    
+    @Override
+    public long postIncrementColumnValue(ObserverContext<RegionCoprocessorEnvironment> c, byte[] row, byte[] family, byte[] qualifier, long amount, boolean writeToWAL, long result) {
+        completeWrite(c, System.currentTimeMillis());
+        return result;
+    }
+    
+    @Override
+    public Result preAppend(ObserverContext<RegionCoprocessorEnvironment> c, Append append) {
+        startWrite(c);
+        return null;
+    }
+    
+    @Override
+    public Result postAppend(ObserverContext<RegionCoprocessorEnvironment> c, Append append, Result result) {
+        completeWrite(c, System.currentTimeMillis());
+        return result;
+    }
+    
+    @Override
+    public void preBulkLoadHFile(ObserverContext<RegionCoprocessorEnvironment> c, List<Pair<byte[], String>> familyPaths) {
+        // The timestamps of bulk loaded cells are unknown, so the write is never completed,
+        // which stops caching for the region until it is reopened.
+        startWrite(c);
+    }
+    
+    @Override
+    public RegionScanner preScannerOpen(ObserverContext<RegionCoprocessorEnvironment> c, Scan scan, RegionScanner s) {
+        if (scan.getAttribute(UNGROUPED_AGG) != null) {
+            snapshotForAggregateCache(c, scan);
+        }
+        return s;
+    }
 
     @Override
     protected RegionScanner doPostScannerOpen(final ObserverContext<RegionCoprocessorEnvironment> c, final Scan scan, final RegionScanner s) throws IOException {
@@ -152,21 +303,63 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
             }
             emptyCF = scan.getAttribute(EMPTY_CF);
         }
+        byte[] indexMetaData = scan.getAttribute(PhoenixIndexBuilder.INDEX_MD);
+        byte[] guidePostWidth = scan.getAttribute(ANALYZE_AGG);
+        StatisticsCollector statsCollector = guidePostWidth == null ? null : new StatisticsCollector(Bytes.toLong(guidePostWidth));
         
         int batchSize = 0;
         long ts = scan.getTimeRange().getMax();
         HRegion region = c.getEnvironment().getRegion();
         List<Pair<Mutation,Integer>> mutations = Collections.emptyList();
-        if (isDelete || isUpsert || (deleteCQ != null && deleteCF != null) || emptyCF != null) {
+        boolean isMutating = isDelete || isUpsert || (deleteCQ != null && deleteCF != null) || emptyCF != null;
+        if (isMutating) {
             // TODO: size better
             mutations = Lists.newArrayListWithExpectedSize(1024);
             batchSize = c.getEnvironment().getConfiguration().getInt(MUTATE_BATCH_SIZE_ATTRIB, QueryServicesOptions.DEFAULT_MUTATE_BATCH_SIZE);
         }
-        Aggregators aggregators = ServerAggregators.deserialize(scan.getAttribute(GroupedAggregateRegionObserver.AGGREGATORS));
+        ServerAggregators aggregators = ServerAggregators.deserialize(scan.getAttribute(GroupedAggregateRegionObserver.AGGREGATORS));
         Aggregator[] rowAggregators = aggregators.getAggregators();
         boolean hasMore;
         boolean hasAny = false;
         MultiKeyValueTuple result = new MultiKeyValueTuple();
+        // When rows are only being aggregated, accumulate them and run each aggregator
+        // over the whole batch at once instead of calling every aggregator per row.
+        // Each tuple of the batch owns a row buffer that is reused from one batch to the next.
+        MultiKeyValueTuple[] batch = null;
+        List<List<KeyValue>> batchResults = null;
+        int batchCount = 0;
+        if (!isMutating && statsCollector == null) {
+            int aggregateBatchSize = c.getEnvironment().getConfiguration().getInt(AGGREGATE_BATCH_SIZE_ATTRIB, QueryServicesOptions.DEFAULT_AGGREGATE_BATCH_SIZE);
+            if (aggregateBatchSize > 1) {
+                batch = new MultiKeyValueTuple[aggregateBatchSize];
+                batchResults = Lists.newArrayListWithExpectedSize(aggregateBatchSize);
+                for (int i = 0; i < batch.length; i++) {
+                    List<KeyValue> batchResult = new ArrayList<KeyValue>();
+                    batchResults.add(batchResult);
+                    batch[i] = new MultiKeyValueTuple(batchResult);
+                }
+            }
+        }
+        // Only pure aggregations over the region's own rows are cached
+        AggregateCache aggregateCache = null;
+        ImmutableBytesPtr cacheKey = null;
+        if (!isMutating && statsCollector == null && j == null) {
+            aggregateCache = getAggregateCache(c);
+            if (aggregateCache != null) {
+                cacheKey = AggregateCache.newKey(region.getRegionName(), scan);
+                List<KeyValue> cachedResults = aggregateCache.get(region.getRegionName(), cacheKey, scan);
+                if (cachedResults != null) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Using cached partial aggregate for ungrouped coprocessor scan " + scan);
+                    }
+                    return newResultScanner(innerScanner, cachedResults);
+                }
+            }
+        }
+        // The key values of a row are not referenced once the row has been processed,
+        // so the same buffers are reused for every row.
+        List<KeyValue> rowResults = new ArrayList<KeyValue>();
+        Set<Long> timeStamps = emptyCF == null ? null : new HashSet<Long>();
         if (logger.isInfoEnabled()) {
         	logger.info("Starting ungrouped coprocessor scan " + scan);
         }
@@ -175,13 +368,25 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
         region.startRegionOperation();
         try {
             do {
-                List<KeyValue> results = new ArrayList<KeyValue>();
+                List<KeyValue> results = batch == null ? rowResults : batchResults.get(batchCount);
+                results.clear();
                 // Results are potentially returned even when the return value of s.next is false
                 // since this is an indication of whether or not there are more values after the
                 // ones returned
                 hasMore = innerScanner.nextRaw(results, null) && !innerScanner.isFilterDone();
                 if (!results.isEmpty()) {
                 	rowCount++;
+                    if (batch != null) {
+                        if (++batchCount == batch.length) {
+                            aggregators.aggregate(rowAggregators, batch, batchCount);
+                            batchCount = 0;
+                        }
+                        hasAny = true;
+                        continue;
+                    }
+                    if (statsCollector != null) {
+                        statsCollector.collect(results);
+                    }
                     result.setKeyValues(results);
                     try {
                         if (isDelete) {
@@ -253,10 +458,10 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
                              * scans past this timestamp, so don't need to be considered.
                              * We insert one empty key value per row per timestamp.
                              */
-                            Set<Long> timeStamps = Sets.newHashSetWithExpectedSize(results.size());
+                            timeStamps.clear();
                             for (KeyValue kv : results) {
                                 long kvts = kv.getTimestamp();
-                                if (!timeStamps.contains(kvts)) {
+                                if (timeStamps.add(kvts)) {
                                     Put put = new Put(kv.getRow());
                                     put.add(emptyCF, QueryConstants.EMPTY_COLUMN_BYTES, kvts, ByteUtil.EMPTY_BYTE_ARRAY);
                                     mutations.add(new Pair<Mutation,Integer>(put,null));
@@ -265,7 +470,7 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
                         }
                         // Commit in batches based on UPSERT_BATCH_SIZE_ATTRIB in config
                         if (!mutations.isEmpty() && batchSize > 0 && mutations.size() % batchSize == 0) {
-                            commitBatch(region,mutations);
+                            commitBatch(region,mutations,indexMetaData);
                             mutations.clear();
                         }
                     } catch (ConstraintViolationException e) {
@@ -277,6 +482,9 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
                     hasAny = true;
                 }
             } while (hasMore);
+            if (batchCount > 0) {
+                aggregators.aggregate(rowAggregators, batch, batchCount);
+            }
         } finally {
             innerScanner.close();
             region.closeRegionOperation();
@@ -287,7 +495,11 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
         }
 
         if (!mutations.isEmpty()) {
-            commitBatch(region,mutations);
+            commitBatch(region,mutations,indexMetaData);
+        }
+        
+        if (statsCollector != null) {
+            writeStatistics(c.getEnvironment(), statsCollector, ts);
         }
 
         final boolean hadAny = hasAny;
@@ -297,6 +509,9 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
             keyValue = KeyValueUtil.newKeyValue(UNGROUPED_AGG_ROW_KEY, SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, AGG_TIMESTAMP, value, 0, value.length);
         }
         final KeyValue aggKeyValue = keyValue;
+        if (aggregateCache != null) {
+            aggregateCache.put(region.getRegionName(), cacheKey, scan, hadAny ? Collections.singletonList(aggKeyValue) : Collections.<KeyValue>emptyList());
+        }
         
         RegionScanner scanner = new BaseRegionScanner() {
             private boolean done = !hadAny;
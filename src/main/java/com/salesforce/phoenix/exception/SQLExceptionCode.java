@@ -44,6 +44,7 @@ public enum SQLExceptionCode {
     IO_EXCEPTION(101, "08000", "Unexpected IO exception."),
     MALFORMED_CONNECTION_URL(102, "08001", "Malformed connection url."),
     CANNOT_ESTABLISH_CONNECTION(103, "08004", "Unable to establish connection."),
+    INVALID_QUERY_PRIORITY(104, "08001", "Query priority should be one of HIGH, NORMAL or LOW."),
     
     /**
      * Data Exception (errorcode 02, sqlstate 22)
@@ -89,6 +90,7 @@ public enum SQLExceptionCode {
     PRIMARY_KEY_MISSING(509, "42888", "The table does not have a primary key."),
     PRIMARY_KEY_ALREADY_EXISTS(510, "42889", "The table already has a primary key."),
     ORDER_BY_NOT_IN_SELECT_DISTINCT(511, "42890", "All ORDER BY expressions must appear in SELECT DISTINCT:"),
+    SUBQUERY_RETURNS_MULTIPLE_COLUMNS(512, "42891", "Subquery used in an IN expression must select exactly one column."),
     
     /** 
      * HBase and Phoenix specific implementation defined sub-classes.
@@ -118,6 +120,7 @@ public enum SQLExceptionCode {
     // Index related errors
     INDEX_ALREADY_EXIST(1023, "42N01", "Index already exists."),
     CANNOT_MUTATE_INDEX(1024, "42N02", "Cannot mutate existing index."),
+    INDEX_MAINTENANCE_NOT_ENABLED(1028, "42N03", "Mutable indexes require the com.salesforce.hbase.index.Indexer coprocessor on the data table. Either enable online schema updates (hbase.online.schema.update.enable) on the HBase master or add the coprocessor to the table."),
     // Syntax error
     TYPE_NOT_SUPPORTED_FOR_OPERATOR(1014, "42Y01", "The operator does not support the operand type."),
     SCHEMA_NOT_FOUND(1015, "42Y07", "Schema not found."),
@@ -129,9 +132,17 @@ public enum SQLExceptionCode {
     // Table properties exception.
     INVALID_BUCKET_NUM(1021, "42Y80", "Salt bucket numbers should be with 1 and 256."),
     NO_SPLITS_ON_SALTED_TABLE(1022, "42Y81", "Should not specify split points on salted table with default row key order."),
-    INDEX_ONLY_ON_IMMUTABLE_TABLE(1023, "42Y82", "Index may only be created on a table with immutable rows."),
-    SALT_ONLY_ON_CREATE_TABLE(1024, "42Y83", "Salt bucket number may only be specified when creating a table."),
+    /**
+     * @deprecated Indexes may be created on tables with mutable rows. The error is only raised for
+     * a VIEW with mutable rows, as {@link #INDEX_ONLY_ON_IMMUTABLE_VIEW}, which has the same error code.
+     */
+    @Deprecated
+    INDEX_ONLY_ON_IMMUTABLE_TABLE(1023, "42Y82", "Index may only be created on a VIEW with immutable rows."),
+    INDEX_ONLY_ON_IMMUTABLE_VIEW(1023, "42Y82", "Index may not be created on a VIEW with mutable rows, since its data is not written through Phoenix."),
+    SALT_ONLY_ON_CREATE_TABLE(1024, "42Y83", "Salt bucket number, hash and primary key columns may only be specified when creating a table. To re-salt a table, create a new table and copy its rows through UPSERT SELECT."),
     SET_UNSUPPORTED_PROP_ON_ALTER_TABLE(1025, "42Y84", "Unsupported property set in ALTER TABLE command."),
+    INVALID_SALT_HASH(1026, "42Y85", "Salt hash should be one of LEGACY or MURMUR3 and may only be specified on a salted table."),
+    INVALID_SALT_PK_COLUMNS(1027, "42Y86", "Salt primary key column count should be between 1 and the number of primary key columns and may only be specified on a salted table."),
     
     /** Parser error. (errorcode 06, sqlState 42P) */
     PARSER_ERROR(601, "42P00", "Syntax error."),
@@ -148,6 +159,7 @@ public enum SQLExceptionCode {
     EXECUTE_QUERY_NOT_APPLICABLE(1103, "XCL03", "executeQuery may not be used."),
     EXECUTE_UPDATE_NOT_APPLICABLE(1104, "XCL03", "executeUpdate may not be used."),
     SPLIT_POINT_NOT_CONSTANT(1105, "XCL04", "Split points must be constants."),
+    SUBQUERY_RESULT_TOO_LARGE(1106, "XCL05", "Subquery returned more rows than allowed."),
     
     /**
      * Implementation defined class. Phoenix internal error. (errorcode 20, sqlstate INT).
@@ -110,7 +110,9 @@ public class AggregatePlan extends BasicQueryPlan {
         } else {
             int thresholdBytes = services.getProps().getInt(QueryServices.SPOOL_THRESHOLD_BYTES_ATTRIB, 
                     QueryServicesOptions.DEFAULT_SPOOL_THRESHOLD_BYTES);
-            resultScanner = new OrderedAggregatingResultIterator(aggResultIterator, orderBy.getOrderByExpressions(), thresholdBytes, limit);
+            int mergeFanIn = services.getProps().getInt(QueryServices.SORT_MERGE_FAN_IN_ATTRIB, 
+                    QueryServicesOptions.DEFAULT_SORT_MERGE_FAN_IN);
+            resultScanner = new OrderedAggregatingResultIterator(aggResultIterator, orderBy.getOrderByExpressions(), thresholdBytes, limit, mergeFanIn);
         }
         
         return new WrappedScanner(resultScanner, getProjector());
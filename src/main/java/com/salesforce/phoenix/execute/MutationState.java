@@ -38,6 +38,7 @@ import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.Pair;
 
 import com.google.common.collect.*;
+import com.salesforce.phoenix.index.PhoenixIndexBuilder;
 import com.salesforce.phoenix.jdbc.PhoenixConnection;
 import com.salesforce.phoenix.schema.*;
 import com.salesforce.phoenix.util.*;
@@ -156,9 +157,18 @@ public class MutationState implements SQLCloseable {
             mutations.addAll(row.toRowMutations());
         }
         final byte[] schemaName = Bytes.toBytes(tableRef.getSchema().getName());
+        PTable table = tableRef.getTable();
+        // Indexes on tables with mutable rows are maintained on the server-side by the
+        // PhoenixIndexBuilder, which needs the index metadata to build the index rows.
+        byte[] indexMetaData = PhoenixIndexBuilder.getIndexMetaData(tableRef);
+        if (indexMetaData != null) {
+            for (Mutation mutation : mutations) {
+                mutation.setAttribute(PhoenixIndexBuilder.INDEX_MD, indexMetaData);
+            }
+        }
         final Iterator<PTable> indexes = // Only maintain tables with immutable rows through this client-side mechanism
-                tableRef.getTable().isImmutableRows() ? 
-                        tableRef.getTable().getIndexes().iterator() : 
+                table.isImmutableRows() ? 
+                        table.getIndexes().iterator() : 
                         Iterators.<PTable>emptyIterator();
         return new Iterator<Pair<byte[],List<Mutation>>>() {
             boolean isFirst = true;
@@ -301,6 +311,8 @@ public class MutationState implements SQLCloseable {
                     // That way, client can either undo what was done or try again with what was not done.
                     sqlE = new CommitException(e, this, new MutationState(committedList, this.sizeOffset, this.maxSize, this.connection));
                 } finally {
+                    // Invalidate once the batch is done (even partially), so that a query that raced it is not cached
+                    connection.getQueryServices().getQueryResultCache().invalidate(tableRef.getSchema().getName(), tableRef.getTable());
                     try {
                         hTable.close();
                     } catch (IOException e) {
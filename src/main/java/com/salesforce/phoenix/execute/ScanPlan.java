@@ -29,14 +29,17 @@ package com.salesforce.phoenix.execute;
 
 
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.List;
 
 import com.salesforce.phoenix.compile.GroupByCompiler.GroupBy;
 import com.salesforce.phoenix.compile.OrderByCompiler.OrderBy;
 import com.salesforce.phoenix.compile.*;
+import com.salesforce.phoenix.coprocessor.ScanProjector;
 import com.salesforce.phoenix.coprocessor.ScanRegionObserver;
 import com.salesforce.phoenix.iterate.*;
 import com.salesforce.phoenix.iterate.ParallelIterators.ParallelIteratorFactory;
+import com.salesforce.phoenix.join.HashJoinInfo;
 import com.salesforce.phoenix.parse.HintNode.Hint;
 import com.salesforce.phoenix.query.*;
 import com.salesforce.phoenix.schema.*;
@@ -53,10 +56,21 @@ import com.salesforce.phoenix.schema.*;
 public class ScanPlan extends BasicQueryPlan {
     private List<KeyRange> splits;
     private ParallelIteratorFactory parallelIteratorFactory;
+    private final boolean isRowKeyOrderRequired;
     
     public ScanPlan(StatementContext context, TableRef table, RowProjector projector, Integer limit, OrderBy orderBy, ParallelIteratorFactory parallelIteratorFactory) {
+        this(context, table, projector, limit, orderBy, parallelIteratorFactory, true);
+    }
+    
+    /**
+     * @param isRowKeyOrderRequired false if the caller consumes every row without depending on
+     * their order, in which case the rows of a salted table are not merged back into row key order,
+     * even when {@link QueryServices#ROW_KEY_ORDER_SALTED_TABLE_ATTRIB} is set.
+     */
+    public ScanPlan(StatementContext context, TableRef table, RowProjector projector, Integer limit, OrderBy orderBy, ParallelIteratorFactory parallelIteratorFactory, boolean isRowKeyOrderRequired) {
         super(context, table, projector, context.getBindManager().getParameterMetaData(), limit, orderBy, null);
         this.parallelIteratorFactory = parallelIteratorFactory;
+        this.isRowKeyOrderRequired = isRowKeyOrderRequired;
         if (!orderBy.getOrderByExpressions().isEmpty() && !context.hasHint(Hint.NO_INTRA_REGION_PARALLELIZATION)) { // TopN
             int thresholdBytes = context.getConnection().getQueryServices().getProps().getInt(
                     QueryServices.SPOOL_THRESHOLD_BYTES_ATTRIB, QueryServicesOptions.DEFAULT_SPOOL_THRESHOLD_BYTES);
@@ -81,6 +95,23 @@ public class ScanPlan extends BasicQueryPlan {
          * limit is provided, run query serially.
          */
         boolean isOrdered = !orderBy.getOrderByExpressions().isEmpty();
+        int pointLookupMaxKeys = services.getProps().getInt(QueryServices.POINT_LOOKUP_MAX_KEYS_ATTRIB, 
+                QueryServicesOptions.DEFAULT_POINT_LOOKUP_MAX_KEYS);
+        // Rows with fully qualified keys are fetched through a batch of gets, unless the server side sort
+        // or a join running in the coprocessor needs a scan.
+        if (!isOrdered && PointLookupResultIterator.isPointLookup(context, pointLookupMaxKeys) && 
+                HashJoinInfo.deserializeHashJoinFromScan(context.getScan()) == null &&
+                ScanProjector.deserializeProjectorFromScan(context.getScan()) == null) {
+            splits = Collections.emptyList();
+            // Hold no more looked up rows at a time than a scanner would cache
+            int batchSize = services.getProps().getInt(QueryServices.SCAN_CACHE_SIZE_ATTRIB, 
+                    QueryServicesOptions.DEFAULT_SCAN_CACHE_SIZE);
+            scanner = new PointLookupResultIterator(context, tableRef, batchSize);
+            if (limit != null) {
+                scanner = new LimitingResultIterator(scanner, limit);
+            }
+            return new WrappedScanner(scanner, getProjector());
+        }
         ParallelIterators iterators = new ParallelIterators(context, tableRef, GroupBy.EMPTY_GROUP_BY, isOrdered ? null : limit, parallelIteratorFactory);
         splits = iterators.getSplits();
         if (isOrdered) {
@@ -88,8 +119,10 @@ public class ScanPlan extends BasicQueryPlan {
             if (context.hasHint(Hint.NO_INTRA_REGION_PARALLELIZATION)) {
                 int thresholdBytes = services.getProps().getInt(QueryServices.SPOOL_THRESHOLD_BYTES_ATTRIB, 
                         QueryServicesOptions.DEFAULT_SPOOL_THRESHOLD_BYTES);
+                int mergeFanIn = services.getProps().getInt(QueryServices.SORT_MERGE_FAN_IN_ATTRIB, 
+                        QueryServicesOptions.DEFAULT_SORT_MERGE_FAN_IN);
                 scanner = new ConcatResultIterator(iterators);
-                scanner = new OrderedResultIterator(scanner, orderBy.getOrderByExpressions(), thresholdBytes, limit);
+                scanner = new OrderedResultIterator(scanner, orderBy.getOrderByExpressions(), thresholdBytes, limit, 0, mergeFanIn);
                 if (limit != null) {
                     scanner = new LimitingResultIterator(scanner, limit);
                 }
@@ -97,14 +130,24 @@ public class ScanPlan extends BasicQueryPlan {
                 scanner = new MergeSortTopNResultIterator(iterators, limit, orderBy.getOrderByExpressions());
             }
         } else {
-            if (isSalted && 
+            if (isSalted && isRowKeyOrderRequired &&
                     (services.getProps().getBoolean(
                             QueryServices.ROW_KEY_ORDER_SALTED_TABLE_ATTRIB, 
                             QueryServicesOptions.DEFAULT_ROW_KEY_ORDER_SALTED_TABLE) ||
                      orderBy == OrderBy.ROW_KEY_ORDER_BY)) { // ORDER BY was optimized out b/c query is in row key order
-                scanner = new MergeSortRowKeyResultIterator(iterators, SaltingUtil.NUM_SALTING_BYTES);
+                // Only merge across the buckets, as the splits of a single bucket are already in row key order.
+                // The merge starts once every split has been scanned: the iterator factory spools each scan
+                // in its worker and work stealing only settles the splits of a bucket once all workers are done.
+                scanner = new MergeSortRowKeyResultIterator(new SaltedBucketResultIterators(iterators), SaltingUtil.NUM_SALTING_BYTES);
             } else {
-                scanner = new ConcatResultIterator(iterators);
+                int initialSplits = services.getProps().getInt(QueryServices.PROGRESSIVE_SCAN_INITIAL_SPLITS_ATTRIB, 
+                        QueryServicesOptions.DEFAULT_PROGRESSIVE_SCAN_INITIAL_SPLITS);
+                // With a limit, scan a few splits first and only move on to the rest while it's not reached
+                if (limit != null && initialSplits > 0 && splits.size() > initialSplits) {
+                    scanner = new ProgressiveResultIterator(iterators, initialSplits);
+                } else {
+                    scanner = new ConcatResultIterator(iterators);
+                }
             }
             if (limit != null) {
                 scanner = new LimitingResultIterator(scanner, limit);
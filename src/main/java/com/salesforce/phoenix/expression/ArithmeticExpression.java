@@ -29,6 +29,8 @@ package com.salesforce.phoenix.expression;
 
 import java.util.List;
 
+import com.salesforce.phoenix.schema.PDataType;
+
 public abstract class ArithmeticExpression extends BaseCompoundExpression {
 
     public ArithmeticExpression() {
@@ -50,4 +52,23 @@ public abstract class ArithmeticExpression extends BaseCompoundExpression {
     }
     
     abstract protected String getOperatorString();
+    
+    /**
+     * Get the scale at which the value of a child may be decoded into a scaled long
+     * through {@link PDataType#toUnscaledLong(org.apache.hadoop.hbase.io.ImmutableBytesWritable, PDataType, com.salesforce.phoenix.schema.ColumnModifier, int)}.
+     * @return the scale of a DECIMAL of bounded precision, zero for integral types,
+     * and -1 if the value may not fit into a scaled long.
+     */
+    protected static int getLongScale(Expression child) {
+        PDataType type = child.getDataType();
+        if (type == PDataType.DECIMAL) {
+            Integer maxLength = child.getMaxLength();
+            Integer scale = child.getScale();
+            if (maxLength == null || scale == null || maxLength > PDataType.MAX_UNSCALED_LONG_PRECISION || scale < 0) {
+                return -1;
+            }
+            return scale;
+        }
+        return type.isCoercibleTo(PDataType.LONG) ? 0 : -1;
+    }
 }
@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.expression;
+
+import java.util.List;
+
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.google.common.primitives.Doubles;
+import com.google.common.primitives.Longs;
+import com.salesforce.phoenix.schema.ColumnModifier;
+import com.salesforce.phoenix.schema.PDataType;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+import com.salesforce.phoenix.util.ByteUtil;
+
+
+/**
+ * 
+ * Comparison between an expression and a constant, specialized on the server side
+ * from a {@link ComparisonExpression}. The constant is decoded, or converted into the
+ * representation of the other operand, once up front instead of for every row, and
+ * the comparison strategy chosen by {@link PDataType#compareTo(byte[], int, int, ColumnModifier, byte[], int, int, ColumnModifier, PDataType)}
+ * is resolved once as well. Serializes exactly like the {@link ComparisonExpression}
+ * it was created from.
+ *
+ * @since 2.0
+ */
+public class ConstantComparisonExpression extends ComparisonExpression {
+    private static final int BYTES = 0;
+    private static final int CONVERTED_BYTES = 1;
+    private static final int LONG = 2;
+    private static final int DOUBLE = 3;
+    
+    private final CompareOp op;
+    private final Expression expression;
+    private final PDataType type;
+    private final ColumnModifier columnModifier;
+    private final PDataType constantType;
+    private final boolean isConstantFirst;
+    private final int comparisonType;
+    private final byte[] constantBytes;
+    private final ColumnModifier constantColumnModifier;
+    private final long constantLong;
+    private final double constantDouble;
+    
+    private ConstantComparisonExpression(CompareOp op, List<Expression> children, boolean isConstantFirst, int comparisonType,
+            byte[] constantBytes, ColumnModifier constantColumnModifier, long constantLong, double constantDouble) {
+        super(op, children);
+        this.op = op;
+        this.expression = children.get(isConstantFirst ? 1 : 0);
+        this.type = expression.getDataType();
+        this.columnModifier = expression.getColumnModifier();
+        this.constantType = children.get(isConstantFirst ? 0 : 1).getDataType();
+        this.isConstantFirst = isConstantFirst;
+        this.comparisonType = comparisonType;
+        this.constantBytes = constantBytes;
+        this.constantColumnModifier = constantColumnModifier;
+        this.constantLong = constantLong;
+        this.constantDouble = constantDouble;
+    }
+    
+    /**
+     * Specialize a comparison against a non null constant.
+     * @param comparison the comparison expression
+     * @return the specialized comparison, or the comparison itself if neither operand
+     * is a non null literal or if the comparison of the operand types cannot benefit
+     * from a constant operand.
+     */
+    public static ComparisonExpression create(ComparisonExpression comparison) {
+        List<Expression> children = comparison.getChildren();
+        Expression lhs = children.get(0);
+        Expression rhs = children.get(1);
+        boolean isConstantFirst;
+        LiteralExpression literal;
+        if (isConstant(rhs) && !(lhs instanceof LiteralExpression)) {
+            isConstantFirst = false;
+            literal = (LiteralExpression)rhs;
+        } else if (isConstant(lhs) && !(rhs instanceof LiteralExpression)) {
+            isConstantFirst = true;
+            literal = (LiteralExpression)lhs;
+        } else {
+            return comparison;
+        }
+        Expression expression = isConstantFirst ? rhs : lhs;
+        PDataType type = expression.getDataType();
+        PDataType constantType = literal.getDataType();
+        if (type == null) {
+            return comparison;
+        }
+        byte[] bytes = literal.getBytes();
+        ColumnModifier constantColumnModifier = literal.getColumnModifier();
+        // Mirror the order in which PDataType.compareTo picks its strategy, using the
+        // type of the operand that is on the left hand side.
+        PDataType lhsType = isConstantFirst ? constantType : type;
+        PDataType rhsType = isConstantFirst ? type : constantType;
+        try {
+            if (lhsType.isBytesComparableWith(rhsType)) {
+                if (constantColumnModifier != null && expression.getColumnModifier() == null) {
+                    bytes = constantColumnModifier.apply(bytes, new byte[bytes.length], 0, bytes.length);
+                    constantColumnModifier = null;
+                }
+                return new ConstantComparisonExpression(comparison.getFilterOp(), children, isConstantFirst, BYTES, bytes, constantColumnModifier, 0, 0);
+            }
+            if (lhsType.getCodec() == null) {
+                if (isConstantFirst) { // every row would need converting
+                    return comparison;
+                }
+                byte[] converted = type.toBytes(type.toObject(bytes, 0, bytes.length, constantType, constantColumnModifier));
+                return new ConstantComparisonExpression(comparison.getFilterOp(), children, isConstantFirst, CONVERTED_BYTES, converted, null, 0, 0);
+            }
+            if (rhsType.getCodec() == null) {
+                if (!isConstantFirst) {
+                    return comparison;
+                }
+                byte[] converted = type.toBytes(type.toObject(bytes, 0, bytes.length, constantType, constantColumnModifier));
+                return new ConstantComparisonExpression(comparison.getFilterOp(), children, isConstantFirst, CONVERTED_BYTES, converted, null, 0, 0);
+            }
+            if (type.isCoercibleTo(PDataType.LONG) && constantType.isCoercibleTo(PDataType.LONG)) {
+                long value = constantType.getCodec().decodeLong(bytes, 0, constantColumnModifier);
+                return new ConstantComparisonExpression(comparison.getFilterOp(), children, isConstantFirst, LONG, null, null, value, 0);
+            }
+            if (PDataType.isDoubleOrFloat(type) && PDataType.isDoubleOrFloat(constantType)) {
+                double value = constantType.getCodec().decodeDouble(bytes, 0, constantColumnModifier);
+                return new ConstantComparisonExpression(comparison.getFilterOp(), children, isConstantFirst, DOUBLE, null, null, 0, value);
+            }
+        } catch (RuntimeException e) {
+            // Leave it to the row by row evaluation to surface the same error
+        }
+        return comparison;
+    }
+    
+    private static boolean isConstant(Expression expression) {
+        return expression instanceof LiteralExpression && ((LiteralExpression)expression).getValue() != null;
+    }
+    
+    @Override
+    public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
+        if (!expression.evaluate(tuple, ptr)) {
+            return false;
+        }
+        byte[] b = ptr.get();
+        int offset = ptr.getOffset();
+        int length = ptr.getLength();
+        int comparisonResult;
+        switch (comparisonType) {
+        case BYTES:
+            comparisonResult = isConstantFirst
+                    ? constantType.compareTo(constantBytes, 0, constantBytes.length, constantColumnModifier, b, offset, length, columnModifier)
+                    : type.compareTo(b, offset, length, columnModifier, constantBytes, 0, constantBytes.length, constantColumnModifier);
+            break;
+        case CONVERTED_BYTES:
+            if (columnModifier != null) {
+                b = columnModifier.apply(b, new byte[b.length], offset, length);
+            }
+            comparisonResult = isConstantFirst
+                    ? Bytes.compareTo(constantBytes, 0, constantBytes.length, b, offset, length)
+                    : Bytes.compareTo(b, offset, length, constantBytes, 0, constantBytes.length);
+            break;
+        case LONG:
+            long value = type.getCodec().decodeLong(b, offset, columnModifier);
+            comparisonResult = isConstantFirst ? Longs.compare(constantLong, value) : Longs.compare(value, constantLong);
+            break;
+        default:
+            double dvalue = type.getCodec().decodeDouble(b, offset, columnModifier);
+            comparisonResult = isConstantFirst ? Doubles.compare(constantDouble, dvalue) : Doubles.compare(dvalue, constantDouble);
+            break;
+        }
+        ptr.set(ByteUtil.compare(op, comparisonResult) ? PDataType.TRUE_BYTES : PDataType.FALSE_BYTES);
+        return true;
+    }
+}
@@ -42,6 +42,7 @@ import com.salesforce.phoenix.util.NumberUtil;
 public class DecimalAddExpression extends AddExpression {
     private Integer maxLength;
     private Integer scale;
+    private Integer longScale;
 
     public DecimalAddExpression() {
     }
@@ -62,6 +63,34 @@ public class DecimalAddExpression extends AddExpression {
 
     @Override
     public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
+        int longScale = getResultLongScale();
+        if (longScale >= 0) {
+            // Fast path that keeps the values as longs scaled to the same scale
+            long result = 0;
+            int i = 0;
+            for (; i<children.size(); i++) {
+                Expression childExpr = children.get(i);
+                if (!childExpr.evaluate(tuple, ptr)) {
+                    return false;
+                }
+                if (ptr.getLength() == 0) {
+                    return true;
+                }
+                long value = PDataType.toUnscaledLong(ptr, childExpr.getDataType(), childExpr.getColumnModifier(), longScale);
+                long sum = result + value;
+                if (value == PDataType.NOT_UNSCALED_LONG || ((result ^ sum) & (value ^ sum)) < 0) {
+                    break; // Doesn't fit into a long, so fall back on BigDecimal arithmetic
+                }
+                result = sum;
+            }
+            if (i == children.size()) {
+                if (maxLength != null && scale != null && !NumberUtil.isWithinWidth(result, longScale, maxLength, scale)) {
+                    throw new ValueTypeIncompatibleException(PDataType.DECIMAL, maxLength, scale);
+                }
+                ptr.set(PDataType.toDecimalBytes(result, longScale));
+                return true;
+            }
+        }
         BigDecimal result = null;
         for (int i=0; i<children.size(); i++) {
             Expression childExpr = children.get(i);
@@ -92,6 +121,30 @@ public class DecimalAddExpression extends AddExpression {
         return true;
     }
 
+    /**
+     * Get the scale at which all children may be added as scaled longs
+     * or -1 if they may not be.
+     */
+    private int getResultLongScale() {
+        if (longScale == null) {
+            int resultLongScale = 0;
+            for (Expression childExpr : children) {
+                int childLongScale = getLongScale(childExpr);
+                if (childLongScale < 0) {
+                    resultLongScale = -1;
+                    break;
+                }
+                resultLongScale = Math.max(resultLongScale, childLongScale);
+            }
+            // Only when no rounding is necessary to get to the declared scale
+            if (scale != null && resultLongScale > scale) {
+                resultLongScale = -1;
+            }
+            longScale = resultLongScale;
+        }
+        return longScale;
+    }
+
     @Override
     public PDataType getDataType() {
         return PDataType.DECIMAL;
@@ -32,6 +32,7 @@ import java.util.List;
 
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 
+import com.google.common.math.LongMath;
 import com.salesforce.phoenix.exception.ValueTypeIncompatibleException;
 import com.salesforce.phoenix.schema.ColumnModifier;
 import com.salesforce.phoenix.schema.PDataType;
@@ -40,6 +41,7 @@ import com.salesforce.phoenix.util.NumberUtil;
 
 
 public class DecimalMultiplyExpression extends MultiplyExpression {
+    private Integer longScale;
 
     public DecimalMultiplyExpression() {
     }
@@ -48,8 +50,64 @@ public class DecimalMultiplyExpression extends MultiplyExpression {
         super(children);
     }
 
+    /**
+     * Get the scale of the product of the children as a scaled long
+     * or -1 if they may not be multiplied as scaled longs.
+     */
+    private int getResultLongScale() {
+        if (longScale == null) {
+            int resultLongScale = 0;
+            for (Expression childExpr : children) {
+                int childLongScale = getLongScale(childExpr);
+                if (childLongScale < 0) {
+                    resultLongScale = -1;
+                    break;
+                }
+                resultLongScale += childLongScale;
+            }
+            // Only when no rounding is necessary to get to the declared scale
+            if (resultLongScale > PDataType.MAX_UNSCALED_LONG_PRECISION || (getScale() != null && resultLongScale > getScale())) {
+                resultLongScale = -1;
+            }
+            longScale = resultLongScale;
+        }
+        return longScale;
+    }
+
     @Override
     public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
+        int longScale = getResultLongScale();
+        if (longScale >= 0) {
+            // Fast path that multiplies the values as scaled longs, the scale
+            // of the product being the sum of the scales of the children
+            long result = 1;
+            int i = 0;
+            for (; i<children.size(); i++) {
+                Expression childExpr = children.get(i);
+                if (!childExpr.evaluate(tuple, ptr)) {
+                    return false;
+                }
+                if (ptr.getLength() == 0) {
+                    return true;
+                }
+                long value = PDataType.toUnscaledLong(ptr, childExpr.getDataType(), childExpr.getColumnModifier(), getLongScale(childExpr));
+                if (value == PDataType.NOT_UNSCALED_LONG) {
+                    break; // Doesn't fit into a long, so fall back on BigDecimal arithmetic
+                }
+                try {
+                    result = LongMath.checkedMultiply(result, value);
+                } catch (ArithmeticException e) {
+                    break;
+                }
+            }
+            if (i == children.size()) {
+                if (getMaxLength() != null && getScale() != null && !NumberUtil.isWithinWidth(result, longScale, getMaxLength(), getScale())) {
+                    throw new ValueTypeIncompatibleException(PDataType.DECIMAL, getMaxLength(), getScale());
+                }
+                ptr.set(PDataType.toDecimalBytes(result, longScale));
+                return true;
+            }
+        }
         BigDecimal result = null;
         for (int i=0; i<children.size(); i++) {
             Expression childExpr = children.get(i);
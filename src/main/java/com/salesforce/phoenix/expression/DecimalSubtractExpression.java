@@ -49,6 +49,7 @@ import com.salesforce.phoenix.util.NumberUtil;
 public class DecimalSubtractExpression extends SubtractExpression {
     private Integer maxLength;
     private Integer scale;
+    private Integer longScale;
 
     public DecimalSubtractExpression() {
     }
@@ -69,6 +70,41 @@ public class DecimalSubtractExpression extends SubtractExpression {
 
     @Override
     public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
+        int longScale = getResultLongScale();
+        if (longScale >= 0) {
+            // Fast path that keeps the values as longs scaled to the same scale
+            long result = 0;
+            int i = 0;
+            for (; i<children.size(); i++) {
+                Expression childExpr = children.get(i);
+                if (!childExpr.evaluate(tuple, ptr)) {
+                    return false;
+                }
+                if (ptr.getLength() == 0) {
+                    return true;
+                }
+                long value = PDataType.toUnscaledLong(ptr, childExpr.getDataType(), childExpr.getColumnModifier(), longScale);
+                if (value == PDataType.NOT_UNSCALED_LONG) {
+                    break; // Doesn't fit into a long, so fall back on BigDecimal arithmetic
+                }
+                if (i == 0) {
+                    result = value;
+                } else {
+                    long difference = result - value;
+                    if (((result ^ value) & (result ^ difference)) < 0) {
+                        break;
+                    }
+                    result = difference;
+                }
+            }
+            if (i == children.size()) {
+                if (maxLength != null && scale != null && !NumberUtil.isWithinWidth(result, longScale, maxLength, scale)) {
+                    throw new ValueTypeIncompatibleException(PDataType.DECIMAL, maxLength, scale);
+                }
+                ptr.set(PDataType.toDecimalBytes(result, longScale));
+                return true;
+            }
+        }
         BigDecimal result = null;
         for (int i=0; i<children.size(); i++) {
             Expression childExpr = children.get(i);
@@ -109,6 +145,30 @@ public class DecimalSubtractExpression extends SubtractExpression {
         return true;
     }
 
+    /**
+     * Get the scale at which all children may be subtracted as scaled longs
+     * or -1 if they may not be.
+     */
+    private int getResultLongScale() {
+        if (longScale == null) {
+            int resultLongScale = 0;
+            for (Expression childExpr : children) {
+                int childLongScale = getLongScale(childExpr);
+                if (childLongScale < 0) {
+                    resultLongScale = -1;
+                    break;
+                }
+                resultLongScale = Math.max(resultLongScale, childLongScale);
+            }
+            // Only when no rounding is necessary to get to the declared scale
+            if (scale != null && resultLongScale > scale) {
+                resultLongScale = -1;
+            }
+            longScale = resultLongScale;
+        }
+        return longScale;
+    }
+
     @Override
     public PDataType getDataType() {
         return PDataType.DECIMAL;
@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.expression;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+
+/**
+ * 
+ * Rewrites a deserialized expression tree on the server side, replacing nodes
+ * with equivalent ones that do less work per row. Nodes are replaced in place
+ * within their parent, so that the rest of the tree (in particular the stateful
+ * {@link KeyValueColumnExpression} instances discovered by visitors) is left intact.
+ * The specialized tree serializes the same way as the original one.
+ *
+ * @since 2.0
+ */
+public class ExpressionSpecializer {
+    private ExpressionSpecializer() {
+    }
+    
+    /**
+     * Specialize the given expression tree.
+     * @param expression the root of the expression tree
+     * @return the specialized root, which may be the same instance as the one passed in
+     */
+    public static Expression specialize(Expression expression) {
+        if (expression instanceof BaseCompoundExpression) {
+            BaseCompoundExpression compound = (BaseCompoundExpression)expression;
+            compound.children = specialize(compound.children);
+        } else if (expression instanceof BaseSingleExpression) {
+            BaseSingleExpression single = (BaseSingleExpression)expression;
+            single.children = specialize(single.children);
+        }
+        if (expression.getClass() == ComparisonExpression.class) {
+            return ConstantComparisonExpression.create((ComparisonExpression)expression);
+        }
+        return expression;
+    }
+    
+    private static List<Expression> specialize(List<Expression> children) {
+        if (children == null) {
+            return null;
+        }
+        List<Expression> specializedChildren = null;
+        for (int i = 0; i < children.size(); i++) {
+            Expression child = children.get(i);
+            Expression specializedChild = specialize(child);
+            if (specializedChild != child && specializedChildren == null) {
+                specializedChildren = Lists.newArrayList(children);
+            }
+            if (specializedChildren != null) {
+                specializedChildren.set(i, specializedChild);
+            }
+        }
+        return specializedChildren == null ? children : ImmutableList.copyOf(specializedChildren);
+    }
+}
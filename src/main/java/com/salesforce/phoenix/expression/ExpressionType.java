@@ -117,7 +117,9 @@ public enum ExpressionType {
      * Return the ExpressionType for a given Expression instance
      */
     public static ExpressionType valueOf(Expression expression) {
-        ExpressionType type = classToEnumMap.get(expression.getClass());
+        // A specialized comparison serializes as the comparison it was created from
+        Class<? extends Expression> clazz = expression instanceof ConstantComparisonExpression ? ComparisonExpression.class : expression.getClass();
+        ExpressionType type = classToEnumMap.get(clazz);
         if (type == null) { // FIXME: this exception gets swallowed and retries happen
             throw new IllegalArgumentException("No ExpressionType for " + expression.getClass());
         }
@@ -49,6 +49,17 @@ public interface Aggregator extends Expression {
      */
     public void aggregate(Tuple tuple, ImmutableBytesWritable ptr);
     
+    /**
+     * Incrementally aggregate the value of an expression over a batch of rows. Equivalent
+     * to evaluating the expression against each row in turn and calling
+     * {@link #aggregate(Tuple, ImmutableBytesWritable)} whenever it evaluates successfully.
+     * @param expression the expression whose value is aggregated
+     * @param tuples the rows of the batch
+     * @param length the number of rows in the batch
+     * @param ptr the bytes pointer used to evaluate the expression
+     */
+    public void aggregate(Expression expression, Tuple[] tuples, int length, ImmutableBytesWritable ptr);
+    
     /**
      * Get the size in bytes
      */
@@ -27,9 +27,12 @@
  ******************************************************************************/
 package com.salesforce.phoenix.expression.aggregator;
 
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 
 import com.salesforce.phoenix.expression.BaseTerminalExpression;
+import com.salesforce.phoenix.expression.Expression;
 import com.salesforce.phoenix.schema.ColumnModifier;
+import com.salesforce.phoenix.schema.tuple.Tuple;
 import com.salesforce.phoenix.util.SizedUtil;
 
 /**
@@ -51,6 +54,15 @@ public abstract class BaseAggregator extends BaseTerminalExpression implements A
         return true;
     }
     
+    @Override
+    public void aggregate(Expression expression, Tuple[] tuples, int length, ImmutableBytesWritable ptr) {
+        for (int i = 0; i < length; i++) {
+            if (expression.evaluate(tuples[i], ptr)) {
+                aggregate(tuples[i], ptr);
+            }
+        }
+    }
+    
     @Override
     public int getSize() {
         return SizedUtil.OBJECT_SIZE;
@@ -29,6 +29,8 @@ package com.salesforce.phoenix.expression.aggregator;
 
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 
+import com.salesforce.phoenix.expression.Expression;
+import com.salesforce.phoenix.expression.LiteralExpression;
 import com.salesforce.phoenix.schema.PDataType;
 import com.salesforce.phoenix.schema.tuple.Tuple;
 import com.salesforce.phoenix.util.SizedUtil;
@@ -53,6 +55,22 @@ public class CountAggregator extends BaseAggregator {
         count++;
     }
     
+    @Override
+    public void aggregate(Expression expression, Tuple[] tuples, int length, ImmutableBytesWritable ptr) {
+        // COUNT(*) and COUNT(<constant>) count every row without evaluating anything
+        if (expression instanceof LiteralExpression && ((LiteralExpression)expression).getValue() != null) {
+            count += length;
+            return;
+        }
+        long count = this.count;
+        for (int i = 0; i < length; i++) {
+            if (expression.evaluate(tuples[i], ptr)) {
+                count++;
+            }
+        }
+        this.count = count;
+    }
+    
     @Override
     public boolean isNullable() {
         return false;
@@ -39,13 +39,18 @@ import com.salesforce.phoenix.util.SizedUtil;
 
 /**
  * 
- * Aggregator that sums BigDecimal values
+ * Aggregator that sums BigDecimal values. The sum is kept as a scaled long,
+ * decoded straight from the serialized values, until it overflows or the
+ * scale would become too large, after which BigDecimal arithmetic is used.
  *
  * @author jtaylor
  * @since 0.1
  */
 public class DecimalSumAggregator extends BaseAggregator {
-    private BigDecimal sum = BigDecimal.ZERO;
+    private long unscaledSum;
+    private int sumScale;
+    // Only used once the sum no longer fits into a scaled long
+    private BigDecimal sum;
     private byte[] sumBuffer;
     
     public DecimalSumAggregator(ColumnModifier columnModifier) {
@@ -58,11 +63,33 @@ public class DecimalSumAggregator extends BaseAggregator {
     
     @Override
     public void aggregate(Tuple tuple, ImmutableBytesWritable ptr) {
-        BigDecimal value = (BigDecimal)getDataType().toObject(ptr, getInputDataType(), columnModifier);
-        sum = sum.add(value);
         if (sumBuffer == null) {
             sumBuffer = new byte[getDataType().getByteSize()];
         }
+        if (sum == null) {
+            long value = PDataType.toUnscaledLong(ptr, getInputDataType(), columnModifier, sumScale);
+            long newSum = unscaledSum + value;
+            if (value != PDataType.NOT_UNSCALED_LONG && ((unscaledSum ^ newSum) & (value ^ newSum)) >= 0) {
+                unscaledSum = newSum;
+                return;
+            }
+        }
+        // Either the value has more digits after the decimal point than the sum so far
+        // or the sum overflowed, so add as BigDecimal and see if it fits into a long again.
+        // Values with a column modifier are always summed as BigDecimal.
+        BigDecimal value = (BigDecimal)getDataType().toObject(ptr, getInputDataType(), columnModifier);
+        BigDecimal newSum = getSum().add(value);
+        if (columnModifier == null && newSum.scale() >= 0 && newSum.scale() <= PDataType.MAX_UNSCALED_LONG_PRECISION && newSum.unscaledValue().bitLength() < 64) {
+            unscaledSum = newSum.unscaledValue().longValue();
+            sumScale = newSum.scale();
+            sum = null;
+        } else {
+            sum = newSum;
+        }
+    }
+    
+    private BigDecimal getSum() {
+        return sum == null ? BigDecimal.valueOf(unscaledSum, sumScale) : sum;
     }
     
     @Override
@@ -70,7 +97,7 @@ public class DecimalSumAggregator extends BaseAggregator {
         if (sumBuffer == null) {
             return false;
         }
-        int len = getDataType().toBytes(sum, sumBuffer, 0);
+        int len = sum == null ? PDataType.toDecimalBytes(unscaledSum, sumScale, sumBuffer, 0) : getDataType().toBytes(sum, sumBuffer, 0);
         ptr.set(sumBuffer, 0, len);
         return true;
     }
@@ -82,18 +109,20 @@ public class DecimalSumAggregator extends BaseAggregator {
     
     @Override
     public void reset() {
-        sum = BigDecimal.ZERO;
+        unscaledSum = 0;
+        sumScale = 0;
+        sum = null;
         sumBuffer = null;
         super.reset();
     }
 
     @Override
     public String toString() {
-        return "DECIMAL SUM [sum=" + sum + "]";
+        return "DECIMAL SUM [sum=" + getSum() + "]";
     }
 
     @Override
     public int getSize() {
-        return super.getSize() + SizedUtil.BIG_DECIMAL_SIZE + SizedUtil.ARRAY_SIZE + getDataType().getByteSize();
+        return super.getSize() + SizedUtil.LONG_SIZE + SizedUtil.INT_SIZE + SizedUtil.BIG_DECIMAL_SIZE + SizedUtil.ARRAY_SIZE + getDataType().getByteSize();
     }
 }
@@ -29,8 +29,10 @@ package com.salesforce.phoenix.expression.aggregator;
 
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 
+import com.salesforce.phoenix.expression.Expression;
 import com.salesforce.phoenix.schema.ColumnModifier;
 import com.salesforce.phoenix.schema.PDataType;
+import com.salesforce.phoenix.schema.PDataType.PDataCodec;
 import com.salesforce.phoenix.schema.tuple.Tuple;
 import com.salesforce.phoenix.util.SizedUtil;
 
@@ -70,6 +72,23 @@ abstract public class NumberSumAggregator extends BaseAggregator {
         }
     }
     
+    @Override
+    public void aggregate(Expression expression, Tuple[] tuples, int length, ImmutableBytesWritable ptr) {
+        PDataCodec codec = getInputDataType().getCodec();
+        long sum = this.sum;
+        boolean hasValue = false;
+        for (int i = 0; i < length; i++) {
+            if (expression.evaluate(tuples[i], ptr)) {
+                sum += codec.decodeLong(ptr, columnModifier);
+                hasValue = true;
+            }
+        }
+        this.sum = sum;
+        if (hasValue && buffer == null) {
+            initBuffer();
+        }
+    }
+    
     @Override
     public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
         if (buffer == null) {
@@ -68,6 +68,19 @@ public class ServerAggregators extends Aggregators {
         }
     }
     
+    /**
+     * Aggregate over aggregators for a batch of rows. Each aggregator is run over
+     * the entire batch before moving on to the next one.
+     * @param aggregators the aggregators
+     * @param tuples the rows of the batch
+     * @param length the number of rows in the batch
+     */
+    public void aggregate(Aggregator[] aggregators, Tuple[] tuples, int length) {
+        for (int i = 0; i < expressions.length; i++) {
+            aggregators[i].aggregate(expressions[i], tuples, length, ptr);
+        }
+    }
+    
     /**
      * Serialize an Aggregator into a byte array
      * @param aggFuncs list of aggregator to serialize
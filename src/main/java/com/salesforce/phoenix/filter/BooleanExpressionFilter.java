@@ -34,6 +34,7 @@ import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.io.WritableUtils;
 
 import com.salesforce.phoenix.expression.Expression;
+import com.salesforce.phoenix.expression.ExpressionSpecializer;
 import com.salesforce.phoenix.expression.ExpressionType;
 import com.salesforce.phoenix.schema.IllegalDataException;
 import com.salesforce.phoenix.schema.tuple.Tuple;
@@ -108,6 +109,7 @@ abstract public class BooleanExpressionFilter extends FilterBase {
     public void readFields(DataInput input) throws IOException {
         expression = ExpressionType.values()[WritableUtils.readVInt(input)].newInstance();
         expression.readFields(input);
+        expression = ExpressionSpecializer.specialize(expression);
     }
 
     @Override
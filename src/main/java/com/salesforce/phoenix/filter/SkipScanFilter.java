@@ -129,7 +129,8 @@ public class SkipScanFilter extends FilterBase {
 
     @Override
     public KeyValue getNextKeyHint(KeyValue kv) {
-        // TODO: don't allocate new key value every time here if possible
+        // The hint must not share our startKey buffer, since a lazy seek of a store file
+        // scanner holds on to it until the seek is enforced, past our next navigate call.
         return isDone ? null : new KeyValue(startKey, 0, startKeyLength,
                 null, 0, 0, null, 0, 0, HConstants.LATEST_TIMESTAMP, Type.Maximum, null, 0, 0);
     }
@@ -145,7 +146,11 @@ public class SkipScanFilter extends FilterBase {
     public SkipScanFilter intersect(byte[] lowerInclusiveKey, byte[] upperExclusiveKey) {
         List<List<KeyRange>> newSlots = Lists.newArrayListWithCapacity(slots.size());
         if (intersect(lowerInclusiveKey, upperExclusiveKey, newSlots)) {
-            return new SkipScanFilter(newSlots, schema);
+            // The new slots are a subset of ours, so our max key length still holds and
+            // we don't need to walk every range again for each region we intersect with.
+            SkipScanFilter filter = new SkipScanFilter();
+            filter.init(newSlots, schema, maxKeyLength);
+            return filter;
         }
         return null;
     }
@@ -290,10 +295,8 @@ public class SkipScanFilter extends FilterBase {
         ptr.set(currentKey, offset, length);
         schema.first(ptr, i, ValueBitSet.EMPTY_VALUE_BITSET);
         while (true) {
-            // Increment to the next range while the upper bound of our current slot is less than our current key
-            while (position[i] < slots.get(i).size() && slots.get(i).get(position[i]).compareUpperToLowerBound(ptr) < 0) {
-                position[i]++;
-            }
+            // Advance to the first range whose upper bound is not less than our current key
+            position[i] = advancePosition(slots.get(i), position[i], ptr);
             Arrays.fill(position, i+1, position.length, 0);
             if (position[i] >= slots.get(i).size()) {
                 // Our current key is bigger than the last range of the current slot.
@@ -384,6 +387,43 @@ public class SkipScanFilter extends FilterBase {
         return ReturnCode.INCLUDE;
     }
 
+    /**
+     * Find the first range at or after position whose upper bound is not less than
+     * the key in ptr. Usually that's one of the next couple of ranges, so check those
+     * first, and then gallop and binary search over the rest of a large IN list
+     * instead of stepping through every range we skip.
+     * @return the position of the range, or the size of the slot if there is none
+     */
+    private static int advancePosition(List<KeyRange> slot, int position, ImmutableBytesWritable ptr) {
+        int size = slot.size();
+        for (int i = 0; i < 2; i++, position++) {
+            if (position >= size || slot.get(position).compareUpperToLowerBound(ptr) >= 0) {
+                return position;
+            }
+        }
+        // Invariant: the range at lower is below the key, while the one at upper is not
+        int lower = position - 1;
+        int step = 2;
+        int upper = position;
+        while (upper < size && slot.get(upper).compareUpperToLowerBound(ptr) < 0) {
+            lower = upper;
+            upper += step;
+            step <<= 1;
+        }
+        if (upper > size) {
+            upper = size;
+        }
+        while (upper - lower > 1) {
+            int mid = (lower + upper) >>> 1;
+            if (slot.get(mid).compareUpperToLowerBound(ptr) < 0) {
+                lower = mid;
+            } else {
+                upper = mid;
+            }
+        }
+        return upper;
+    }
+
     private boolean allTrailingNulls(int i) {
         for (; i < slots.size(); i++) {
             List<KeyRange> keyRanges = slots.get(i);
@@ -0,0 +1,355 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.index;
+
+import java.io.*;
+import java.sql.SQLException;
+import java.util.*;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.*;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.util.*;
+
+import com.google.common.collect.Lists;
+import com.salesforce.hbase.index.builder.BaseIndexBuilder;
+import com.salesforce.phoenix.query.QueryConstants;
+import com.salesforce.phoenix.schema.PTable;
+import com.salesforce.phoenix.schema.PTableImpl;
+import com.salesforce.phoenix.schema.TableRef;
+import com.salesforce.phoenix.util.*;
+
+/**
+ * 
+ * Server-side maintenance of the indexes on a table with mutable rows. The client
+ * attaches the serialized data table (which includes its indexes) to each data
+ * table {@link Mutation} under the {@link #INDEX_MD} attribute. These mutations are
+ * indexed per batch, once the rows of the batch are locked: for each row, the current
+ * state of the row is read from the region and all the mutations of the row in the
+ * batch (for example the Put and the Delete of an UPSERT that sets some columns and
+ * nulls out others) are applied to it in order, to determine the index row that needs
+ * to be removed and the index row that needs to be added. The index rows are generated the same way they
+ * are for tables with immutable rows, through {@link IndexUtil#generateIndexData(PTable, PTable, Mutation, ImmutableBytesWritable)},
+ * so they use the same row key and column encoding as the index table.
+ * 
+ * Mutations without the {@link #INDEX_MD} attribute are not indexed.
+ *
+ * @since 2.0
+ */
+public class PhoenixIndexBuilder extends BaseIndexBuilder {
+    public static final String INDEX_MD = "IdxMD";
+    private static final int MAX_CACHED_INDEX_MD = 100;
+    
+    private HRegion region;
+    // Deserializing the table for every mutation would be a waste, since
+    // the same bytes are attached to every mutation of a batch.
+    private final Map<ImmutableBytesPtr,IndexMetaData> indexMetaDataCache = 
+            Collections.synchronizedMap(new LinkedHashMap<ImmutableBytesPtr,IndexMetaData>(MAX_CACHED_INDEX_MD, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ImmutableBytesPtr,IndexMetaData> eldest) {
+            return size() > MAX_CACHED_INDEX_MD;
+        }
+    });
+
+    @Override
+    public void setup(RegionCoprocessorEnvironment env) throws IOException {
+        this.region = env.getRegion();
+    }
+
+    @Override
+    public boolean isBatchIndexed(Mutation m) {
+        return m.getAttribute(INDEX_MD) != null;
+    }
+
+    @Override
+    public Collection<Pair<Mutation, String>> getBatchIndexUpdate(List<Mutation> mutations) throws IOException {
+        List<Pair<Mutation, String>> indexUpdates = Lists.newArrayList();
+        addIndexUpdates(mutations, indexUpdates);
+        return indexUpdates;
+    }
+
+    @Override
+    public Collection<Pair<Mutation, String>> getIndexUpdate(Put put) throws IOException {
+        return getIndexUpdate((Mutation)put);
+    }
+
+    @Override
+    public Collection<Pair<Mutation, String>> getIndexUpdate(Delete delete) throws IOException {
+        return getIndexUpdate((Mutation)delete);
+    }
+
+    @Override
+    public Collection<Pair<Mutation, String>> getIndexUpdateForFilteredRows(Collection<KeyValue> filtered) throws IOException {
+        // Phoenix never relies on flushes or compactions to age out index rows
+        return null;
+    }
+
+    private Collection<Pair<Mutation, String>> getIndexUpdate(Mutation dataMutation) throws IOException {
+        List<Pair<Mutation, String>> indexUpdates = Lists.newArrayList();
+        addIndexUpdates(Collections.singletonList(dataMutation), indexUpdates);
+        return indexUpdates;
+    }
+
+    /**
+     * Add the index updates for the mutations of a single row, based on the state of the
+     * row before and after all of them are applied.
+     */
+    private void addIndexUpdates(List<Mutation> dataMutations, List<Pair<Mutation, String>> indexUpdates) throws IOException {
+        Mutation firstMutation = dataMutations.get(0);
+        IndexMetaData indexMetaData = getIndexMetaData(firstMutation);
+        if (indexMetaData == null) {
+            return;
+        }
+        long ts = 0;
+        for (Mutation dataMutation : dataMutations) {
+            ts = Math.max(ts, MetaDataUtil.getClientTimeStamp(dataMutation));
+        }
+        if (ts == HConstants.LATEST_TIMESTAMP) {
+            ts = EnvironmentEdgeManager.currentTimeMillis();
+        }
+        PTable dataTable = indexMetaData.getDataTable();
+        Put oldState = getCurrentRowState(firstMutation.getRow(), ts);
+        Put newState = oldState;
+        for (Mutation dataMutation : dataMutations) {
+            newState = getNewRowState(newState, dataMutation, ts);
+        }
+        
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        try {
+            for (PTable index : dataTable.getIndexes()) {
+                String indexTableName = Bytes.toString(SchemaUtil.getTableName(indexMetaData.getSchemaName(), index.getName().getBytes()));
+                Put oldIndexRow = oldState == null ? null : getIndexRow(IndexUtil.generateIndexData(index, dataTable, oldState, ptr));
+                Put newIndexRow = newState == null ? null : getIndexRow(IndexUtil.generateIndexData(index, dataTable, newState, ptr));
+                if (oldIndexRow != null) {
+                    Delete delete;
+                    if (newIndexRow == null || Bytes.compareTo(oldIndexRow.getRow(), newIndexRow.getRow()) != 0) {
+                        // Index row key changed (or the data row is gone), so remove the old index row entirely
+                        @SuppressWarnings("deprecation") // FIXME: Remove when unintentionally deprecated method is fixed (HBASE-7870).
+                        Delete deleteRow = new Delete(oldIndexRow.getRow(), ts, null);
+                        delete = deleteRow;
+                    } else {
+                        // Same index row, so only remove covered columns that are no longer set
+                        delete = getUnsetColumns(oldIndexRow, newIndexRow, ts);
+                    }
+                    if (delete != null) {
+                        indexUpdates.add(new Pair<Mutation, String>(delete, indexTableName));
+                    }
+                }
+                if (newIndexRow != null) {
+                    indexUpdates.add(new Pair<Mutation, String>(newIndexRow, indexTableName));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private IndexMetaData getIndexMetaData(Mutation m) throws IOException {
+        byte[] md = m.getAttribute(INDEX_MD);
+        if (md == null) {
+            return null;
+        }
+        ImmutableBytesPtr key = new ImmutableBytesPtr(md);
+        IndexMetaData indexMetaData = indexMetaDataCache.get(key);
+        if (indexMetaData == null) {
+            indexMetaData = deserializeIndexMetaData(md);
+            indexMetaDataCache.put(key, indexMetaData);
+        }
+        return indexMetaData;
+    }
+
+    /**
+     * Get the current state of the data row, as of the timestamp of the mutation being applied.
+     * @return a Put containing the latest version of every column of the row, or null if the row
+     * does not exist.
+     */
+    private Put getCurrentRowState(byte[] row, long ts) throws IOException {
+        Get get = new Get(row);
+        get.setTimeRange(0, ts == Long.MAX_VALUE ? ts : ts + 1);
+        Result result = region.get(get);
+        if (result == null || result.isEmpty()) {
+            return null;
+        }
+        Put state = new Put(row, ts);
+        for (KeyValue kv : result.raw()) {
+            state.add(kv.getFamily(), kv.getQualifier(), ts, kv.getValue());
+        }
+        return state;
+    }
+
+    /**
+     * Apply the data mutation on top of the given row state.
+     * @return a Put containing the state of every column of the row after the mutation
+     * is applied, or null if the row no longer exists.
+     */
+    private static Put getNewRowState(Put oldState, Mutation dataMutation, long ts) {
+        byte[] row = dataMutation.getRow();
+        Map<byte[],List<KeyValue>> familyMap = dataMutation.getFamilyMap();
+        if (dataMutation instanceof Delete && familyMap.isEmpty()) {
+            return null;
+        }
+        Map<byte[],Map<byte[],byte[]>> columns = new TreeMap<byte[],Map<byte[],byte[]>>(Bytes.BYTES_COMPARATOR);
+        if (oldState != null) {
+            for (List<KeyValue> kvs : oldState.getFamilyMap().values()) {
+                for (KeyValue kv : kvs) {
+                    getFamilyColumns(columns, kv.getFamily()).put(kv.getQualifier(), kv.getValue());
+                }
+            }
+        }
+        for (Map.Entry<byte[],List<KeyValue>> entry : familyMap.entrySet()) {
+            Map<byte[],byte[]> familyColumns = getFamilyColumns(columns, entry.getKey());
+            for (KeyValue kv : entry.getValue()) {
+                if (dataMutation instanceof Delete) {
+                    if (kv.isDeleteFamily()) {
+                        familyColumns.clear();
+                    } else {
+                        familyColumns.remove(kv.getQualifier());
+                    }
+                } else {
+                    familyColumns.put(kv.getQualifier(), kv.getValue());
+                }
+            }
+        }
+        Put state = new Put(row, ts);
+        for (Map.Entry<byte[],Map<byte[],byte[]>> family : columns.entrySet()) {
+            for (Map.Entry<byte[],byte[]> column : family.getValue().entrySet()) {
+                state.add(family.getKey(), column.getKey(), ts, column.getValue());
+            }
+        }
+        return state.isEmpty() ? null : state;
+    }
+
+    private static Map<byte[],byte[]> getFamilyColumns(Map<byte[],Map<byte[],byte[]>> columns, byte[] family) {
+        Map<byte[],byte[]> familyColumns = columns.get(family);
+        if (familyColumns == null) {
+            familyColumns = new TreeMap<byte[],byte[]>(Bytes.BYTES_COMPARATOR);
+            columns.put(family, familyColumns);
+        }
+        return familyColumns;
+    }
+
+    private static Put getIndexRow(List<Mutation> indexMutations) {
+        for (Mutation m : indexMutations) {
+            if (m instanceof Put) {
+                return (Put)m;
+            }
+        }
+        return null;
+    }
+
+    private static Delete getUnsetColumns(Put oldIndexRow, Put newIndexRow, long ts) {
+        Delete delete = null;
+        for (Map.Entry<byte[],List<KeyValue>> entry : oldIndexRow.getFamilyMap().entrySet()) {
+            byte[] family = entry.getKey();
+            for (KeyValue kv : entry.getValue()) {
+                byte[] qualifier = kv.getQualifier();
+                if (Bytes.compareTo(QueryConstants.EMPTY_COLUMN_BYTES, qualifier) != 0 && !newIndexRow.has(family, qualifier)) {
+                    if (delete == null) {
+                        delete = new Delete(oldIndexRow.getRow());
+                    }
+                    delete.deleteColumns(family, qualifier, ts);
+                }
+            }
+        }
+        return delete;
+    }
+
+    /**
+     * Get the index metadata to attach to the mutations of a data table.
+     * @param tableRef the data table
+     * @return the serialized index metadata or null if the table has no indexes
+     * that are maintained on the server-side.
+     */
+    public static byte[] getIndexMetaData(TableRef tableRef) {
+        PTable table = tableRef.getTable();
+        if (table.isImmutableRows() || table.getIndexes().isEmpty()) {
+            return null;
+        }
+        return serializeIndexMetaData(tableRef.getSchema().getName(), table);
+    }
+
+    /**
+     * Serialize the data table, including its indexes, so that it can be attached
+     * to data table mutations under the {@link #INDEX_MD} attribute.
+     * @param schemaName the schema name of the data table
+     * @param dataTable the data table
+     */
+    public static byte[] serializeIndexMetaData(String schemaName, PTable dataTable) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try {
+            DataOutputStream output = new DataOutputStream(stream);
+            Bytes.writeByteArray(output, Bytes.toBytes(schemaName));
+            dataTable.write(output);
+            return stream.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException(e); // Impossible
+        } finally {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e); // Impossible
+            }
+        }
+    }
+
+    private static IndexMetaData deserializeIndexMetaData(byte[] b) throws IOException {
+        ByteArrayInputStream stream = new ByteArrayInputStream(b);
+        try {
+            DataInputStream input = new DataInputStream(stream);
+            byte[] schemaName = Bytes.readByteArray(input);
+            PTable dataTable = new PTableImpl();
+            dataTable.readFields(input);
+            return new IndexMetaData(schemaName, dataTable);
+        } finally {
+            stream.close();
+        }
+    }
+
+    private static class IndexMetaData {
+        private final byte[] schemaName;
+        private final PTable dataTable;
+
+        private IndexMetaData(byte[] schemaName, PTable dataTable) {
+            this.schemaName = schemaName;
+            this.dataTable = dataTable;
+        }
+
+        public byte[] getSchemaName() {
+            return schemaName;
+        }
+
+        public PTable getDataTable() {
+            return dataTable;
+        }
+    }
+}
@@ -42,6 +42,7 @@ import com.salesforce.phoenix.compile.StatementContext;
 import com.salesforce.phoenix.parse.HintNode.Hint;
 import com.salesforce.phoenix.query.*;
 import com.salesforce.phoenix.schema.TableRef;
+import com.salesforce.phoenix.schema.stat.TableStatistics;
 import com.salesforce.phoenix.util.ReadOnlyProps;
 
 
@@ -82,10 +83,54 @@ public class DefaultParallelIteratorRegionSplitter implements ParallelIteratorRe
     // Get the mapping between key range and the regions that contains them.
     protected List<Entry<HRegionInfo, ServerName>> getAllRegions() throws SQLException {
         Scan scan = context.getScan();
-        NavigableMap<HRegionInfo, ServerName> allTableRegions = context.getConnection().getQueryServices().getAllTableRegions(table);
+        NavigableMap<HRegionInfo, ServerName> allTableRegions = getAllTableRegions();
         return filterRegions(allTableRegions, scan.getStartRow(), scan.getStopRow());
     }
 
+    protected NavigableMap<HRegionInfo, ServerName> getAllTableRegions() throws SQLException {
+        NavigableMap<HRegionInfo, ServerName> allTableRegions = context.getConnection().getQueryServices().getAllTableRegions(table);
+        Integer bucketNum = table.getTable().getBucketNum();
+        return bucketNum == null ? allTableRegions : splitOnSaltBuckets(allTableRegions, bucketNum);
+    }
+
+    /**
+     * Cut the regions of a salted table at the salt bucket boundaries, so that the parallelism
+     * is spread evenly over the buckets and no split ever spans more than one bucket. The rows
+     * of a split are then all in row key order, which is what the merge across buckets relies on.
+     * @param allTableRegions all region infos for a given table
+     * @param bucketNum the number of salt buckets of the table
+     * @return the regions, with each region spanning multiple buckets replaced by one piece per bucket
+     */
+    // exposed for tests
+    public static NavigableMap<HRegionInfo, ServerName> splitOnSaltBuckets(NavigableMap<HRegionInfo, ServerName> allTableRegions, int bucketNum) {
+        NavigableMap<HRegionInfo, ServerName> regions = null;
+        for (Map.Entry<HRegionInfo, ServerName> region : allTableRegions.entrySet()) {
+            byte[] startKey = region.getKey().getStartKey();
+            byte[] endKey = region.getKey().getEndKey();
+            int firstBucket = startKey.length == 0 ? 0 : startKey[0] & 0xff;
+            // An end key of exactly the salt byte excludes that bucket
+            int lastBucket = endKey.length == 0 ? bucketNum - 1 : (endKey[0] & 0xff) - (endKey.length == 1 ? 1 : 0);
+            if (firstBucket >= lastBucket) {
+                if (regions != null) {
+                    regions.put(region.getKey(), region.getValue());
+                }
+                continue;
+            }
+            if (regions == null) {
+                regions = new TreeMap<HRegionInfo, ServerName>(allTableRegions.headMap(region.getKey(), false));
+            }
+            byte[] tableName = region.getKey().getTableName();
+            byte[] lowerRange = startKey;
+            for (int bucket = firstBucket + 1; bucket <= lastBucket; bucket++) {
+                byte[] upperRange = new byte[] {(byte)bucket};
+                regions.put(new HRegionInfo(tableName, lowerRange, upperRange), region.getValue());
+                lowerRange = upperRange;
+            }
+            regions.put(new HRegionInfo(tableName, lowerRange, endKey), region.getValue());
+        }
+        return regions == null ? allTableRegions : regions;
+    }
+
     /**
      * Filters out regions that intersect with key range specified by the startKey and stopKey
      * @param allTableRegions all region infos for a given table
@@ -137,6 +182,10 @@ public class DefaultParallelIteratorRegionSplitter implements ParallelIteratorRe
         // distributed across regions, using this scheme compensates for regions that
         // have more rows than others, by applying tighter splits and therefore spawning
         // off more scans over the overloaded regions.
+        //
+        // When the table has been analyzed, a region is split along the guide posts
+        // collected for it, so that each split covers roughly the same number of bytes.
+        // Otherwise, the key space of the region is divided evenly.
         int splitsPerRegion = regions.size() >= targetConcurrency ? 1 : (regions.size() > targetConcurrency / 2 ? maxConcurrency : targetConcurrency) / regions.size();
         splitsPerRegion = Math.min(splitsPerRegion, maxIntraRegionParallelization);
         // Create a multi-map of ServerName to List<KeyRange> which we'll use to round robin from to ensure
@@ -147,11 +196,19 @@ public class DefaultParallelIteratorRegionSplitter implements ParallelIteratorRe
                 keyRangesPerRegion.put(region.getValue(), ParallelIterators.TO_KEY_RANGE.apply(region));
             }
         } else {
+            TableStatistics tableStatistics = statsManager.getTableStatistics(table);
             // Maintain bucket for each server and then returns KeyRanges in round-robin
             // order to ensure all servers are utilized.
             for (Map.Entry<HRegionInfo, ServerName> region : regions) {
                 byte[] startKey = region.getKey().getStartKey();
                 byte[] stopKey = region.getKey().getEndKey();
+                if (tableStatistics != null) {
+                    List<byte[]> guidePosts = tableStatistics.getGuidePosts(startKey, stopKey);
+                    if (!guidePosts.isEmpty()) {
+                        keyRangesPerRegion.putAll(region.getValue(), splitOnGuidePosts(startKey, stopKey, guidePosts, splitsPerRegion));
+                        continue;
+                    }
+                }
                 boolean lowerUnbound = Bytes.compareTo(startKey, HConstants.EMPTY_START_ROW) == 0;
                 boolean upperUnbound = Bytes.compareTo(stopKey, HConstants.EMPTY_END_ROW) == 0;
                 /*
@@ -217,6 +274,37 @@ public class DefaultParallelIteratorRegionSplitter implements ParallelIteratorRe
         return splits;
     }
 
+    /**
+     * Split a region along its guide posts. Since each chunk between two guide posts holds
+     * about the same number of bytes, the boundaries are chosen evenly spaced among the guide
+     * posts. A region with fewer chunks than splits is split at every guide post.
+     * @param startKey the start key of the region
+     * @param stopKey the end key of the region
+     * @param guidePosts the sorted guide posts that fall within the region
+     * @param splitsPerRegion the target number of splits
+     * @return the key ranges covering the region
+     */
+    // exposed for tests
+    static List<KeyRange> splitOnGuidePosts(byte[] startKey, byte[] stopKey, List<byte[]> guidePosts, int splitsPerRegion) {
+        int nChunks = guidePosts.size() + 1;
+        int nSplits = Math.min(nChunks, splitsPerRegion);
+        List<KeyRange> keyRanges = Lists.newArrayListWithExpectedSize(nSplits);
+        byte[] lowerRange = startKey;
+        int prevChunk = 0;
+        for (int i = 1; i < nSplits; i++) {
+            // Round to the nearest chunk boundary
+            int chunk = (i * nChunks + nSplits / 2) / nSplits;
+            if (chunk > prevChunk && chunk < nChunks) {
+                byte[] upperRange = guidePosts.get(chunk - 1);
+                keyRanges.add(KeyRange.getKeyRange(lowerRange, upperRange));
+                lowerRange = upperRange;
+                prevChunk = chunk;
+            }
+        }
+        keyRanges.add(KeyRange.getKeyRange(lowerRange, stopKey));
+        return keyRanges;
+    }
+
     @Override
     public List<KeyRange> getSplits() throws SQLException {
         return genKeyRanges(getAllRegions());
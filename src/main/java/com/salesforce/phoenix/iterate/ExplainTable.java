@@ -78,15 +78,26 @@ public abstract class ExplainTable {
         return false;
     }
     
-    protected void explain(String prefix, List<String> planSteps) {
-        StringBuilder buf = new StringBuilder(prefix);
-        ScanRanges scanRanges = context.getScanRanges();
-        boolean hasSkipScanFilter = false;
-        if (scanRanges.isEverything()) {
+    /**
+     * Describe how the rows of the table are read.
+     * @return true if the scan filter starts with a skip scan filter
+     */
+    protected boolean explainScan(StringBuilder buf) {
+        if (context.isKeyRangeFromSubquery()) {
+            // The subquery wasn't run, so the number of keys it forms isn't known
+            buf.append("SKIP SCAN ON SUBQUERY KEYS ");
+            return context.getScanRanges().useSkipScanFilter();
+        }
+        if (context.getScanRanges().isEverything()) {
             buf.append("FULL SCAN ");
-        } else {
-            hasSkipScanFilter = explainSkipScan(buf);
+            return false;
         }
+        return explainSkipScan(buf);
+    }
+    
+    protected void explain(String prefix, List<String> planSteps) {
+        StringBuilder buf = new StringBuilder(prefix);
+        boolean hasSkipScanFilter = explainScan(buf);
         buf.append("OVER " + SchemaUtil.getTableDisplayName(this.table.getSchema().getName(), table.getTable().getName().getString()));
         appendKeyRanges(buf);
         planSteps.add(buf.toString());
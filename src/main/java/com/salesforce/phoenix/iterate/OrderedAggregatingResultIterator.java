@@ -36,8 +36,6 @@ import com.salesforce.phoenix.schema.tuple.Tuple;
 
 /**
  * Result scanner that sorts aggregated rows by columns specified in the ORDER BY clause.
- * <p>
- * Note that currently the sort is entirely done in memory. 
  *  
  * @author syyang
  * @since 0.1
@@ -50,6 +48,12 @@ public class OrderedAggregatingResultIterator extends OrderedResultIterator impl
         super (delegate, orderByExpressions, thresholdBytes, limit);
     }
 
+    public OrderedAggregatingResultIterator(AggregatingResultIterator delegate,
+                                List<OrderByExpression> orderByExpressions,
+                                int thresholdBytes, Integer limit, int mergeFanIn) throws SQLException {
+        super (delegate, orderByExpressions, thresholdBytes, limit, 0, mergeFanIn);
+    }
+
     @Override
     protected AggregatingResultIterator getDelegate() {
         return (AggregatingResultIterator)super.getDelegate();
@@ -28,77 +28,158 @@
 package com.salesforce.phoenix.iterate;
 
 import static com.google.common.base.Preconditions.checkArgument;
-import static com.google.common.base.Preconditions.checkPositionIndex;
 
 import java.io.IOException;
 import java.sql.SQLException;
-import java.util.Comparator;
-import java.util.List;
+import java.util.*;
 
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
 
-import com.google.common.base.Function;
-import com.google.common.collect.Collections2;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Ordering;
 import com.salesforce.phoenix.expression.Expression;
 import com.salesforce.phoenix.expression.OrderByExpression;
+import com.salesforce.phoenix.query.QueryServicesOptions;
 import com.salesforce.phoenix.schema.tuple.Tuple;
 import com.salesforce.phoenix.util.SizedUtil;
 
 /**
  * Result scanner that sorts aggregated rows by columns specified in the ORDER BY clause.
  * <p>
- * Note that currently the sort is entirely done in memory. 
+ * The values of the ORDER BY expressions of a row are encoded into a single normalized
+ * sort key, such that comparing the sort keys of two rows byte by byte orders them as
+ * specified by the ORDER BY clause, including the direction and the position of nulls.
+ * <p>
+ * Once the rows held in memory reach <code>thresholdBytes</code>, they are spilled to disk
+ * and merged back through a {@link SpillingSortedQueue}.
  *  
  * @author syyang, jtaylor
  * @since 0.1
  */
 public class OrderedResultIterator implements ResultIterator {
 
-    /** A container that holds pointers to a {@link Result} and its sort keys. */
+    /** A container that holds pointers to a {@link Result} and its normalized sort key. */
     protected static class ResultEntry {
-        protected final ImmutableBytesWritable[] sortKeys;
+        protected final byte[] sortKey;
+        protected final long sortKeyPrefix;
         protected final Tuple result;
 
-        ResultEntry(ImmutableBytesWritable[] sortKeys, Tuple result) {
-            this.sortKeys = sortKeys;
+        ResultEntry(byte[] sortKey, Tuple result) {
+            this.sortKey = sortKey;
+            this.sortKeyPrefix = getPrefix(sortKey);
             this.result = result;
         }
         
-        ImmutableBytesWritable getSortKey(int index) {
-            checkPositionIndex(index, sortKeys.length);
-            return sortKeys[index];
+        byte[] getSortKey() {
+            return sortKey;
         }
         
         Tuple getResult() {
             return result;
         }
+        
+        /**
+         * @return the first eight bytes of the sort key as a long, padded with zero bytes.
+         * Comparing the prefixes as unsigned longs gives the same order as comparing the
+         * first eight bytes of the sort keys.
+         */
+        private static long getPrefix(byte[] sortKey) {
+            long prefix = 0;
+            for (int i = 0; i < Bytes.SIZEOF_LONG; i++) {
+                prefix <<= 8;
+                if (i < sortKey.length) {
+                    prefix |= sortKey[i] & 0xFF;
+                }
+            }
+            return prefix;
+        }
     }
     
-    /** A function that returns Nth key for a given {@link ResultEntry}. */
-    private static class NthKey implements Function<ResultEntry, ImmutableBytesWritable> {
-        private final int index;
+    /**
+     * Orders {@link ResultEntry} by their sort key, using the cached prefix of the
+     * sort key to avoid comparing the whole sort key for most rows.
+     */
+    static final Comparator<ResultEntry> SORT_KEY_COMPARATOR = new Comparator<ResultEntry>() {
+        @Override
+        public int compare(ResultEntry o1, ResultEntry o2) {
+            if (o1.sortKeyPrefix != o2.sortKeyPrefix) {
+                // Unsigned comparison
+                return (o1.sortKeyPrefix ^ Long.MIN_VALUE) < (o2.sortKeyPrefix ^ Long.MIN_VALUE) ? -1 : 1;
+            }
+            return Bytes.compareTo(o1.sortKey, o2.sortKey);
+        }
+    };
 
-        NthKey(int index) {
-            this.index = index;
+    /**
+     * Encodes the values of the ORDER BY expressions of a row into a normalized sort key.
+     * Each value is preceded by a byte that places nulls first or last. A non null value
+     * has its zero bytes escaped and is followed by a two byte terminator, so that a value
+     * that is a prefix of another sorts first. For a descending sort, the bits of the value
+     * and its terminator are flipped, as is done for {@link com.salesforce.phoenix.schema.ColumnModifier#SORT_DESC}.
+     * The buffer is reused across rows, so that a single array is allocated per row.
+     */
+    static class SortKeyBuilder {
+        private static final byte NULL_FIRST = 0x00;
+        private static final byte NOT_NULL = 0x01;
+        private static final byte NULL_LAST = 0x02;
+        private static final byte ESCAPE = 0x00;
+        private static final byte ESCAPED_ZERO = (byte)0xFF;
+        private static final byte TERMINATOR = 0x00;
+        
+        private byte[] buf = new byte[64];
+        private int length;
+        
+        void reset() {
+            length = 0;
         }
-        @Override
-        public ImmutableBytesWritable apply(ResultEntry entry) {
-            return entry.getSortKey(index);
+        
+        /**
+         * Append the value of an ORDER BY expression
+         * @param value the value or null if the expression evaluated to null
+         * @param isAscending true if sorting in ascending order and false otherwise
+         * @param isNullsLast true if nulls sort after any value and false otherwise
+         */
+        void append(ImmutableBytesWritable value, boolean isAscending, boolean isNullsLast) {
+            if (value == null) {
+                ensureCapacity(1);
+                buf[length++] = isNullsLast ? NULL_LAST : NULL_FIRST;
+                return;
+            }
+            byte[] b = value.get();
+            int offset = value.getOffset();
+            int end = offset + value.getLength();
+            // Worst case is when every byte needs to be escaped
+            ensureCapacity(1 + 2 * value.getLength() + 2);
+            buf[length++] = NOT_NULL;
+            byte flip = isAscending ? 0 : (byte)0xFF;
+            for (int i = offset; i < end; i++) {
+                if (b[i] == 0) {
+                    buf[length++] = (byte)(ESCAPE ^ flip);
+                    buf[length++] = (byte)(ESCAPED_ZERO ^ flip);
+                } else {
+                    buf[length++] = (byte)(b[i] ^ flip);
+                }
+            }
+            buf[length++] = (byte)(TERMINATOR ^ flip);
+            buf[length++] = (byte)(TERMINATOR ^ flip);
+        }
+        
+        byte[] toSortKey() {
+            return Arrays.copyOf(buf, length);
+        }
+        
+        private void ensureCapacity(int size) {
+            if (length + size > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, length + size));
+            }
         }
     }
 
-    /** Returns the expression of a given {@link OrderByExpression}. */
-    private static final Function<OrderByExpression, Expression> TO_EXPRESSION = new Function<OrderByExpression, Expression>() {
-        @Override
-        public Expression apply(OrderByExpression column) {
-            return column.getExpression();
-        }
-    };
+    // Used for the memory estimate of a sort key of variable width
+    private static final int ESTIMATED_VARIABLE_WIDTH_SORT_KEY_SIZE = 16;
 
     private final int thresholdBytes;
+    private final int mergeFanIn;
     private final Integer limit;
     private final ResultIterator delegate;
     private final List<OrderByExpression> orderByExpressions;
@@ -124,16 +205,28 @@ public class OrderedResultIterator implements ResultIterator {
 
     public OrderedResultIterator(ResultIterator delegate, List<OrderByExpression> orderByExpressions, 
             int thresholdBytes, Integer limit, int estimatedRowSize) {
+        this(delegate, orderByExpressions, thresholdBytes, limit, estimatedRowSize, QueryServicesOptions.DEFAULT_SORT_MERGE_FAN_IN);
+    }
+
+    public OrderedResultIterator(ResultIterator delegate, List<OrderByExpression> orderByExpressions, 
+            int thresholdBytes, Integer limit, int estimatedRowSize, int mergeFanIn) {
         checkArgument(!orderByExpressions.isEmpty());
         this.delegate = delegate;
         this.orderByExpressions = orderByExpressions;
         this.thresholdBytes = thresholdBytes;
+        this.mergeFanIn = mergeFanIn;
         this.limit = limit;
+        long estimatedSortKeySize = 0;
+        for (OrderByExpression orderByExpression : orderByExpressions) {
+            Integer byteSize = orderByExpression.getExpression().getByteSize();
+            // null marker and terminator
+            estimatedSortKeySize += 3 + (byteSize == null ? ESTIMATED_VARIABLE_WIDTH_SORT_KEY_SIZE : byteSize);
+        }
         long estimatedEntrySize =
             // ResultEntry
-            SizedUtil.OBJECT_SIZE + 
-            // ImmutableBytesWritable[]
-            SizedUtil.ARRAY_SIZE + orderByExpressions.size() * SizedUtil.IMMUTABLE_BYTES_WRITABLE_SIZE +
+            SizedUtil.OBJECT_SIZE + SizedUtil.LONG_SIZE +
+            // byte[]
+            SizedUtil.ARRAY_SIZE + estimatedSortKeySize +
             // Tuple
             SizedUtil.OBJECT_SIZE + estimatedRowSize;
 
@@ -154,26 +247,6 @@ public class OrderedResultIterator implements ResultIterator {
     public long getByteSize() {
         return byteSize;
     }
-    /**
-     * Builds a comparator from the list of columns in ORDER BY clause.
-     * @param orderByExpressions the columns in ORDER BY clause.
-     * @return the comparator built from the list of columns in ORDER BY clause.
-     */
-    // ImmutableBytesWritable.Comparator doesn't implement generics
-    @SuppressWarnings("unchecked")
-    private static Comparator<ResultEntry> buildComparator(List<OrderByExpression> orderByExpressions) {
-        Ordering<ResultEntry> ordering = null;
-        int pos = 0;
-        for (OrderByExpression col : orderByExpressions) {
-            Ordering<ImmutableBytesWritable> o = Ordering.from(new ImmutableBytesWritable.Comparator());
-            if(!col.isAscending()) o = o.reverse();
-            o = col.isNullsLast() ? o.nullsLast() : o.nullsFirst();
-            Ordering<ResultEntry> entryOrdering = o.onResultOf(new NthKey(pos++));
-            ordering = ordering == null ? entryOrdering : ordering.compound(entryOrdering);
-        }
-        return ordering;
-    }
-
     @Override
     public Tuple next() throws SQLException {
         return getResultIterator().next();
@@ -184,11 +257,18 @@ public class OrderedResultIterator implements ResultIterator {
             return resultIterator;
         }
         
-        final int numSortKeys = orderByExpressions.size();
-        List<Expression> expressions = Lists.newArrayList(Collections2.transform(orderByExpressions, TO_EXPRESSION));
-        final Comparator<ResultEntry> comparator = buildComparator(orderByExpressions);
+        int numSortKeys = orderByExpressions.size();
+        Expression[] expressions = new Expression[numSortKeys];
+        boolean[] isAscending = new boolean[numSortKeys];
+        boolean[] isNullsLast = new boolean[numSortKeys];
+        for (int i = 0; i < numSortKeys; i++) {
+            OrderByExpression orderByExpression = orderByExpressions.get(i);
+            expressions[i] = orderByExpression.getExpression();
+            isAscending[i] = orderByExpression.isAscending();
+            isNullsLast[i] = orderByExpression.isNullsLast();
+        }
         try{
-            final MappedByteBufferSortedQueue queueEntries = new MappedByteBufferSortedQueue(comparator, limit, thresholdBytes);
+            final SpillingSortedQueue queueEntries = new SpillingSortedQueue(SORT_KEY_COMPARATOR, limit, thresholdBytes, mergeFanIn);
             resultIterator = new BaseResultIterator() {
                 int count = 0;
                 @Override
@@ -206,16 +286,16 @@ public class OrderedResultIterator implements ResultIterator {
                     queueEntries.close();
                 }
             };
+            SortKeyBuilder sortKeyBuilder = new SortKeyBuilder();
+            ImmutableBytesWritable ptr = new ImmutableBytesWritable();
             for (Tuple result = delegate.next(); result != null; result = delegate.next()) {
-                int pos = 0;
-                ImmutableBytesWritable[] sortKeys = new ImmutableBytesWritable[numSortKeys];
-                for (Expression expression : expressions) {
-                    final ImmutableBytesWritable sortKey = new ImmutableBytesWritable();
-                    boolean evaluated = expression.evaluate(result, sortKey);
-                    // set the sort key that failed to get evaluated with null
-                    sortKeys[pos++] = evaluated && sortKey.getLength() > 0 ? sortKey : null;
+                sortKeyBuilder.reset();
+                for (int i = 0; i < numSortKeys; i++) {
+                    boolean evaluated = expressions[i].evaluate(result, ptr);
+                    // treat the sort key that failed to get evaluated as null
+                    sortKeyBuilder.append(evaluated && ptr.getLength() > 0 ? ptr : null, isAscending[i], isNullsLast[i]);
                 }
-                queueEntries.add(new ResultEntry(sortKeys, result));
+                queueEntries.add(new ResultEntry(sortKeyBuilder.toSortKey(), result));
             }
             this.byteSize = queueEntries.getByteSize();
         } catch (IOException e) {
@@ -36,12 +36,15 @@ import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.filter.PageFilter;
 import org.apache.hadoop.hbase.util.Bytes;
-import org.apache.hadoop.hbase.util.Pair;
 
 import com.google.common.base.Function;
 import com.salesforce.phoenix.compile.GroupByCompiler.GroupBy;
 import com.salesforce.phoenix.compile.StatementContext;
+import com.salesforce.phoenix.coprocessor.ScanRegionObserver;
+import com.salesforce.phoenix.iterate.ScanWorkScheduler.WorkUnit;
+import com.salesforce.phoenix.iterate.ScanWorkScheduler.WorkUnitResultIterator;
 import com.salesforce.phoenix.job.JobManager.JobCallable;
+import com.salesforce.phoenix.job.JobPriority;
 import com.salesforce.phoenix.query.*;
 import com.salesforce.phoenix.schema.TableRef;
 import com.salesforce.phoenix.util.*;
@@ -62,6 +65,7 @@ public class ParallelIterators extends ExplainTable implements ResultIterators {
 	private static final Logger logger = LoggerFactory.getLogger(ParallelIterators.class);
     private final List<KeyRange> splits;
     private final ParallelIteratorFactory iteratorFactory;
+    private final Integer limit;
     
     public static interface ParallelIteratorFactory {
         PeekingResultIterator newIterator(ResultIterator scanner) throws SQLException;
@@ -80,6 +84,7 @@ public class ParallelIterators extends ExplainTable implements ResultIterators {
         super(context, table, groupBy);
         this.splits = getSplits(context, table);
         this.iteratorFactory = iteratorFactory;
+        this.limit = limit;
         if (limit != null) {
             ScanUtil.andFilterAtEnd(context.getScan(), new PageFilter(limit));
         }
@@ -101,73 +106,97 @@ public class ParallelIterators extends ExplainTable implements ResultIterators {
 
     /**
      * Executes the scan in parallel across all regions, blocking until all scans are complete.
+     * A fixed number of workers scan the splits and, when the rows are returned in row key order,
+     * steal the tail of the slowest scans once no split is left.
      * @return the result iterators for the scan of each region
      */
     @Override
     public List<PeekingResultIterator> getIterators() throws SQLException {
+        return getIterators(splits);
+    }
+
+    /**
+     * Executes the scan in parallel across the given subset of the splits, blocking until
+     * all of their scans are complete.
+     * @param splits the splits to scan, a subset of {@link #getSplits()}
+     * @return the result iterators for the scan of each split
+     */
+    public List<PeekingResultIterator> getIterators(List<KeyRange> splits) throws SQLException {
         boolean success = false;
         final ConnectionQueryServices services = context.getConnection().getQueryServices();
         ReadOnlyProps props = services.getProps();
         try {
-            int numSplits = splits.size();
-            List<PeekingResultIterator> iterators = new ArrayList<PeekingResultIterator>(numSplits);
-            List<Pair<byte[],Future<PeekingResultIterator>>> futures = new ArrayList<Pair<byte[],Future<PeekingResultIterator>>>(numSplits);
+            Scan scan = context.getScan();
+            boolean workStealing = limit == null && ScanRegionObserver.isRowKeyOrdered(scan) &&
+                    props.getBoolean(QueryServices.WORK_STEALING_ATTRIB, QueryServicesOptions.DEFAULT_WORK_STEALING);
+            int maxServerConcurrency = props.getInt(QueryServices.MAX_SERVER_QUERY_CONCURRENCY_ATTRIB, QueryServicesOptions.DEFAULT_MAX_SERVER_QUERY_CONCURRENCY);
+            int maxConcurrency = props.getInt(QueryServices.MAX_QUERY_CONCURRENCY_ATTRIB, QueryServicesOptions.DEFAULT_MAX_QUERY_CONCURRENCY);
+            final ScanWorkScheduler scheduler = new ScanWorkScheduler(scan, context.getScanRanges().useSkipScanFilter(),
+                    maxServerConcurrency, Math.max(maxConcurrency, splits.size()), workStealing,
+                    workStealing ? services.getStatsManager().getMaxKey(table) : null);
+            NavigableMap<byte[],ServerName> serversByStartKey = getServersByStartKey(services.getAllTableRegions(table));
+            int numWorkers = 0;
+            for (KeyRange split : splits) {
+                Map.Entry<byte[],ServerName> entry = serversByStartKey.floorEntry(split.getLowerRange());
+                if (scheduler.addSplit(split, entry == null ? null : entry.getValue())) {
+                    numWorkers++;
+                }
+            }
+            List<Future<Void>> futures = new ArrayList<Future<Void>>(numWorkers);
             final UUID scanId = UUID.randomUUID();
+            final JobPriority priority = context.getPriority();
             try {
                 ExecutorService executor = services.getExecutor();
-                for (final KeyRange split : splits) {
-                    final Scan splitScan = new Scan(this.context.getScan());
-                    // Intersect with existing start/stop key
-                    if (ScanUtil.intersectScanRange(splitScan, split.getLowerRange(), split.getUpperRange(), this.context.getScanRanges().useSkipScanFilter())) {
-                        Future<PeekingResultIterator> future =
-                            executor.submit(new JobCallable<PeekingResultIterator>() {
-    
-                            @Override
-                            public PeekingResultIterator call() throws Exception {
+                for (int i = 0; i < numWorkers; i++) {
+                    futures.add(executor.submit(new JobCallable<Void>() {
+
+                        @Override
+                        public Void call() throws Exception {
+                            WorkUnit unit = null;
+                            while ((unit = scheduler.next(unit)) != null) {
                                 // TODO: different HTableInterfaces for each thread or the same is better?
-                            	long startTime = System.currentTimeMillis();
-                                ResultIterator scanner = new TableResultIterator(context, table, splitScan);
+                                long startTime = System.currentTimeMillis();
+                                ResultIterator scanner = new TableResultIterator(context, table, unit.getScan());
+                                PeekingResultIterator iterator = iteratorFactory.newIterator(new WorkUnitResultIterator(scanner, unit));
                                 if (logger.isDebugEnabled()) {
-                                	logger.debug("Id: " + scanId + ", Time: " + (System.currentTimeMillis() - startTime) + "ms, Scan: " + split);
+                                    logger.debug("Id: " + scanId + ", Time: " + (System.currentTimeMillis() - startTime) + "ms, Scan: " + Bytes.toStringBinary(unit.getLowerRange()));
                                 }
-                                return iteratorFactory.newIterator(scanner);
+                                scheduler.addResult(unit, iterator);
                             }
-    
-                            /**
-                             * Defines the grouping for round robin behavior.  All threads spawned to process
-                             * this scan will be grouped together and time sliced with other simultaneously
-                             * executing parallel scans.
-                             */
-                            @Override
-                            public Object getJobId() {
-                                return ParallelIterators.this;
-                            }
-                        });
-                        futures.add(new Pair<byte[],Future<PeekingResultIterator>>(split.getLowerRange(),future));
-                    }
+                            return null;
+                        }
+
+                        /**
+                         * Defines the grouping for round robin behavior.  All threads spawned to process
+                         * this scan will be grouped together and time sliced with other simultaneously
+                         * executing parallel scans.
+                         */
+                        @Override
+                        public Object getJobId() {
+                            return ParallelIterators.this;
+                        }
+
+                        @Override
+                        public JobPriority getPriority() {
+                            return priority;
+                        }
+                    }));
                 }
 
                 int timeoutMs = props.getInt(QueryServices.THREAD_TIMEOUT_MS_ATTRIB, DEFAULT_THREAD_TIMEOUT_MS);
-                // Sort futures by row key so that we have a predicatble order we're getting rows back for scans.
-                // We're going to wait here until they're finished anyway and this makes testing much easier.
-                Collections.sort(futures, new Comparator<Pair<byte[],Future<PeekingResultIterator>>>() {
-                    @Override
-                    public int compare(Pair<byte[], Future<PeekingResultIterator>> o1, Pair<byte[], Future<PeekingResultIterator>> o2) {
-                        return Bytes.compareTo(o1.getFirst(), o2.getFirst());
-                    }
-                });
-                for (Pair<byte[],Future<PeekingResultIterator>> future : futures) {
-                    iterators.add(future.getSecond().get(timeoutMs, TimeUnit.MILLISECONDS));
+                // We're going to wait here until all workers are finished
+                for (Future<Void> future : futures) {
+                    future.get(timeoutMs, TimeUnit.MILLISECONDS);
                 }
 
                 success = true;
-                return iterators;
+                return scheduler.getResults();
             } finally {
                 if (!success) {
-                    for (Pair<byte[],Future<PeekingResultIterator>> future : futures) {
-                        future.getSecond().cancel(true);
+                    for (Future<Void> future : futures) {
+                        future.cancel(true);
                     }
-                    SQLCloseables.closeAllQuietly(iterators);
+                    scheduler.close();
                 }
             }
         } catch (Exception e) {
@@ -175,6 +204,14 @@ public class ParallelIterators extends ExplainTable implements ResultIterators {
         }
     }
 
+    private static NavigableMap<byte[],ServerName> getServersByStartKey(NavigableMap<HRegionInfo, ServerName> regions) {
+        NavigableMap<byte[],ServerName> serversByStartKey = new TreeMap<byte[],ServerName>(Bytes.BYTES_COMPARATOR);
+        for (Map.Entry<HRegionInfo, ServerName> region : regions.entrySet()) {
+            serversByStartKey.put(region.getKey().getStartKey(), region.getValue());
+        }
+        return serversByStartKey;
+    }
+
     @Override
     public int size() {
         return this.splits.size();
@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.iterate;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.*;
+
+import org.apache.hadoop.hbase.client.*;
+import org.apache.hadoop.hbase.io.TimeRange;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.google.common.collect.Lists;
+import com.salesforce.phoenix.compile.ScanRanges;
+import com.salesforce.phoenix.compile.StatementContext;
+import com.salesforce.phoenix.schema.SaltingUtil;
+import com.salesforce.phoenix.schema.TableRef;
+import com.salesforce.phoenix.schema.tuple.ResultTuple;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+import com.salesforce.phoenix.util.ServerUtil;
+
+
+/**
+ *
+ * Result iterator that reads rows whose full row keys are known through batches
+ * of gets, which the HBase client groups into a multi-get per region server.
+ * This avoids opening a scanner per region for a handful of keys. The column
+ * projection, filter and time range of the scan are applied to every get, so the
+ * same rows are returned, in row key order, as a scan would return. The next batch
+ * is only fetched once the rows of the previous one have been consumed, so that,
+ * like a scanner caching rows, no more than batchSize rows are held at a time.
+ *
+ * @since 2.0
+ */
+public class PointLookupResultIterator extends ExplainTable implements ResultIterator {
+    private final int batchSize;
+    private List<byte[]> keys;
+    private int keyIndex;
+    private Result[] results;
+    private int index;
+
+    private static final Comparator<byte[]> SALTED_KEY_COMPARATOR = new Comparator<byte[]>() {
+        @Override
+        public int compare(byte[] key1, byte[] key2) {
+            return Bytes.compareTo(key1, SaltingUtil.NUM_SALTING_BYTES, key1.length - SaltingUtil.NUM_SALTING_BYTES,
+                    key2, SaltingUtil.NUM_SALTING_BYTES, key2.length - SaltingUtil.NUM_SALTING_BYTES);
+        }
+    };
+
+    public PointLookupResultIterator(StatementContext context, TableRef table, int batchSize) {
+        super(context, table);
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * @param context the context of a compiled query
+     * @param maxKeys the maximum number of rows that may be looked up
+     * @return true if the rows read by the query may be looked up directly
+     */
+    public static boolean isPointLookup(StatementContext context, int maxKeys) {
+        ScanRanges scanRanges = context.getScanRanges();
+        return !scanRanges.isEverything() && !scanRanges.isDegenerate() && scanRanges.isPointLookup() && scanRanges.getPointLookupCount() <= maxKeys;
+    }
+    
+    private static Get newGet(Scan scan, byte[] key) throws IOException {
+        Get get = new Get(key);
+        for (Map.Entry<byte[],NavigableSet<byte[]>> entry : scan.getFamilyMap().entrySet()) {
+            if (entry.getValue() == null) {
+                get.addFamily(entry.getKey());
+            } else {
+                for (byte[] qualifier : entry.getValue()) {
+                    get.addColumn(entry.getKey(), qualifier);
+                }
+            }
+        }
+        TimeRange timeRange = scan.getTimeRange();
+        get.setTimeRange(timeRange.getMin(), timeRange.getMax());
+        get.setMaxVersions(scan.getMaxVersions());
+        get.setCacheBlocks(scan.getCacheBlocks());
+        get.setFilter(scan.getFilter());
+        for (Map.Entry<String,byte[]> entry : scan.getAttributesMap().entrySet()) {
+            get.setAttribute(entry.getKey(), entry.getValue());
+        }
+        return get;
+    }
+    
+    private void init() {
+        keys = context.getScanRanges().getPointKeys();
+        if (table.getTable().getBucketNum() != null) {
+            // Return the rows of a salted table in the order of their keys without the salt byte,
+            // as a merge sort of the buckets would
+            Collections.sort(keys, SALTED_KEY_COMPARATOR);
+        }
+        results = new Result[0];
+    }
+    
+    private void lookup() throws SQLException {
+        Scan scan = context.getScan();
+        int endIndex = Math.min(keys.size(), keyIndex + Math.max(1, batchSize));
+        HTableInterface htable = context.getConnection().getQueryServices().getTable(table.getTableName());
+        try {
+            List<Get> gets = Lists.newArrayListWithExpectedSize(endIndex - keyIndex);
+            for (byte[] key : keys.subList(keyIndex, endIndex)) {
+                gets.add(newGet(scan, key));
+            }
+            results = htable.get(gets);
+            index = 0;
+            keyIndex = endIndex;
+        } catch (IOException e) {
+            throw ServerUtil.parseServerException(e);
+        } finally {
+            try {
+                htable.close();
+            } catch (IOException e) {
+                throw ServerUtil.parseServerException(e);
+            }
+        }
+    }
+
+    @Override
+    public Tuple next() throws SQLException {
+        if (keys == null) {
+            init();
+        }
+        while (true) {
+            while (index < results.length) {
+                Result result = results[index];
+                // Release each row once returned
+                results[index++] = null;
+                if (result != null && !result.isEmpty()) {
+                    return new ResultTuple(result);
+                }
+            }
+            if (keyIndex >= keys.size()) {
+                return null;
+            }
+            lookup();
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        keys = Collections.emptyList();
+        keyIndex = 0;
+        results = new Result[0];
+        index = 0;
+    }
+
+    @Override
+    protected boolean explainScan(StringBuilder buf) {
+        ScanRanges scanRanges = context.getScanRanges();
+        int count = scanRanges.getPointLookupCount();
+        buf.append("POINT LOOKUP ON ");
+        buf.append(count);
+        buf.append(count > 1 ? " KEYS " : " KEY ");
+        // The gets carry the same filter as the scan would have
+        return scanRanges.useSkipScanFilter();
+    }
+
+    @Override
+    public void explain(List<String> planSteps) {
+        explain("CLIENT ", planSteps);
+    }
+}
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.iterate;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.google.common.collect.Lists;
+
+import com.salesforce.phoenix.query.KeyRange;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+
+
+/**
+ * 
+ * Result iterator that concatenates the results of a limited, unordered scan while
+ * scanning its splits in waves, in row key order. Since rows are pulled through
+ * the iterator, a new wave is only started once every earlier one has been consumed
+ * without reaching the limit. The first wave is small and each one after it is
+ * twice as large as the previous one, so that a limit satisfied by the first few
+ * regions doesn't cause every region of the table to be scanned.
+ *
+ * @since 2.0
+ */
+public class ProgressiveResultIterator implements PeekingResultIterator {
+    private static final Comparator<KeyRange> LOWER_RANGE_COMPARATOR = new Comparator<KeyRange>() {
+        @Override
+        public int compare(KeyRange o1, KeyRange o2) {
+            return Bytes.compareTo(o1.getLowerRange(), o2.getLowerRange());
+        }
+    };
+    private final ParallelIterators parallelIterators;
+    private final List<KeyRange> splits;
+    private int waveSize;
+    private int nextSplit;
+    private List<PeekingResultIterator> iterators = Collections.emptyList();
+    private int index;
+    
+    public ProgressiveResultIterator(ParallelIterators parallelIterators, int initialWaveSize) {
+        this.parallelIterators = parallelIterators;
+        // The splits are grouped by region server, so put them back in row key order to form the waves
+        this.splits = Lists.newArrayList(parallelIterators.getSplits());
+        Collections.sort(this.splits, LOWER_RANGE_COMPARATOR);
+        this.waveSize = Math.max(1, initialWaveSize);
+    }
+    
+    @Override
+    public void close() throws SQLException {
+        for (;index < iterators.size(); index++) {
+            PeekingResultIterator iterator = iterators.get(index);
+            iterator.close();
+        }
+        // Don't start any more waves
+        nextSplit = splits.size();
+    }
+
+    @Override
+    public void explain(List<String> planSteps) {
+        parallelIterators.explain(planSteps);
+    }
+
+    private PeekingResultIterator currentIterator() throws SQLException {
+        while (true) {
+            while (index < iterators.size()) {
+                PeekingResultIterator iterator = iterators.get(index);
+                Tuple r = iterator.peek();
+                if (r != null) {
+                    return iterator;
+                }
+                iterator.close();
+                index++;
+            }
+            if (nextSplit >= splits.size()) {
+                return EMPTY_ITERATOR;
+            }
+            int endSplit = Math.min(splits.size(), nextSplit + waveSize);
+            iterators = parallelIterators.getIterators(splits.subList(nextSplit, endSplit));
+            index = 0;
+            nextSplit = endSplit;
+            waveSize = Math.min(splits.size(), waveSize * 2);
+        }
+    }
+    
+    @Override
+    public Tuple peek() throws SQLException {
+        return currentIterator().peek();
+    }
+
+    @Override
+    public Tuple next() throws SQLException {
+        return currentIterator().next();
+    }
+
+}
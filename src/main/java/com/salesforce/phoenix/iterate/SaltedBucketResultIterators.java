@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.iterate;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+
+import com.google.common.collect.Lists;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+
+
+/**
+ * 
+ * ResultIterators for a salted table that concatenates the iterators over the
+ * same salt bucket. Since the splits never cross a bucket boundary and the
+ * iterators are returned in the order of their key range, the iterators of each
+ * bucket are adjacent and concatenating them keeps the bucket in row key order.
+ * A merge sort over the result then only needs to compare one row per bucket
+ * instead of one row per split, and no comparison at all if the scan touches a
+ * single bucket.
+ *
+ * @since 2.0
+ */
+public class SaltedBucketResultIterators implements ResultIterators {
+    private final ResultIterators iterators;
+    
+    public SaltedBucketResultIterators(ResultIterators iterators) {
+        this.iterators = iterators;
+    }
+
+    @Override
+    public List<PeekingResultIterator> getIterators() throws SQLException {
+        List<PeekingResultIterator> splitIterators = iterators.getIterators();
+        List<PeekingResultIterator> bucketIterators = Lists.newArrayListWithExpectedSize(splitIterators.size());
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        List<PeekingResultIterator> bucket = null;
+        int prevSaltByte = -1;
+        for (PeekingResultIterator iterator : splitIterators) {
+            Tuple tuple = iterator.peek();
+            if (tuple == null) {
+                iterator.close();
+                continue;
+            }
+            tuple.getKey(ptr);
+            int saltByte = ptr.get()[ptr.getOffset()] & 0xff;
+            if (saltByte != prevSaltByte) {
+                addBucket(bucketIterators, bucket);
+                bucket = Lists.newArrayListWithExpectedSize(1);
+                prevSaltByte = saltByte;
+            }
+            bucket.add(iterator);
+        }
+        addBucket(bucketIterators, bucket);
+        return bucketIterators;
+    }
+    
+    private static void addBucket(List<PeekingResultIterator> bucketIterators, final List<PeekingResultIterator> bucket) {
+        if (bucket == null) {
+            return;
+        }
+        if (bucket.size() == 1) {
+            bucketIterators.add(bucket.get(0));
+            return;
+        }
+        bucketIterators.add(new ConcatResultIterator(new ResultIterators() {
+
+            @Override
+            public List<PeekingResultIterator> getIterators() {
+                return bucket;
+            }
+
+            @Override
+            public int size() {
+                return bucket.size();
+            }
+
+            @Override
+            public void explain(List<String> planSteps) {
+            }
+            
+        }));
+    }
+
+    @Override
+    public int size() {
+        return iterators.size();
+    }
+
+    @Override
+    public void explain(List<String> planSteps) {
+        iterators.explain(planSteps);
+    }
+}
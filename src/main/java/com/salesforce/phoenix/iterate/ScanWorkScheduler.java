@@ -0,0 +1,306 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.iterate;
+
+import java.sql.SQLException;
+import java.util.*;
+
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.salesforce.phoenix.query.KeyRange;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+import com.salesforce.phoenix.util.*;
+
+
+/**
+ * Hands out the scans of {@link ParallelIterators} to its worker threads. The splits
+ * are handed out first, with no more than <code>maxServerConcurrency</code> of them
+ * running at the same time against a region server. Once no split is left to be
+ * handed out, an idle worker steals the unscanned tail of the longest running scan:
+ * the stop row of that scan is narrowed to the middle of its remaining key range and
+ * the worker scans from there up to the original stop row. Stealing requires the rows
+ * of a scan to be returned in row key order, so it must only be enabled for non
+ * aggregate scans that are not ordered on the server side.
+ *
+ * @since 2.0
+ */
+class ScanWorkScheduler {
+    private final Scan scan;
+    private final boolean useSkipScanFilter;
+    private final int maxServerConcurrency;
+    private final int maxWorkUnits;
+    private final boolean workStealing;
+    private final byte[] maxKey;
+    private final LinkedList<WorkUnit> pending = Lists.newLinkedList();
+    // In the order in which they were started, so that the first is the longest running
+    private final List<WorkUnit> running = Lists.newArrayList();
+    private final Map<ServerName,Integer> serverConcurrency = Maps.newHashMap();
+    private final List<Pair<byte[],PeekingResultIterator>> results = Lists.newArrayList();
+    private int workUnitCount;
+    private boolean closed;
+
+    /**
+     * @param scan the scan of the query
+     * @param useSkipScanFilter whether the scan uses a skip scan filter
+     * @param maxServerConcurrency the maximum number of scans running against a region server
+     * @param maxWorkUnits the maximum number of scans, including the stolen ones
+     * @param workStealing whether or not idle workers may steal from running scans
+     * @param maxKey the maximum key of the table, used to split a scan without a stop row,
+     * or null if unknown
+     */
+    ScanWorkScheduler(Scan scan, boolean useSkipScanFilter, int maxServerConcurrency, int maxWorkUnits, boolean workStealing, byte[] maxKey) {
+        this.scan = scan;
+        this.useSkipScanFilter = useSkipScanFilter;
+        this.maxServerConcurrency = maxServerConcurrency;
+        this.maxWorkUnits = maxWorkUnits;
+        this.workStealing = workStealing;
+        this.maxKey = maxKey;
+    }
+
+    /**
+     * Add a split to be scanned.
+     * @param split the key range of the split
+     * @param server the region server hosting the split
+     * @return true if the split intersects the scan and false otherwise
+     */
+    synchronized boolean addSplit(KeyRange split, ServerName server) {
+        Scan splitScan = new Scan(scan);
+        // Intersect with existing start/stop key
+        if (!ScanUtil.intersectScanRange(splitScan, split.getLowerRange(), split.getUpperRange(), useSkipScanFilter)) {
+            return false;
+        }
+        pending.add(new WorkUnit(split.getLowerRange(), splitScan, server));
+        workUnitCount++;
+        return true;
+    }
+
+    /**
+     * Get the next scan to run.
+     * @param completed the scan the worker has just completed or null if none
+     * @return the next scan or null if there is nothing left for the worker to do
+     */
+    synchronized WorkUnit next(WorkUnit completed) {
+        if (completed != null) {
+            running.remove(completed);
+            Integer count = serverConcurrency.get(completed.getServer());
+            serverConcurrency.put(completed.getServer(), count - 1);
+        }
+        if (closed) {
+            return null;
+        }
+        for (Iterator<WorkUnit> iterator = pending.iterator(); iterator.hasNext();) {
+            WorkUnit unit = iterator.next();
+            if (hasCapacity(unit.getServer())) {
+                iterator.remove();
+                return start(unit);
+            }
+        }
+        if (workStealing && workUnitCount < maxWorkUnits) {
+            for (WorkUnit victim : running) {
+                if (hasCapacity(victim.getServer())) {
+                    WorkUnit stolen = victim.steal(scan, useSkipScanFilter, maxKey);
+                    if (stolen != null) {
+                        workUnitCount++;
+                        return start(stolen);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean hasCapacity(ServerName server) {
+        Integer count = serverConcurrency.get(server);
+        return count == null || count < maxServerConcurrency;
+    }
+
+    private WorkUnit start(WorkUnit unit) {
+        Integer count = serverConcurrency.get(unit.getServer());
+        serverConcurrency.put(unit.getServer(), count == null ? 1 : count + 1);
+        running.add(unit);
+        return unit;
+    }
+
+    /**
+     * Add the iterator over the results of a scan.
+     */
+    synchronized void addResult(WorkUnit unit, PeekingResultIterator iterator) throws SQLException {
+        if (closed) {
+            iterator.close();
+        } else {
+            results.add(new Pair<byte[],PeekingResultIterator>(unit.getLowerRange(), iterator));
+        }
+    }
+
+    /**
+     * @return the iterators over the results of each scan, ordered by the start of their key range
+     */
+    synchronized List<PeekingResultIterator> getResults() {
+        // Sort by row key so that we have a predictable order we're getting rows back for scans.
+        Collections.sort(results, new Comparator<Pair<byte[],PeekingResultIterator>>() {
+            @Override
+            public int compare(Pair<byte[], PeekingResultIterator> o1, Pair<byte[], PeekingResultIterator> o2) {
+                return Bytes.compareTo(o1.getFirst(), o2.getFirst());
+            }
+        });
+        List<PeekingResultIterator> iterators = Lists.newArrayListWithExpectedSize(results.size());
+        for (Pair<byte[],PeekingResultIterator> result : results) {
+            iterators.add(result.getSecond());
+        }
+        return iterators;
+    }
+
+    /**
+     * Stop handing out scans and close the iterators of the scans that completed.
+     */
+    synchronized void close() {
+        closed = true;
+        List<PeekingResultIterator> iterators = getResults();
+        results.clear();
+        SQLCloseables.closeAllQuietly(iterators);
+    }
+
+    /**
+     * A scan over a key range whose stop row may be narrowed while it runs.
+     */
+    static class WorkUnit {
+        private final byte[] lowerRange;
+        private final Scan scan;
+        private final ServerName server;
+        private final ImmutableBytesWritable lastRowKey = new ImmutableBytesWritable(ByteUtil.EMPTY_BYTE_ARRAY);
+        private byte[] stopRow;
+        private boolean done;
+
+        private WorkUnit(byte[] lowerRange, Scan scan, ServerName server) {
+            this.lowerRange = lowerRange;
+            this.scan = scan;
+            this.server = server;
+            this.stopRow = scan.getStopRow();
+        }
+
+        byte[] getLowerRange() {
+            return lowerRange;
+        }
+
+        Scan getScan() {
+            return scan;
+        }
+
+        ServerName getServer() {
+            return server;
+        }
+
+        /**
+         * Move past the given row.
+         * @return true if the row belongs to this scan and false if the
+         * scan has reached its stop row
+         */
+        private synchronized boolean advance(ImmutableBytesWritable rowKey) {
+            if (done) {
+                return false;
+            }
+            if (stopRow.length > 0 && Bytes.compareTo(rowKey.get(), rowKey.getOffset(), rowKey.getLength(), stopRow, 0, stopRow.length) >= 0) {
+                done = true;
+                return false;
+            }
+            // No need to copy, as the row key of a tuple is never overwritten
+            lastRowKey.set(rowKey.get(), rowKey.getOffset(), rowKey.getLength());
+            return true;
+        }
+
+        private synchronized void finish() {
+            done = true;
+        }
+
+        /**
+         * Narrow the stop row of this scan to the middle of its remaining key range.
+         * @return the scan over the remaining key range beyond the new stop row or
+         * null if the remaining key range cannot be split
+         */
+        private synchronized WorkUnit steal(Scan queryScan, boolean useSkipScanFilter, byte[] maxKey) {
+            if (done) {
+                return null;
+            }
+            byte[] lowerRange = lastRowKey.getLength() == 0 ? scan.getStartRow() : lastRowKey.copyBytes();
+            byte[] upperRange = stopRow.length == 0 ? maxKey : stopRow;
+            byte[][] boundaries;
+            // Bytes.split may return null if the key space
+            // between the lower and upper range is too small
+            if (upperRange == null || Bytes.compareTo(lowerRange, upperRange) >= 0 || (boundaries = Bytes.split(lowerRange, upperRange, 1)) == null) {
+                return null;
+            }
+            byte[] splitRow = boundaries[1];
+            Scan stolenScan = new Scan(queryScan);
+            if (!ScanUtil.intersectScanRange(stolenScan, splitRow, stopRow, useSkipScanFilter)) {
+                return null;
+            }
+            stopRow = splitRow;
+            return new WorkUnit(splitRow, stolenScan, server);
+        }
+    }
+
+    /**
+     * Iterator over the rows of a {@link WorkUnit} that stops once the rows
+     * move past the stop row of the work unit, as it may be narrowed by a steal.
+     */
+    static class WorkUnitResultIterator extends DelegateResultIterator {
+        private final WorkUnit unit;
+        private final ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        private boolean exhausted;
+
+        WorkUnitResultIterator(ResultIterator delegate, WorkUnit unit) {
+            super(delegate);
+            this.unit = unit;
+        }
+
+        @Override
+        public Tuple next() throws SQLException {
+            if (exhausted) {
+                return null;
+            }
+            Tuple tuple = super.next();
+            if (tuple == null) {
+                unit.finish();
+                exhausted = true;
+                return null;
+            }
+            tuple.getKey(ptr);
+            if (!unit.advance(ptr)) {
+                exhausted = true;
+                return null;
+            }
+            return tuple;
+        }
+    }
+}
@@ -56,7 +56,7 @@ public class SkipRangeParallelIteratorRegionSplitter extends DefaultParallelIter
 
     @Override
     protected List<Map.Entry<HRegionInfo, ServerName>> getAllRegions() throws SQLException {
-        NavigableMap<HRegionInfo, ServerName> allTableRegions = context.getConnection().getQueryServices().getAllTableRegions(table);
+        NavigableMap<HRegionInfo, ServerName> allTableRegions = getAllTableRegions();
         return filterRegions(allTableRegions, context.getScanRanges());
     }
 
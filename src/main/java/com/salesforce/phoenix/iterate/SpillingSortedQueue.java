@@ -0,0 +1,598 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.iterate;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.zip.*;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.MinMaxPriorityQueue;
+import com.salesforce.phoenix.iterate.OrderedResultIterator.ResultEntry;
+import com.salesforce.phoenix.schema.tuple.ResultTuple;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+import com.salesforce.phoenix.util.TrustedByteArrayOutputStream;
+
+/**
+ * Queue that sorts the {@link ResultEntry} added to it, spilling them to disk as
+ * sorted runs once the entries held in memory reach <code>thresholdBytes</code>.
+ * A run is written through a {@link FileChannel} in blocks compressed with
+ * {@link Deflater}. Once the queue is polled, the runs are merged at most
+ * <code>mergeFanIn</code> at a time, in as many passes as needed, so that the
+ * number of files open at once is bounded regardless of the size of the sort.
+ * <p>
+ * With a limit, only the top entries are held in memory and written to a run.
+ * Once a run holds <code>limit</code> entries, any entry that sorts after its
+ * last entry can no longer make the top entries, so it's dropped when added, when
+ * spilled, or when merged.
+ * <p>
+ * Entries may not be added once the queue has been polled.
+ */
+public class SpillingSortedQueue extends AbstractQueue<ResultEntry> {
+    private static final int BLOCK_SIZE = 64 * 1024;
+    
+    private final Comparator<ResultEntry> comparator;
+    private final Comparator<Cursor> cursorComparator;
+    private final int limit;
+    private final int thresholdBytes;
+    private final int mergeFanIn;
+    private final LinkedList<Run> runs = new LinkedList<Run>();
+    // Bounded heap used when there's a limit
+    private MinMaxPriorityQueue<ResultEntry> results;
+    // Flat list used when there's no limit, sorted once before being spilled or polled
+    private List<ResultEntry> unsortedResults;
+    private long byteSize;
+    private int maxResultSize;
+    // With a limit, the entries sorting after this one cannot make the top entries
+    private ResultEntry cutoff;
+    private PriorityQueue<Cursor> mergeQueue;
+    private int mergeRemaining;
+
+    public SpillingSortedQueue(Comparator<ResultEntry> comparator,
+            Integer limit, int thresholdBytes, int mergeFanIn) throws IOException {
+        Preconditions.checkArgument(mergeFanIn >= 2, "Invalid merge fan-in: " + mergeFanIn);
+        this.comparator = comparator;
+        this.cursorComparator = new Comparator<Cursor>() {
+            @Override
+            public int compare(Cursor o1, Cursor o2) {
+                return SpillingSortedQueue.this.comparator.compare(o1.current(), o2.current());
+            }
+        };
+        this.limit = limit == null ? -1 : limit;
+        this.thresholdBytes = thresholdBytes;
+        this.mergeFanIn = mergeFanIn;
+        resetResults();
+    }
+
+    private void resetResults() {
+        if (limit < 0) {
+            unsortedResults = new ArrayList<ResultEntry>();
+        } else {
+            results = MinMaxPriorityQueue.<ResultEntry> orderedBy(comparator).maximumSize(limit).create();
+        }
+        byteSize = 0;
+        maxResultSize = 0;
+    }
+
+    private int resultCount() {
+        return results != null ? results.size() : unsortedResults.size();
+    }
+
+    /**
+     * Poll the entries held in memory in sorted order, releasing them as they're polled.
+     */
+    private Cursor newResultsCursor() {
+        final List<ResultEntry> sortedResults;
+        if (results != null) {
+            sortedResults = new ArrayList<ResultEntry>(results.size());
+            for (ResultEntry entry = results.pollFirst(); entry != null; entry = results.pollFirst()) {
+                sortedResults.add(entry);
+            }
+        } else {
+            sortedResults = unsortedResults;
+            Collections.sort(sortedResults, comparator);
+        }
+        results = null;
+        unsortedResults = null;
+        return new Cursor() {
+            private int index = -1;
+            
+            @Override
+            boolean advance() {
+                if (index >= 0) {
+                    sortedResults.set(index, null);
+                }
+                if (++index == sortedResults.size()) {
+                    current = null;
+                    return false;
+                }
+                current = sortedResults.get(index);
+                return true;
+            }
+        };
+    }
+
+    private static int sizeof(ResultEntry entry) {
+        Tuple result = entry.getResult();
+        int size = Bytes.SIZEOF_INT + entry.sortKey.length + Bytes.SIZEOF_INT;
+        for (int i = 0; i < result.size(); i++) {
+            size += Bytes.SIZEOF_INT + result.getValue(i).getLength();
+        }
+        return size;
+    }
+
+    @Override
+    public boolean offer(ResultEntry e) {
+        Preconditions.checkState(mergeQueue == null, "Entries may not be added once polled");
+        if (cutoff != null && comparator.compare(e, cutoff) > 0) {
+            return true; // Cannot make the top entries
+        }
+        int resultSize = sizeof(e);
+        if (results != null) {
+            if (!results.offer(e)) {
+                return true; // Evicted right away
+            }
+            maxResultSize = Math.max(maxResultSize, resultSize);
+            byteSize = (long)maxResultSize * results.size();
+        } else {
+            unsortedResults.add(e);
+            byteSize += resultSize;
+        }
+        if (byteSize >= thresholdBytes) {
+            try {
+                spill();
+            } catch (IOException ioe) {
+                throw new RuntimeException(ioe);
+            }
+        }
+        return true;
+    }
+
+    private void spill() throws IOException {
+        Cursor cursor = newResultsCursor();
+        RunWriter writer = new RunWriter();
+        Run run;
+        try {
+            while (cursor.advance() && (cutoff == null || comparator.compare(cursor.current(), cutoff) <= 0)) {
+                writer.write(cursor.current());
+            }
+        } finally {
+            run = writer.close();
+        }
+        if (run.getCount() > 0) {
+            runs.add(run);
+        } else {
+            run.delete();
+        }
+        updateCutoff(writer);
+        resetResults();
+    }
+
+    private void updateCutoff(RunWriter writer) {
+        if (limit > 0 && writer.getCount() == limit) {
+            ResultEntry last = writer.getLast();
+            if (cutoff == null || comparator.compare(last, cutoff) < 0) {
+                cutoff = last;
+            }
+        }
+    }
+
+    /**
+     * Merge the runs in passes of <code>mergeFanIn</code> runs until few enough remain to
+     * merge them all at once along with the entries held in memory.
+     */
+    private void startMerge() throws IOException {
+        while (runs.size() >= mergeFanIn) {
+            List<Cursor> cursors = new ArrayList<Cursor>(mergeFanIn);
+            List<Run> mergedRuns = new ArrayList<Run>(mergeFanIn);
+            RunWriter writer = null;
+            try {
+                for (int i = 0; i < mergeFanIn; i++) {
+                    Run run = runs.removeFirst();
+                    mergedRuns.add(run);
+                    cursors.add(run.open());
+                }
+                PriorityQueue<Cursor> queue = newMergeQueue(cursors);
+                writer = new RunWriter();
+                int count = 0;
+                while (!queue.isEmpty() && (limit < 0 || count < limit)) {
+                    Cursor cursor = queue.poll();
+                    writer.write(cursor.current());
+                    count++;
+                    if (cursor.advance()) {
+                        queue.add(cursor);
+                    }
+                }
+            } finally {
+                for (Cursor cursor : cursors) {
+                    cursor.close();
+                }
+                for (Run run : mergedRuns) {
+                    run.delete();
+                }
+                if (writer != null) {
+                    runs.addLast(writer.close());
+                }
+            }
+        }
+        List<Cursor> cursors = new ArrayList<Cursor>(runs.size() + 1);
+        mergeRemaining = resultCount();
+        cursors.add(newResultsCursor());
+        for (Run run : runs) {
+            mergeRemaining += run.getCount();
+            cursors.add(run.open());
+        }
+        mergeQueue = newMergeQueue(cursors);
+    }
+    
+    private PriorityQueue<Cursor> newMergeQueue(List<Cursor> cursors) throws IOException {
+        PriorityQueue<Cursor> queue = new PriorityQueue<Cursor>(Math.max(1, cursors.size()), cursorComparator);
+        for (Cursor cursor : cursors) {
+            if (cursor.advance()) {
+                queue.add(cursor);
+            } else {
+                cursor.close();
+            }
+        }
+        return queue;
+    }
+
+    @Override
+    public ResultEntry poll() {
+        try {
+            if (mergeQueue == null) {
+                startMerge();
+            }
+            Cursor cursor = mergeQueue.poll();
+            if (cursor == null) {
+                return null;
+            }
+            ResultEntry entry = cursor.current();
+            if (cursor.advance()) {
+                mergeQueue.add(cursor);
+            } else {
+                cursor.close();
+            }
+            mergeRemaining--;
+            return entry;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public ResultEntry peek() {
+        try {
+            if (mergeQueue == null) {
+                startMerge();
+            }
+            Cursor cursor = mergeQueue.peek();
+            return cursor == null ? null : cursor.current();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Iterator<ResultEntry> iterator() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int size() {
+        if (mergeQueue != null) {
+            return mergeRemaining;
+        }
+        int size = resultCount();
+        for (Run run : runs) {
+            size += run.getCount();
+        }
+        return size;
+    }
+    
+    /**
+     * @return the size in bytes of the entries held in memory
+     */
+    public long getByteSize() {
+        return byteSize;
+    }
+
+    /**
+     * @return the number of runs spilled to disk
+     */
+    // exposed for tests
+    int getRunCount() {
+        return runs.size();
+    }
+
+    public void close() {
+        if (mergeQueue != null) {
+            for (Cursor cursor : mergeQueue) {
+                cursor.close();
+            }
+            mergeQueue.clear();
+        }
+        for (Run run : runs) {
+            run.delete();
+        }
+        runs.clear();
+    }
+
+    /**
+     * Iterates through sorted entries.
+     */
+    private static abstract class Cursor {
+        protected ResultEntry current;
+        
+        ResultEntry current() {
+            return current;
+        }
+        
+        /**
+         * Move to the next entry.
+         * @return false if there are no more entries and true otherwise.
+         */
+        abstract boolean advance() throws IOException;
+        
+        void close() {
+        }
+    }
+    
+    /**
+     * A sorted run of entries spilled to a temp file.
+     */
+    private static class Run {
+        private final File file;
+        private final int count;
+        
+        private Run(File file, int count) {
+            this.file = file;
+            this.count = count;
+        }
+        
+        int getCount() {
+            return count;
+        }
+        
+        Cursor open() throws IOException {
+            return new RunReader(file);
+        }
+        
+        void delete() {
+            file.delete();
+        }
+    }
+    
+    /**
+     * Writes sorted entries to a run, buffering them into blocks that are compressed
+     * before being written out. An entry is laid out as its sort key followed by its
+     * key values, in the format expected by {@link Result#Result(ImmutableBytesWritable)}.
+     * A block is prefixed by its uncompressed and compressed lengths.
+     */
+    private static class RunWriter {
+        private final File file;
+        private final FileOutputStream output;
+        private final FileChannel channel;
+        private final TrustedByteArrayOutputStream block = new TrustedByteArrayOutputStream(BLOCK_SIZE);
+        private final DataOutputStream blockOutput = new DataOutputStream(block);
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final ByteBuffer header = ByteBuffer.allocate(2 * Bytes.SIZEOF_INT);
+        private byte[] compressed = new byte[BLOCK_SIZE];
+        private int count;
+        private ResultEntry last;
+        
+        private RunWriter() throws IOException {
+            this.file = File.createTempFile(UUID.randomUUID().toString(), null);
+            this.output = new FileOutputStream(file);
+            this.channel = output.getChannel();
+        }
+        
+        void write(ResultEntry entry) throws IOException {
+            blockOutput.writeInt(entry.sortKey.length);
+            blockOutput.write(entry.sortKey);
+            Tuple result = entry.getResult();
+            int size = result.size();
+            int totalLen = 0;
+            for (int i = 0; i < size; i++) {
+                totalLen += result.getValue(i).getLength() + Bytes.SIZEOF_INT;
+            }
+            blockOutput.writeInt(totalLen);
+            for (int i = 0; i < size; i++) {
+                KeyValue kv = result.getValue(i);
+                blockOutput.writeInt(kv.getLength());
+                blockOutput.write(kv.getBuffer(), kv.getOffset(), kv.getLength());
+            }
+            count++;
+            last = entry;
+            if (block.size() >= BLOCK_SIZE) {
+                flushBlock();
+            }
+        }
+        
+        int getCount() {
+            return count;
+        }
+        
+        ResultEntry getLast() {
+            return last;
+        }
+        
+        private void flushBlock() throws IOException {
+            if (block.size() == 0) {
+                return;
+            }
+            deflater.reset();
+            deflater.setInput(block.getBuffer(), 0, block.size());
+            deflater.finish();
+            int compressedLength = 0;
+            while (!deflater.finished()) {
+                if (compressedLength == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+            }
+            header.clear();
+            header.putInt(block.size());
+            header.putInt(compressedLength);
+            header.flip();
+            writeFully(header);
+            writeFully(ByteBuffer.wrap(compressed, 0, compressedLength));
+            block.reset();
+        }
+        
+        private void writeFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        
+        /**
+         * Flush the last block and close the file.
+         * @return the run that was written
+         */
+        Run close() throws IOException {
+            try {
+                flushBlock();
+            } finally {
+                deflater.end();
+                output.close();
+            }
+            return new Run(file, count);
+        }
+    }
+    
+    /**
+     * Reads back the entries of a run, one decompressed block at a time.
+     */
+    private static class RunReader extends Cursor {
+        private final FileInputStream input;
+        private final FileChannel channel;
+        private final Inflater inflater = new Inflater();
+        private final ByteBuffer header = ByteBuffer.allocate(2 * Bytes.SIZEOF_INT);
+        private byte[] compressed = new byte[BLOCK_SIZE];
+        private byte[] block = new byte[BLOCK_SIZE];
+        private int blockLength;
+        private int position;
+        private boolean isClosed;
+        
+        private RunReader(File file) throws IOException {
+            this.input = new FileInputStream(file);
+            this.channel = input.getChannel();
+        }
+        
+        @Override
+        boolean advance() throws IOException {
+            if (isClosed || (position == blockLength && !readBlock())) {
+                current = null;
+                return false;
+            }
+            int sortKeyLength = Bytes.toInt(block, position);
+            position += Bytes.SIZEOF_INT;
+            byte[] sortKey = Arrays.copyOfRange(block, position, position + sortKeyLength);
+            position += sortKeyLength;
+            int resultLength = Bytes.toInt(block, position);
+            position += Bytes.SIZEOF_INT;
+            byte[] rb = Arrays.copyOfRange(block, position, position + resultLength);
+            position += resultLength;
+            current = new ResultEntry(sortKey, new ResultTuple(new Result(new ImmutableBytesWritable(rb))));
+            return true;
+        }
+        
+        private boolean readBlock() throws IOException {
+            header.clear();
+            if (!readFully(header)) {
+                return false;
+            }
+            header.flip();
+            int uncompressedLength = header.getInt();
+            int compressedLength = header.getInt();
+            if (compressed.length < compressedLength) {
+                compressed = new byte[compressedLength];
+            }
+            if (block.length < uncompressedLength) {
+                block = new byte[uncompressedLength];
+            }
+            if (!readFully(ByteBuffer.wrap(compressed, 0, compressedLength))) {
+                throw new EOFException("Truncated block");
+            }
+            inflater.reset();
+            inflater.setInput(compressed, 0, compressedLength);
+            try {
+                int length = 0;
+                while (length < uncompressedLength) {
+                    int n = inflater.inflate(block, length, uncompressedLength - length);
+                    if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                        throw new EOFException("Truncated block");
+                    }
+                    length += n;
+                }
+            } catch (DataFormatException e) {
+                throw new IOException(e);
+            }
+            blockLength = uncompressedLength;
+            position = 0;
+            return true;
+        }
+        
+        /**
+         * @return false if the end of the file was reached before reading anything
+         */
+        private boolean readFully(ByteBuffer buffer) throws IOException {
+            boolean hasRead = false;
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    if (hasRead) {
+                        throw new EOFException("Truncated block");
+                    }
+                    return false;
+                }
+                hasRead = true;
+            }
+            return true;
+        }
+        
+        @Override
+        void close() {
+            if (!isClosed) {
+                isClosed = true;
+                inflater.end();
+                try {
+                    input.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}
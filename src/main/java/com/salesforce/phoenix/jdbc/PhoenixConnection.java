@@ -39,6 +39,7 @@ import com.salesforce.phoenix.exception.SQLExceptionCode;
 import com.salesforce.phoenix.exception.SQLExceptionInfo;
 import com.salesforce.phoenix.execute.MutationState;
 import com.salesforce.phoenix.jdbc.PhoenixStatement.PhoenixStatementParser;
+import com.salesforce.phoenix.job.JobPriority;
 import com.salesforce.phoenix.query.*;
 import com.salesforce.phoenix.schema.*;
 import com.salesforce.phoenix.util.*;
@@ -69,6 +70,7 @@ public class PhoenixConnection implements Connection, com.salesforce.phoenix.jdb
     private boolean isAutoCommit = false;
     private PMetaData metaData;
     private final byte[] tenantId;
+    private final JobPriority queryPriority;
     private final String datePattern;
     
     private boolean isClosed = false;
@@ -85,6 +87,7 @@ public class PhoenixConnection implements Connection, com.salesforce.phoenix.jdb
         this.services = services;
         this.scn = JDBCUtil.getCurrentSCN(url, this.info);
         this.tenantId = JDBCUtil.getTenantId(url, this.info);
+        this.queryPriority = JDBCUtil.getQueryPriority(url, this.info, services.getProps());
         this.mutateBatchSize = JDBCUtil.getMutateBatchSize(url, this.info, services.getProps());
         datePattern = services.getProps().get(QueryServices.DATE_FORMAT_ATTRIB, DateUtil.DEFAULT_DATE_FORMAT);
         int maxSize = services.getProps().getInt(QueryServices.MAX_MUTATION_SIZE_ATTRIB,QueryServicesOptions.DEFAULT_MAX_MUTATION_SIZE);
@@ -176,6 +179,10 @@ public class PhoenixConnection implements Connection, com.salesforce.phoenix.jdb
         return tenantId;
     }
     
+    public JobPriority getQueryPriority() {
+        return queryPriority;
+    }
+    
     public Long getSCN() {
         return scn;
     }
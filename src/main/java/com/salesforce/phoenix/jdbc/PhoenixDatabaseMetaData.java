@@ -125,6 +125,10 @@ public class PhoenixDatabaseMetaData implements DatabaseMetaData, com.salesforce
     public static final String COLUMN_MODIFIER = "COLUMN_MODIFIER";
     public static final String IMMUTABLE_ROWS = "IMMUTABLE_ROWS";
     public static final byte[] IMMUTABLE_ROWS_BYTES = Bytes.toBytes(IMMUTABLE_ROWS);
+    public static final String SALT_HASH = "SALT_HASH";
+    public static final byte[] SALT_HASH_BYTES = Bytes.toBytes(SALT_HASH);
+    public static final String SALT_PK_COLUMNS = "SALT_PK_COLUMNS";
+    public static final byte[] SALT_PK_COLUMNS_BYTES = Bytes.toBytes(SALT_PK_COLUMNS);
 
     public static final String TABLE_FAMILY = QueryConstants.DEFAULT_COLUMN_FAMILY_NAME.getString();
     public static final byte[] TABLE_FAMILY_BYTES = QueryConstants.DEFAULT_COLUMN_FAMILY_NAME.getBytes();
@@ -115,6 +115,12 @@ public class PhoenixPreparedStatement extends PhoenixStatement implements Prepar
         return plan.getParameterMetaData();
     }
 
+    @Override
+    protected String getQueryText() {
+        String queryText = super.getQueryText();
+        return queryText == null ? query : queryText;
+    }
+
     @Override
     public String toString() {
         return query;
@@ -37,6 +37,7 @@ import org.apache.hadoop.hbase.util.Pair;
 
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
+import com.salesforce.phoenix.cache.QueryResultCache;
 import com.salesforce.phoenix.compile.*;
 import com.salesforce.phoenix.coprocessor.MetaDataProtocol;
 import com.salesforce.phoenix.exception.SQLExceptionCode;
@@ -75,7 +76,8 @@ public class PhoenixStatement implements Statement, SQLCloseable, com.salesforce
     protected static final Object UNBOUND_PARAMETER = new Object();
     public enum UpdateOperation {
         DELETED("deleted"),
-        UPSERTED("upserted");
+        UPSERTED("upserted"),
+        ANALYZED("analyzed");
         
         private final String toString;
         UpdateOperation(String toString) {
@@ -98,6 +100,7 @@ public class PhoenixStatement implements Statement, SQLCloseable, com.salesforce
     private boolean isClosed = false;
     private ResultSetMetaData resultSetMetaData;
     private int maxRows;
+    private String queryText;
     
     
     public PhoenixStatement(PhoenixConnection connection) {
@@ -126,7 +129,15 @@ public class PhoenixStatement implements Statement, SQLCloseable, com.salesforce
         public MutationPlan optimizePlan() throws SQLException;
     }
     
-    private class ExecutableSelectStatement extends SelectStatement implements ExecutableStatement {
+    protected static interface SubqueryStatement extends ExecutableStatement {
+        /**
+         * @param runSubqueries false to leave a placeholder for each subquery instead of
+         * running it, when the plan is only explained.
+         */
+        public StatementPlan optimizePlan(boolean runSubqueries) throws SQLException;
+    }
+    
+    private class ExecutableSelectStatement extends SelectStatement implements SubqueryStatement {
         private ExecutableSelectStatement(List<? extends TableNode> from, HintNode hint, boolean isDistinct, List<AliasedNode> select, ParseNode where,
                 List<ParseNode> groupBy, ParseNode having, List<OrderByNode> orderBy, LimitNode limit, int bindCount, boolean isAggregate) {
             super(from, hint, isDistinct, select, where, groupBy, having, orderBy, limit, bindCount, isAggregate);
@@ -134,8 +145,20 @@ public class PhoenixStatement implements Statement, SQLCloseable, com.salesforce
 
         @Override
         public PhoenixResultSet executeQuery() throws SQLException {
-            QueryPlan plan = optimizePlan();
-            Scanner scanner = plan.getScanner();
+            Scanner scanner;
+            QueryResultCache cache = connection.getQueryServices().getQueryResultCache();
+            String queryText = getQueryText();
+            if (cache.isEnabled() && queryText != null) {
+                QueryResultCache.Key key = cache.newKey(queryText, getParameters(), connection.getTenantId(), connection.getSCN(), getMaxRows());
+                scanner = cache.getScanner(key);
+                if (scanner == null) {
+                    QueryPlan plan = optimizePlan();
+                    scanner = cache.newCachingScanner(key, plan.getScanner(), plan.getContext().getResolver().getTables());
+                }
+            } else {
+                QueryPlan plan = optimizePlan();
+                scanner = plan.getScanner();
+            }
             PhoenixResultSet rs = newResultSet(scanner);
             resultSets.add(rs);
             lastResultSet = rs;
@@ -157,12 +180,17 @@ public class PhoenixStatement implements Statement, SQLCloseable, com.salesforce
 
         @Override
         public QueryPlan optimizePlan() throws SQLException {
-            return lastQueryPlan = connection.getQueryServices().getOptimizer().optimize(this, PhoenixStatement.this);
+            return optimizePlan(true);
+        }
+        
+        @Override
+        public QueryPlan optimizePlan(boolean runSubqueries) throws SQLException {
+            return lastQueryPlan = connection.getQueryServices().getOptimizer().optimize(this, PhoenixStatement.this, runSubqueries);
         }
         
         @Override
         public StatementPlan compilePlan(List<Object> binds) throws SQLException {
-            return new QueryCompiler(connection, getMaxRows()).compile(this, binds);
+            return new QueryCompiler(connection, getMaxRows(), false).compile(this, binds);
         }
         
         @Override
@@ -170,7 +198,7 @@ public class PhoenixStatement implements Statement, SQLCloseable, com.salesforce
             if (resultSetMetaData == null) {
                 // Just compile top level query without optimizing to get ResultSetMetaData
                 List<Object> nullParameters = Arrays.asList(new Object[this.getBindCount()]);
-                QueryPlan plan = new QueryCompiler(connection, getMaxRows()).compile(this, nullParameters);
+                QueryPlan plan = new QueryCompiler(connection, getMaxRows(), false).compile(this, nullParameters);
                 resultSetMetaData = new PhoenixResultSetMetaData(connection, plan.getProjector());
             }
             return resultSetMetaData;
@@ -195,7 +223,31 @@ public class PhoenixStatement implements Statement, SQLCloseable, com.salesforce
         return lastUpdateCount;
     }
     
-    private class ExecutableUpsertStatement extends UpsertStatement implements MutatableStatement {
+    /**
+     * Drop the cached query results read from the table a statement mutated. Rows written
+     * from the client are also invalidated on commit, but UPSERT SELECT and DELETE may
+     * run completely on the server side.
+     */
+    private void invalidateCachedResults(NamedTableNode tableNode) throws SQLException {
+        QueryResultCache cache = connection.getQueryServices().getQueryResultCache();
+        if (!cache.isEnabled()) {
+            return;
+        }
+        TableName tableName = tableNode.getName();
+        String schemaName = tableName.getSchemaName() == null ? QueryConstants.NULL_SCHEMA_NAME : tableName.getSchemaName();
+        PSchema schema = connection.getPMetaData().getSchemaOrNull(schemaName);
+        if (schema == null) {
+            cache.clear();
+            return;
+        }
+        try {
+            cache.invalidate(schemaName, schema.getTable(tableName.getTableName()));
+        } catch (TableNotFoundException e) {
+            cache.clear();
+        }
+    }
+    
+    private class ExecutableUpsertStatement extends UpsertStatement implements MutatableStatement, SubqueryStatement {
         private ExecutableUpsertStatement(NamedTableNode table, List<ColumnName> columns, List<ParseNode> values, SelectStatement select, int bindCount) {
             super(table, columns, values, select, bindCount);
         }
@@ -214,7 +266,11 @@ public class PhoenixStatement implements Statement, SQLCloseable, com.salesforce
         @Override
         public int executeUpdate() throws SQLException {
             lastUpdateOperation = UpdateOperation.UPSERTED;
-            return executeMutation(optimizePlan());
+            try {
+                return executeMutation(optimizePlan());
+            } finally {
+                invalidateCachedResults(getTable());
+            }
         }
 
         @Override
@@ -224,17 +280,23 @@ public class PhoenixStatement implements Statement, SQLCloseable, com.salesforce
 
         @Override
         public MutationPlan compilePlan(List<Object> binds) throws SQLException {
-            UpsertCompiler compiler = new UpsertCompiler(PhoenixStatement.this);
+            UpsertCompiler compiler = new UpsertCompiler(PhoenixStatement.this, false);
             return compiler.compile(this, binds);
         }
         
         @Override
         public MutationPlan optimizePlan() throws SQLException {
-            return compilePlan(getParameters());
+            return optimizePlan(true);
+        }
+        
+        @Override
+        public MutationPlan optimizePlan(boolean runSubqueries) throws SQLException {
+            UpsertCompiler compiler = new UpsertCompiler(PhoenixStatement.this, runSubqueries);
+            return compiler.compile(this, getParameters());
         }
     }
     
-    private class ExecutableDeleteStatement extends DeleteStatement implements MutatableStatement {
+    private class ExecutableDeleteStatement extends DeleteStatement implements MutatableStatement, SubqueryStatement {
         private ExecutableDeleteStatement(NamedTableNode table, HintNode hint, ParseNode whereNode, List<OrderByNode> orderBy, LimitNode limit, int bindCount) {
             super(table, hint, whereNode, orderBy, limit, bindCount);
         }
@@ -253,7 +315,11 @@ public class PhoenixStatement implements Statement, SQLCloseable, com.salesforce
         @Override
         public int executeUpdate() throws SQLException {
             lastUpdateOperation = UpdateOperation.DELETED;
-            return executeMutation(optimizePlan());
+            try {
+                return executeMutation(optimizePlan());
+            } finally {
+                invalidateCachedResults(getTable());
+            }
         }
 
         @Override
@@ -263,10 +329,55 @@ public class PhoenixStatement implements Statement, SQLCloseable, com.salesforce
 
         @Override
         public MutationPlan compilePlan(List<Object> binds) throws SQLException {
-            DeleteCompiler compiler = new DeleteCompiler(connection);
+            DeleteCompiler compiler = new DeleteCompiler(connection, false);
             return compiler.compile(this, binds);
         }
         
+        @Override
+        public MutationPlan optimizePlan() throws SQLException {
+            return optimizePlan(true);
+        }
+        
+        @Override
+        public MutationPlan optimizePlan(boolean runSubqueries) throws SQLException {
+            DeleteCompiler compiler = new DeleteCompiler(connection, runSubqueries);
+            return compiler.compile(this, getParameters());
+        }
+    }
+    
+    private class ExecutableAnalyzeStatement extends AnalyzeStatement implements MutatableStatement {
+        private ExecutableAnalyzeStatement(NamedTableNode table) {
+            super(table);
+        }
+
+        @Override
+        public PhoenixResultSet executeQuery() throws SQLException {
+            throw new ExecuteQueryNotApplicableException("ANALYZE", this.toString());
+        }
+
+        @Override
+        public boolean execute() throws SQLException {
+            executeUpdate();
+            return false;
+        }
+
+        @Override
+        public int executeUpdate() throws SQLException {
+            lastUpdateOperation = UpdateOperation.ANALYZED;
+            return executeMutation(optimizePlan());
+        }
+
+        @Override
+        public ResultSetMetaData getResultSetMetaData() throws SQLException {
+            return null;
+        }
+
+        @Override
+        public MutationPlan compilePlan(List<Object> binds) throws SQLException {
+            AnalyzeCompiler compiler = new AnalyzeCompiler(connection);
+            return compiler.compile(this);
+        }
+        
         @Override
         public MutationPlan optimizePlan() throws SQLException {
             return compilePlan(getParameters());
@@ -691,7 +802,9 @@ public class PhoenixStatement implements Statement, SQLCloseable, com.salesforce
 
         @Override
         public PhoenixResultSet executeQuery() throws SQLException {
-            StatementPlan plan = getStatement().optimizePlan();
+            ExecutableStatement statement = getStatement();
+            // Explaining a statement doesn't run its subqueries
+            StatementPlan plan = statement instanceof SubqueryStatement ? ((SubqueryStatement)statement).optimizePlan(false) : statement.optimizePlan();
             List<String> planSteps = plan.getExplainPlan().getPlanSteps();
             List<Tuple> tuples = Lists.newArrayListWithExpectedSize(planSteps.size());
             for (String planStep : planSteps) {
@@ -840,6 +953,11 @@ public class PhoenixStatement implements Statement, SQLCloseable, com.salesforce
             return new ExecutableAlterIndexStatement(indexTableNode, dataTableName, ifExists, state);
         }
         
+        @Override
+        public AnalyzeStatement analyze(NamedTableNode table) {
+            return new ExecutableAnalyzeStatement(table);
+        }
+        
         @Override
         public ExplainStatement explain(SQLStatement statement) {
             return new ExecutableExplainStatement(statement);
@@ -916,6 +1034,14 @@ public class PhoenixStatement implements Statement, SQLCloseable, com.salesforce
         return Collections.<Object>emptyList();
     }
     
+    /**
+     * Get the text of the statement being executed, under which its results are cached.
+     * @return the statement text or null if not known
+     */
+    protected String getQueryText() {
+        return queryText;
+    }
+    
     protected void throwIfUnboundParameters() throws SQLException {
         int i = 0;
         for (Object param : getParameters()) {
@@ -941,7 +1067,13 @@ public class PhoenixStatement implements Statement, SQLCloseable, com.salesforce
     @Override
     public boolean execute(String sql) throws SQLException {
         throwIfUnboundParameters();
-        return parseStatement(sql).execute();
+        ExecutableStatement statement = parseStatement(sql);
+        queryText = sql;
+        try {
+            return statement.execute();
+        } finally {
+            queryText = null;
+        }
     }
 
     public QueryPlan optimizeQuery(String sql) throws SQLException {
@@ -952,7 +1084,13 @@ public class PhoenixStatement implements Statement, SQLCloseable, com.salesforce
     @Override
     public ResultSet executeQuery(String sql) throws SQLException {
         throwIfUnboundParameters();
-        return parseStatement(sql).executeQuery();
+        ExecutableStatement statement = parseStatement(sql);
+        queryText = sql;
+        try {
+            return statement.executeQuery();
+        } finally {
+            queryText = null;
+        }
     }
 
     @Override
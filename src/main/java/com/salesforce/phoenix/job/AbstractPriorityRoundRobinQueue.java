@@ -0,0 +1,445 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.job;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ *
+ * A bounded blocking queue implementation that keeps a virtual queue of elements on per-producer
+ * basis within each {@link JobPriority} class. Elements of a higher priority class are always
+ * taken before those of a lower one, while the producers of the same class are served in round
+ * robin fashion. The number of taken elements of a class that are still running may be capped,
+ * in which case the class is skipped until {@link #release(JobPriority)} is called.
+ * 
+ * Offers and polls don't take a lock: a lock is only taken to block and wake up callers waiting
+ * for an element or for space in the queue.
+ *
+ * @since 2.0
+ */
+public abstract class AbstractPriorityRoundRobinQueue<E> extends AbstractQueue<E>
+        implements BlockingQueue<E>{
+    private static final JobPriority[] PRIORITIES = JobPriority.values();
+    
+    private final int maxSize;
+    private final AtomicInteger size = new AtomicInteger();
+    private final List<PriorityClass<E>> priorityClasses;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final AtomicInteger waitingTakers = new AtomicInteger();
+    private final AtomicInteger waitingOfferers = new AtomicInteger();
+
+    /**
+     * Construct an AbstractPriorityRoundRobinQueue that limits the size of the queued elements
+     * to at most maxSize. Attempts to insert new elements after that point will fail.
+     * @param maxSize maximum number of queued elements
+     * @param maxRunning maximum number of taken elements that may be running at the same time
+     * for each priority class, indexed by {@link JobPriority#ordinal()}
+     */
+    public AbstractPriorityRoundRobinQueue(int maxSize, int[] maxRunning) {
+        if (maxRunning.length != PRIORITIES.length) {
+            throw new IllegalArgumentException("Expected the maximum number running for " + PRIORITIES.length + " priority classes, but got " + maxRunning.length);
+        }
+        this.maxSize = maxSize;
+        this.priorityClasses = new ArrayList<PriorityClass<E>>(PRIORITIES.length);
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            this.priorityClasses.add(new PriorityClass<E>(maxRunning[i]));
+        }
+    }
+
+    /**
+     * Implementations must extracts the producer object which is used as the key to identify a unique producer.
+     */
+    protected abstract Object extractProducer(E o);
+    
+    /**
+     * Implementations must extract the priority class of the element.
+     */
+    protected abstract JobPriority extractPriority(E o);
+    
+    /**
+     * Called when an element is taken out of the queue to be run, after a running slot
+     * of its priority class has been acquired for it.
+     */
+    protected void taken(E o) {
+    }
+    
+    /**
+     * Acquire a running slot of the priority class for an element that did not go
+     * through the queue. Unlike elements that are taken, this ignores the cap.
+     */
+    public void acquire(JobPriority priority) {
+        getPriorityClass(priority).running.incrementAndGet();
+    }
+    
+    /**
+     * Release the running slot of the priority class once a taken element is done.
+     */
+    public void release(JobPriority priority) {
+        getPriorityClass(priority).running.decrementAndGet();
+        signal(notEmpty, waitingTakers);
+    }
+    
+    /**
+     * Get the number of taken elements of the priority class that are still running.
+     */
+    public int getRunningCount(JobPriority priority) {
+        return getPriorityClass(priority).running.get();
+    }
+    
+    /**
+     * Get the number of elements of the priority class that are waiting in the queue.
+     */
+    public int getQueuedCount(JobPriority priority) {
+        return getPriorityClass(priority).size.get();
+    }
+    
+    /**
+     * Get the number of elements of the priority class taken out of the queue so far.
+     */
+    public long getTakenCount(JobPriority priority) {
+        return getPriorityClass(priority).takenCount.get();
+    }
+    
+    /**
+     * Get the average time in milliseconds that taken elements of the priority class spent in the queue.
+     */
+    public double getAverageQueueWaitMs(JobPriority priority) {
+        PriorityClass<E> priorityClass = getPriorityClass(priority);
+        long takenCount = priorityClass.takenCount.get();
+        return takenCount == 0 ? 0 : priorityClass.totalWaitNanos.get() / (takenCount * 1000000.0);
+    }
+    
+    /**
+     * Get the longest time in milliseconds that a taken element of the priority class spent in the queue.
+     */
+    public long getMaxQueueWaitMs(JobPriority priority) {
+        return TimeUnit.NANOSECONDS.toMillis(getPriorityClass(priority).maxWaitNanos.get());
+    }
+    
+    private PriorityClass<E> getPriorityClass(JobPriority priority) {
+        return priorityClasses.get(priority.ordinal());
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        List<E> allElements = new ArrayList<E>(size());
+        for (PriorityClass<E> priorityClass : priorityClasses) {
+            for (ProducerQueue<E> producerQueue : priorityClass.getProducerQueues()) {
+                for (Entry<E> entry : producerQueue.entries) {
+                    allElements.add(entry.element);
+                }
+            }
+        }
+        return Collections.unmodifiableList(allElements).iterator();
+    }
+
+    @Override
+    public boolean offer(E o, long timeout, TimeUnit unit) throws InterruptedException {
+        if (offer(o)) {
+            return true;
+        }
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        waitingOfferers.incrementAndGet();
+        try {
+            while (!offer(o)) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            waitingOfferers.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(E o) {
+        if (o == null)
+            throw new NullPointerException();
+
+        if (size.incrementAndGet() > maxSize) {
+            size.decrementAndGet();
+            return false;
+        }
+        getPriorityClass(extractPriority(o)).add(extractProducer(o), new Entry<E>(o));
+        signal(notEmpty, waitingTakers);
+        return true;
+    }
+
+    @Override
+    public void put(E o) throws InterruptedException {
+        offer(o, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        return poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E element = poll();
+        if (element != null) {
+            return element;
+        }
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        // Count ourselves as waiting before polling again, so that an offer or release
+        // racing with us either lets us find the element or signals us.
+        waitingTakers.incrementAndGet();
+        try {
+            while ((element = poll()) == null) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return element;
+        } finally {
+            waitingTakers.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E poll() {
+        for (PriorityClass<E> priorityClass : priorityClasses) {
+            if (priorityClass.size.get() == 0 || !priorityClass.tryAcquire()) {
+                continue;
+            }
+            Entry<E> entry = priorityClass.poll();
+            if (entry == null) {
+                priorityClass.running.decrementAndGet();
+                continue;
+            }
+            priorityClass.recordWait(System.nanoTime() - entry.enqueueNanos);
+            removed();
+            taken(entry.element);
+            return entry.element;
+        }
+        return null;
+    }
+
+    @Override
+    public E peek() {
+        for (PriorityClass<E> priorityClass : priorityClasses) {
+            for (ProducerQueue<E> producerQueue : priorityClass.ring) {
+                Entry<E> entry = producerQueue.entries.peek();
+                if (entry != null) {
+                    return entry.element;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        for (PriorityClass<E> priorityClass : priorityClasses) {
+            for (ProducerQueue<E> producerQueue : priorityClass.getProducerQueues()) {
+                for (Entry<E> entry : producerQueue.entries) {
+                    if (entry.element.equals(o) && producerQueue.entries.remove(entry)) {
+                        priorityClass.size.decrementAndGet();
+                        removed();
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Drains elements regardless of the cap on running elements, since they are not going to be run.
+     */
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+
+        int i = 0;
+        for (PriorityClass<E> priorityClass : priorityClasses) {
+            Entry<E> entry;
+            while (i < maxElements && (entry = priorityClass.poll()) != null) {
+                removed();
+                c.add(entry.element);
+                i++;
+            }
+        }
+        return i;
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+    
+    private void removed() {
+        size.decrementAndGet();
+        signal(notFull, waitingOfferers);
+    }
+    
+    private void signal(Condition condition, AtomicInteger waiting) {
+        if (waiting.get() > 0) {
+            lock.lock();
+            try {
+                condition.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static class Entry<E> {
+        private final E element;
+        private final long enqueueNanos = System.nanoTime();
+        
+        private Entry(E element) {
+            this.element = element;
+        }
+    }
+    
+    private static class ProducerQueue<E> {
+        private final Object producer;
+        private final Queue<Entry<E>> entries = new ConcurrentLinkedQueue<Entry<E>>();
+        // True while the producer is in the round robin ring or being polled
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        
+        private ProducerQueue(Object producer) {
+            this.producer = producer;
+        }
+    }
+    
+    private static class PriorityClass<E> {
+        private final int maxRunning;
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger size = new AtomicInteger();
+        private final ConcurrentMap<Object,ProducerQueue<E>> producerMap = new ConcurrentHashMap<Object,ProducerQueue<E>>();
+        private final Queue<ProducerQueue<E>> ring = new ConcurrentLinkedQueue<ProducerQueue<E>>();
+        private final AtomicLong takenCount = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        
+        private PriorityClass(int maxRunning) {
+            this.maxRunning = maxRunning;
+        }
+        
+        private boolean tryAcquire() {
+            while (true) {
+                int nRunning = running.get();
+                if (nRunning >= maxRunning) {
+                    return false;
+                }
+                if (running.compareAndSet(nRunning, nRunning + 1)) {
+                    return true;
+                }
+            }
+        }
+        
+        private void add(Object producer, Entry<E> entry) {
+            ProducerQueue<E> producerQueue = producerMap.get(producer);
+            if (producerQueue == null) {
+                producerQueue = new ProducerQueue<E>(producer);
+                ProducerQueue<E> existingQueue = producerMap.putIfAbsent(producer, producerQueue);
+                if (existingQueue != null) {
+                    producerQueue = existingQueue;
+                }
+            }
+            producerQueue.entries.add(entry);
+            size.incrementAndGet();
+            schedule(producerQueue);
+        }
+        
+        private void schedule(ProducerQueue<E> producerQueue) {
+            if (!producerQueue.entries.isEmpty() && producerQueue.scheduled.compareAndSet(false, true)) {
+                ring.add(producerQueue);
+            }
+        }
+        
+        private Entry<E> poll() {
+            ProducerQueue<E> producerQueue;
+            while ((producerQueue = ring.poll()) != null) {
+                Entry<E> entry = producerQueue.entries.poll();
+                if (producerQueue.entries.isEmpty()) {
+                    producerQueue.scheduled.set(false);
+                    producerMap.remove(producerQueue.producer, producerQueue);
+                    // An element may have been added concurrently after we found the queue empty
+                    schedule(producerQueue);
+                } else {
+                    // This is the round robin part: the producer goes to the back of the ring
+                    ring.add(producerQueue);
+                }
+                if (entry != null) {
+                    size.decrementAndGet();
+                    return entry;
+                }
+            }
+            return null;
+        }
+        
+        private void recordWait(long waitNanos) {
+            takenCount.incrementAndGet();
+            totalWaitNanos.addAndGet(waitNanos);
+            long maxNanos;
+            while (waitNanos > (maxNanos = maxWaitNanos.get())) {
+                if (maxWaitNanos.compareAndSet(maxNanos, waitNanos)) {
+                    break;
+                }
+            }
+        }
+        
+        private Collection<ProducerQueue<E>> getProducerQueues() {
+            // A producer queue may be in the ring but no longer in the map or vice versa
+            Set<ProducerQueue<E>> producerQueues = Collections.newSetFromMap(new IdentityHashMap<ProducerQueue<E>,Boolean>());
+            producerQueues.addAll(producerMap.values());
+            producerQueues.addAll(ring);
+            return producerQueues;
+        }
+    }
+}
@@ -37,29 +37,82 @@ import java.util.concurrent.*;
  * @since 0.1
  */
 @SuppressWarnings("rawtypes")
-public class JobManager<T> extends AbstractRoundRobinQueue<T> {
-    public JobManager(int maxSize) {
-        super(maxSize, true); // true -> new producers move to front of queue; this reduces latency.
+public class JobManager<T> extends AbstractPriorityRoundRobinQueue<T> {
+    public JobManager(int maxSize, int[] maxRunning) {
+        super(maxSize, maxRunning);
     }
 
-	@Override
+    @Override
     protected Object extractProducer(T o) {
-        return ((JobFutureTask)o).getJobId();
-    }        
+        if (o instanceof JobFutureTask) {
+            return ((JobFutureTask)o).getJobId();
+        }
+        return o;
+    }
+
+    @Override
+    protected JobPriority extractPriority(T o) {
+        if (o instanceof JobFutureTask) {
+            return ((JobFutureTask)o).getPriority();
+        }
+        return JobPriority.NORMAL;
+    }
+
+    // Priority class of the job last taken from the queue by the current thread, which runs it next
+    private final ThreadLocal<JobPriority> takenPriority = new ThreadLocal<JobPriority>();
+
+    @Override
+    protected void taken(T o) {
+        takenPriority.set(extractPriority(o));
+    }
+
+    private void beforeRun(T o) {
+        if (takenPriority.get() == null) {
+            // Jobs are always queued (see createThreadPoolExec), but count any job that
+            // reaches a thread another way as running, so that it's released consistently
+            acquire(extractPriority(o));
+        } else {
+            takenPriority.remove();
+        }
+    }
+
+    private void afterRun(T o) {
+        release(extractPriority(o));
+    }
 
     public static interface JobRunnable<T> extends Runnable {
         public Object getJobId();
+        public JobPriority getPriority();
     }
 
     public static ThreadPoolExecutor createThreadPoolExec(int keepAliveMs, int size, int queueSize) {
+        return createThreadPoolExec(keepAliveMs, size, queueSize, 100, 100);
+    }
+    
+    /**
+     * Create a thread pool executor that runs queued jobs by priority class.
+     * @param keepAliveMs time that idle threads are kept alive
+     * @param size number of threads in the pool
+     * @param queueSize maximum number of queued jobs
+     * @param normalPriorityMaxThreadPerc percentage of the threads that may run {@link JobPriority#NORMAL} jobs
+     * @param lowPriorityMaxThreadPerc percentage of the threads that may run {@link JobPriority#LOW} jobs
+     */
+    public static ThreadPoolExecutor createThreadPoolExec(int keepAliveMs, int size, int queueSize, int normalPriorityMaxThreadPerc, int lowPriorityMaxThreadPerc) {
         BlockingQueue<Runnable> queue;
+        final JobManager<Runnable> jobManager;
         if (queueSize == 0) {
             queue = new SynchronousQueue<Runnable>(); // Specialized for 0 length.
+            jobManager = null;
         } else {
-            queue = new JobManager<Runnable>(queueSize);
+            int[] maxRunning = new int[JobPriority.values().length];
+            maxRunning[JobPriority.HIGH.ordinal()] = Integer.MAX_VALUE;
+            maxRunning[JobPriority.NORMAL.ordinal()] = Math.max(1, size * normalPriorityMaxThreadPerc / 100);
+            maxRunning[JobPriority.LOW.ordinal()] = Math.max(1, size * lowPriorityMaxThreadPerc / 100);
+            queue = jobManager = new JobManager<Runnable>(queueSize, maxRunning);
         }
         ThreadFactory threadFactory = Executors.defaultThreadFactory();
-        // For thread pool, set core threads = max threads -- we don't ever want to exceed core threads, but want to go up to core threads *before* using the queue.
+        // For thread pool, set core threads = max threads -- we don't ever want to exceed core threads. Without a job manager,
+        // we want to go up to core threads *before* using the queue.
         ThreadPoolExecutor exec = new ThreadPoolExecutor(size, size, keepAliveMs, TimeUnit.MILLISECONDS, queue, threadFactory) {
             @Override
             protected <T> RunnableFuture<T> newTaskFor(Callable<T> call) {
@@ -72,6 +125,47 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
                 return new JobFutureTask<T>((JobRunnable)runnable, value);
             }
             
+            /**
+             * Always go through the queue, rather than handing a job directly to a new thread
+             * while the pool is below its size, so that the cap of the job's priority class
+             * applies to an idle pool too. A new thread is started to take the job while the
+             * pool is below its size.
+             */
+            @Override
+            public void execute(Runnable command) {
+                if (jobManager == null) {
+                    super.execute(command);
+                    return;
+                }
+                if (command == null) {
+                    throw new NullPointerException();
+                }
+                if (isShutdown() || !jobManager.offer(command)) {
+                    getRejectedExecutionHandler().rejectedExecution(command, this);
+                    return;
+                }
+                if (isShutdown() && jobManager.remove(command)) {
+                    getRejectedExecutionHandler().rejectedExecution(command, this);
+                    return;
+                }
+                prestartCoreThread();
+            }
+            
+            @Override
+            protected void beforeExecute(Thread t, Runnable r) {
+                super.beforeExecute(t, r);
+                if (jobManager != null) {
+                    jobManager.beforeRun(r);
+                }
+            }
+            
+            @Override
+            protected void afterExecute(Runnable r, Throwable t) {
+                super.afterExecute(r, t);
+                if (jobManager != null) {
+                    jobManager.afterRun(r);
+                }
+            }
         };
         
         exec.allowCoreThreadTimeOut(true); // ... and allow core threads to time out.  This just keeps things clean when idle, and is nice for ftests modes, etc., where we'd especially like these not to linger.
@@ -79,14 +173,17 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
     }
 
     /**
-     * Subclasses FutureTask for the sole purpose of providing {@link #getCallable()}, which is used to extract the producer in the {@link JobBasedRoundRobinQueue}
+     * Subclasses FutureTask for the sole purpose of providing {@link #getJobId()} and {@link #getPriority()},
+     * which are used to extract the producer and priority class in the {@link JobManager}
      */
     static class JobFutureTask<T> extends FutureTask<T> {
         private final Object jobId;
+        private final JobPriority priority;
         
         public JobFutureTask(JobRunnable r, T t) {
             super(r, t);
             this.jobId = r.getJobId();
+            this.priority = r.getPriority();
         }
         
         public JobFutureTask(Callable<T> c) {
@@ -94,14 +191,20 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
             // FIXME: this fails when executor used by hbase
             if (c instanceof JobCallable) {
                 this.jobId = ((JobCallable<T>) c).getJobId();
+                this.priority = ((JobCallable<T>) c).getPriority();
             } else {
                 this.jobId = this;
+                this.priority = JobPriority.NORMAL;
             }
         }
         
         public Object getJobId() {
             return jobId;
         }
+        
+        public JobPriority getPriority() {
+            return priority;
+        }
     }
 
 
@@ -110,6 +213,6 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
      */
     public static interface JobCallable<T> extends Callable<T> {
         public Object getJobId();
+        public JobPriority getPriority();
     }
 }
-
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.job;
+
+/**
+ * 
+ * Priority class of the work submitted to the {@link JobManager}. Queued work
+ * of a higher priority class is always run before queued work of a lower one,
+ * and each class may be capped to a percentage of the threads in the pool so
+ * that batch work cannot saturate it.
+ *
+ * @since 2.0
+ */
+public enum JobPriority {
+    /**
+     * Interactive queries, such as point lookups, that should stay low latency.
+     */
+    HIGH,
+    /**
+     * Default priority of queries.
+     */
+    NORMAL,
+    /**
+     * Batch queries, such as large reporting scans, that may be delayed.
+     */
+    LOW;
+    
+    /**
+     * Get the priority class by case insensitive name.
+     * @param name the name of the priority class or null
+     * @return the priority class or null if name is null
+     * @throws IllegalArgumentException if there's no priority class with this name
+     */
+    public static JobPriority fromName(String name) {
+        return name == null ? null : valueOf(name.toUpperCase());
+    }
+}
@@ -47,6 +47,7 @@ import com.salesforce.phoenix.expression.Expression;
 import com.salesforce.phoenix.expression.ExpressionType;
 import com.salesforce.phoenix.iterate.ResultIterator;
 import com.salesforce.phoenix.job.JobManager.JobCallable;
+import com.salesforce.phoenix.job.JobPriority;
 import com.salesforce.phoenix.memory.MemoryManager.MemoryChunk;
 import com.salesforce.phoenix.query.*;
 import com.salesforce.phoenix.query.Scanner;
@@ -204,6 +205,11 @@ public class HashCacheClient {
                         public Object getJobId() {
                             return HashCacheClient.this;
                         }
+
+                        @Override
+                        public JobPriority getPriority() {
+                            return JobPriority.NORMAL;
+                        }
                     }));
                 }
             }
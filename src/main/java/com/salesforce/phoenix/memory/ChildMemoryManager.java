@@ -27,7 +27,8 @@
  ******************************************************************************/
 package com.salesforce.phoenix.memory;
 
-import org.apache.http.annotation.GuardedBy;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.apache.http.annotation.ThreadSafe;
 
 /**
@@ -36,16 +37,16 @@ import org.apache.http.annotation.ThreadSafe;
  * but enforces that at most a threshold percentage is used by this
  * memory manager.  No blocking is done if the threshold is exceeded,
  * but the standard blocking will be done by the global memory manager.
+ * Bytes are reserved against the threshold atomically before delegating,
+ * so that concurrent allocations don't serialize on the child either.
  *
  * @author jtaylor
  * @since 0.1
  */
 @ThreadSafe
 public class ChildMemoryManager extends DelegatingMemoryManager {
-    private final Object sync = new Object();
     private final int maxPercOfTotal;
-    @GuardedBy("sync")
-    private long allocatedBytes;
+    private final AtomicLong allocatedBytes = new AtomicLong();
     
     public ChildMemoryManager(MemoryManager mm, int maxPercOfTotal) {
         super(mm);
@@ -59,64 +60,89 @@ public class ChildMemoryManager extends DelegatingMemoryManager {
     }
 
 
-    private long adjustAllocation(long minBytes, long reqBytes) {
+    /**
+     * Reserve up to reqBytes, but at least minBytes, against this memory manager's threshold.
+     * @return the number of bytes reserved
+     */
+    private long reserve(long minBytes, long reqBytes) {
         assert(reqBytes >= minBytes);
-        long availBytes = getAvailableMemory();
-        // Check if this memory managers percentage of allocated bytes exceeds its allowed maximum
-        if (minBytes > availBytes) {
-            throw new InsufficientMemoryException("Attempt to allocate more memory than the max allowed of " + maxPercOfTotal + "%");
+        long maxBytes = getMaxMemory();
+        while (true) {
+            long usedBytes = allocatedBytes.get();
+            long availBytes = maxBytes - usedBytes;
+            // Check if this memory managers percentage of allocated bytes exceeds its allowed maximum
+            if (minBytes > availBytes) {
+                throw new InsufficientMemoryException("Attempt to allocate more memory than the max allowed of " + maxPercOfTotal + "%");
+            }
+            // Revise reqBytes down to available memory if necessary
+            long nBytes = Math.min(reqBytes,availBytes);
+            if (allocatedBytes.compareAndSet(usedBytes, usedBytes + nBytes)) {
+                return nBytes;
+            }
         }
-        // Revise reqBytes down to available memory if necessary
-        return Math.min(reqBytes,availBytes);
     }
     
     @Override
     public MemoryChunk allocate(long minBytes, long nBytes) {
-        synchronized (sync) {
-            nBytes = adjustAllocation(minBytes, nBytes);
-            final MemoryChunk chunk = super.allocate(minBytes, nBytes);
-            allocatedBytes += chunk.getSize();
-            // Instantiate delegate chunk to track allocatedBytes correctly
-            return new MemoryChunk() {
-                @Override
-                public void close() {
-                    synchronized (sync) {
-                        allocatedBytes -= chunk.getSize();
-                        chunk.close();
-                    }
-                }
-    
-                @Override
-                public long getSize() {
-                    return chunk.getSize();
-                }
-    
-                @Override
-                public void resize(long nBytes) {
-                    synchronized (sync) {
-                        long size = getSize();
-                        long deltaBytes = nBytes - size;
-                        if (deltaBytes > 0) {
-                            adjustAllocation(deltaBytes,deltaBytes); // Throw if too much memory
-                        }
+        final long reservedBytes = reserve(minBytes, nBytes);
+        final MemoryChunk chunk;
+        try {
+            chunk = super.allocate(minBytes, reservedBytes);
+        } catch (RuntimeException e) {
+            allocatedBytes.addAndGet(-reservedBytes);
+            throw e;
+        }
+        // Global memory manager may have dialed the allocation down further
+        allocatedBytes.addAndGet(chunk.getSize() - reservedBytes);
+        // Instantiate delegate chunk to track allocatedBytes correctly
+        return new MemoryChunk() {
+            @Override
+            public void close() {
+                long size = chunk.getSize();
+                chunk.close();
+                allocatedBytes.addAndGet(-size);
+            }
+
+            @Override
+            public long getSize() {
+                return chunk.getSize();
+            }
+
+            @Override
+            public void resize(long nBytes) {
+                long deltaBytes = nBytes - getSize();
+                if (deltaBytes > 0) {
+                    reserve(deltaBytes,deltaBytes); // Throw if too much memory
+                    try {
                         chunk.resize(nBytes);
-                        allocatedBytes += deltaBytes;
+                    } catch (RuntimeException e) {
+                        allocatedBytes.addAndGet(-deltaBytes);
+                        throw e;
                     }
+                } else {
+                    chunk.resize(nBytes);
+                    allocatedBytes.addAndGet(deltaBytes);
                 }
-            };
-        }
+            }
+        };
     }
 
     @Override
     public long getAvailableMemory() {
-        synchronized (sync) {
-            long availBytes = getMaxMemory() - allocatedBytes;
-            // Sanity check (should never happen)
-            if (availBytes < 0) {
-                throw new IllegalStateException("Available memory has become negative: " + availBytes + " bytes.  Allocated memory: " + allocatedBytes + " bytes.");
-            }
-            return availBytes;
+        long usedBytes = allocatedBytes.get();
+        long availBytes = getMaxMemory() - usedBytes;
+        // Sanity check (should never happen)
+        if (availBytes < 0) {
+            throw new IllegalStateException("Available memory has become negative: " + availBytes + " bytes.  Allocated memory: " + usedBytes + " bytes.");
         }
+        return availBytes;
+    }
+    
+    /**
+     * Get the amount of memory (in bytes) currently allocated through this memory manager.
+     */
+    public long getUsedMemory() {
+        return allocatedBytes.get();
     }
     
     @Override
@@ -27,7 +27,19 @@
  ******************************************************************************/
 package com.salesforce.phoenix.memory;
 
-import org.apache.http.annotation.GuardedBy;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.http.annotation.ThreadSafe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,18 +47,36 @@ import org.slf4j.LoggerFactory;
 /**
  * 
  * Global memory manager to track course grained memory usage across all requests.
+ * Memory is accounted for with atomic operations, so allocation does not serialize
+ * on a shared monitor. An allocation that cannot be satisfied right away waits in
+ * a FIFO queue and is granted memory as soon as its minimum fits, in arrival order,
+ * so that a large request at the head of the queue does not starve smaller ones
+ * behind it. Once anyone is waiting, new requests queue up behind them instead of
+ * barging in. Chunks that are garbage collected without being closed are detected
+ * through phantom references and their memory is returned to the pool.
  *
  * @author jtaylor
  * @since 0.1
  */
+@ThreadSafe
 public class GlobalMemoryManager implements MemoryManager {
     private static final Logger logger = LoggerFactory.getLogger(GlobalMemoryManager.class);
     
-    private final Object sync = new Object();
     private final long maxMemoryBytes;
     private final int maxWaitMs;
-    @GuardedBy("sync")
-    private volatile long usedMemoryBytes;
+    private final AtomicLong usedMemoryBytes = new AtomicLong();
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<Waiter>();
+    
+    // Leak tracking of chunks that were never closed
+    private final ReferenceQueue<GlobalMemoryChunk> orphanedChunks = new ReferenceQueue<GlobalMemoryChunk>();
+    private final Set<ChunkReference> openChunks = Collections.newSetFromMap(new ConcurrentHashMap<ChunkReference,Boolean>());
+    
+    // Usage metrics
+    private final AtomicLong peakMemoryBytes = new AtomicLong();
+    private final AtomicLong allocationCount = new AtomicLong();
+    private final AtomicLong waitCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong orphanedChunkCount = new AtomicLong();
     
     public GlobalMemoryManager(long maxBytes, int maxWaitMs) {
         if (maxBytes <= 0) {
@@ -57,14 +87,11 @@ public class GlobalMemoryManager implements MemoryManager {
         }
         this.maxMemoryBytes = maxBytes;
         this.maxWaitMs = maxWaitMs;
-        this.usedMemoryBytes = 0;
     }
     
     @Override
     public long getAvailableMemory() {
-        synchronized(sync) {
-            return maxMemoryBytes - usedMemoryBytes;
-        }
+        return maxMemoryBytes - usedMemoryBytes.get();
     }
 
     @Override
@@ -72,8 +99,55 @@ public class GlobalMemoryManager implements MemoryManager {
         return maxMemoryBytes;
     }
 
-
-    // TODO: Work on fairness: One big memory request can cause all others to block here.
+    /**
+     * Get the amount of memory (in bytes) currently allocated.
+     */
+    public long getUsedMemory() {
+        return usedMemoryBytes.get();
+    }
+    
+    /**
+     * Get the high water mark (in bytes) of allocated memory.
+     */
+    public long getPeakMemory() {
+        return peakMemoryBytes.get();
+    }
+    
+    /**
+     * Get the number of successful allocations, including resizes up.
+     */
+    public long getAllocationCount() {
+        return allocationCount.get();
+    }
+    
+    /**
+     * Get the number of allocations that had to wait for memory to be freed.
+     */
+    public long getWaitCount() {
+        return waitCount.get();
+    }
+    
+    /**
+     * Get the number of allocations that failed after waiting the maximum wait time.
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+    
+    /**
+     * Get the number of allocations currently waiting for memory.
+     */
+    public int getWaiterCount() {
+        return waiters.size();
+    }
+    
+    /**
+     * Get the number of chunks that were garbage collected without having been closed.
+     */
+    public long getOrphanedChunkCount() {
+        return orphanedChunkCount.get();
+    }
+    
     private long allocateBytes(long minBytes, long reqBytes) {
         if (minBytes < 0 || reqBytes < 0) {
             throw new IllegalStateException("Minimum requested bytes (" + minBytes + ") and requested bytes (" + reqBytes + ") must be greater than zero");
@@ -81,28 +155,129 @@ public class GlobalMemoryManager implements MemoryManager {
         if (minBytes > maxMemoryBytes) { // No need to wait, since we'll never have this much available
             throw new InsufficientMemoryException("Requested memory of " + minBytes + " bytes is larger than global pool of " + maxMemoryBytes + " bytes.");
         }
-        long startTimeMs = System.currentTimeMillis(); // Get time outside of sync block to account for waiting for lock
-        long nBytes;
-        synchronized(sync) {
-            while (usedMemoryBytes + minBytes > maxMemoryBytes) { // Only wait if minBytes not available
-                try {
-                    long remainingWaitTimeMs = maxWaitMs - (System.currentTimeMillis() - startTimeMs);
-                    if (remainingWaitTimeMs <= 0) { // Ran out of time waiting for some memory to get freed up
-                        throw new InsufficientMemoryException("Requested memory of " + minBytes + " bytes could not be allocated from remaining memory of " + usedMemoryBytes + " bytes from global pool of " + maxMemoryBytes + " bytes after waiting for " + maxWaitMs + "ms.");
+        reclaimOrphanedChunks();
+        long nBytes = -1;
+        if (waiters.isEmpty()) { // Don't barge in front of allocations already waiting
+            nBytes = tryAllocateBytes(minBytes, reqBytes);
+        }
+        if (nBytes < 0) {
+            nBytes = waitForBytes(minBytes, reqBytes);
+        }
+        allocationCount.incrementAndGet();
+        return nBytes;
+    }
+    
+    /**
+     * Allocate at most reqBytes, but at least minBytes, without blocking.
+     * @return the number of bytes allocated or -1 if minBytes is not available
+     */
+    private long tryAllocateBytes(long minBytes, long reqBytes) {
+        while (true) {
+            long usedBytes = usedMemoryBytes.get();
+            long availBytes = maxMemoryBytes - usedBytes;
+            if (availBytes < minBytes) {
+                return -1;
+            }
+            long nBytes = Math.min(reqBytes, availBytes);
+            if (usedMemoryBytes.compareAndSet(usedBytes, usedBytes + nBytes)) {
+                updatePeak(usedBytes + nBytes);
+                return nBytes;
+            }
+        }
+    }
+    
+    private void updatePeak(long usedBytes) {
+        long peakBytes;
+        while (usedBytes > (peakBytes = peakMemoryBytes.get())) {
+            if (peakMemoryBytes.compareAndSet(peakBytes, usedBytes)) {
+                return;
+            }
+        }
+    }
+    
+    private long waitForBytes(long minBytes, long reqBytes) {
+        long startTimeMs = System.currentTimeMillis();
+        Waiter waiter = new Waiter(minBytes, reqBytes);
+        waiters.add(waiter);
+        waitCount.incrementAndGet();
+        try {
+            // Memory may have been freed before we were enqueued
+            grantWaiters();
+            while (true) {
+                long nBytes = waiter.getGrantedBytes();
+                if (nBytes >= 0) {
+                    return nBytes;
+                }
+                long remainingWaitTimeMs = maxWaitMs - (System.currentTimeMillis() - startTimeMs);
+                if (remainingWaitTimeMs <= 0) { // Ran out of time waiting for some memory to get freed up
+                    if (waiter.cancel()) {
+                        timeoutCount.incrementAndGet();
+                        throw new InsufficientMemoryException("Requested memory of " + minBytes + " bytes could not be allocated from remaining memory of " + getAvailableMemory() + " bytes from global pool of " + maxMemoryBytes + " bytes after waiting for " + maxWaitMs + "ms.");
+                    }
+                    continue; // Granted concurrently with the timeout
+                }
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(remainingWaitTimeMs));
+                if (Thread.interrupted()) {
+                    // Checking clears the interrupt status, so set it again for the caller to see
+                    Thread.currentThread().interrupt();
+                    if (waiter.cancel()) {
+                        throw new RuntimeException("Interrupted allocation of " + minBytes + " bytes", new InterruptedException());
+                    }
+                    // Otherwise granted concurrently with the interrupt
+                }
+            }
+        } finally {
+            waiters.remove(waiter);
+        }
+    }
+    
+    /**
+     * Hand out free memory to waiting allocations in arrival order, skipping
+     * over any whose minimum does not fit yet.
+     */
+    private void grantWaiters() {
+        boolean rescan;
+        do {
+            rescan = false;
+            for (Waiter waiter : waiters) {
+                if (!waiter.isWaiting()) {
+                    continue;
+                }
+                long nBytes = tryAllocateBytes(waiter.minBytes, waiter.reqBytes);
+                if (nBytes >= 0) {
+                    if (waiter.grant(nBytes)) {
+                        LockSupport.unpark(waiter.thread);
+                    } else { // Waiter gave up in the meantime, so give the memory back
+                        usedMemoryBytes.addAndGet(-nBytes);
+                        rescan = true;
                     }
-                    sync.wait(remainingWaitTimeMs);
-                } catch (InterruptedException ie) {
-                    throw new RuntimeException("Interrupted allocation of " + minBytes + " bytes", ie);
                 }
             }
-            // Allocate at most reqBytes, but at least minBytes
-            nBytes = Math.min(reqBytes, maxMemoryBytes - usedMemoryBytes);
-            if (nBytes < minBytes) {
-                throw new IllegalStateException("Allocated bytes (" + nBytes + ") should be at least the minimum requested bytes (" + minBytes + ")");
+        } while (rescan);
+    }
+    
+    private void releaseBytes(long nBytes) {
+        usedMemoryBytes.addAndGet(-nBytes);
+        if (!waiters.isEmpty()) {
+            grantWaiters();
+        }
+    }
+    
+    /**
+     * Return the memory held by chunks that became unreachable without being closed.
+     */
+    private void reclaimOrphanedChunks() {
+        Reference<? extends GlobalMemoryChunk> ref;
+        while ((ref = orphanedChunks.poll()) != null) {
+            ChunkReference chunkRef = (ChunkReference)ref;
+            openChunks.remove(chunkRef);
+            long size = chunkRef.size.getAndSet(0);
+            if (size > 0) {
+                orphanedChunkCount.incrementAndGet();
+                logger.warn("Orphaned chunk of " + size + " bytes found after garbage collection");
+                releaseBytes(size);
             }
-            usedMemoryBytes += nBytes;
         }
-        return nBytes;
     }
 
     @Override
@@ -120,21 +295,66 @@ public class GlobalMemoryManager implements MemoryManager {
         return new GlobalMemoryChunk(sizeBytes);
     }
     
+    private static class Waiter {
+        private static final long WAITING = -1;
+        private static final long CANCELLED = -2;
+        
+        private final Thread thread = Thread.currentThread();
+        private final long minBytes;
+        private final long reqBytes;
+        private final AtomicLong grantedBytes = new AtomicLong(WAITING);
+        
+        private Waiter(long minBytes, long reqBytes) {
+            this.minBytes = minBytes;
+            this.reqBytes = reqBytes;
+        }
+        
+        private boolean isWaiting() {
+            return grantedBytes.get() == WAITING;
+        }
+        
+        private boolean grant(long nBytes) {
+            return grantedBytes.compareAndSet(WAITING, nBytes);
+        }
+        
+        private boolean cancel() {
+            return grantedBytes.compareAndSet(WAITING, CANCELLED);
+        }
+        
+        private long getGrantedBytes() {
+            return grantedBytes.get();
+        }
+    }
+    
+    /**
+     * Phantom reference sharing the size of its chunk, so that the memory
+     * of a chunk that was never closed can be returned once it is collected.
+     */
+    private static class ChunkReference extends PhantomReference<GlobalMemoryChunk> {
+        private final AtomicLong size;
+        
+        private ChunkReference(GlobalMemoryChunk chunk, ReferenceQueue<GlobalMemoryChunk> queue) {
+            super(chunk, queue);
+            this.size = chunk.size;
+        }
+    }
+    
     private class GlobalMemoryChunk implements MemoryChunk {
-        private volatile long size;
+        private final AtomicLong size;
+        private final ChunkReference ref;
 
         private GlobalMemoryChunk(long size) {
             if (size < 0) {
                 throw new IllegalStateException("Size of memory chunk must be greater than zero, but instead is " + size);
             }
-            this.size = size;
+            this.size = new AtomicLong(size);
+            this.ref = new ChunkReference(this, orphanedChunks);
+            openChunks.add(ref);
         }
 
         @Override
         public long getSize() {
-            synchronized(sync) {
-                return size; // TODO: does this need to be synchronized?
-            }
+            return size.get();
         }
         
         @Override
@@ -142,45 +362,25 @@ public class GlobalMemoryManager implements MemoryManager {
             if (nBytes < 0) {
                 throw new IllegalStateException("Number of bytes to resize to must be greater than zero, but instead is " + nBytes);
             }
-            synchronized(sync) {
-                long nAdditionalBytes = (nBytes - size);
-                if (nAdditionalBytes < 0) {
-                    usedMemoryBytes += nAdditionalBytes;
-                    size = nBytes;
-                    sync.notifyAll();
-                } else {
-                    allocateBytes(nAdditionalBytes, nAdditionalBytes);
-                    size = nBytes;
-                }
-            }
-        }
-        
-        /**
-         * Check that MemoryChunk has previously been closed.
-         */
-        @Override
-        protected void finalize() throws Throwable {
-            try {
-                close();
-                if (size > 0) {
-                    logger.warn("Orphaned chunk of " + size + " bytes found during finalize");
-                }
-                // TODO: log error here, but we can't use SFDC logging
-                // because this runs in an hbase coprocessor.
-                // Create a gack-like API (talk with GridForce or HBase folks)
-            } finally {
-                super.finalize();
+            long nAdditionalBytes = (nBytes - size.get());
+            if (nAdditionalBytes < 0) {
+                size.addAndGet(nAdditionalBytes);
+                releaseBytes(-nAdditionalBytes);
+            } else if (nAdditionalBytes > 0) {
+                allocateBytes(nAdditionalBytes, nAdditionalBytes);
+                size.addAndGet(nAdditionalBytes);
             }
         }
         
         @Override
         public void close() {
-            synchronized(sync) {
-                usedMemoryBytes -= size;
-                size = 0;
-                sync.notifyAll();
+            long nBytes = size.getAndSet(0);
+            if (openChunks.remove(ref)) {
+                ref.clear();
+            }
+            if (nBytes > 0) {
+                releaseBytes(nBytes);
             }
         }
     }
 }
- 
@@ -9,9 +9,10 @@ import com.salesforce.phoenix.jdbc.PhoenixConnection;
 import com.salesforce.phoenix.jdbc.PhoenixStatement;
 import com.salesforce.phoenix.parse.*;
 import com.salesforce.phoenix.parse.HintNode.Hint;
-import com.salesforce.phoenix.query.QueryServices;
-import com.salesforce.phoenix.query.QueryServicesOptions;
+import com.salesforce.phoenix.query.*;
 import com.salesforce.phoenix.schema.*;
+import com.salesforce.phoenix.schema.stat.TableStatistics;
+import com.salesforce.phoenix.util.IndexUtil;
 
 public class QueryOptimizer {
     private static final ParseNodeFactory FACTORY = new ParseNodeFactory();
@@ -25,8 +26,18 @@ public class QueryOptimizer {
     }
 
     public QueryPlan optimize(SelectStatement select, PhoenixStatement statement) throws SQLException {
+        return optimize(select, statement, true);
+    }
+    
+    /**
+     * @param runSubqueries false to choose the plan without running any subqueries, when the
+     * statement is only explained.
+     */
+    public QueryPlan optimize(SelectStatement select, PhoenixStatement statement, boolean runSubqueries) throws SQLException {
         List<Object> binds = statement.getParameters();
         PhoenixConnection connection = statement.getConnection();
+        // Run any subqueries once here instead of once per candidate plan
+        select = SubqueryRewriter.rewrite(select, connection, binds, runSubqueries);
         QueryCompiler compiler = new QueryCompiler(connection, statement.getMaxRows());
         QueryPlan dataPlan = compiler.compile(select, binds);
         if (!useIndexes) {
@@ -35,11 +46,7 @@ public class QueryOptimizer {
         
         PTable dataTable = dataPlan.getTableRef().getTable();
         List<PTable>indexes = Lists.newArrayList(dataTable.getIndexes());
-        /*
-         * Only indexes on tables with immutable rows may be used until we hook up
-         * incremental index maintenance. 
-         */
-        if (!dataTable.isImmutableRows() || indexes.isEmpty() || dataPlan.getTableRef().hasDynamicCols() || dataPlan.getContext().hasHint(Hint.NO_INDEX)) {
+        if (indexes.isEmpty() || dataPlan.getTableRef().hasDynamicCols() || dataPlan.getContext().hasHint(Hint.NO_INDEX)) {
             return dataPlan;
         }
         
@@ -55,7 +62,7 @@ public class QueryOptimizer {
             addPlan(statement, translatedSelect, index, plans);
         }
         
-        return chooseBestPlan(select, plans);
+        return chooseBestPlan(select, plans, connection.getQueryServices().getStatsManager());
     }
     
     private static QueryPlan getHintedQueryPlan(PhoenixStatement statement, SelectStatement translatedSelect, List<PTable> indexes, List<QueryPlan> plans) throws SQLException {
@@ -146,17 +153,19 @@ public class QueryOptimizer {
     
     /**
      * Choose the best plan among all the possible ones.
-     * Since we don't keep stats yet, we use the following simple algorithm:
+     * We use the following algorithm:
      * 1) If the query has an ORDER BY and a LIMIT, choose the plan that has all the ORDER BY expression
      * in the same order as the row key columns.
      * 2) If there are more than one plan that meets (1), choose the plan with:
-     *    a) the most row key columns that may be used to form the start/stop scan key.
-     *    b) the plan that preserves ordering for a group by.
-     *    c) the data table plan
+     *    a) the fewest estimated bytes scanned, if statistics have been collected for all of the tables.
+     *    b) the point lookup of a set of full row keys.
+     *    c) the most row key columns that may be used to form the start/stop scan key.
+     *    d) the plan that preserves ordering for a group by.
+     *    e) the data table plan
      * @param plans the list of candidate plans
      * @return
      */
-    private QueryPlan chooseBestPlan(SelectStatement select, List<QueryPlan> plans) {
+    private QueryPlan chooseBestPlan(SelectStatement select, List<QueryPlan> plans, StatsManager statsManager) {
         QueryPlan firstPlan = plans.get(0);
         if (plans.size() == 1) {
             return firstPlan;
@@ -176,11 +185,24 @@ public class QueryOptimizer {
                 candidates.addAll(plans);
             }
         }
+        final Map<QueryPlan,Long> costs = estimateCosts(candidates, firstPlan, statsManager);
         Collections.sort(candidates, new Comparator<QueryPlan>() {
 
             @Override
             public int compare(QueryPlan plan1, QueryPlan plan2) {
-                int c = plan2.getContext().getScanRanges().getRanges().size() - plan1.getContext().getScanRanges().getRanges().size();
+                if (costs != null) {
+                    long cost1 = costs.get(plan1);
+                    long cost2 = costs.get(plan2);
+                    if (cost1 != cost2) {
+                        return cost1 < cost2 ? -1 : 1;
+                    }
+                }
+                ScanRanges scanRanges1 = plan1.getContext().getScanRanges();
+                ScanRanges scanRanges2 = plan2.getContext().getScanRanges();
+                if (scanRanges1.isPointLookup() != scanRanges2.isPointLookup()) {
+                    return scanRanges1.isPointLookup() ? -1 : 1;
+                }
+                int c = scanRanges2.getBoundPkColumnCount() - scanRanges1.getBoundPkColumnCount();
                 if (c != 0) return c;
                 if (plan1.getGroupBy()!=null && plan2.getGroupBy()!=null) {
                     if (plan1.getGroupBy().isOrderPreserving() != plan2.getGroupBy().isOrderPreserving()) {
@@ -211,4 +233,76 @@ public class QueryOptimizer {
     }
 
     
+    /**
+     * Estimate the cost of each candidate plan as the number of bytes it will scan, based on
+     * the statistics collected by ANALYZE.
+     * @return the map of plan to cost or null if any of the plans cannot be costed, since
+     * costed and uncosted plans cannot be compared.
+     */
+    private static Map<QueryPlan,Long> estimateCosts(List<QueryPlan> candidates, QueryPlan dataPlan, StatsManager statsManager) {
+        TableStatistics dataStats = statsManager.getTableStatistics(dataPlan.getTableRef());
+        Map<QueryPlan,Long> costs = new IdentityHashMap<QueryPlan,Long>();
+        for (QueryPlan plan : candidates) {
+            long cost = estimateBytesScanned(plan, statsManager, dataStats);
+            if (cost < 0) {
+                return null;
+            }
+            costs.put(plan, cost);
+        }
+        return costs;
+    }
+    
+    private static long estimateBytesScanned(QueryPlan plan, StatsManager statsManager, TableStatistics dataStats) {
+        ScanRanges scanRanges = plan.getContext().getScanRanges();
+        if (scanRanges.isDegenerate()) {
+            return 0;
+        }
+        TableStatistics stats = statsManager.getTableStatistics(plan.getTableRef());
+        if (stats == null) {
+            return -1;
+        }
+        long byteCount = stats.estimateByteCount(scanRanges);
+        if (scanRanges.isSingleRowScan()) {
+            return Math.min(byteCount, stats.getAverageRowSize());
+        }
+        PTable table = plan.getTableRef().getTable();
+        if (table.getType() == PTableType.INDEX && dataStats != null) {
+            long rowCount = estimateIndexRowCount(table, scanRanges, dataStats);
+            if (rowCount >= 0) {
+                byteCount = Math.min(byteCount, rowCount * stats.getAverageRowSize());
+            }
+        }
+        return byteCount;
+    }
+    
+    /**
+     * Guide posts are too coarse to tell apart equality lookups of different selectivity, so
+     * when the leading index column is bound to single keys, estimate the rows using the number
+     * of distinct values of the corresponding column in the data table.
+     * @return the estimated row count or -1 if unknown
+     */
+    private static long estimateIndexRowCount(PTable index, ScanRanges scanRanges, TableStatistics dataStats) {
+        int pkPosition = index.getBucketNum() == null ? 0 : 1;
+        List<List<KeyRange>> ranges = scanRanges.getRanges();
+        if (ranges.size() <= pkPosition) {
+            return -1;
+        }
+        List<KeyRange> keyRanges = ranges.get(pkPosition);
+        for (KeyRange keyRange : keyRanges) {
+            if (!keyRange.isSingleKey()) {
+                return -1;
+            }
+        }
+        String indexColumnName = index.getPKColumns().get(pkPosition).getName().getString();
+        String familyName = IndexUtil.getDataColumnFamilyName(indexColumnName);
+        if (familyName == null) { // Row key column of the data table
+            return -1;
+        }
+        long distinctValueCount = dataStats.getDistinctValueCount(familyName, IndexUtil.getDataColumnName(indexColumnName));
+        if (distinctValueCount <= 0) {
+            return -1;
+        }
+        return (long)Math.ceil((double)keyRanges.size() * dataStats.getRowCount() / distinctValueCount);
+    }
+
 }
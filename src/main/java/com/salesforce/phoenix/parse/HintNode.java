@@ -69,7 +69,19 @@ public class HintNode {
        * Table and index names may be surrounded by double quotes
        * if they are case sensitive.
        */
-       INDEX;
+       INDEX,
+       /**
+        * Runs the parallel scans of the query before those of
+        * lower priority queries, overriding the QueryPriority
+        * connection property.
+        */
+       HIGH_PRIORITY,
+       /**
+        * Runs the parallel scans of the query after those of
+        * higher priority queries, overriding the QueryPriority
+        * connection property.
+        */
+       LOW_PRIORITY;
     };
 
     private final Map<Hint,String> hints = new HashMap<Hint,String>();
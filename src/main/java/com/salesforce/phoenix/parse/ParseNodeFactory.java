@@ -286,6 +286,10 @@ public class ParseNodeFactory {
         return new AlterIndexStatement(indexTableNode, dataTableName, ifExists, state);
     }
     
+    public AnalyzeStatement analyze(NamedTableNode table) {
+        return new AnalyzeStatement(table);
+    }
+    
     public TableName table(String schemaName, String tableName) {
         return new TableName(schemaName,tableName);
     }
@@ -440,6 +444,50 @@ public class ParseNodeFactory {
         }
     }
 
+    /**
+     * Expand a comparison between two row value constructors into its equivalent
+     * in terms of column comparisons. For example, (a, b) > (x, y) becomes
+     * a > x OR (a = x AND b > y). The disjuncts are ordered by the number of
+     * leading columns constrained to be equal, which is the form the
+     * WhereOptimizer recognizes to form a single composite scan key.
+     * @param op the comparison operator
+     * @param lhs the expressions of the left hand row value constructor
+     * @param rhs the expressions of the right hand row value constructor
+     * @throws IllegalArgumentException if the row value constructors have a different
+     * number of expressions
+     */
+    public ParseNode rowValueConstructorComparison(CompareOp op, List<ParseNode> lhs, List<ParseNode> rhs) {
+        if (lhs.size() != rhs.size()) {
+            throw new IllegalArgumentException("Row value constructors must have the same number of expressions, but found " + lhs.size() + " and " + rhs.size());
+        }
+        int nExpressions = lhs.size();
+        List<ParseNode> children = new ArrayList<ParseNode>(nExpressions);
+        switch (op) {
+        case EQUAL:
+            for (int i = 0; i < nExpressions; i++) {
+                children.add(equal(lhs.get(i), rhs.get(i)));
+            }
+            return and(children);
+        case NOT_EQUAL:
+            for (int i = 0; i < nExpressions; i++) {
+                children.add(notEqual(lhs.get(i), rhs.get(i)));
+            }
+            return or(children);
+        default:
+            // All but the last column must compare strictly, since equality is handled by the next disjunct
+            CompareOp strictOp = op == CompareOp.LESS || op == CompareOp.LESS_OR_EQUAL ? CompareOp.LESS : CompareOp.GREATER;
+            for (int i = 0; i < nExpressions; i++) {
+                List<ParseNode> conjuncts = new ArrayList<ParseNode>(i + 1);
+                for (int j = 0; j < i; j++) {
+                    conjuncts.add(equal(lhs.get(j), rhs.get(j)));
+                }
+                conjuncts.add(comparison(i == nExpressions - 1 ? op : strictOp, lhs.get(i), rhs.get(i)));
+                children.add(conjuncts.size() == 1 ? conjuncts.get(0) : and(conjuncts));
+            }
+            return or(children);
+        }
+    }
+
     public GreaterThanParseNode gt(ParseNode lhs, ParseNode rhs) {
         return new GreaterThanParseNode(lhs, rhs);
     }
@@ -516,6 +564,10 @@ public class ParseNodeFactory {
         return new SubqueryParseNode(select);
     }
 
+    public SubqueryPlaceholderParseNode subqueryPlaceholder(ParseNode lhs) {
+        return new SubqueryPlaceholderParseNode(lhs);
+    }
+
     public LimitNode limit(BindParseNode b) {
         return new LimitNode(b);
     }
@@ -54,7 +54,9 @@ public abstract class BaseQueryServicesImpl implements QueryServices {
         this.executor =  JobManager.createThreadPoolExec(
                 options.getKeepAliveMs(), 
                 options.getThreadPoolSize(), 
-                options.getQueueSize());
+                options.getQueueSize(),
+                options.getNormalPriorityMaxThreadPerc(),
+                options.getLowPriorityMaxThreadPerc());
         this.memoryManager = new GlobalMemoryManager(
                 Runtime.getRuntime().totalMemory() * options.getMaxMemoryPerc() / 100,
                 options.getMaxMemoryWaitMs());
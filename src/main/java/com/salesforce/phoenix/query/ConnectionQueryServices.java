@@ -37,6 +37,7 @@ import org.apache.hadoop.hbase.util.Pair;
 
 import com.salesforce.phoenix.compile.MutationPlan;
 import com.salesforce.phoenix.coprocessor.MetaDataProtocol.MetaDataMutationResult;
+import com.salesforce.phoenix.cache.QueryResultCache;
 import com.salesforce.phoenix.execute.MutationState;
 import com.salesforce.phoenix.jdbc.PhoenixConnection;
 import com.salesforce.phoenix.schema.PTableType;
@@ -65,6 +66,8 @@ public interface ConnectionQueryServices extends QueryServices, MetaDataMutated
 
     public StatsManager getStatsManager();
 
+    public QueryResultCache getQueryResultCache();
+
     public NavigableMap<HRegionInfo, ServerName> getAllTableRegions(TableRef table) throws SQLException;
 
     public PhoenixConnection connect(String url, Properties info) throws SQLException;
@@ -76,6 +79,15 @@ public interface ConnectionQueryServices extends QueryServices, MetaDataMutated
     public MetaDataMutationResult dropColumn(List<Mutation> tableMetadata, byte[] emptyCF) throws SQLException;
     public MetaDataMutationResult updateIndexState(List<Mutation> tableMetadata, String parentTableName) throws SQLException;
     public MutationState updateData(MutationPlan plan) throws SQLException;
+    /**
+     * Attach the coprocessor that maintains indexes on the server-side to the HBase table
+     * of a data table with mutable rows, if it's not already attached. The table is modified
+     * online, so it stays available.
+     * @param tableName the physical name of the data table
+     * @throws SQLException if the coprocessor is not attached and the HBase master does not
+     * allow online schema updates
+     */
+    public void ensureIndexMaintenanceEnabled(byte[] tableName) throws SQLException;
 
     public void init(String url, Properties props) throws SQLException;
 
@@ -50,29 +50,35 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.cache.*;
 import com.google.common.collect.*;
+import com.salesforce.hbase.index.Indexer;
+import com.salesforce.phoenix.cache.QueryResultCache;
 import com.salesforce.phoenix.compile.MutationPlan;
 import com.salesforce.phoenix.coprocessor.*;
 import com.salesforce.phoenix.coprocessor.MetaDataProtocol.MetaDataMutationResult;
 import com.salesforce.phoenix.coprocessor.MetaDataProtocol.MutationCode;
 import com.salesforce.phoenix.exception.*;
 import com.salesforce.phoenix.execute.MutationState;
+import com.salesforce.phoenix.index.PhoenixIndexBuilder;
 import com.salesforce.phoenix.jdbc.*;
 import com.salesforce.phoenix.jdbc.PhoenixEmbeddedDriver.ConnectionInfo;
 import com.salesforce.phoenix.join.HashJoiningRegionObserver;
 import com.salesforce.phoenix.schema.*;
 import com.salesforce.phoenix.schema.TableNotFoundException;
+import com.salesforce.phoenix.schema.stat.StatisticsUtil;
 import com.salesforce.phoenix.util.*;
 
 public class ConnectionQueryServicesImpl extends DelegateQueryServices implements ConnectionQueryServices {
     private static final Logger logger = LoggerFactory.getLogger(ConnectionQueryServicesImpl.class);
     private static final int INITIAL_CHILD_SERVICES_CAPACITY = 100;
     private static final int DEFAULT_OUT_OF_ORDER_MUTATIONS_WAIT_TIME_MS = 1000;
+    private static final int ALTER_STATUS_POLL_MS = 1000;
     protected final Configuration config;
     // Copy of config.getProps(), but read-only to prevent synchronization that we
     // don't need.
     private final ReadOnlyProps props;
     private final HConnection connection;
     private final StatsManager statsManager;
+    private final QueryResultCache queryResultCache;
     private final ConcurrentHashMap<ImmutableBytesWritable,ConnectionQueryServices> childServices;
     // Cache the latest meta data here for future connections
     private volatile PMetaData latestMetaData = PMetaDataImpl.EMPTY_META_DATA;
@@ -119,6 +125,9 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
         int statsUpdateFrequencyMs = this.getProps().getInt(QueryServices.STATS_UPDATE_FREQ_MS_ATTRIB, QueryServicesOptions.DEFAULT_STATS_UPDATE_FREQ_MS);
         int maxStatsAgeMs = this.getProps().getInt(QueryServices.MAX_STATS_AGE_MS_ATTRIB, QueryServicesOptions.DEFAULT_MAX_STATS_AGE_MS);
         this.statsManager = new StatsManagerImpl(this, statsUpdateFrequencyMs, maxStatsAgeMs);
+        long resultCacheSizeBytes = this.getProps().getLong(QueryServices.RESULT_CACHE_SIZE_BYTES_ATTRIB, QueryServicesOptions.DEFAULT_RESULT_CACHE_SIZE_BYTES);
+        long resultCacheMaxStalenessMs = this.getProps().getLong(QueryServices.RESULT_CACHE_MAX_STALENESS_MS_ATTRIB, QueryServicesOptions.DEFAULT_RESULT_CACHE_MAX_STALENESS_MS);
+        this.queryResultCache = new QueryResultCache(getMemoryManager(), resultCacheSizeBytes, resultCacheMaxStalenessMs);
         /**
          * keep a cache of HRegionInfo objects
          */
@@ -143,6 +152,11 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
     public StatsManager getStatsManager() {
         return this.statsManager;
     }
+
+    @Override
+    public QueryResultCache getQueryResultCache() {
+        return this.queryResultCache;
+    }
     
     @Override
     public HTableInterface getTable(byte[] tableName) throws SQLException {
@@ -302,6 +316,7 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
 
     @Override
     public PMetaData addColumn(final String schemaName, final String tableName, final List<PColumn> columns, final long tableTimeStamp, final long tableSeqNum, final boolean isImmutableRows) throws SQLException {
+        queryResultCache.clear();
         return metaDataMutated(schemaName, tableName, tableSeqNum, new Mutator() {
             @Override
             public PMetaData mutate(PMetaData metaData) throws SQLException {
@@ -317,6 +332,7 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
 
     @Override
     public PMetaData removeTable(final String schemaName, final String tableName) throws SQLException {
+        queryResultCache.clear();
         synchronized(latestMetaDataLock) {
             latestMetaData = latestMetaData.removeTable(schemaName, tableName);
             latestMetaDataLock.notifyAll();
@@ -326,6 +342,7 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
 
     @Override
     public PMetaData removeColumn(final String schemaName, final String tableName, final String familyName, final String columnName, final long tableTimeStamp, final long tableSeqNum) throws SQLException {
+        queryResultCache.clear();
         return metaDataMutated(schemaName, tableName, tableSeqNum, new Mutator() {
             @Override
             public PMetaData mutate(PMetaData metaData) throws SQLException {
@@ -915,6 +932,48 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
                 throw sqlE;
             }
         }
+        ensureStatsTableCreated();
+    }
+
+    /**
+     * Create the HBase table that ANALYZE writes table statistics into. The table is
+     * not part of the Phoenix meta data, since it's only read and written directly
+     * through HBase.
+     * @throws SQLException
+     */
+    private void ensureStatsTableCreated() throws SQLException {
+        SQLException sqlE = null;
+        HBaseAdmin admin = null;
+        try {
+            admin = new HBaseAdmin(config);
+            if (!admin.tableExists(StatisticsUtil.STATS_TABLE_NAME)) {
+                HTableDescriptor descriptor = new HTableDescriptor(StatisticsUtil.STATS_TABLE_NAME);
+                HColumnDescriptor family = new HColumnDescriptor(StatisticsUtil.STATS_FAMILY);
+                family.setMaxVersions(1);
+                descriptor.addFamily(family);
+                admin.createTable(descriptor);
+            }
+        } catch (TableExistsException e) {
+            // Created concurrently by another client
+        } catch (IOException e) {
+            sqlE = ServerUtil.parseServerException(e);
+        } finally {
+            try {
+                if (admin != null) {
+                    admin.close();
+                }
+            } catch (IOException e) {
+                if (sqlE == null) {
+                    sqlE = ServerUtil.parseServerException(e);
+                } else {
+                    sqlE.setNextException(ServerUtil.parseServerException(e));
+                }
+            } finally {
+                if (sqlE != null) {
+                    throw sqlE;
+                }
+            }
+        }
     }
 
     @Override
@@ -922,6 +981,67 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
         return plan.execute();
     }
 
+    @Override
+    public void ensureIndexMaintenanceEnabled(byte[] tableName) throws SQLException {
+        HBaseAdmin admin = null;
+        SQLException sqlE = null;
+        try {
+            admin = new HBaseAdmin(config);
+            try {
+                HTableDescriptor descriptor = admin.getTableDescriptor(tableName);
+                if (descriptor.hasCoprocessor(Indexer.class.getName())) {
+                    return;
+                }
+                // Only tables with a mutable index get the Indexer, since it has to be
+                // supported by the configuration of every region server hosting the table.
+                com.salesforce.hbase.index.IndexUtil.enableIndexing(descriptor, PhoenixIndexBuilder.class, new HashMap<String,String>());
+                // Change the schema online, since DDL shouldn't take the data table offline
+                admin.modifyTable(tableName, descriptor);
+                waitForTableModified(admin, tableName);
+            } catch (TableNotDisabledException e) {
+                // The master doesn't allow online schema updates
+                sqlE = new SQLExceptionInfo.Builder(SQLExceptionCode.INDEX_MAINTENANCE_NOT_ENABLED).setRootCause(e)
+                        .setMessage("Table=" + Bytes.toString(tableName)).build().buildException();
+            } catch (org.apache.hadoop.hbase.TableNotFoundException e) {
+                sqlE = new SQLExceptionInfo.Builder(SQLExceptionCode.TABLE_UNDEFINED).setRootCause(e).build().buildException();
+            }
+        } catch (IOException e) {
+            sqlE = ServerUtil.parseServerException(e);
+        } finally {
+            try {
+                if (admin != null) {
+                    admin.close();
+                }
+            } catch (IOException e) {
+                if (sqlE == null) {
+                    sqlE = ServerUtil.parseServerException(e);
+                } else {
+                    sqlE.setNextException(ServerUtil.parseServerException(e));
+                }
+            } finally {
+                if (sqlE != null) {
+                    throw sqlE;
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait for all the regions of a table modified online to reopen with the new descriptor,
+     * as the HBase shell does for an alter.
+     */
+    private static void waitForTableModified(HBaseAdmin admin, byte[] tableName) throws IOException, SQLException {
+        try {
+            while (admin.getAlterStatus(tableName).getFirst() > 0) {
+                Thread.sleep(ALTER_STATUS_POLL_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLExceptionInfo.Builder(SQLExceptionCode.INTERRUPTED_EXCEPTION)
+                .setRootCause(e).build().buildException();
+        }
+    }
+
     @Override
     public int getLowestClusterHBaseVersion() {
         return lowestClusterHBaseVersion;
@@ -38,6 +38,7 @@ import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.Pair;
 
+import com.salesforce.phoenix.cache.QueryResultCache;
 import com.salesforce.phoenix.compile.MutationPlan;
 import com.salesforce.phoenix.coprocessor.*;
 import com.salesforce.phoenix.coprocessor.MetaDataProtocol.MetaDataMutationResult;
@@ -46,6 +47,7 @@ import com.salesforce.phoenix.execute.MutationState;
 import com.salesforce.phoenix.jdbc.PhoenixConnection;
 import com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData;
 import com.salesforce.phoenix.schema.*;
+import com.salesforce.phoenix.schema.stat.TableStatistics;
 import com.salesforce.phoenix.util.PhoenixRuntime;
 import com.salesforce.phoenix.util.SchemaUtil;
 
@@ -59,6 +61,30 @@ import com.salesforce.phoenix.util.SchemaUtil;
  * @since 0.1
  */
 public class ConnectionlessQueryServicesImpl extends DelegateQueryServices implements ConnectionQueryServices  {
+    // No table statistics are available when not connected to a cluster
+    private static final StatsManager NO_STATS_MANAGER = new StatsManager() {
+        @Override
+        public byte[] getMinKey(TableRef table) {
+            return null;
+        }
+
+        @Override
+        public byte[] getMaxKey(TableRef table) {
+            return null;
+        }
+
+        @Override
+        public TableStatistics getTableStatistics(TableRef table) {
+            return null;
+        }
+
+        @Override
+        public void updateStats(TableRef table) {
+        }
+    };
+    // No query results are cached when not connected to a cluster
+    private static final QueryResultCache NO_RESULT_CACHE = new QueryResultCache(null, 0, 0);
+    
     private PMetaData metaData;
 
     public ConnectionlessQueryServicesImpl(QueryServices queryServices) {
@@ -78,7 +104,12 @@ public class ConnectionlessQueryServicesImpl extends DelegateQueryServices imple
 
     @Override
     public StatsManager getStatsManager() {
-        throw new UnsupportedOperationException();
+        return NO_STATS_MANAGER;
+    }
+
+    @Override
+    public QueryResultCache getQueryResultCache() {
+        return NO_RESULT_CACHE;
     }
 
     @Override
@@ -173,6 +204,10 @@ public class ConnectionlessQueryServicesImpl extends DelegateQueryServices imple
         return new MutationState(0, plan.getConnection());
     }
 
+    @Override
+    public void ensureIndexMaintenanceEnabled(byte[] tableName) throws SQLException {
+    }
+
     @Override
     public int getLowestClusterHBaseVersion() {
         return 0;
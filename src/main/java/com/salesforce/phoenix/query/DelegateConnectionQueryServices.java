@@ -35,6 +35,7 @@ import org.apache.hadoop.hbase.client.*;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.util.Pair;
 
+import com.salesforce.phoenix.cache.QueryResultCache;
 import com.salesforce.phoenix.compile.MutationPlan;
 import com.salesforce.phoenix.coprocessor.MetaDataProtocol.MetaDataMutationResult;
 import com.salesforce.phoenix.execute.MutationState;
@@ -68,6 +69,11 @@ public class DelegateConnectionQueryServices extends DelegateQueryServices imple
         return getDelegate().getStatsManager();
     }
 
+    @Override
+    public QueryResultCache getQueryResultCache() {
+        return getDelegate().getQueryResultCache();
+    }
+
     @Override
     public NavigableMap<HRegionInfo, ServerName> getAllTableRegions(TableRef table) throws SQLException {
         return getDelegate().getAllTableRegions(table);
@@ -143,6 +149,11 @@ public class DelegateConnectionQueryServices extends DelegateQueryServices imple
         return getDelegate().updateData(plan);
     }
 
+    @Override
+    public void ensureIndexMaintenanceEnabled(byte[] tableName) throws SQLException {
+        getDelegate().ensureIndexMaintenanceEnabled(tableName);
+    }
+
     @Override
     public int getLowestClusterHBaseVersion() {
         return getDelegate().getLowestClusterHBaseVersion();
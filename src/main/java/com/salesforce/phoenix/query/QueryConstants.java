@@ -128,7 +128,9 @@ public interface QueryConstants {
             // Index metadata
             DATA_TABLE_NAME + " VARCHAR NULL," +
             INDEX_STATE + " CHAR(1)\n," +
-            IMMUTABLE_ROWS + " BOOLEAN\n" +
+            IMMUTABLE_ROWS + " BOOLEAN,\n" +
+            SALT_HASH + " VARCHAR,\n" +
+            SALT_PK_COLUMNS + " INTEGER\n" +
             "CONSTRAINT " + SYSTEM_TABLE_PK_NAME + " PRIMARY KEY (" + TABLE_SCHEM_NAME + "," 
             + TABLE_NAME_NAME + "," + COLUMN_NAME + "," + TABLE_CAT_NAME + "))\n" +
             HConstants.VERSIONS + "=" + MetaDataProtocol.DEFAULT_MAX_META_DATA_VERSIONS + ",\n" +
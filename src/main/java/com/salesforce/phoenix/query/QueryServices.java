@@ -57,15 +57,35 @@ import com.salesforce.phoenix.util.SQLCloseable;
  *     in the cluster grows, this value should be increased. Defaults to
  *     {@link com.salesforce.phoenix.query.QueryServicesOptions#DEFAULT_THREAD_POOL_SIZE}.</li>
  *   <li><strong>phoenix.query.queueSize</strong>: max queue depth of the
- *     bounded round robin backing the client side thread pool executor,
+ *     bounded priority round robin queue backing the client side thread pool executor,
  *     beyond which attempts to queue additional work cause the client to
  *     block. If zero, a SynchronousQueue is used of the bounded round
  *     robin queue. Defaults to 
  *     {@link com.salesforce.phoenix.query.QueryServicesOptions#DEFAULT_QUEUE_SIZE}.</li>
+ *   <li><strong>phoenix.query.priority</strong>: priority class (HIGH, NORMAL or LOW)
+ *     of the work queued by a query when neither the QueryPriority connection property
+ *     nor a HIGH_PRIORITY or LOW_PRIORITY hint specify one. Queued work of a higher
+ *     priority class always runs before queued work of a lower one. Defaults to
+ *     {@link com.salesforce.phoenix.query.QueryServicesOptions#DEFAULT_QUERY_PRIORITY}.</li>
+ *   <li><strong>phoenix.query.normalPriorityMaxThreadPercentage</strong>: percentage
+ *     of the threads in the client side thread pool executor that may run NORMAL
+ *     priority work at the same time. Defaults to
+ *     {@link com.salesforce.phoenix.query.QueryServicesOptions#DEFAULT_NORMAL_PRIORITY_MAX_THREAD_PERC}.</li>
+ *   <li><strong>phoenix.query.lowPriorityMaxThreadPercentage</strong>: percentage
+ *     of the threads in the client side thread pool executor that may run LOW
+ *     priority work at the same time, which keeps threads free for interactive
+ *     queries while batch queries saturate the pool. Defaults to
+ *     {@link com.salesforce.phoenix.query.QueryServicesOptions#DEFAULT_LOW_PRIORITY_MAX_THREAD_PERC}.</li>
  *   <li><strong>phoenix.query.spoolThresholdBytes</strong>: threshold
  *     size in bytes after which results from parallel executed aggregate
  *     query results are spooled to disk. Defaults to
  *     {@link com.salesforce.phoenix.query.QueryServicesOptions#DEFAULT_SPOOL_THRESHOLD_BYTES}.</li>
+ *   <li><strong>phoenix.query.sortMergeFanIn</strong>: maximum number of
+ *     sorted runs spilled to disk by an ORDER BY that are merged at once.
+ *     More runs are merged in several passes, which bounds the number of
+ *     files open at the same time. On the server side, the value from the
+ *     region server configuration is used. Defaults to
+ *     {@link com.salesforce.phoenix.query.QueryServicesOptions#DEFAULT_SORT_MERGE_FAN_IN}.</li>
  *   <li><strong>phoenix.query.maxGlobalMemoryPercentage</strong>: percentage of total 
  *     memory ({@link java.lang.Runtime.getRuntime()#totalMemory}) that all threads
  *     may use. Only course grain memory usage is tracked, mainly accounting for memory
@@ -96,6 +116,17 @@ import com.salesforce.phoenix.util.SQLCloseable;
  *     of scans into which a query may be split. A soft limit is imposed by
  *     phoenix.query.targetConcurrency. Defaults to
  *     {@link com.salesforce.phoenix.query.QueryServicesOptions#DEFAULT_MAX_QUERY_CONCURRENCY}.</li>
+ *   <li><strong>phoenix.query.maxServerConcurrency</strong>: maximum number of
+ *     scans of a query that may run concurrently against a single region server.
+ *     Splits beyond this limit wait until a scan against the same region server
+ *     completes. Defaults to
+ *     {@link com.salesforce.phoenix.query.QueryServicesOptions#DEFAULT_MAX_SERVER_QUERY_CONCURRENCY}.</li>
+ *   <li><strong>phoenix.query.workStealing</strong>: whether or not a thread
+ *     that has no split left to scan may take over the unscanned tail of a scan
+ *     still in progress, which lowers the latency of queries over skewed regions
+ *     or slow region servers. Only applies to scans returning rows in row key
+ *     order without a limit. Defaults to
+ *     {@link com.salesforce.phoenix.query.QueryServicesOptions#DEFAULT_WORK_STEALING}.</li>
  *   <li><strong>phoenix.query.dateFormat</strong>: default pattern to use
  *     for convertion of a date to/from a string, whether through the
  *     TO_CHAR(<date>) or TO_DATE(<dateAsString>) functions, or through
@@ -109,6 +140,11 @@ import com.salesforce.phoenix.util.SQLCloseable;
  *     if the stats could not be updated for this length of time, the stats
  *     are considered too old and thus no longer accurate enough to use).
  *     Defaults to {@link com.salesforce.phoenix.query.QueryServicesOptions#DEFAULT_MAX_STATS_AGE_MS}.</li>
+ *   <li><strong>phoenix.stats.guidepostWidth</strong>: the number of bytes
+ *     between the guide posts collected by ANALYZE for each region of a table.
+ *     A smaller width gives more accurate estimates of the rows touched by a
+ *     query at the cost of larger statistics. Defaults to
+ *     {@link com.salesforce.phoenix.query.QueryServicesOptions#DEFAULT_STATS_GUIDEPOST_WIDTH_BYTES}.</li>
  *   <li><strong>phoenix.mutate.maxSize</strong>: the maximum number of rows
  *     that may be collected in {@link com.salesforce.phoenix.execute.MutationState}
  *     before a commit or rollback must be called. For better performance and to
@@ -130,6 +166,45 @@ import com.salesforce.phoenix.util.SQLCloseable;
  *     in milliseconds of the region boundary cache used to guide the split
  *     points for query parallelization. Defaults to
  *     {@link com.salesforce.phoenix.query.QueryServicesOptions#DEFAULT_REGION_BOUNDARY_CACHE_TTL_MS}.</li>
+ *   <li><strong>phoenix.coprocessor.aggregateBatchSize</strong>: the number of rows
+ *     the ungrouped aggregate coprocessor accumulates before running each aggregate
+ *     function over all of them at once. Only used for scans that aggregate without
+ *     mutating rows. A value of 1 or less aggregates row by row. Defaults to
+ *     {@link com.salesforce.phoenix.query.QueryServicesOptions#DEFAULT_AGGREGATE_BATCH_SIZE}.</li>
+ *   <li><strong>phoenix.coprocessor.aggregateCacheBytes</strong>: the maximum number
+ *     of bytes of region server memory used to cache the partial aggregates of regions
+ *     that have not been written to since they were computed, so that identical aggregate
+ *     queries skip scanning them. Set on the region servers. A value of 0 disables the
+ *     cache. Defaults to
+ *     {@link com.salesforce.phoenix.query.QueryServicesOptions#DEFAULT_AGGREGATE_CACHE_SIZE_BYTES}.</li>
+ *   <li><strong>phoenix.coprocessor.aggregateCacheTTLMs</strong>: the time-to-live in
+ *     milliseconds of a cached partial aggregate. Defaults to
+ *     {@link com.salesforce.phoenix.query.QueryServicesOptions#DEFAULT_AGGREGATE_CACHE_TIME_TO_LIVE_MS}.</li>
+ *   <li><strong>phoenix.query.resultCacheBytes</strong>: the maximum number of bytes
+ *     of client memory used to cache the results of queries, keyed by the statement
+ *     text, bind values, tenant and CurrentSCN of the connection. Results larger than
+ *     a tenth of this size are not cached. A value of 0 disables the cache. Defaults to
+ *     {@link com.salesforce.phoenix.query.QueryServicesOptions#DEFAULT_RESULT_CACHE_SIZE_BYTES}.</li>
+ *   <li><strong>phoenix.query.resultCacheMaxStalenessMs</strong>: the number of milliseconds
+ *     a cached result of a query run at the latest timestamp may be served. Results of
+ *     queries run at a CurrentSCN in the past are served until the cache evicts them.
+ *     Both are dropped as soon as the client writes to a table they were read from.
+ *     Defaults to
+ *     {@link com.salesforce.phoenix.query.QueryServicesOptions#DEFAULT_RESULT_CACHE_MAX_STALENESS_MS}.</li>
+ *   <li><strong>phoenix.query.pointLookupMaxKeys</strong>: the maximum number of rows a
+ *     query that fully qualifies the row key of each row it reads may fetch through a
+ *     single batch of gets, grouped by region server, instead of through parallel skip
+ *     scans. A value of 0 disables point lookups. Defaults to
+ *     {@link com.salesforce.phoenix.query.QueryServicesOptions#DEFAULT_POINT_LOOKUP_MAX_KEYS}.</li>
+ *   <li><strong>phoenix.query.subqueryMaxRows</strong>: the maximum number of rows an
+ *     uncorrelated IN subquery may return. Its rows are folded into the outer query as
+ *     a list of constants, so that they may form a skip scan over the outer table. Defaults to
+ *     {@link com.salesforce.phoenix.query.QueryServicesOptions#DEFAULT_SUBQUERY_MAX_ROWS}.</li>
+ *   <li><strong>phoenix.query.progressiveScanInitialSplits</strong>: the number of splits
+ *     scanned at first by an unordered query with a LIMIT. Further splits are only scanned,
+ *     in waves twice as large as the previous one, when the earlier ones return fewer rows
+ *     than the limit. A value of 0 scans every split at once. Defaults to
+ *     {@link com.salesforce.phoenix.query.QueryServicesOptions#DEFAULT_PROGRESSIVE_SCAN_INITIAL_SPLITS}.</li>
  *   </ul>
  *     
  * @author jtaylor
@@ -140,8 +215,12 @@ public interface QueryServices extends SQLCloseable {
     public static final String KEEP_ALIVE_MS_ATTRIB = "phoenix.query.keepAliveMs";
     public static final String THREAD_POOL_SIZE_ATTRIB = "phoenix.query.threadPoolSize";
     public static final String QUEUE_SIZE_ATTRIB = "phoenix.query.queueSize";
+    public static final String QUERY_PRIORITY_ATTRIB = "phoenix.query.priority";
+    public static final String NORMAL_PRIORITY_MAX_THREAD_PERC_ATTRIB = "phoenix.query.normalPriorityMaxThreadPercentage";
+    public static final String LOW_PRIORITY_MAX_THREAD_PERC_ATTRIB = "phoenix.query.lowPriorityMaxThreadPercentage";
     public static final String THREAD_TIMEOUT_MS_ATTRIB = "phoenix.query.timeoutMs";
     public static final String SPOOL_THRESHOLD_BYTES_ATTRIB = "phoenix.query.spoolThresholdBytes";
+    public static final String SORT_MERGE_FAN_IN_ATTRIB = "phoenix.query.sortMergeFanIn";
     
     public static final String MAX_MEMORY_PERC_ATTRIB = "phoenix.query.maxGlobalMemoryPercentage";
     public static final String MAX_MEMORY_WAIT_MS_ATTRIB = "phoenix.query.maxGlobalMemoryWaitMs";
@@ -149,16 +228,27 @@ public interface QueryServices extends SQLCloseable {
     public static final String MAX_HASH_CACHE_SIZE_ATTRIB = "phoenix.query.maxHashCacheBytes";
     public static final String TARGET_QUERY_CONCURRENCY_ATTRIB = "phoenix.query.targetConcurrency";
     public static final String MAX_QUERY_CONCURRENCY_ATTRIB = "phoenix.query.maxConcurrency";
+    public static final String MAX_SERVER_QUERY_CONCURRENCY_ATTRIB = "phoenix.query.maxServerConcurrency";
+    public static final String WORK_STEALING_ATTRIB = "phoenix.query.workStealing";
     public static final String DATE_FORMAT_ATTRIB = "phoenix.query.dateFormat";
     public static final String NUMBER_FORMAT_ATTRIB = "phoenix.query.numberFormat";
     public static final String STATS_UPDATE_FREQ_MS_ATTRIB = "phoenix.query.statsUpdateFrequency";
     public static final String MAX_STATS_AGE_MS_ATTRIB = "phoenix.query.maxStatsAge";
+    public static final String STATS_GUIDEPOST_WIDTH_BYTES_ATTRIB = "phoenix.stats.guidepostWidth";
     public static final String CALL_QUEUE_ROUND_ROBIN_ATTRIB = "ipc.server.callqueue.roundrobin";
     public static final String SCAN_CACHE_SIZE_ATTRIB = "hbase.client.scanner.caching";
     public static final String MAX_MUTATION_SIZE_ATTRIB = "phoenix.mutate.maxSize";
     public static final String MUTATE_BATCH_SIZE_ATTRIB = "phoenix.mutate.batchSize";
     public static final String REGION_BOUNDARY_CACHE_TTL_MS_ATTRIB = "phoenix.query.regionBoundaryCacheTTL";
     public static final String MAX_HASH_CACHE_TIME_TO_LIVE_MS = "phoenix.coprocessor.maxHashCacheTimeToLiveMs";
+    public static final String AGGREGATE_BATCH_SIZE_ATTRIB = "phoenix.coprocessor.aggregateBatchSize";
+    public static final String AGGREGATE_CACHE_SIZE_BYTES_ATTRIB = "phoenix.coprocessor.aggregateCacheBytes";
+    public static final String AGGREGATE_CACHE_TIME_TO_LIVE_MS_ATTRIB = "phoenix.coprocessor.aggregateCacheTTLMs";
+    public static final String RESULT_CACHE_SIZE_BYTES_ATTRIB = "phoenix.query.resultCacheBytes";
+    public static final String RESULT_CACHE_MAX_STALENESS_MS_ATTRIB = "phoenix.query.resultCacheMaxStalenessMs";
+    public static final String POINT_LOOKUP_MAX_KEYS_ATTRIB = "phoenix.query.pointLookupMaxKeys";
+    public static final String SUBQUERY_MAX_ROWS_ATTRIB = "phoenix.query.subqueryMaxRows";
+    public static final String PROGRESSIVE_SCAN_INITIAL_SPLITS_ATTRIB = "phoenix.query.progressiveScanInitialSplits";
     public static final String MAX_INTRA_REGION_PARALLELIZATION_ATTRIB  = "phoenix.query.maxIntraRegionParallelization";
     public static final String ROW_KEY_ORDER_SALTED_TABLE_ATTRIB  = "phoenix.query.rowKeyOrderSaltedTable";
     public static final String USE_INDEXES_ATTRIB  = "phoenix.query.useIndexes";
@@ -170,6 +260,7 @@ public interface QueryServices extends SQLCloseable {
     public static final String REGIONSERVER_INFO_PORT_ATTRIB = "hbase.regionserver.info.port";
     public static final String REGIONSERVER_LEASE_PERIOD_ATTRIB = "hbase.regionserver.lease.period";
     public static final String RPC_TIMEOUT_ATTRIB = "hbase.rpc.timeout";
+    public static final String ONLINE_SCHEMA_UPDATE_ENABLED_ATTRIB = "hbase.online.schema.update.enable";
     public static final String ZOOKEEPER_QUARUM_ATTRIB = "hbase.zookeeper.quorum";
     public static final String ZOOKEEPER_PORT_ATTRIB = "hbase.zookeeper.property.clientPort";
     public static final String ZOOKEEPER_ROOT_NODE_ATTRIB = "zookeeper.znode.parent";
@@ -35,6 +35,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.HConstants;
 
+import com.salesforce.phoenix.job.JobPriority;
 import com.salesforce.phoenix.util.DateUtil;
 import com.salesforce.phoenix.util.ReadOnlyProps;
 
@@ -49,17 +50,24 @@ public class QueryServicesOptions {
 	public static final int DEFAULT_KEEP_ALIVE_MS = 60000;
 	public static final int DEFAULT_THREAD_POOL_SIZE = 128;
 	public static final int DEFAULT_QUEUE_SIZE = 500;
+    public static final String DEFAULT_QUERY_PRIORITY = JobPriority.NORMAL.name();
+    public static final int DEFAULT_NORMAL_PRIORITY_MAX_THREAD_PERC = 100;
+    public static final int DEFAULT_LOW_PRIORITY_MAX_THREAD_PERC = 50;
 	public static final int DEFAULT_THREAD_TIMEOUT_MS = 600000; // 10min
 	public static final int DEFAULT_SPOOL_THRESHOLD_BYTES = 1024 * 1024 * 20; // 20m
+    public static final int DEFAULT_SORT_MERGE_FAN_IN = 64;
 	public static final int DEFAULT_MAX_MEMORY_PERC = 50; // 50% of heap
 	public static final int DEFAULT_MAX_MEMORY_WAIT_MS = 10000;
 	public static final int DEFAULT_MAX_TENANT_MEMORY_PERC = 100;
 	public static final long DEFAULT_MAX_HASH_CACHE_SIZE = 1024*1024*100;  // 100 Mb
     public static final int DEFAULT_TARGET_QUERY_CONCURRENCY = 32;
     public static final int DEFAULT_MAX_QUERY_CONCURRENCY = 64;
+    public static final int DEFAULT_MAX_SERVER_QUERY_CONCURRENCY = 32;
+    public static final boolean DEFAULT_WORK_STEALING = true;
     public static final String DEFAULT_DATE_FORMAT = DateUtil.DEFAULT_DATE_FORMAT;
     public static final int DEFAULT_STATS_UPDATE_FREQ_MS = 15 * 60000; // 15min
     public static final int DEFAULT_MAX_STATS_AGE_MS = 24 * 60 * 60000; // 1 day
+    public static final long DEFAULT_STATS_GUIDEPOST_WIDTH_BYTES = 1024 * 1024 * 100; // 100 Mb
     public static final boolean DEFAULT_CALL_QUEUE_ROUND_ROBIN = true; 
     public static final int DEFAULT_MAX_MUTATION_SIZE = 500000;
     public static final boolean DEFAULT_ROW_KEY_ORDER_SALTED_TABLE = true; // Merge sort on client to ensure salted tables are row key ordered
@@ -70,6 +78,14 @@ public class QueryServicesOptions {
 	// The only downside of it being out-of-sync is that the parallelization of the scan won't be as balanced as it could be.
 	public static final int DEFAULT_REGION_BOUNDARY_CACHE_TTL_MS = 60000; // How long to cache region boundary info for parallelization calculation
     public static final int DEFAULT_MAX_HASH_CACHE_TIME_TO_LIVE_MS = 30000; // 30 sec (with no activity)
+    public static final int DEFAULT_AGGREGATE_BATCH_SIZE = 1024; // Rows aggregated at once by the ungrouped aggregate coprocessor
+    public static final long DEFAULT_AGGREGATE_CACHE_SIZE_BYTES = 0; // Partial aggregate cache is opt-in
+    public static final long DEFAULT_AGGREGATE_CACHE_TIME_TO_LIVE_MS = 5 * 60000; // 5 min
+    public static final long DEFAULT_RESULT_CACHE_SIZE_BYTES = 0; // Client result cache is opt-in
+    public static final long DEFAULT_RESULT_CACHE_MAX_STALENESS_MS = 1000; // 1 sec
+    public static final int DEFAULT_POINT_LOOKUP_MAX_KEYS = 10000;
+    public static final int DEFAULT_SUBQUERY_MAX_ROWS = 100000;
+    public static final int DEFAULT_PROGRESSIVE_SCAN_INITIAL_SPLITS = 4;
     public static final int DEFAULT_SCAN_CACHE_SIZE = 1000;
     public static final int DEFAULT_MAX_INTRA_REGION_PARALLELIZATION = DEFAULT_MAX_QUERY_CONCURRENCY;
     
@@ -102,8 +118,12 @@ public class QueryServicesOptions {
             .setIfUnset(KEEP_ALIVE_MS_ATTRIB, DEFAULT_KEEP_ALIVE_MS)
             .setIfUnset(THREAD_POOL_SIZE_ATTRIB, DEFAULT_THREAD_POOL_SIZE)
             .setIfUnset(QUEUE_SIZE_ATTRIB, DEFAULT_QUEUE_SIZE)
+            .setIfUnset(QUERY_PRIORITY_ATTRIB, DEFAULT_QUERY_PRIORITY)
+            .setIfUnset(NORMAL_PRIORITY_MAX_THREAD_PERC_ATTRIB, DEFAULT_NORMAL_PRIORITY_MAX_THREAD_PERC)
+            .setIfUnset(LOW_PRIORITY_MAX_THREAD_PERC_ATTRIB, DEFAULT_LOW_PRIORITY_MAX_THREAD_PERC)
             .setIfUnset(THREAD_TIMEOUT_MS_ATTRIB, DEFAULT_THREAD_TIMEOUT_MS)
             .setIfUnset(SPOOL_THRESHOLD_BYTES_ATTRIB, DEFAULT_SPOOL_THRESHOLD_BYTES)
+            .setIfUnset(SORT_MERGE_FAN_IN_ATTRIB, DEFAULT_SORT_MERGE_FAN_IN)
             .setIfUnset(MAX_MEMORY_PERC_ATTRIB, DEFAULT_MAX_MEMORY_PERC)
             .setIfUnset(MAX_MEMORY_WAIT_MS_ATTRIB, DEFAULT_MAX_MEMORY_WAIT_MS)
             .setIfUnset(MAX_TENANT_MEMORY_PERC_ATTRIB, DEFAULT_MAX_TENANT_MEMORY_PERC)
@@ -111,8 +131,11 @@ public class QueryServicesOptions {
             .setIfUnset(SCAN_CACHE_SIZE_ATTRIB, DEFAULT_SCAN_CACHE_SIZE)
             .setIfUnset(TARGET_QUERY_CONCURRENCY_ATTRIB, DEFAULT_TARGET_QUERY_CONCURRENCY)
             .setIfUnset(MAX_QUERY_CONCURRENCY_ATTRIB, DEFAULT_MAX_QUERY_CONCURRENCY)
+            .setIfUnset(MAX_SERVER_QUERY_CONCURRENCY_ATTRIB, DEFAULT_MAX_SERVER_QUERY_CONCURRENCY)
+            .setIfUnset(WORK_STEALING_ATTRIB, DEFAULT_WORK_STEALING)
             .setIfUnset(DATE_FORMAT_ATTRIB, DEFAULT_DATE_FORMAT)
             .setIfUnset(STATS_UPDATE_FREQ_MS_ATTRIB, DEFAULT_STATS_UPDATE_FREQ_MS)
+            .setIfUnset(STATS_GUIDEPOST_WIDTH_BYTES_ATTRIB, DEFAULT_STATS_GUIDEPOST_WIDTH_BYTES)
             .setIfUnset(CALL_QUEUE_ROUND_ROBIN_ATTRIB, DEFAULT_CALL_QUEUE_ROUND_ROBIN)
             .setIfUnset(MAX_MUTATION_SIZE_ATTRIB, DEFAULT_MAX_MUTATION_SIZE)
             .setIfUnset(REGION_BOUNDARY_CACHE_TTL_MS_ATTRIB, DEFAULT_REGION_BOUNDARY_CACHE_TTL_MS)
@@ -170,6 +193,18 @@ public class QueryServicesOptions {
         return this;
     }
     
+    public QueryServicesOptions setQueryPriority(JobPriority priority) {
+        return set(QUERY_PRIORITY_ATTRIB, priority.name());
+    }
+    
+    public QueryServicesOptions setNormalPriorityMaxThreadPerc(int normalPriorityMaxThreadPerc) {
+        return set(NORMAL_PRIORITY_MAX_THREAD_PERC_ATTRIB, normalPriorityMaxThreadPerc);
+    }
+    
+    public QueryServicesOptions setLowPriorityMaxThreadPerc(int lowPriorityMaxThreadPerc) {
+        return set(LOW_PRIORITY_MAX_THREAD_PERC_ATTRIB, lowPriorityMaxThreadPerc);
+    }
+    
     public QueryServicesOptions setThreadTimeoutMs(int threadTimeoutMs) {
         return set(THREAD_TIMEOUT_MS_ATTRIB, threadTimeoutMs);
     }
@@ -214,6 +249,10 @@ public class QueryServicesOptions {
         return set(STATS_UPDATE_FREQ_MS_ATTRIB, frequencyMs);
     }
     
+    public QueryServicesOptions setStatsGuidePostWidthBytes(long guidePostWidth) {
+        return set(STATS_GUIDEPOST_WIDTH_BYTES_ATTRIB, guidePostWidth);
+    }
+    
     public QueryServicesOptions setCallQueueRoundRobin(boolean isRoundRobin) {
         return set(CALL_QUEUE_PRODUCER_ATTRIB_NAME, isRoundRobin);
     }
@@ -230,6 +269,18 @@ public class QueryServicesOptions {
         return set(MAX_INTRA_REGION_PARALLELIZATION_ATTRIB, maxIntraRegionParallelization);
     }
     
+    public QueryServicesOptions setSortMergeFanIn(int sortMergeFanIn) {
+        return set(SORT_MERGE_FAN_IN_ATTRIB, sortMergeFanIn);
+    }
+    
+    public QueryServicesOptions setMaxServerQueryConcurrency(int maxServerQueryConcurrency) {
+        return set(MAX_SERVER_QUERY_CONCURRENCY_ATTRIB, maxServerQueryConcurrency);
+    }
+    
+    public QueryServicesOptions setWorkStealing(boolean workStealing) {
+        return set(WORK_STEALING_ATTRIB, workStealing);
+    }
+    
     public QueryServicesOptions setRegionBoundaryCacheTTLMs(int regionBoundaryCacheTTL) {
         return set(REGION_BOUNDARY_CACHE_TTL_MS_ATTRIB, regionBoundaryCacheTTL);
     }
@@ -270,6 +321,14 @@ public class QueryServicesOptions {
         return config.getInt(QUEUE_SIZE_ATTRIB, DEFAULT_QUEUE_SIZE);
     }
     
+    public int getNormalPriorityMaxThreadPerc() {
+        return config.getInt(NORMAL_PRIORITY_MAX_THREAD_PERC_ATTRIB, DEFAULT_NORMAL_PRIORITY_MAX_THREAD_PERC);
+    }
+    
+    public int getLowPriorityMaxThreadPerc() {
+        return config.getInt(LOW_PRIORITY_MAX_THREAD_PERC_ATTRIB, DEFAULT_LOW_PRIORITY_MAX_THREAD_PERC);
+    }
+    
     public int getMaxMemoryPerc() {
         return config.getInt(MAX_MEMORY_PERC_ATTRIB, DEFAULT_MAX_MEMORY_PERC);
     }
@@ -290,6 +349,14 @@ public class QueryServicesOptions {
         return config.getInt(MAX_INTRA_REGION_PARALLELIZATION_ATTRIB, DEFAULT_MAX_INTRA_REGION_PARALLELIZATION);
     }
     
+    public int getMaxServerQueryConcurrency() {
+        return config.getInt(MAX_SERVER_QUERY_CONCURRENCY_ATTRIB, DEFAULT_MAX_SERVER_QUERY_CONCURRENCY);
+    }
+    
+    public boolean isWorkStealing() {
+        return config.getBoolean(WORK_STEALING_ATTRIB, DEFAULT_WORK_STEALING);
+    }
+    
     public int getRegionBoundaryCacheTTLMs() {
         return config.getInt(REGION_BOUNDARY_CACHE_TTL_MS_ATTRIB, DEFAULT_REGION_BOUNDARY_CACHE_TTL_MS);
     }
@@ -306,6 +373,62 @@ public class QueryServicesOptions {
         return set(MAX_HASH_CACHE_TIME_TO_LIVE_MS, ttl);
     }
     
+    public QueryServicesOptions setAggregateBatchSize(int aggregateBatchSize) {
+        return set(AGGREGATE_BATCH_SIZE_ATTRIB, aggregateBatchSize);
+    }
+    
+    public int getAggregateBatchSize() {
+        return config.getInt(AGGREGATE_BATCH_SIZE_ATTRIB, DEFAULT_AGGREGATE_BATCH_SIZE);
+    }
+    
+    public QueryServicesOptions setAggregateCacheSizeBytes(long aggregateCacheSizeBytes) {
+        return set(AGGREGATE_CACHE_SIZE_BYTES_ATTRIB, aggregateCacheSizeBytes);
+    }
+    
+    public long getAggregateCacheSizeBytes() {
+        return config.getLong(AGGREGATE_CACHE_SIZE_BYTES_ATTRIB, DEFAULT_AGGREGATE_CACHE_SIZE_BYTES);
+    }
+    
+    public QueryServicesOptions setAggregateCacheTTLMs(long aggregateCacheTTLMs) {
+        return set(AGGREGATE_CACHE_TIME_TO_LIVE_MS_ATTRIB, aggregateCacheTTLMs);
+    }
+    
+    public QueryServicesOptions setResultCacheSizeBytes(long resultCacheSizeBytes) {
+        return set(RESULT_CACHE_SIZE_BYTES_ATTRIB, resultCacheSizeBytes);
+    }
+    
+    public long getResultCacheSizeBytes() {
+        return config.getLong(RESULT_CACHE_SIZE_BYTES_ATTRIB, DEFAULT_RESULT_CACHE_SIZE_BYTES);
+    }
+    
+    public QueryServicesOptions setResultCacheMaxStalenessMs(long resultCacheMaxStalenessMs) {
+        return set(RESULT_CACHE_MAX_STALENESS_MS_ATTRIB, resultCacheMaxStalenessMs);
+    }
+    
+    public QueryServicesOptions setPointLookupMaxKeys(int pointLookupMaxKeys) {
+        return set(POINT_LOOKUP_MAX_KEYS_ATTRIB, pointLookupMaxKeys);
+    }
+    
+    public int getPointLookupMaxKeys() {
+        return config.getInt(POINT_LOOKUP_MAX_KEYS_ATTRIB, DEFAULT_POINT_LOOKUP_MAX_KEYS);
+    }
+    
+    public QueryServicesOptions setSubqueryMaxRows(int subqueryMaxRows) {
+        return set(SUBQUERY_MAX_ROWS_ATTRIB, subqueryMaxRows);
+    }
+    
+    public int getSubqueryMaxRows() {
+        return config.getInt(SUBQUERY_MAX_ROWS_ATTRIB, DEFAULT_SUBQUERY_MAX_ROWS);
+    }
+    
+    public QueryServicesOptions setProgressiveScanInitialSplits(int progressiveScanInitialSplits) {
+        return set(PROGRESSIVE_SCAN_INITIAL_SPLITS_ATTRIB, progressiveScanInitialSplits);
+    }
+    
+    public int getProgressiveScanInitialSplits() {
+        return config.getInt(PROGRESSIVE_SCAN_INITIAL_SPLITS_ATTRIB, DEFAULT_PROGRESSIVE_SCAN_INITIAL_SPLITS);
+    }
+    
     public QueryServicesOptions setMasterInfoPort(int port) {
         return set(MASTER_INFO_PORT_ATTRIB, port);
     }
@@ -322,6 +445,10 @@ public class QueryServicesOptions {
         return set(RPC_TIMEOUT_ATTRIB, timeout);
     }
     
+    public QueryServicesOptions setOnlineSchemaUpdateEnabled(boolean isEnabled) {
+        return set(ONLINE_SCHEMA_UPDATE_ENABLED_ATTRIB, isEnabled);
+    }
+    
     public QueryServicesOptions setUseIndexes(boolean useIndexes) {
         return set(USE_INDEXES_ATTRIB, useIndexes);
     }
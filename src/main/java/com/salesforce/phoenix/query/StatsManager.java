@@ -30,6 +30,7 @@ package com.salesforce.phoenix.query;
 import java.sql.SQLException;
 
 import com.salesforce.phoenix.schema.TableRef;
+import com.salesforce.phoenix.schema.stat.TableStatistics;
 
 
 /**
@@ -58,6 +59,13 @@ public interface StatsManager {
      */
     byte[] getMaxKey(TableRef table);
     
+    /**
+     * Get the statistics collected for the given table by the last ANALYZE
+     * @param table the table
+     * @return the table statistics or null if unknown
+     */
+    TableStatistics getTableStatistics(TableRef table);
+    
     /**
      * Manually update the cached table statistics
      * @param table the table
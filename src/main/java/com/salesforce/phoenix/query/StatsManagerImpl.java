@@ -30,13 +30,18 @@ package com.salesforce.phoenix.query;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.*;
 
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.client.*;
 import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
 
+import com.google.common.collect.Lists;
 import com.salesforce.phoenix.schema.TableRef;
+import com.salesforce.phoenix.schema.stat.RegionStatistics;
+import com.salesforce.phoenix.schema.stat.StatisticsUtil;
+import com.salesforce.phoenix.schema.stat.TableStatistics;
 import com.salesforce.phoenix.util.SchemaUtil;
 import com.salesforce.phoenix.util.ServerUtil;
 
@@ -118,7 +123,8 @@ public class StatsManagerImpl implements StatsManager {
             if (r != null) {
                 maxKey = r.getRow();
             }
-            tableStatsMap.put(table, new PTableStats(timeKeeper.currentTimeMillis(),minKey,maxKey));
+            TableStatistics tableStatistics = getTableStatistics(table.getTableName());
+            tableStatsMap.put(table, new PTableStats(timeKeeper.currentTimeMillis(),minKey,maxKey,tableStatistics));
         } catch (IOException e) {
             sqlE = ServerUtil.parseServerException(e);
         } finally {
@@ -138,6 +144,27 @@ public class StatsManagerImpl implements StatsManager {
         }
     }
     
+    private TableStatistics getTableStatistics(byte[] tableName) throws SQLException, IOException {
+        List<RegionStatistics> regions = Lists.newArrayList();
+        HTableInterface statsHTable = services.getTable(StatisticsUtil.STATS_TABLE_NAME);
+        try {
+            ResultScanner scanner = statsHTable.getScanner(StatisticsUtil.newScan(tableName));
+            try {
+                for (Result result = scanner.next(); result != null; result = scanner.next()) {
+                    RegionStatistics region = StatisticsUtil.fromResult(result);
+                    if (region != null) {
+                        regions.add(region);
+                    }
+                }
+            } finally {
+                scanner.close();
+            }
+        } finally {
+            statsHTable.close();
+        }
+        return regions.isEmpty() ? null : new TableStatistics(regions);
+    }
+    
     private PTableStats getStats(final TableRef table) {
         PTableStats stats = tableStatsMap.get(table);
         if (stats == null) {
@@ -185,22 +212,34 @@ public class StatsManagerImpl implements StatsManager {
         return stats.getMaxKey();
     }
 
+    @Override
+    public TableStatistics getTableStatistics(TableRef table) {
+        PTableStats stats = getStats(table);
+        return stats.getTableStatistics();
+    }
+
     private static class PTableStats {
         private static final PTableStats NO_STATS = new PTableStats();
         private long initiatedTime;
         private final long completedTime;
         private final byte[] minKey;
         private final byte[] maxKey;
+        private final TableStatistics tableStatistics;
         
         public PTableStats() {
-            this(-1,null,null);
+            this(-1,null,null,null);
         }
-        public PTableStats(long completedTime, byte[] minKey, byte[] maxKey) {
+        public PTableStats(long completedTime, byte[] minKey, byte[] maxKey, TableStatistics tableStatistics) {
             this.minKey = minKey;
             this.maxKey = maxKey;
+            this.tableStatistics = tableStatistics;
             this.completedTime = this.initiatedTime = completedTime;
         }
 
+        private TableStatistics getTableStatistics() {
+            return tableStatistics;
+        }
+
         private byte[] getMinKey() {
             return minKey;
         }
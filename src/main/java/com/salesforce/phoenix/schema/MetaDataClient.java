@@ -65,8 +65,10 @@ public class MetaDataClient {
             PK_NAME + "," +
             DATA_TABLE_NAME + "," +
             INDEX_STATE + "," +
-            IMMUTABLE_ROWS +
-            ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+            IMMUTABLE_ROWS + "," +
+            SALT_HASH + "," +
+            SALT_PK_COLUMNS +
+            ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
     private static final String CREATE_INDEX_LINK =
             "UPSERT INTO " + TYPE_SCHEMA + ".\"" + TYPE_TABLE + "\"( " +
             TABLE_SCHEM_NAME + "," +
@@ -328,8 +330,10 @@ public class MetaDataClient {
                 ColumnResolver resolver = FromCompiler.getResolver(statement, connection);
                 tableRef = resolver.getTables().get(0);
                 PTable dataTable = tableRef.getTable();
-                if (!tableRef.getTable().isImmutableRows()) {
-                    throw new SQLExceptionInfo.Builder(SQLExceptionCode.INDEX_ONLY_ON_IMMUTABLE_TABLE).setSchemaName(tableRef.getSchema().getName())
+                // Indexes on tables with mutable rows are maintained on the server-side
+                // when the data table is written to, which never happens for a VIEW.
+                if (!dataTable.isImmutableRows() && dataTable.getType() == PTableType.VIEW) {
+                    throw new SQLExceptionInfo.Builder(SQLExceptionCode.INDEX_ONLY_ON_IMMUTABLE_VIEW).setSchemaName(tableRef.getSchema().getName())
                     .setTableName(tableRef.getTable().getName().getString()).build().buildException();
                 }
                 Set<PColumn> unusedPkColumns;
@@ -392,6 +396,11 @@ public class MetaDataClient {
         if (table == null) {
             return new MutationState(0,connection);
         }
+        // Attach the coprocessor that maintains the index before it's populated, so that
+        // concurrent writes to the data table are reflected in it.
+        if (!tableRef.getTable().isImmutableRows()) {
+            connection.getQueryServices().ensureIndexMaintenanceEnabled(SchemaUtil.getTableName(tableRef.getSchema().getName(), tableRef.getTable().getName().getString()));
+        }
         boolean success = false;
         MetaDataClient client = this;
         SQLException sqlException = null;
@@ -516,6 +525,23 @@ public class MetaDataClient {
             }
             boolean isSalted = (saltBucketNum != null);
             
+            SaltHashFunction saltHashFunction = null;
+            Object saltHashProp = tableProps.remove(PhoenixDatabaseMetaData.SALT_HASH);
+            if (saltHashProp != null) {
+                saltHashFunction = saltHashProp instanceof String ? SaltHashFunction.fromName((String)saltHashProp) : null;
+                if (saltHashFunction == null || !isSalted) {
+                    throw new SQLExceptionInfo.Builder(SQLExceptionCode.INVALID_SALT_HASH).build().buildException();
+                }
+            } else if (parent != null && isSalted) {
+                // An index keeps the hash of the data table, but not the pk columns it is salted on,
+                // since the index row key leads with the indexed columns instead.
+                saltHashFunction = parent.getSaltHashFunction();
+            }
+            Integer saltPKColumnCount = (Integer) tableProps.remove(PhoenixDatabaseMetaData.SALT_PK_COLUMNS);
+            if (saltPKColumnCount != null && (saltPKColumnCount <= 0 || !isSalted)) {
+                throw new SQLExceptionInfo.Builder(SQLExceptionCode.INVALID_SALT_PK_COLUMNS).build().buildException();
+            }
+            
             boolean isImmutableRows;
             Boolean isImmutableRowsProp = (Boolean) tableProps.remove(PTable.IS_IMMUTABLE_ROWS_PROP_NAME);
             if (isImmutableRowsProp == null) {
@@ -568,6 +594,10 @@ public class MetaDataClient {
                 throw new SQLExceptionInfo.Builder(SQLExceptionCode.PRIMARY_KEY_MISSING)
                     .setSchemaName(schemaName).setTableName(tableName).build().buildException();
             }
+            if (saltPKColumnCount != null && saltPKColumnCount > pkColumns.size() - 1) {
+                throw new SQLExceptionInfo.Builder(SQLExceptionCode.INVALID_SALT_PK_COLUMNS)
+                    .setSchemaName(schemaName).setTableName(tableName).build().buildException();
+            }
             
             List<Pair<byte[],Map<String,Object>>> familyPropList = Lists.newArrayListWithExpectedSize(familyNames.size());
             if (!statement.getProps().isEmpty()) {
@@ -600,7 +630,7 @@ public class MetaDataClient {
             
             // Bootstrapping for our SYSTEM.TABLE that creates itself before it exists 
             if (tableType == PTableType.SYSTEM) {
-                PTable table = PTableImpl.makePTable(new PNameImpl(tableName), tableType, null, MetaDataProtocol.MIN_TABLE_TIMESTAMP, PTable.INITIAL_SEQ_NUM, QueryConstants.SYSTEM_TABLE_PK_NAME, null, columns, null, Collections.<PTable>emptyList(), isImmutableRows);
+                PTable table = PTableImpl.makePTable(new PNameImpl(tableName), tableType, null, MetaDataProtocol.MIN_TABLE_TIMESTAMP, PTable.INITIAL_SEQ_NUM, QueryConstants.SYSTEM_TABLE_PK_NAME, null, null, null, columns, null, Collections.<PTable>emptyList(), isImmutableRows);
                 connection.addTable(schemaName, table);
             } else if (tableType == PTableType.INDEX) {
                 if (tableProps.get(HTableDescriptor.MAX_FILESIZE) == null) {
@@ -650,6 +680,12 @@ public class MetaDataClient {
             tableUpsert.setString(8, dataTableName);
             tableUpsert.setString(9, indexState == null ? null : indexState.getSerializedValue());
             tableUpsert.setBoolean(10, isImmutableRows);
+            tableUpsert.setString(11, saltHashFunction == null ? null : saltHashFunction.name());
+            if (saltPKColumnCount != null) {
+                tableUpsert.setInt(12, saltPKColumnCount);
+            } else {
+                tableUpsert.setNull(12, Types.INTEGER);
+            }
             tableUpsert.execute();
             
             tableMetaData.addAll(connection.getMutationState().toMutations().next().getSecond());
@@ -687,7 +723,7 @@ public class MetaDataClient {
             default:
                 PTable table =  PTableImpl.makePTable(
                         new PNameImpl(tableName), tableType, indexState, result.getMutationTime(), PTable.INITIAL_SEQ_NUM, 
-                        pkName == null ? null : new PNameImpl(pkName), saltBucketNum, columns, dataTableName == null ? null : new PNameImpl(dataTableName), Collections.<PTable>emptyList(), isImmutableRows);
+                        pkName == null ? null : new PNameImpl(pkName), saltBucketNum, saltHashFunction, saltPKColumnCount, columns, dataTableName == null ? null : new PNameImpl(dataTableName), Collections.<PTable>emptyList(), isImmutableRows);
                 connection.addTable(schemaName, table);
                 return table;
             }
@@ -844,7 +880,9 @@ public class MetaDataClient {
                         .setColumnName(colDef.getColumnDefName().getColumnName()).build().buildException();
                 }
                 
-                if (statement.getProps().remove(PhoenixDatabaseMetaData.SALT_BUCKETS) != null) {
+                if (statement.getProps().remove(PhoenixDatabaseMetaData.SALT_BUCKETS) != null
+                        || statement.getProps().remove(PhoenixDatabaseMetaData.SALT_HASH) != null
+                        || statement.getProps().remove(PhoenixDatabaseMetaData.SALT_PK_COLUMNS) != null) {
                     throw new SQLExceptionInfo.Builder(SQLExceptionCode.SALT_ONLY_ON_CREATE_TABLE).setSchemaName(schema.getName())
                     .setTableName(table.getName().getString()).build().buildException();
                 }
@@ -909,6 +947,10 @@ public class MetaDataClient {
                         return new MutationState(0,connection);
                     }
                     connection.addColumn(schemaName, tableName, columns, result.getMutationTime(), seqNum, isImmutableRows);
+                    // Existing indexes are maintained on the server-side once the rows become mutable
+                    if (!isImmutableRows && table.isImmutableRows() && !table.getIndexes().isEmpty() && table.getType() != PTableType.VIEW) {
+                        connection.getQueryServices().ensureIndexMaintenanceEnabled(SchemaUtil.getTableName(schemaName, tableName));
+                    }
                     if (emptyCF != null) {
                         Long scn = connection.getSCN();
                         connection.setAutoCommit(true);
@@ -30,6 +30,7 @@ package com.salesforce.phoenix.schema;
 import java.math.*;
 import java.sql.*;
 import java.text.Format;
+import java.util.Arrays;
 import java.util.Map;
 
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
@@ -3651,6 +3652,172 @@ public enum PDataType {
         return length;
     }
 
+    /**
+     * Value returned by {@link #toUnscaledLong(ImmutableBytesWritable, PDataType, ColumnModifier, int)}
+     * when a number cannot be represented exactly as a long at the requested scale.
+     */
+    public static final long NOT_UNSCALED_LONG = Long.MIN_VALUE;
+    /**
+     * Maximum number of digits of a scaled long that is guaranteed not to overflow.
+     */
+    public static final int MAX_UNSCALED_LONG_PRECISION = 18;
+    
+    private static final long MAX_LONG_BEFORE_DIGIT100 = (Long.MAX_VALUE - 99) / 100;
+    private static final long MAX_LONG_BEFORE_DIGIT10 = (Long.MAX_VALUE - 9) / 10;
+
+    /**
+     * Decode a number straight into its unscaled value at the given scale, without going through
+     * a BigDecimal. For DECIMAL, the base 100 digits of the serialized bytes are accumulated into
+     * a long, while the integral types are scaled up from their decoded long value.
+     * @param ptr the serialized number
+     * @param actualType the type of the serialized number
+     * @param columnModifier the column modifier of the serialized number or null
+     * @param scale the scale of the unscaled value
+     * @return the unscaled value or {@link #NOT_UNSCALED_LONG} if the number has more fractional
+     * digits than the scale, overflows a long or is not of a supported type
+     */
+    public static long toUnscaledLong(ImmutableBytesWritable ptr, PDataType actualType, ColumnModifier columnModifier, int scale) {
+        if (actualType == DECIMAL) {
+            if (columnModifier != null) {
+                return NOT_UNSCALED_LONG;
+            }
+            return toUnscaledLong(ptr.get(), ptr.getOffset(), ptr.getLength(), scale);
+        }
+        if (!actualType.isCoercibleTo(LONG) || scale > MAX_UNSCALED_LONG_PRECISION) {
+            return NOT_UNSCALED_LONG;
+        }
+        long l = actualType.getCodec().decodeLong(ptr, columnModifier);
+        long multiplier = LongMath.pow(10, scale);
+        if (l > Long.MAX_VALUE / multiplier || l <= Long.MIN_VALUE / multiplier) {
+            return NOT_UNSCALED_LONG;
+        }
+        return l * multiplier;
+    }
+    
+    private static long toUnscaledLong(byte[] bytes, int offset, int length, int scale) {
+        if (length == 1 && bytes[offset] == ZERO_BYTE) {
+            return 0;
+        }
+        int signum;
+        int exponent;
+        int index;
+        int digitOffset;
+        if ((bytes[offset] & 0x80) != 0) {
+            signum = 1;
+            exponent = -(byte)(((bytes[offset] & 0x7F) - 65) * -2) / 2;
+            index = offset + length;
+            digitOffset = POS_DIGIT_OFFSET;
+        } else {
+            signum = -1;
+            exponent = -(byte)((~bytes[offset] - 65 - 128) * -2) / 2;
+            index = offset + length - (bytes[offset + length - 1] == NEG_TERMINAL_BYTE ? 1 : 0);
+            digitOffset = -NEG_DIGIT_OFFSET;
+        }
+        // The first base 100 digit is multiplied by 100^exponent, so at the target
+        // scale it is multiplied by 10^pow10, with pow10 decreasing by two for each
+        // following digit.
+        int pow10 = 2 * exponent + scale;
+        // Power of ten that the accumulated value still needs to be multiplied by
+        int unitPow10 = 0;
+        long l = 0;
+        for (int i = offset + 1; i < index; i++, pow10 -= 2) {
+            int digit100 = signum * bytes[i] - digitOffset;
+            if (pow10 >= 0) {
+                if (l > MAX_LONG_BEFORE_DIGIT100) {
+                    return NOT_UNSCALED_LONG;
+                }
+                l = l * 100 + digit100;
+                unitPow10 = pow10;
+            } else if (pow10 == -1) {
+                if (digit100 % 10 != 0 || l > MAX_LONG_BEFORE_DIGIT10) {
+                    return NOT_UNSCALED_LONG;
+                }
+                l = l * 10 + digit100 / 10;
+                unitPow10 = 0;
+            } else if (digit100 != 0) {
+                return NOT_UNSCALED_LONG;
+            }
+        }
+        if (unitPow10 > 0 && l != 0) {
+            if (unitPow10 > MAX_UNSCALED_LONG_PRECISION) {
+                return NOT_UNSCALED_LONG;
+            }
+            long multiplier = LongMath.pow(10, unitPow10);
+            if (l > Long.MAX_VALUE / multiplier) {
+                return NOT_UNSCALED_LONG;
+            }
+            l *= multiplier;
+        }
+        return signum * l;
+    }
+
+    /**
+     * Serialize a scaled long into the same bytes as {@link #DECIMAL} produces for the
+     * equivalent BigDecimal, without creating one.
+     * @param unscaled the unscaled value
+     * @param scale the scale of the unscaled value
+     * @return the serialized DECIMAL
+     */
+    public static byte[] toDecimalBytes(long unscaled, int scale) {
+        byte[] result = new byte[MAX_BIG_DECIMAL_BYTES];
+        int length = toDecimalBytes(unscaled, scale, result, 0);
+        return length == result.length ? result : Arrays.copyOf(result, length);
+    }
+    
+    /**
+     * Serialize a scaled long into the same bytes as {@link #DECIMAL} produces for the
+     * equivalent BigDecimal, without creating one.
+     * @param unscaled the unscaled value
+     * @param scale the scale of the unscaled value
+     * @param result the byte array to contain the serialized bytes, which needs
+     * at most 12 bytes past the offset
+     * @param offset the offset into the byte array
+     * @return the number of bytes that make up the serialized DECIMAL
+     */
+    public static int toDecimalBytes(long unscaled, int scale, byte[] result, final int offset) {
+        if (unscaled == 0) {
+            result[offset] = ZERO_BYTE;
+            return 1;
+        }
+        // Normalize like NumberUtil.normalize by stripping trailing zeros
+        while (unscaled % 10 == 0) {
+            unscaled /= 10;
+            scale--;
+        }
+        int precision = 0;
+        for (long l = unscaled; l != 0; l /= 10) {
+            precision++;
+        }
+        int signum = unscaled < 0 ? -1 : 1;
+        // Same as DECIMAL.getLength(BigDecimal) and toBytes(BigDecimal, byte[], int, int),
+        // but all the digits fit into a long.
+        int length = (signum < 0 ? 2 : 1) + (precision +  1 + (scale % 2 == 0 ? 0 : 1)) / 2;
+        int index = offset + length;
+        int expOffset = scale % 2 * (scale < 0 ? -1 : 1);
+        int multiplyBy = expOffset == 0 ? 1 : 10;
+        int digitOffset;
+        if (signum == 1) {
+            digitOffset = POS_DIGIT_OFFSET;
+            scale -= (length - 2) * 2;
+            result[offset] = (byte)((-(scale+expOffset)/2 + EXP_BYTE_OFFSET) | 0x80);
+        } else {
+            digitOffset = NEG_DIGIT_OFFSET;
+            // Scale adjustment shouldn't include terminal byte in length
+            scale -= (length - 2 - 1) * 2;
+            result[offset] = (byte)(~(-(scale+expOffset)/2 + EXP_BYTE_OFFSET + 128) & 0x7F);
+            result[--index] = NEG_TERMINAL_BYTE;
+        }
+        long l = unscaled;
+        do {
+            long divBy = 100/multiplyBy;
+            long digit = l % divBy;
+            l /= divBy;
+            result[--index] = (byte)(digit * multiplyBy + digitOffset);
+            multiplyBy = 1;
+        } while (l != 0);
+        return length;
+    }
+
     /**
      * Deserialize a variable length byte array into a BigDecimal. Note that because of
      * the normalization that gets done to the scale, if you roundtrip a BigDecimal,
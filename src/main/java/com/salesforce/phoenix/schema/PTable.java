@@ -160,6 +160,19 @@ public interface PTable extends Writable {
      */
     Integer getBucketNum();
 
+    /**
+     * Return the function used to hash the row key into the salt byte.
+     * @return the salt hash function, or null if salting is not used.
+     */
+    SaltHashFunction getSaltHashFunction();
+
+    /**
+     * Return the number of leading primary key columns, not counting the salt byte,
+     * that are hashed into the salt byte.
+     * @return the number of hashed primary key columns, or null if the whole row key is hashed.
+     */
+    Integer getSaltPKColumnCount();
+
     /**
      * Return the list of indexes defined on this table.
      * @return the list of indexes.
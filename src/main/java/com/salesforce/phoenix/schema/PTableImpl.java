@@ -76,6 +76,8 @@ public class PTableImpl implements PTable {
     private ListMultimap<String,PColumn> columnsByName;
     private PName pkName;
     private Integer bucketNum;
+    private SaltHashFunction saltHashFunction;
+    private Integer saltPKColumnCount;
     // Statistics associated with this table.
     private PTableStats stats;
     private RowKeySchema rowKeySchema;
@@ -115,46 +117,51 @@ public class PTableImpl implements PTable {
     public static PTableImpl makePTable(PTable table, long timeStamp, List<PTable> indexes) throws SQLException {
         return new PTableImpl(
                 table.getName(), table.getType(), table.getIndexState(), timeStamp, table.getSequenceNumber() + 1, 
-                table.getPKName(), table.getBucketNum(), table.getBucketNum() == null ? table.getColumns() : table.getColumns().subList(1, table.getColumns().size()), table.getDataTableName(), indexes, table.isImmutableRows());
+                table.getPKName(), table.getBucketNum(), table.getSaltHashFunction(), table.getSaltPKColumnCount(), table.getBucketNum() == null ? table.getColumns() : table.getColumns().subList(1, table.getColumns().size()), table.getDataTableName(), indexes, table.isImmutableRows());
     }
 
     public static PTableImpl makePTable(PTable table, List<PColumn> columns) throws SQLException {
         return new PTableImpl(
                 table.getName(), table.getType(), table.getIndexState(), table.getTimeStamp(), table.getSequenceNumber(), 
-                table.getPKName(), table.getBucketNum(), columns, table.getDataTableName(), table.getIndexes(), table.isImmutableRows());
+                table.getPKName(), table.getBucketNum(), table.getSaltHashFunction(), table.getSaltPKColumnCount(), columns, table.getDataTableName(), table.getIndexes(), table.isImmutableRows());
     }
 
     public static PTableImpl makePTable(PTable table, long timeStamp, long sequenceNumber, List<PColumn> columns) throws SQLException {
         return new PTableImpl(
                 table.getName(), table.getType(), table.getIndexState(), timeStamp, sequenceNumber, 
-                table.getPKName(), table.getBucketNum(), columns, table.getDataTableName(), table.getIndexes(), table.isImmutableRows());
+                table.getPKName(), table.getBucketNum(), table.getSaltHashFunction(), table.getSaltPKColumnCount(), columns, table.getDataTableName(), table.getIndexes(), table.isImmutableRows());
     }
 
     public static PTableImpl makePTable(PTable table, long timeStamp, long sequenceNumber, List<PColumn> columns, boolean isImmutableRows) throws SQLException {
         return new PTableImpl(
                 table.getName(), table.getType(), table.getIndexState(), timeStamp, sequenceNumber, 
-                table.getPKName(), table.getBucketNum(), columns, table.getDataTableName(), table.getIndexes(), isImmutableRows);
+                table.getPKName(), table.getBucketNum(), table.getSaltHashFunction(), table.getSaltPKColumnCount(), columns, table.getDataTableName(), table.getIndexes(), isImmutableRows);
     }
 
     public static PTableImpl makePTable(PTable table, PIndexState state) throws SQLException {
         return new PTableImpl(
                 table.getName(), table.getType(), state, table.getTimeStamp(), table.getSequenceNumber(), 
-                table.getPKName(), table.getBucketNum(), table.getColumns(), table.getDataTableName(), table.getIndexes(), table.isImmutableRows());
+                table.getPKName(), table.getBucketNum(), table.getSaltHashFunction(), table.getSaltPKColumnCount(), table.getColumns(), table.getDataTableName(), table.getIndexes(), table.isImmutableRows());
     }
 
     public static PTableImpl makePTable(PName name, PTableType type, PIndexState state, long timeStamp, long sequenceNumber, PName pkName,
             Integer bucketNum, List<PColumn> columns, PName dataTableName, List<PTable> indexes, boolean isImmutableRows) throws SQLException {
-        return new PTableImpl(name, type, state, timeStamp, sequenceNumber, pkName, bucketNum, columns, dataTableName, indexes, isImmutableRows);
+        return makePTable(name, type, state, timeStamp, sequenceNumber, pkName, bucketNum, null, null, columns, dataTableName, indexes, isImmutableRows);
+    }
+
+    public static PTableImpl makePTable(PName name, PTableType type, PIndexState state, long timeStamp, long sequenceNumber, PName pkName,
+            Integer bucketNum, SaltHashFunction saltHashFunction, Integer saltPKColumnCount, List<PColumn> columns, PName dataTableName, List<PTable> indexes, boolean isImmutableRows) throws SQLException {
+        return new PTableImpl(name, type, state, timeStamp, sequenceNumber, pkName, bucketNum, saltHashFunction, saltPKColumnCount, columns, dataTableName, indexes, isImmutableRows);
     }
 
     private PTableImpl(PName name, PTableType type, PIndexState state, long timeStamp, long sequenceNumber, PName pkName,
-            Integer bucketNum, List<PColumn> columns, PName dataTableName, List<PTable> indexes, boolean isImmutableRows) throws SQLException {
-        init(name, type, state, timeStamp, sequenceNumber, pkName, bucketNum, columns, new PTableStatsImpl(),
+            Integer bucketNum, SaltHashFunction saltHashFunction, Integer saltPKColumnCount, List<PColumn> columns, PName dataTableName, List<PTable> indexes, boolean isImmutableRows) throws SQLException {
+        init(name, type, state, timeStamp, sequenceNumber, pkName, bucketNum, saltHashFunction, saltPKColumnCount, columns, new PTableStatsImpl(),
                 dataTableName, indexes, isImmutableRows);
     }
 
     private void init(PName name, PTableType type, PIndexState state, long timeStamp, long sequenceNumber, PName pkName,
-            Integer bucketNum, List<PColumn> columns, PTableStats stats, PName dataTableName, List<PTable> indexes, boolean isImmutableRows) throws SQLException {
+            Integer bucketNum, SaltHashFunction saltHashFunction, Integer saltPKColumnCount, List<PColumn> columns, PTableStats stats, PName dataTableName, List<PTable> indexes, boolean isImmutableRows) throws SQLException {
         this.name = name;
         this.type = type;
         this.state = state;
@@ -201,6 +208,9 @@ public class PTableImpl implements PTable {
             }
         }
         this.bucketNum = bucketNum;
+        // Tables salted before the hash function was selectable use the original one
+        this.saltHashFunction = bucketNum == null ? null : saltHashFunction == null ? SaltHashFunction.LEGACY : saltHashFunction;
+        this.saltPKColumnCount = bucketNum == null ? null : saltPKColumnCount;
         this.pkColumns = ImmutableList.copyOf(pkColumns);
         this.rowKeySchema = builder.setMinNullable(pkColumns.size()).build();
         this.allColumns = ImmutableList.copyOf(allColumns);
@@ -288,6 +298,7 @@ public class PTableImpl implements PTable {
             }
             List<PColumn> columns = getPKColumns();
             int nColumns = columns.size();
+            int hashedLength = -1;
             PDataType type = null;
             while (i < nValues && i < nColumns) {
                 // Separate variable length column values in key with zero byte
@@ -319,6 +330,10 @@ public class PTableImpl implements PTable {
                     throw new ConstraintViolationException(name.getString() + "." + column.getName().getString() + " may not exceed " + byteSize + " bytes (" + SchemaUtil.toString(type, byteValue) + ")");
                 }
                 os.write(byteValue, 0, byteValue.length);
+                // Stop hashing after the leading pk columns the table is salted on
+                if (bucketNum != null && saltPKColumnCount != null && i - 1 == saltPKColumnCount) {
+                    hashedLength = os.size() - 1;
+                }
             }
             // If some non null pk values aren't set, then throw
             if (i < nColumns) {
@@ -331,7 +346,7 @@ public class PTableImpl implements PTable {
             byte[] buf = os.getBuffer();
             int size = os.size();
             if (bucketNum != null) {
-                buf[0] = SaltingUtil.getSaltingByte(buf, 1, size-1, bucketNum);
+                buf[0] = saltHashFunction.getSaltingByte(buf, 1, hashedLength < 0 ? size-1 : hashedLength, bucketNum);
             }
             key.set(buf,0,size);
             return i;
@@ -405,7 +420,7 @@ public class PTableImpl implements PTable {
         public PRowImpl(ImmutableBytesWritable key, long ts, Integer bucketNum) {
             this.ts = ts;
             if (bucketNum != null) {
-                this.key = SaltingUtil.getSaltedKey(key, bucketNum);
+                this.key = SaltingUtil.getSaltedKey(key, PTableImpl.this);
             } else {
                 this.key = ByteUtil.copyKeyBytesIfNecessary(key);
             }
@@ -577,9 +592,18 @@ public class PTableImpl implements PTable {
         byte[] dataTableNameBytes = Bytes.readByteArray(input);
         PName dataTableName = dataTableNameBytes.length == 0 ? null : new PNameImpl(dataTableNameBytes);
         PTableStats stats = new PTableStatsImpl(guidePosts);
+        SaltHashFunction saltHashFunction = null;
+        Integer saltPKColumnCount = null;
+        if (bucketNum.equals(NO_SALTING)) {
+            bucketNum = null;
+        } else {
+            saltHashFunction = SaltHashFunction.values()[WritableUtils.readVInt(input)];
+            int nSaltPKColumns = WritableUtils.readVInt(input);
+            saltPKColumnCount = nSaltPKColumns == 0 ? null : nSaltPKColumns;
+        }
         try {
             init(tableName, tableType, indexState, timeStamp, sequenceNumber, pkName,
-                    bucketNum.equals(NO_SALTING) ? null : bucketNum, columns, stats, dataTableName, indexes, isImmutableRows);
+                    bucketNum, saltHashFunction, saltPKColumnCount, columns, stats, dataTableName, indexes, isImmutableRows);
         } catch (SQLException e) {
             throw new RuntimeException(e); // Impossible
         }
@@ -615,6 +639,10 @@ public class PTableImpl implements PTable {
         output.writeBoolean(isImmutableRows);
         stats.write(output);
         Bytes.writeByteArray(output, dataTableName == null ? ByteUtil.EMPTY_BYTE_ARRAY : dataTableName.getBytes());
+        if (bucketNum != null) {
+            WritableUtils.writeVInt(output, saltHashFunction.ordinal());
+            WritableUtils.writeVInt(output, saltPKColumnCount == null ? 0 : saltPKColumnCount);
+        }
     }
 
     @Override
@@ -651,6 +679,16 @@ public class PTableImpl implements PTable {
         return bucketNum;
     }
 
+    @Override
+    public SaltHashFunction getSaltHashFunction() {
+        return saltHashFunction;
+    }
+
+    @Override
+    public Integer getSaltPKColumnCount() {
+        return saltPKColumnCount;
+    }
+
     @Override
     public List<PTable> getIndexes() {
         return indexes;
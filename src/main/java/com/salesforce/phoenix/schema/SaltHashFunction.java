@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.schema;
+
+
+/**
+ * 
+ * Hash functions used to compute the salt byte of the row key of a salted table.
+ * The function of a table is recorded in its metadata by name, while the ordinal
+ * is serialized along with the PTable, so new functions may only be appended.
+ *
+ * @since 2.0
+ */
+public enum SaltHashFunction {
+    /**
+     * The original hash, used for tables salted without a SALT_HASH property. It
+     * folds in one sign extended byte at a time, which spreads row keys sharing
+     * a long common prefix poorly over the buckets.
+     */
+    LEGACY {
+        @Override
+        public int hash(byte[] buf, int offset, int length) {
+            int result = 1;
+            for (int i = offset; i < offset + length; i++) {
+                result = 31 * result + buf[i];
+            }
+            return result;
+        }
+
+        @Override
+        public byte getSaltingByte(byte[] buf, int offset, int length, int bucketNum) {
+            // Kept as is, since the existing rows were salted this way
+            return (byte) ((Math.abs(hash(buf, offset, length)) % bucketNum));
+        }
+    },
+    /**
+     * The 32-bit x86 variant of MurmurHash3, which consumes four bytes at a time and
+     * mixes every bit of the key into the result.
+     */
+    MURMUR3 {
+        private static final int C1 = 0xcc9e2d51;
+        private static final int C2 = 0x1b873593;
+
+        private int mixK1(int k1) {
+            k1 *= C1;
+            k1 = Integer.rotateLeft(k1, 15);
+            return k1 * C2;
+        }
+
+        @Override
+        public int hash(byte[] buf, int offset, int length) {
+            int h1 = 0;
+            int roundedEnd = offset + (length & 0xfffffffc);
+            for (int i = offset; i < roundedEnd; i += 4) {
+                int k1 = (buf[i] & 0xff) | ((buf[i+1] & 0xff) << 8) | ((buf[i+2] & 0xff) << 16) | (buf[i+3] << 24);
+                h1 ^= mixK1(k1);
+                h1 = Integer.rotateLeft(h1, 13);
+                h1 = h1 * 5 + 0xe6546b64;
+            }
+            int nTailBytes = length & 0x03;
+            if (nTailBytes > 0) {
+                int k1 = 0;
+                for (int i = nTailBytes - 1; i >= 0; i--) {
+                    k1 = (k1 << 8) | (buf[roundedEnd + i] & 0xff);
+                }
+                h1 ^= mixK1(k1);
+            }
+            h1 ^= length;
+            h1 ^= h1 >>> 16;
+            h1 *= 0x85ebca6b;
+            h1 ^= h1 >>> 13;
+            h1 *= 0xc2b2ae35;
+            h1 ^= h1 >>> 16;
+            return h1;
+        }
+    };
+
+    public abstract int hash(byte[] buf, int offset, int length);
+
+    /**
+     * Compute the salt byte for the given row key bytes
+     * @param buf the buffer holding the bytes to hash
+     * @param offset the offset of the bytes to hash, past the salt byte itself
+     * @param length the number of bytes to hash
+     * @param bucketNum the number of salt buckets of the table
+     * @return the salt byte, between 0 and bucketNum - 1
+     */
+    public byte getSaltingByte(byte[] buf, int offset, int length, int bucketNum) {
+        return (byte) ((hash(buf, offset, length) & Integer.MAX_VALUE) % bucketNum);
+    }
+
+    /**
+     * @param name the name of a hash function, case insensitive
+     * @return the hash function, or null if there is none with the name
+     */
+    public static SaltHashFunction fromName(String name) {
+        for (SaltHashFunction function : values()) {
+            if (function.name().equalsIgnoreCase(name)) {
+                return function;
+            }
+        }
+        return null;
+    }
+}
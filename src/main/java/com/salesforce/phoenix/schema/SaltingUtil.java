@@ -35,7 +35,9 @@ import com.google.common.collect.Lists;
 import com.salesforce.phoenix.compile.ScanRanges;
 import com.salesforce.phoenix.query.KeyRange;
 import com.salesforce.phoenix.query.KeyRange.Bound;
+import com.salesforce.phoenix.query.QueryConstants;
 import com.salesforce.phoenix.schema.RowKeySchema.RowKeySchemaBuilder;
+import com.salesforce.phoenix.schema.ValueSchema.Field;
 import com.salesforce.phoenix.util.ScanUtil;
 
 
@@ -104,32 +106,107 @@ public class SaltingUtil {
 
     // Compute the hash of the key value stored in key and set its first byte as the value. The
     // first byte of key should be left empty as a place holder for the salting byte.
-    public static byte[] getSaltedKey(ImmutableBytesWritable key, int bucketNum) {
+    public static byte[] getSaltedKey(ImmutableBytesWritable key, PTable table) {
         byte[] keyBytes = new byte[key.getLength()];
-        byte saltByte = getSaltingByte(key.get(), key.getOffset() + 1, key.getLength() - 1, bucketNum);
+        byte saltByte = getSaltingByte(table, key.get(), key.getOffset(), key.getLength());
         keyBytes[0] = saltByte;
         System.arraycopy(key.get(), key.getOffset() + 1, keyBytes, 1, key.getLength() - 1);
         return keyBytes;
     }
 
-    // Generate the bucket byte given a byte array and the number of buckets.
+    // Generate the bucket byte given a byte array and the number of buckets, using the
+    // hash function of tables salted without a SALT_HASH property.
     public static byte getSaltingByte(byte[] value, int offset, int length, int bucketNum) {
-        int hash = hashCode(value, offset, length);
-        byte bucketByte = (byte) ((Math.abs(hash) % bucketNum));
-        return bucketByte;
+        return SaltHashFunction.LEGACY.getSaltingByte(value, offset, length, bucketNum);
     }
 
-    private static int hashCode(byte a[], int offset, int length) {
-        if (a == null)
-            return 0;
-        int result = 1;
-        for (int i = offset; i < offset + length; i++) {
-            result = 31 * result + a[i];
+    /**
+     * Generate the bucket byte of a row key of a salted table.
+     * @param table the salted table
+     * @param key the buffer holding the row key
+     * @param offset the offset of the row key, including its salt byte place holder
+     * @param length the length of the row key, including its salt byte place holder
+     * @return the salt byte of the row key
+     */
+    public static byte getSaltingByte(PTable table, byte[] key, int offset, int length) {
+        int hashedLength = getHashedLength(table.getRowKeySchema(), table.getSaltPKColumnCount(), key, offset + 1, offset + length);
+        return table.getSaltHashFunction().getSaltingByte(key, offset + 1, hashedLength, table.getBucketNum());
+    }
+
+    /*
+     * Get the number of bytes, starting past the salt byte, covered by the leading pk columns
+     * a table is salted on. If the key ends before these columns do, the whole key is hashed.
+     */
+    private static int getHashedLength(RowKeySchema schema, Integer saltPKColumnCount, byte[] key, int offset, int maxOffset) {
+        if (saltPKColumnCount == null) {
+            return maxOffset - offset;
+        }
+        int position = offset;
+        for (int i = 1; i <= saltPKColumnCount; i++) {
+            if (position >= maxOffset) {
+                return maxOffset - offset;
+            }
+            if (i > 1 && !schema.getField(i-1).getType().isFixedWidth()) {
+                position++; // Skip separator byte
+            }
+            Field field = schema.getField(i);
+            if (field.getType().isFixedWidth()) {
+                position += field.getByteSize();
+            } else {
+                while (position < maxOffset && key[position] != QueryConstants.SEPARATOR_BYTE) {
+                    position++;
+                }
+            }
+        }
+        return Math.min(position, maxOffset) - offset;
+    }
+
+    /**
+     * Get the salt byte ranges to scan given the key ranges of the remaining pk columns. When
+     * the table is salted on its leading pk columns and each of them is constrained to single
+     * keys, only the buckets of these keys need to be scanned.
+     * @param ranges the key ranges, with a place holder for the salt byte in the first slot
+     * @param table the salted table
+     * @return the salt byte ranges to scan, or null if all buckets must be scanned.
+     */
+    public static List<KeyRange> getSaltingRanges(List<List<KeyRange>> ranges, PTable table) {
+        Integer saltPKColumnCount = table.getSaltPKColumnCount();
+        if (saltPKColumnCount == null || ranges.size() <= saltPKColumnCount) {
+            return null;
+        }
+        int count = 1;
+        for (int i = 1; i <= saltPKColumnCount; i++) {
+            List<KeyRange> slot = ranges.get(i);
+            for (KeyRange range : slot) {
+                if (!range.isSingleKey()) {
+                    return null;
+                }
+            }
+            count *= slot.size();
+        }
+        int bucketNum = table.getBucketNum();
+        // No pruning possible once every bucket would be covered
+        if (count >= bucketNum) {
+            return null;
+        }
+        RowKeySchema schema = table.getRowKeySchema();
+        List<List<KeyRange>> hashedRanges = ranges.subList(0, saltPKColumnCount + 1);
+        int[] position = new int[hashedRanges.size()];
+        byte[] key = new byte[1 + hashedRanges.size() + ScanUtil.estimateMaximumKeyLength(schema, 1, hashedRanges.subList(1, hashedRanges.size()))];
+        SortedSet<Byte> saltBytes = new TreeSet<Byte>();
+        do {
+            int length = ScanUtil.setKey(schema, hashedRanges, position, Bound.LOWER, key, 1, 1, hashedRanges.size(), 1);
+            saltBytes.add(getSaltingByte(table, key, 0, length + 1));
+        } while (ScanUtil.incrementKey(hashedRanges, position));
+        List<KeyRange> saltRanges = Lists.newArrayListWithExpectedSize(saltBytes.size());
+        for (Byte saltByte : saltBytes) {
+            byte[] bytes = new byte[] {saltByte};
+            saltRanges.add(SALTING_COLUMN.getDataType().getKeyRange(bytes, true, bytes, true));
         }
-        return result;
+        return saltRanges;
     }
 
-    public static List<List<KeyRange>> flattenRanges(List<List<KeyRange>> ranges, RowKeySchema schema, int bucketNum) {
+    public static List<List<KeyRange>> flattenRanges(List<List<KeyRange>> ranges, PTable table) {
         if (ranges == null || ranges.isEmpty()) {
             return ScanRanges.NOTHING.getRanges();
         }
@@ -140,29 +217,23 @@ public class SaltingUtil {
         }
         KeyRange[] expandedRanges = new KeyRange[count];
         int[] position = new int[ranges.size()];
-        int estimatedKeyLength = ScanUtil.estimateMaximumKeyLength(schema, 1, ranges);
+        // Leave room for the salt byte and a separator after each column
+        RowKeySchema schema = table.getRowKeySchema();
+        int estimatedKeyLength = 1 + ranges.size() + ScanUtil.estimateMaximumKeyLength(schema, 1, ranges.subList(1, ranges.size()));
         int idx = 0, length;
         byte saltByte;
         byte[] key = new byte[estimatedKeyLength];
         do {
-            length = ScanUtil.setKey(schema, ranges, position, Bound.LOWER, key, 1, 0, ranges.size(), 1);
-            saltByte = SaltingUtil.getSaltingByte(key, 1, length, bucketNum);
+            length = ScanUtil.setKey(schema, ranges, position, Bound.LOWER, key, 1, 1, ranges.size(), 1);
+            saltByte = getSaltingByte(table, key, 0, length + 1);
             key[0] = saltByte;
             byte[] saltedKey = Arrays.copyOf(key, length + 1);
             KeyRange range = PDataType.VARBINARY.getKeyRange(saltedKey, true, saltedKey, true);
             expandedRanges[idx++] = range;
-        } while (incrementKey(ranges, position));
+        } while (ScanUtil.incrementKey(ranges, position));
         // The comparator is imperfect, but sufficient for all single keys.
         Arrays.sort(expandedRanges, KeyRange.COMPARATOR);
         List<KeyRange> expandedRangesList = Arrays.asList(expandedRanges);
         return Collections.singletonList(expandedRangesList);
     }
-
-    private static boolean incrementKey(List<List<KeyRange>> slots, int[] position) {
-        int idx = slots.size() - 1;
-        while (idx >= 0 && (position[idx] = (position[idx] + 1) % slots.get(idx).size()) == 0) {
-            idx--;
-        }
-        return idx >= 0;
-    }
 }
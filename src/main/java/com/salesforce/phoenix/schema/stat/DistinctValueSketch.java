@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.schema.stat;
+
+import java.io.*;
+import java.util.TreeSet;
+
+import org.apache.hadoop.hbase.util.Hash;
+import org.apache.hadoop.hbase.util.MurmurHash;
+import org.apache.hadoop.io.WritableUtils;
+
+
+/**
+ * Estimates the number of distinct values (NDV) of a column by keeping the K
+ * smallest hashes of the values seen (a K-Minimum-Values sketch). The sketch
+ * has a fixed size, so it may be collected on the server side while scanning
+ * a region, and sketches from different regions may be merged on the client
+ * to get the estimate for the whole table.
+ *
+ * @since 2.0
+ */
+public class DistinctValueSketch {
+    public static final int DEFAULT_SIZE = 64;
+    private static final Hash HASH = MurmurHash.getInstance();
+    private static final int SEED1 = 0x9747b28c;
+    private static final int SEED2 = 0x5bd1e995;
+
+    private final int size;
+    private final TreeSet<Long> minHashes = new TreeSet<Long>();
+
+    public DistinctValueSketch() {
+        this(DEFAULT_SIZE);
+    }
+
+    public DistinctValueSketch(int size) {
+        this.size = size;
+    }
+
+    public void add(byte[] value, int offset, int length) {
+        long hash = (((long)HASH.hash(value, offset, length, SEED1)) << 32 | (HASH.hash(value, offset, length, SEED2) & 0xFFFFFFFFL)) & Long.MAX_VALUE;
+        add(hash);
+    }
+
+    private void add(long hash) {
+        if (minHashes.size() < size) {
+            minHashes.add(hash);
+        } else if (hash < minHashes.last() && minHashes.add(hash)) {
+            minHashes.pollLast();
+        }
+    }
+
+    /**
+     * Merge the hashes of another sketch into this one. The result is the
+     * same as if all the values had been added to this sketch.
+     * @param other the sketch to merge
+     */
+    public void merge(DistinctValueSketch other) {
+        for (Long hash : other.minHashes) {
+            add(hash);
+        }
+    }
+
+    /**
+     * @return the estimated number of distinct values added to the sketch.
+     * The estimate is exact while fewer than the sketch size distinct values
+     * have been added.
+     */
+    public long getEstimate() {
+        if (minHashes.size() < size) {
+            return minHashes.size();
+        }
+        // The kth smallest of n uniformly distributed hashes is expected to be at k/n of the hash space
+        return (long)((size - 1) * ((double)Long.MAX_VALUE / minHashes.last()));
+    }
+
+    public void write(DataOutput output) throws IOException {
+        WritableUtils.writeVInt(output, size);
+        WritableUtils.writeVInt(output, minHashes.size());
+        for (Long hash : minHashes) {
+            WritableUtils.writeVLong(output, hash);
+        }
+    }
+
+    public static DistinctValueSketch read(DataInput input) throws IOException {
+        DistinctValueSketch sketch = new DistinctValueSketch(WritableUtils.readVInt(input));
+        int count = WritableUtils.readVInt(input);
+        for (int i = 0; i < count; i++) {
+            sketch.minHashes.add(WritableUtils.readVLong(input));
+        }
+        return sketch;
+    }
+}
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.schema.stat;
+
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+
+
+/**
+ * Statistics collected for a single region of a table: the number of rows and
+ * bytes in the region, the guide posts splitting the region into chunks of roughly
+ * equal byte size (an equi-depth histogram of the row keys), and a sketch of the
+ * distinct values of each key value column.
+ *
+ * @since 2.0
+ */
+public class RegionStatistics {
+    private final byte[] startKey;
+    private final byte[] endKey;
+    private final long rowCount;
+    private final long byteCount;
+    private final byte[][] guidePosts;
+    private final Map<String, DistinctValueSketch> columnSketches;
+
+    public RegionStatistics(byte[] startKey, byte[] endKey, long rowCount, long byteCount, byte[][] guidePosts, Map<String, DistinctValueSketch> columnSketches) {
+        this.startKey = startKey;
+        this.endKey = endKey;
+        this.rowCount = rowCount;
+        this.byteCount = byteCount;
+        this.guidePosts = guidePosts;
+        this.columnSketches = ImmutableMap.copyOf(columnSketches);
+    }
+
+    public byte[] getStartKey() {
+        return startKey;
+    }
+
+    public byte[] getEndKey() {
+        return endKey;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * @return the row keys, in ascending order, that split the region into chunks of
+     * roughly the same number of bytes. The first chunk starts with the region start
+     * key and the last chunk ends with the region end key.
+     */
+    public byte[][] getGuidePosts() {
+        return guidePosts;
+    }
+
+    /**
+     * @return the distinct value sketches by column, keyed by
+     * {@link StatisticsUtil#getColumnKey(byte[], byte[])}
+     */
+    public Map<String, DistinctValueSketch> getColumnSketches() {
+        return columnSketches;
+    }
+}
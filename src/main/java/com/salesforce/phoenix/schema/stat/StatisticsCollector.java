@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.schema.stat;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.salesforce.phoenix.query.QueryConstants;
+
+
+/**
+ * Accumulates the {@link RegionStatistics} of a region as its rows are scanned
+ * on the server side. A guide post is placed at the first row following at least
+ * <code>guidePostWidth</code> bytes scanned since the previous guide post.
+ *
+ * @since 2.0
+ */
+public class StatisticsCollector {
+    private final long guidePostWidth;
+    private final List<byte[]> guidePosts = Lists.newArrayList();
+    private final Map<String, DistinctValueSketch> columnSketches = Maps.newHashMap();
+    private long rowCount;
+    private long byteCount;
+    private long guidePostByteCount;
+
+    public StatisticsCollector(long guidePostWidth) {
+        this.guidePostWidth = guidePostWidth;
+    }
+
+    /**
+     * Collect the statistics for a row
+     * @param row the key values of the row, all having the same row key
+     */
+    public void collect(List<KeyValue> row) {
+        if (row.isEmpty()) {
+            return;
+        }
+        // The guide post is the first row of a chunk, so that the chunk is [guidePost, nextGuidePost)
+        if (guidePostByteCount >= guidePostWidth) {
+            guidePosts.add(row.get(0).getRow());
+            guidePostByteCount = 0;
+        }
+        long rowByteCount = 0;
+        for (KeyValue kv : row) {
+            rowByteCount += kv.getLength();
+            if (Bytes.compareTo(kv.getBuffer(), kv.getQualifierOffset(), kv.getQualifierLength(), QueryConstants.EMPTY_COLUMN_BYTES, 0, QueryConstants.EMPTY_COLUMN_BYTES.length) == 0) {
+                continue;
+            }
+            String columnKey = StatisticsUtil.getColumnKey(kv.getFamily(), kv.getQualifier());
+            DistinctValueSketch sketch = columnSketches.get(columnKey);
+            if (sketch == null) {
+                sketch = new DistinctValueSketch();
+                columnSketches.put(columnKey, sketch);
+            }
+            sketch.add(kv.getBuffer(), kv.getValueOffset(), kv.getValueLength());
+        }
+        rowCount++;
+        byteCount += rowByteCount;
+        guidePostByteCount += rowByteCount;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public RegionStatistics getStatistics(HRegionInfo region) {
+        return new RegionStatistics(region.getStartKey(), region.getEndKey(), rowCount, byteCount, guidePosts.toArray(new byte[guidePosts.size()][]), columnSketches);
+    }
+}
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.schema.stat;
+
+import java.io.*;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
+
+import com.google.common.collect.Maps;
+import com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData;
+import com.salesforce.phoenix.query.QueryConstants;
+import com.salesforce.phoenix.util.ByteUtil;
+import com.salesforce.phoenix.util.SchemaUtil;
+
+
+/**
+ * Utilities to read and write the statistics table. The statistics table is a plain
+ * HBase table (it is not visible through the Phoenix metadata) with one row per region
+ * of a table, keyed by the physical table name followed by a separator byte and the
+ * region name.
+ *
+ * @since 2.0
+ */
+public class StatisticsUtil {
+    public static final String STATS_TABLE = "STATS";
+    public static final byte[] STATS_TABLE_NAME = SchemaUtil.getTableName(PhoenixDatabaseMetaData.TYPE_SCHEMA, STATS_TABLE);
+    public static final byte[] STATS_FAMILY = Bytes.toBytes("s");
+    public static final byte[] START_KEY_COLUMN = Bytes.toBytes("START_KEY");
+    public static final byte[] END_KEY_COLUMN = Bytes.toBytes("END_KEY");
+    public static final byte[] ROW_COUNT_COLUMN = Bytes.toBytes("ROW_COUNT");
+    public static final byte[] BYTE_COUNT_COLUMN = Bytes.toBytes("BYTE_COUNT");
+    public static final byte[] GUIDE_POSTS_COLUMN = Bytes.toBytes("GUIDE_POSTS");
+    public static final byte[] COLUMN_SKETCHES_COLUMN = Bytes.toBytes("NDV");
+
+    private static final char COLUMN_KEY_SEPARATOR = ':';
+
+    private StatisticsUtil() {
+    }
+
+    public static String getColumnKey(byte[] family, byte[] qualifier) {
+        return Bytes.toString(family) + COLUMN_KEY_SEPARATOR + Bytes.toString(qualifier);
+    }
+
+    public static String getColumnKey(String family, String qualifier) {
+        return family + COLUMN_KEY_SEPARATOR + qualifier;
+    }
+
+    public static byte[] getRowKey(byte[] tableName, byte[] regionName) {
+        return ByteUtil.concat(tableName, QueryConstants.SEPARATOR_BYTE_ARRAY, regionName);
+    }
+
+    /**
+     * @return a scan over all the statistics rows of the given physical table
+     */
+    public static Scan newScan(byte[] tableName) {
+        byte[] startRow = ByteUtil.concat(tableName, QueryConstants.SEPARATOR_BYTE_ARRAY);
+        byte[] stopRow = ByteUtil.concat(tableName, new byte[] {QueryConstants.SEPARATOR_BYTE + 1});
+        Scan scan = new Scan(startRow, stopRow);
+        scan.addFamily(STATS_FAMILY);
+        return scan;
+    }
+
+    public static Put toPut(byte[] tableName, byte[] regionName, RegionStatistics stats, long timestamp) throws IOException {
+        Put put = new Put(getRowKey(tableName, regionName));
+        put.add(STATS_FAMILY, START_KEY_COLUMN, timestamp, stats.getStartKey());
+        put.add(STATS_FAMILY, END_KEY_COLUMN, timestamp, stats.getEndKey());
+        put.add(STATS_FAMILY, ROW_COUNT_COLUMN, timestamp, Bytes.toBytes(stats.getRowCount()));
+        put.add(STATS_FAMILY, BYTE_COUNT_COLUMN, timestamp, Bytes.toBytes(stats.getByteCount()));
+        ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytesOut);
+        byte[][] guidePosts = stats.getGuidePosts();
+        WritableUtils.writeVInt(output, guidePosts.length);
+        for (byte[] guidePost : guidePosts) {
+            Bytes.writeByteArray(output, guidePost);
+        }
+        output.flush();
+        put.add(STATS_FAMILY, GUIDE_POSTS_COLUMN, timestamp, bytesOut.toByteArray());
+        bytesOut.reset();
+        WritableUtils.writeVInt(output, stats.getColumnSketches().size());
+        for (Entry<String, DistinctValueSketch> entry : stats.getColumnSketches().entrySet()) {
+            WritableUtils.writeString(output, entry.getKey());
+            entry.getValue().write(output);
+        }
+        output.flush();
+        put.add(STATS_FAMILY, COLUMN_SKETCHES_COLUMN, timestamp, bytesOut.toByteArray());
+        return put;
+    }
+
+    public static RegionStatistics fromResult(Result result) throws IOException {
+        byte[] startKey = result.getValue(STATS_FAMILY, START_KEY_COLUMN);
+        byte[] endKey = result.getValue(STATS_FAMILY, END_KEY_COLUMN);
+        byte[] rowCount = result.getValue(STATS_FAMILY, ROW_COUNT_COLUMN);
+        byte[] byteCount = result.getValue(STATS_FAMILY, BYTE_COUNT_COLUMN);
+        if (startKey == null || endKey == null || rowCount == null || byteCount == null) {
+            return null;
+        }
+        byte[][] guidePosts = new byte[0][];
+        byte[] value = result.getValue(STATS_FAMILY, GUIDE_POSTS_COLUMN);
+        if (value != null) {
+            DataInput input = new DataInputStream(new ByteArrayInputStream(value));
+            guidePosts = new byte[WritableUtils.readVInt(input)][];
+            for (int i = 0; i < guidePosts.length; i++) {
+                guidePosts[i] = Bytes.readByteArray(input);
+            }
+        }
+        Map<String, DistinctValueSketch> columnSketches = Maps.newHashMap();
+        value = result.getValue(STATS_FAMILY, COLUMN_SKETCHES_COLUMN);
+        if (value != null) {
+            DataInput input = new DataInputStream(new ByteArrayInputStream(value));
+            int count = WritableUtils.readVInt(input);
+            for (int i = 0; i < count; i++) {
+                String column = WritableUtils.readString(input);
+                columnSketches.put(column, DistinctValueSketch.read(input));
+            }
+        }
+        return new RegionStatistics(startKey, endKey, Bytes.toLong(rowCount), Bytes.toLong(byteCount), guidePosts, columnSketches);
+    }
+}
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.schema.stat;
+
+import java.util.*;
+import java.util.Map.Entry;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.salesforce.phoenix.compile.ScanRanges;
+
+
+/**
+ * Client side view of the statistics of a table, made up of the {@link RegionStatistics}
+ * of each of its regions, as collected by the last ANALYZE of the table. Used to estimate
+ * the number of rows and bytes a scan will touch.
+ *
+ * @since 2.0
+ */
+public class TableStatistics {
+    private final List<RegionStatistics> regions;
+    private final long rowCount;
+    private final long byteCount;
+    private final Map<String, DistinctValueSketch> columnSketches;
+
+    public TableStatistics(List<RegionStatistics> regions) {
+        this.regions = ImmutableList.copyOf(regions);
+        long rowCount = 0, byteCount = 0;
+        Map<String, DistinctValueSketch> columnSketches = Maps.newHashMap();
+        for (RegionStatistics region : regions) {
+            rowCount += region.getRowCount();
+            byteCount += region.getByteCount();
+            for (Entry<String, DistinctValueSketch> entry : region.getColumnSketches().entrySet()) {
+                DistinctValueSketch sketch = columnSketches.get(entry.getKey());
+                if (sketch == null) {
+                    sketch = new DistinctValueSketch();
+                    columnSketches.put(entry.getKey(), sketch);
+                }
+                sketch.merge(entry.getValue());
+            }
+        }
+        this.rowCount = rowCount;
+        this.byteCount = byteCount;
+        this.columnSketches = columnSketches;
+    }
+
+    public List<RegionStatistics> getRegions() {
+        return regions;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * @return the average size of a row in bytes, or 0 if the table is empty
+     */
+    public long getAverageRowSize() {
+        return rowCount == 0 ? 0 : byteCount / rowCount;
+    }
+
+    /**
+     * @param familyName the column family name
+     * @param columnName the column name
+     * @return the estimated number of distinct values of the key value column
+     * or -1 if unknown
+     */
+    public long getDistinctValueCount(String familyName, String columnName) {
+        DistinctValueSketch sketch = columnSketches.get(StatisticsUtil.getColumnKey(familyName, columnName));
+        return sketch == null ? -1 : Math.max(1, Math.min(rowCount, sketch.getEstimate()));
+    }
+
+    /**
+     * Get the guide posts, across all regions, that fall strictly within the given key range.
+     * The guide posts of every region are considered, so that the result remains valid when
+     * the region boundaries have changed since the statistics were collected.
+     * @param startKey the inclusive lower bound, or an empty array if unbound
+     * @param endKey the exclusive upper bound, or an empty array if unbound
+     * @return the sorted guide posts
+     */
+    public List<byte[]> getGuidePosts(byte[] startKey, byte[] endKey) {
+        SortedSet<byte[]> guidePosts = new TreeSet<byte[]>(Bytes.BYTES_COMPARATOR);
+        for (RegionStatistics region : regions) {
+            for (byte[] guidePost : region.getGuidePosts()) {
+                if (Bytes.compareTo(guidePost, startKey) > 0 && (endKey.length == 0 || Bytes.compareTo(guidePost, endKey) < 0)) {
+                    guidePosts.add(guidePost);
+                }
+            }
+        }
+        return new ArrayList<byte[]>(guidePosts);
+    }
+
+    /**
+     * Estimate the number of bytes that will be read by a scan over the given ranges,
+     * by summing the size of the chunks between guide posts that intersect the ranges.
+     * @param ranges the scan ranges
+     * @return the estimated number of bytes
+     */
+    public long estimateByteCount(ScanRanges ranges) {
+        return estimate(ranges, false);
+    }
+
+    /**
+     * Estimate the number of rows that will be read by a scan over the given ranges,
+     * by summing the row count of the chunks between guide posts that intersect the ranges.
+     * @param ranges the scan ranges
+     * @return the estimated number of rows
+     */
+    public long estimateRowCount(ScanRanges ranges) {
+        return estimate(ranges, true);
+    }
+
+    private long estimate(ScanRanges ranges, boolean countRows) {
+        if (ranges.isDegenerate()) {
+            return 0;
+        }
+        if (ranges.isEverything()) {
+            return countRows ? rowCount : byteCount;
+        }
+        double estimate = 0;
+        for (RegionStatistics region : regions) {
+            byte[][] guidePosts = region.getGuidePosts();
+            int nChunks = guidePosts.length + 1;
+            double chunkSize = (double)(countRows ? region.getRowCount() : region.getByteCount()) / nChunks;
+            for (int i = 0; i < nChunks; i++) {
+                byte[] lowerInclusiveKey = i == 0 ? region.getStartKey() : guidePosts[i-1];
+                byte[] upperExclusiveKey = i == nChunks - 1 ? region.getEndKey() : guidePosts[i];
+                if (ranges.intersect(lowerInclusiveKey, upperExclusiveKey)) {
+                    estimate += chunkSize;
+                }
+            }
+        }
+        return (long)Math.ceil(estimate);
+    }
+}
@@ -82,6 +82,19 @@ public class IndexUtil {
         return dataColumnFamilyName == null ? dataColumnName : ByteUtil.concat(dataColumnFamilyName, INDEX_COLUMN_NAME_SEP_BYTES, dataColumnName);
     }
     
+    /**
+     * @return the column family name of the data column for the given index column name
+     * or null if the data column is a row key column
+     */
+    public static String getDataColumnFamilyName(String indexColumnName) {
+        int index = indexColumnName.indexOf(INDEX_COLUMN_NAME_SEP);
+        return index < 0 ? null : indexColumnName.substring(0, index);
+    }
+    
+    public static String getDataColumnName(String indexColumnName) {
+        return indexColumnName.substring(indexColumnName.indexOf(INDEX_COLUMN_NAME_SEP) + 1);
+    }
+    
     public static String getIndexColumnName(PColumn dataColumn) {
         String dataColumnFamilyName = SchemaUtil.isPKColumn(dataColumn) ? null : dataColumn.getFamilyName().getString();
         return getIndexColumnName(dataColumnFamilyName, dataColumn.getName().getString());
@@ -32,6 +32,9 @@ import java.util.Properties;
 
 import org.apache.hadoop.hbase.util.Bytes;
 
+import com.salesforce.phoenix.exception.SQLExceptionCode;
+import com.salesforce.phoenix.exception.SQLExceptionInfo;
+import com.salesforce.phoenix.job.JobPriority;
 import com.salesforce.phoenix.query.QueryServices;
 import com.salesforce.phoenix.query.QueryServicesOptions;
 
@@ -82,6 +85,19 @@ public class JDBCUtil {
         return (batchSizeStr == null ? props.getInt(QueryServices.MUTATE_BATCH_SIZE_ATTRIB, QueryServicesOptions.DEFAULT_MUTATE_BATCH_SIZE) : Integer.parseInt(batchSizeStr));
     }
 
+    public static JobPriority getQueryPriority(String url, Properties info, ReadOnlyProps props) throws SQLException {
+        String priorityStr = findProperty(url, info, PhoenixRuntime.QUERY_PRIORITY_ATTRIB);
+        if (priorityStr == null) {
+            priorityStr = props.get(QueryServices.QUERY_PRIORITY_ATTRIB, QueryServicesOptions.DEFAULT_QUERY_PRIORITY);
+        }
+        try {
+            return JobPriority.fromName(priorityStr);
+        } catch (IllegalArgumentException e) {
+            throw new SQLExceptionInfo.Builder(SQLExceptionCode.INVALID_QUERY_PRIORITY).setRootCause(e)
+                .setMessage(PhoenixRuntime.QUERY_PRIORITY_ATTRIB + "=" + priorityStr).build().buildException();
+        }
+    }
+
     public static byte[] getTenantId(String url, Properties info) throws SQLException {
         String tenantId = findProperty(url, info, PhoenixRuntime.TENANT_ID_ATTRIB);
         return (tenantId == null ? null : Bytes.toBytes(tenantId));
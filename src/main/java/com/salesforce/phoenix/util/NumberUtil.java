@@ -29,6 +29,8 @@ package com.salesforce.phoenix.util;
 
 import java.math.BigDecimal;
 
+import com.google.common.math.LongMath;
+
 import com.salesforce.phoenix.schema.PDataType;
 
 /**
@@ -59,4 +61,19 @@ public class NumberUtil {
         decimal = decimal.setScale(scale, BigDecimal.ROUND_DOWN);
         return decimal;
     }
+
+    /**
+     * Scaled long equivalent of the check done by {@link #setDecimalWidthAndScale(BigDecimal, int, int)}
+     * that all the digits before the decimal point fit into the desired precision and scale.
+     * @param unscaled the unscaled value
+     * @param unscaledScale the scale of the unscaled value, which must not exceed scale
+     */
+    public static boolean isWithinWidth(long unscaled, int unscaledScale, int precision, int scale) {
+        int maxDigits = precision - scale + unscaledScale;
+        if (maxDigits > PDataType.MAX_UNSCALED_LONG_PRECISION) {
+            return true;
+        }
+        long bound = LongMath.pow(10, Math.max(0, maxDigits));
+        return unscaled < bound && unscaled > -bound;
+    }
 }
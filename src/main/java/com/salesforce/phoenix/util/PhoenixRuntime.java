@@ -82,6 +82,15 @@ public class PhoenixRuntime {
      */
     public static final String TENANT_ID_ATTRIB = "TenantId";
 
+    /**
+     * Use this connection property to set the priority class (HIGH, NORMAL or LOW)
+     * of the queries run through the connection. The parallel scans of queries of a
+     * higher priority class are run before those of a lower one, so that interactive
+     * queries keep a low latency while batch queries saturate the client thread pool.
+     * A HIGH_PRIORITY or LOW_PRIORITY hint overrides it for a single query.
+     */
+    public static final String QUERY_PRIORITY_ATTRIB = "QueryPriority";
+
     /**
      * Use this as the zookeeper quorum name to have a connection-less connection. This enables
      * Phoenix-compatible HFiles to be created in a map/reduce job by creating tables,
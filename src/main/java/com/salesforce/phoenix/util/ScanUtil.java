@@ -341,6 +341,19 @@ public class ScanUtil {
         return offset - byteOffset;
     }
 
+    /**
+     * Advance the positions within the slots to the next combination of ranges,
+     * with the last slot varying fastest.
+     * @return false once every combination has been visited
+     */
+    public static boolean incrementKey(List<List<KeyRange>> slots, int[] position) {
+        int idx = slots.size() - 1;
+        while (idx >= 0 && (position[idx] = (position[idx] + 1) % slots.get(idx).size()) == 0) {
+            idx--;
+        }
+        return idx >= 0;
+    }
+
     public static boolean isAllSingleRowScan(List<List<KeyRange>> ranges, RowKeySchema schema) {
         if (ranges.size() < schema.getMaxFields()) {
             return false;
@@ -300,6 +300,97 @@ public class ArithmeticOperationTest {
         assertEqualValue(PDataType.DECIMAL, new BigDecimal("3.3333333333333333333333333333333333333"), ptr);
     }
 
+    // The scaled long fast paths of add, subtract and multiply must give the same result as the
+    // BigDecimal path, which is taken when an operand has no precision and scale.
+    @Test
+    public void testDecimalFastPathMatchesBigDecimal() throws Exception {
+        // Mixed scales and integral operands
+        Expression[] ops = new Expression[] {
+                LiteralExpression.newConstant(new BigDecimal("12345678.91"), PDataType.DECIMAL, 10, 2),
+                LiteralExpression.newConstant(new BigDecimal("-1234567.12345"), PDataType.DECIMAL, 12, 5),
+                LiteralExpression.newConstant(7, PDataType.INTEGER)};
+        assertAddSameAsBigDecimal(new BigDecimal("11111118.78655"), ops);
+        assertSubtractSameAsBigDecimal(new BigDecimal("13580239.03345"), ops);
+        ops = new Expression[] {
+                LiteralExpression.newConstant(new BigDecimal("1.0001"), PDataType.DECIMAL, 5, 4),
+                LiteralExpression.newConstant(new BigDecimal("-99.9"), PDataType.DECIMAL, 3, 1)};
+        assertAddSameAsBigDecimal(new BigDecimal("-98.8999"), ops);
+        assertSubtractSameAsBigDecimal(new BigDecimal("100.9001"), ops);
+        ops = new Expression[] {
+                LiteralExpression.newConstant(new BigDecimal("1234.56"), PDataType.DECIMAL, 6, 2),
+                LiteralExpression.newConstant(new BigDecimal("-12.345"), PDataType.DECIMAL, 5, 3),
+                LiteralExpression.newConstant(3, PDataType.INTEGER)};
+        assertMultiplySameAsBigDecimal(new BigDecimal("-45721.9296"), ops);
+
+        // Results that overflow a long
+        ops = new Expression[] {
+                LiteralExpression.newConstant(new BigDecimal("999999999999999999"), PDataType.DECIMAL, 18, 0),
+                LiteralExpression.newConstant(Long.MAX_VALUE, PDataType.LONG)};
+        assertAddSameAsBigDecimal(new BigDecimal("10223372036854775806"), ops);
+        ops = new Expression[] {
+                LiteralExpression.newConstant(-Long.MAX_VALUE, PDataType.LONG),
+                LiteralExpression.newConstant(new BigDecimal("999999999999999999"), PDataType.DECIMAL, 18, 0)};
+        assertSubtractSameAsBigDecimal(new BigDecimal("-10223372036854775806"), ops);
+        ops = new Expression[] {
+                LiteralExpression.newConstant(new BigDecimal("12345678901234.56"), PDataType.DECIMAL, 18, 2),
+                LiteralExpression.newConstant(new BigDecimal("1234567.891"), PDataType.DECIMAL, 10, 3)};
+        assertMultiplySameAsBigDecimal(new BigDecimal("15241578764060348035.51296"), ops);
+
+        // An intermediate result that overflows before the final one fits again
+        ops = new Expression[] {
+                LiteralExpression.newConstant(Long.MAX_VALUE, PDataType.LONG),
+                LiteralExpression.newConstant(-1, PDataType.INTEGER),
+                LiteralExpression.newConstant(5, PDataType.INTEGER)};
+        assertSubtractSameAsBigDecimal(BigDecimal.valueOf(Long.MAX_VALUE - 4), ops);
+        
+        // An operand that doesn't fit into a long at the scale of the result
+        ops = new Expression[] {
+                LiteralExpression.newConstant(new BigDecimal("1.25"), PDataType.DECIMAL, 18, 2),
+                LiteralExpression.newConstant(92233720368547759L, PDataType.LONG)};
+        assertAddSameAsBigDecimal(new BigDecimal("92233720368547760.25"), ops);
+        
+        // A product whose scale is too large for a long
+        ops = new Expression[] {
+                LiteralExpression.newConstant(new BigDecimal("1.0000000001"), PDataType.DECIMAL, 18, 10),
+                LiteralExpression.newConstant(new BigDecimal("2.5"), PDataType.DECIMAL, 18, 10)};
+        assertMultiplySameAsBigDecimal(new BigDecimal("2.50000000025"), ops);
+    }
+
+    private static void assertAddSameAsBigDecimal(BigDecimal expected, Expression... ops) throws Exception {
+        assertSameAsBigDecimal(expected, new DecimalAddExpression(Arrays.asList(ops)),
+                new DecimalAddExpression(toUnboundedDecimals(ops)));
+    }
+
+    private static void assertSubtractSameAsBigDecimal(BigDecimal expected, Expression... ops) throws Exception {
+        assertSameAsBigDecimal(expected, new DecimalSubtractExpression(Arrays.asList(ops)),
+                new DecimalSubtractExpression(toUnboundedDecimals(ops)));
+    }
+
+    private static void assertMultiplySameAsBigDecimal(BigDecimal expected, Expression... ops) throws Exception {
+        assertSameAsBigDecimal(expected, new DecimalMultiplyExpression(Arrays.asList(ops)),
+                new DecimalMultiplyExpression(toUnboundedDecimals(ops)));
+    }
+
+    private static List<Expression> toUnboundedDecimals(Expression[] ops) throws Exception {
+        List<Expression> unbounded = new ArrayList<Expression>(ops.length);
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        for (Expression op : ops) {
+            assertTrue(op.evaluate(null, ptr));
+            Object value = PDataType.DECIMAL.toObject(ptr, op.getDataType());
+            unbounded.add(LiteralExpression.newConstant(value, PDataType.DECIMAL));
+        }
+        return unbounded;
+    }
+
+    private static void assertSameAsBigDecimal(BigDecimal expected, Expression e, Expression bigDecimalExpression) {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        assertTrue(e.evaluate(null, ptr));
+        ImmutableBytesWritable bigDecimalPtr = new ImmutableBytesWritable();
+        assertTrue(bigDecimalExpression.evaluate(null, bigDecimalPtr));
+        assertEquals(0, expected.compareTo((BigDecimal)PDataType.DECIMAL.toObject(bigDecimalPtr)));
+        assertEquals(e.toString(), 0, bigDecimalPtr.compareTo(ptr));
+    }
+
     private static void assertEqualValue(PDataType type, Object value, ImmutableBytesWritable ptr) {
         assertEquals(value, type.toObject(ptr.get()));
     }
@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.regionserver.MultiVersionConsistencyControl;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.salesforce.phoenix.util.ImmutableBytesPtr;
+
+/**
+ * @since 2.0
+ */
+public class AggregateCacheTest {
+    private static final byte[] REGION_NAME = Bytes.toBytes("region");
+    private static final List<KeyValue> RESULTS = Collections.singletonList(new KeyValue(Bytes.toBytes("a"), Bytes.toBytes("0"), Bytes.toBytes("0"), Bytes.toBytes(1L)));
+    
+    private static Scan newScan(long maxTimeStamp) throws Exception {
+        Scan scan = new Scan(Bytes.toBytes("a"), Bytes.toBytes("z"));
+        scan.setAttribute("Aggs", Bytes.toBytes("count"));
+        scan.setTimeRange(0, maxTimeStamp);
+        return scan;
+    }
+    
+    private static List<KeyValue> scan(AggregateCache cache, long maxTimeStamp) throws Exception {
+        Scan scan = newScan(maxTimeStamp);
+        ImmutableBytesPtr key = AggregateCache.newKey(REGION_NAME, scan);
+        List<KeyValue> results = cache.get(REGION_NAME, key, scan);
+        if (results == null) {
+            cache.snapshot(REGION_NAME, scan);
+            cache.put(REGION_NAME, key, scan, RESULTS);
+        }
+        return results;
+    }
+    
+    @Test
+    public void testCachedUntilWrite() throws Exception {
+        AggregateCache cache = new AggregateCache(1024 * 1024, 60000);
+        RegionWriteTracker tracker = cache.addRegion(REGION_NAME, new MultiVersionConsistencyControl());
+        long now = System.currentTimeMillis();
+        assertNull(scan(cache, now + 1000));
+        // Later timestamp still sees the same cells
+        assertEquals(RESULTS, scan(cache, now + 2000));
+        
+        tracker.startWrite();
+        assertNull(scan(cache, now + 3000));
+        tracker.completeWrite(now + 2500);
+        assertNull(scan(cache, now + 3000));
+        assertEquals(RESULTS, scan(cache, now + 4000));
+        // Earlier than the last write, so the cached results may not apply
+        assertNull(scan(cache, now + 2500));
+        assertEquals(2, cache.getHitCount());
+    }
+    
+    @Test
+    public void testInvalidatedByRowMutations() throws Exception {
+        AggregateCache cache = new AggregateCache(1024 * 1024, 60000);
+        MultiVersionConsistencyControl mvcc = new MultiVersionConsistencyControl();
+        cache.addRegion(REGION_NAME, mvcc);
+        long now = System.currentTimeMillis();
+        assertNull(scan(cache, now + 1000));
+        assertEquals(RESULTS, scan(cache, now + 1000));
+        
+        // HRegion#mutateRowsWithLocks applies RowMutations to the memstore under a new
+        // write number of the region, without calling any coprocessor hook.
+        long beforeWrite = System.currentTimeMillis();
+        MultiVersionConsistencyControl.WriteEntry w = mvcc.beginMemstoreInsert();
+        mvcc.completeMemstoreInsert(w);
+        assertNull(scan(cache, now + 1000));
+        assertEquals(RESULTS, scan(cache, now + 1000));
+        // The timestamps of the cells written are unknown, but no later than the current time
+        assertNull(scan(cache, beforeWrite));
+        assertNull(scan(cache, beforeWrite));
+        assertEquals(2, cache.getHitCount());
+    }
+    
+    @Test
+    public void testNotCachedWhileWriteInProgress() throws Exception {
+        AggregateCache cache = new AggregateCache(1024 * 1024, 60000);
+        RegionWriteTracker tracker = cache.addRegion(REGION_NAME, new MultiVersionConsistencyControl());
+        long now = System.currentTimeMillis();
+        tracker.startWrite();
+        assertNull(scan(cache, now + 1000));
+        assertEquals(0, cache.getEntryCount());
+        tracker.completeWrite(now);
+        assertNull(scan(cache, now + 1000));
+        assertEquals(RESULTS, scan(cache, now + 1000));
+    }
+    
+    @Test
+    public void testRemoveRegion() throws Exception {
+        AggregateCache cache = new AggregateCache(1024 * 1024, 60000);
+        cache.addRegion(REGION_NAME, new MultiVersionConsistencyControl());
+        long now = System.currentTimeMillis();
+        assertNull(scan(cache, now + 1000));
+        assertEquals(1, cache.getEntryCount());
+        cache.removeRegion(REGION_NAME);
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getSize());
+        // Reopened region starts over
+        cache.addRegion(REGION_NAME, new MultiVersionConsistencyControl());
+        assertNull(scan(cache, now + 1000));
+    }
+    
+    @Test
+    public void testEviction() throws Exception {
+        AggregateCache cache = new AggregateCache(1, 60000);
+        cache.addRegion(REGION_NAME, new MultiVersionConsistencyControl());
+        long now = System.currentTimeMillis();
+        assertNull(scan(cache, now + 1000));
+        assertNull(scan(cache, now + 1000));
+        assertEquals(0, cache.getEntryCount());
+    }
+}
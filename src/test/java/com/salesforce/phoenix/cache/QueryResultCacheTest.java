@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.cache;
+
+import static org.junit.Assert.*;
+
+import java.sql.SQLException;
+import java.util.*;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.salesforce.phoenix.compile.*;
+import com.salesforce.phoenix.expression.KeyValueColumnExpression;
+import com.salesforce.phoenix.iterate.MaterializedResultIterator;
+import com.salesforce.phoenix.iterate.ResultIterator;
+import com.salesforce.phoenix.memory.GlobalMemoryManager;
+import com.salesforce.phoenix.memory.MemoryManager;
+import com.salesforce.phoenix.query.Scanner;
+import com.salesforce.phoenix.query.WrappedScanner;
+import com.salesforce.phoenix.schema.*;
+import com.salesforce.phoenix.schema.tuple.MultiKeyValueTuple;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+
+/**
+ * @since 2.0
+ */
+public class QueryResultCacheTest {
+    private static final byte[] FAMILY = Bytes.toBytes("0");
+    private static final byte[] QUALIFIER = Bytes.toBytes("V");
+    private static final String QUERY = "SELECT v FROM t WHERE k = ?";
+    private static final List<Object> BINDS = Collections.<Object>singletonList("a");
+    
+    private static Scanner newScanner(String... values) {
+        List<Tuple> tuples = Lists.newArrayList();
+        for (String value : values) {
+            tuples.add(new MultiKeyValueTuple(Collections.singletonList(new KeyValue(Bytes.toBytes(value), FAMILY, QUALIFIER, Bytes.toBytes(value)))));
+        }
+        PColumn column = new PColumnImpl(new PNameImpl(QUALIFIER), new PNameImpl(FAMILY), PDataType.VARCHAR, null, null, true, 1, null);
+        RowProjector projector = new RowProjector(Collections.singletonList(new ExpressionProjector("V", "T", new KeyValueColumnExpression(column), false)), 0);
+        return new WrappedScanner(new MaterializedResultIterator(tuples), projector);
+    }
+    
+    private static List<String> read(Scanner scanner) throws SQLException {
+        List<String> values = Lists.newArrayList();
+        ResultIterator iterator = scanner.iterator();
+        ColumnProjector projector = scanner.getProjection().getColumnProjector(0);
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        for (Tuple tuple = iterator.next(); tuple != null; tuple = iterator.next()) {
+            values.add((String)projector.getValue(tuple, PDataType.VARCHAR, ptr));
+        }
+        iterator.close();
+        return values;
+    }
+    
+    private static List<String> execute(QueryResultCache cache, Long scn, String... values) throws SQLException {
+        QueryResultCache.Key key = cache.newKey(QUERY, BINDS, null, scn, 0);
+        Scanner scanner = cache.getScanner(key);
+        if (scanner == null) {
+            read(cache.newCachingScanner(key, newScanner(values), Collections.<TableRef>emptyList()));
+            return null;
+        }
+        return read(scanner);
+    }
+    
+    @Test
+    public void testCachedWithinStalenessWindow() throws Exception {
+        MemoryManager memoryManager = new GlobalMemoryManager(1024 * 1024, 0);
+        QueryResultCache cache = new QueryResultCache(memoryManager, 64 * 1024, 60000);
+        assertNull(execute(cache, null, "a", "b"));
+        assertEquals(Arrays.asList("a", "b"), execute(cache, null, "c"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(memoryManager.getMaxMemory() - cache.getSize(), memoryManager.getAvailableMemory());
+        
+        // Different binds or SCN are different queries
+        assertNull(cache.getScanner(cache.newKey(QUERY, Collections.<Object>singletonList("b"), null, null, 0)));
+        assertNull(cache.getScanner(cache.newKey(QUERY, BINDS, null, 1L, 0)));
+        
+        cache.clear();
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(memoryManager.getMaxMemory(), memoryManager.getAvailableMemory());
+        assertNull(execute(cache, null, "c"));
+        assertEquals(Arrays.asList("c"), execute(cache, null));
+    }
+    
+    @Test
+    public void testStaleResultsExpire() throws Exception {
+        QueryResultCache cache = new QueryResultCache(new GlobalMemoryManager(1024 * 1024, 0), 64 * 1024, -1);
+        assertNull(execute(cache, null, "a"));
+        assertNull(execute(cache, null, "b"));
+        // Pinned to a past SCN, so staleness does not apply
+        long scn = System.currentTimeMillis() - 1000;
+        assertNull(execute(cache, scn, "a"));
+        assertEquals(Arrays.asList("a"), execute(cache, scn, "b"));
+    }
+    
+    @Test
+    public void testWriteDuringQueryNotCached() throws Exception {
+        QueryResultCache cache = new QueryResultCache(new GlobalMemoryManager(1024 * 1024, 0), 64 * 1024, 60000);
+        QueryResultCache.Key key = cache.newKey(QUERY, BINDS, null, null, 0);
+        Scanner scanner = cache.newCachingScanner(key, newScanner("a"), Collections.<TableRef>emptyList());
+        cache.invalidate(Bytes.toBytes("T"));
+        read(scanner);
+        assertEquals(0, cache.getEntryCount());
+    }
+    
+    @Test
+    public void testLargeResultNotCached() throws Exception {
+        QueryResultCache cache = new QueryResultCache(new GlobalMemoryManager(1024 * 1024, 0), 1024, 60000);
+        String[] values = new String[100];
+        Arrays.fill(values, "a");
+        assertNull(execute(cache, null, values));
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getSize());
+    }
+    
+    @Test
+    public void testLargeResultPassedThrough() throws Exception {
+        QueryResultCache cache = new QueryResultCache(new GlobalMemoryManager(1024 * 1024, 0), 1024, 60000);
+        String[] values = new String[100];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Integer.toString(i);
+        }
+        Scanner source = newScanner(values);
+        Scanner scanner = cache.newCachingScanner(cache.newKey(QUERY, BINDS, null, null, 0), source, Collections.<TableRef>emptyList());
+        assertSame(source.getProjection(), scanner.getProjection());
+        assertEquals(Arrays.asList(values), read(scanner));
+        assertEquals(0, cache.getEntryCount());
+    }
+    
+    @Test
+    public void testEvictedWhenMemoryExhausted() throws Exception {
+        MemoryManager memoryManager = new GlobalMemoryManager(1024 * 1024, 0);
+        QueryResultCache cache = new QueryResultCache(memoryManager, 64 * 1024, 60000);
+        assertNull(execute(cache, null, "a"));
+        long entrySize = cache.getSize();
+        MemoryManager.MemoryChunk chunk = memoryManager.allocate(memoryManager.getAvailableMemory() - entrySize / 2);
+        QueryResultCache.Key key = cache.newKey(QUERY, Collections.<Object>singletonList("b"), null, null, 0);
+        read(cache.newCachingScanner(key, newScanner("b"), Collections.<TableRef>emptyList()));
+        // First entry evicted to make room for the second
+        assertEquals(1, cache.getEntryCount());
+        assertNotNull(cache.getScanner(key));
+        chunk.close();
+    }
+}
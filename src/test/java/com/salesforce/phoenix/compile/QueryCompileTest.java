@@ -43,11 +43,13 @@ import com.salesforce.phoenix.coprocessor.GroupedAggregateRegionObserver;
 import com.salesforce.phoenix.exception.SQLExceptionCode;
 import com.salesforce.phoenix.expression.aggregator.*;
 import com.salesforce.phoenix.jdbc.PhoenixConnection;
+import com.salesforce.phoenix.jdbc.PhoenixStatement;
 import com.salesforce.phoenix.parse.SQLParser;
 import com.salesforce.phoenix.parse.SelectStatement;
 import com.salesforce.phoenix.query.BaseConnectionlessQueryTest;
 import com.salesforce.phoenix.query.QueryConstants;
 import com.salesforce.phoenix.schema.AmbiguousColumnException;
+import com.salesforce.phoenix.schema.PTable;
 import com.salesforce.phoenix.util.*;
 
 
@@ -916,15 +918,22 @@ public class QueryCompileTest extends BaseConnectionlessQueryTest {
     @Test
     public void testCreateIndexOnNonImmutableTable() throws Exception {
         long ts = nextTimestamp();
-        String query = "CREATE INDEX idx ON atable(a_string)";
+        String query = "CREATE INDEX idx ON mutable_rows_test(v)";
         String url = getUrl() + ";" + PhoenixRuntime.CURRENT_SCN_ATTRIB + "=" + (ts + 5); // Run query at timestamp 5
         Connection conn = DriverManager.getConnection(url);
         try {
+            conn.createStatement().execute("CREATE TABLE mutable_rows_test (k VARCHAR NOT NULL PRIMARY KEY, v VARCHAR)");
             PreparedStatement statement = conn.prepareStatement(query);
             statement.execute();
-            fail();
-        } catch (SQLException e) { // expected
-            assertTrue(e.getErrorCode() == SQLExceptionCode.INDEX_ONLY_ON_IMMUTABLE_TABLE.getErrorCode());
+            PTable table = conn.unwrap(PhoenixConnection.class).getPMetaData().getSchema("").getTable("MUTABLE_ROWS_TEST");
+            assertFalse(table.isImmutableRows());
+            assertEquals(1, table.getIndexes().size());
+            assertEquals("IDX", table.getIndexes().get(0).getName().getString());
+            PhoenixStatement stmt = conn.createStatement().unwrap(PhoenixStatement.class);
+            QueryPlan plan = stmt.optimizeQuery("SELECT v FROM mutable_rows_test WHERE v = 'a'");
+            assertEquals("IDX", plan.getTableRef().getTable().getName().getString());
+        } finally {
+            conn.close();
         }
     }
 
@@ -943,6 +952,59 @@ public class QueryCompileTest extends BaseConnectionlessQueryTest {
         }
     }
 
+    @Test
+    public void testSetSaltHashOnAlterTable() throws Exception {
+        long ts = nextTimestamp();
+        String query = "ALTER TABLE atable ADD xyz INTEGER SALT_HASH='MURMUR3'";
+        String url = getUrl() + ";" + PhoenixRuntime.CURRENT_SCN_ATTRIB + "=" + (ts + 5); // Run query at timestamp 5
+        Connection conn = DriverManager.getConnection(url);
+        try {
+            PreparedStatement statement = conn.prepareStatement(query);
+            statement.execute();
+            fail();
+        } catch (SQLException e) { // expected
+            assertTrue(e.getErrorCode() == SQLExceptionCode.SALT_ONLY_ON_CREATE_TABLE.getErrorCode());
+        }
+    }
+
+    @Test
+    public void testInvalidSaltHash() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl());
+        try {
+            conn.createStatement().execute("CREATE TABLE foo (pk char(2) not null primary key) SALT_BUCKETS=4, SALT_HASH='MD5'");
+            fail();
+        } catch (SQLException e) { // expected
+            assertTrue(e.getErrorCode() == SQLExceptionCode.INVALID_SALT_HASH.getErrorCode());
+        }
+        try {
+            conn.createStatement().execute("CREATE TABLE foo (pk char(2) not null primary key) SALT_HASH='MURMUR3'");
+            fail();
+        } catch (SQLException e) { // expected
+            assertTrue(e.getErrorCode() == SQLExceptionCode.INVALID_SALT_HASH.getErrorCode());
+        } finally {
+            conn.close();
+        }
+    }
+
+    @Test
+    public void testInvalidSaltPKColumns() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl());
+        try {
+            conn.createStatement().execute("CREATE TABLE foo (k1 char(2) not null, k2 char(2) not null CONSTRAINT pk PRIMARY KEY (k1, k2)) SALT_BUCKETS=4, SALT_PK_COLUMNS=3");
+            fail();
+        } catch (SQLException e) { // expected
+            assertTrue(e.getErrorCode() == SQLExceptionCode.INVALID_SALT_PK_COLUMNS.getErrorCode());
+        }
+        try {
+            conn.createStatement().execute("CREATE TABLE foo (k1 char(2) not null, k2 char(2) not null CONSTRAINT pk PRIMARY KEY (k1, k2)) SALT_PK_COLUMNS=1");
+            fail();
+        } catch (SQLException e) { // expected
+            assertTrue(e.getErrorCode() == SQLExceptionCode.INVALID_SALT_PK_COLUMNS.getErrorCode());
+        } finally {
+            conn.close();
+        }
+    }
+
     @Test
     public void testSubstrSetScanKey() throws Exception {
         String query = "SELECT inst FROM ptsdb WHERE substr(inst, 0, 3) = 'abc'";
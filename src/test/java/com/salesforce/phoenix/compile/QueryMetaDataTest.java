@@ -58,6 +58,31 @@ public class QueryMetaDataTest extends BaseConnectionlessQueryTest {
         assertEquals(0, pmd.getParameterCount());
     }
 
+    @Test
+    public void testSubqueryMetaData() throws Exception {
+        // Subqueries can't be run without a cluster, so this only passes if the metadata doesn't run them
+        String query = "SELECT a_string FROM atable WHERE organization_id IN (SELECT organization_id FROM atable WHERE a_integer = ?) AND b_string = ? AND EXISTS (SELECT entity_id FROM atable)";
+        Connection conn = DriverManager.getConnection(getUrl(), TestUtil.TEST_PROPERTIES);
+        PreparedStatement statement = conn.prepareStatement(query);
+        ParameterMetaData pmd = statement.getParameterMetaData();
+        assertEquals(2, pmd.getParameterCount());
+        assertEquals(String.class.getName(), pmd.getParameterClassName(2));
+        ResultSetMetaData md = statement.getMetaData();
+        assertEquals(1, md.getColumnCount());
+        assertEquals("A_STRING", md.getColumnName(1));
+    }
+
+    @Test
+    public void testDeleteSubqueryParameterMetaData() throws Exception {
+        // Subqueries can't be run without a cluster, so this only passes if the metadata doesn't run them
+        String query = "DELETE FROM atable WHERE organization_id IN (SELECT organization_id FROM atable WHERE a_integer = ?) AND b_string = ?";
+        Connection conn = DriverManager.getConnection(getUrl(), TestUtil.TEST_PROPERTIES);
+        PreparedStatement statement = conn.prepareStatement(query);
+        ParameterMetaData pmd = statement.getParameterMetaData();
+        assertEquals(2, pmd.getParameterCount());
+        assertEquals(String.class.getName(), pmd.getParameterClassName(2));
+    }
+
     @Test
     public void testCaseInsensitive() throws Exception {
         String query = "SELECT A_string, b_striNG FROM ataBle WHERE ORGANIZATION_ID='000000000000000'";
@@ -72,6 +72,16 @@ public class QueryOptimizerTest extends BaseConnectionlessQueryTest {
         assertEquals("IDX", plan.getTableRef().getTable().getName().getString());
     }
 
+    @Test
+    public void testChooseIndexOverMutableTable() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl());
+        conn.createStatement().execute("CREATE TABLE t (k INTEGER NOT NULL PRIMARY KEY, v1 VARCHAR, v2 VARCHAR)");
+        conn.createStatement().execute("CREATE INDEX idx ON t(v1)");
+        PhoenixStatement stmt = conn.createStatement().unwrap(PhoenixStatement.class);
+        QueryPlan plan = stmt.optimizeQuery("SELECT k FROM t WHERE v1 = 'bar'");
+        assertEquals("IDX", plan.getTableRef().getTable().getName().getString());
+    }
+
     @Test
     public void testChooseTableOverIndex() throws Exception {
         Connection conn = DriverManager.getConnection(getUrl());
@@ -82,6 +92,18 @@ public class QueryOptimizerTest extends BaseConnectionlessQueryTest {
         assertEquals("T", plan.getTableRef().getTable().getName().getString());
     }
     
+    @Test
+    public void testChooseSaltedTablePointLookupOverIndex() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl());
+        conn.createStatement().execute("CREATE TABLE t (k INTEGER NOT NULL PRIMARY KEY, v1 VARCHAR, v2 VARCHAR) IMMUTABLE_ROWS=true, SALT_BUCKETS=4");
+        conn.createStatement().execute("CREATE INDEX idx ON t(v1)");
+        PhoenixStatement stmt = conn.createStatement().unwrap(PhoenixStatement.class);
+        QueryPlan plan = stmt.optimizeQuery("SELECT v1 FROM t WHERE k = 1 AND v1 > 'a'");
+        assertEquals("T", plan.getTableRef().getTable().getName().getString());
+        plan = stmt.optimizeQuery("SELECT v1 FROM t WHERE k IN (1,2) AND v1 > 'a'");
+        assertEquals("T", plan.getTableRef().getTable().getName().getString());
+    }
+
     @Test
     public void testChooseTableForSelection() throws Exception {
         Connection conn = DriverManager.getConnection(getUrl());
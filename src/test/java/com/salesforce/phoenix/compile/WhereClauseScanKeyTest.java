@@ -37,6 +37,7 @@ import java.util.*;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.junit.Test;
 
 import com.salesforce.phoenix.compile.GroupByCompiler.GroupBy;
@@ -49,6 +50,8 @@ import com.salesforce.phoenix.parse.*;
 import com.salesforce.phoenix.query.*;
 import com.salesforce.phoenix.schema.ColumnNotFoundException;
 import com.salesforce.phoenix.schema.PDataType;
+import com.salesforce.phoenix.schema.SaltHashFunction;
+import com.salesforce.phoenix.schema.SaltingUtil;
 import com.salesforce.phoenix.util.ByteUtil;
 import com.salesforce.phoenix.util.DateUtil;
 
@@ -1116,4 +1119,144 @@ public class WhereClauseScanKeyTest extends BaseConnectionlessQueryTest {
         assertTrue(extractedNodes.iterator().next() instanceof OrExpression);
     }
     
+    @Test
+    public void testPointLookupKeys() throws SQLException {
+        String tenantId1 = "000000000000001";
+        String tenantId2 = "000000000000003";
+        String entityId1 = "002333333333331";
+        String entityId2 = "002333333333333";
+        String query = "select * from atable where organization_id IN (?,?) AND entity_id IN (?,?)";
+        List<Object> binds = Arrays.<Object>asList(tenantId2, tenantId1, entityId2, entityId1);
+        ScanRanges scanRanges = compileStatement(query, new Scan(), binds).getScanRanges();
+        assertTrue(scanRanges.isPointLookup());
+        assertEquals(4, scanRanges.getPointLookupCount());
+        List<byte[]> keys = scanRanges.getPointKeys();
+        assertEquals(4, keys.size());
+        assertArrayEquals(ByteUtil.concat(PDataType.VARCHAR.toBytes(tenantId1), PDataType.VARCHAR.toBytes(entityId1)), keys.get(0));
+        assertArrayEquals(ByteUtil.concat(PDataType.VARCHAR.toBytes(tenantId1), PDataType.VARCHAR.toBytes(entityId2)), keys.get(1));
+        assertArrayEquals(ByteUtil.concat(PDataType.VARCHAR.toBytes(tenantId2), PDataType.VARCHAR.toBytes(entityId1)), keys.get(2));
+        assertArrayEquals(ByteUtil.concat(PDataType.VARCHAR.toBytes(tenantId2), PDataType.VARCHAR.toBytes(entityId2)), keys.get(3));
+        
+        // Leading key only is not a point lookup
+        query = "select * from atable where organization_id IN (?,?)";
+        binds = Arrays.<Object>asList(tenantId1, tenantId2);
+        assertFalse(compileStatement(query, new Scan(), binds).getScanRanges().isPointLookup());
+    }
+
+    private static byte[] getSaltedKey(byte[] key, int bucketNum) {
+        return ByteUtil.concat(new byte[] {SaltingUtil.getSaltingByte(key, 0, key.length, bucketNum)}, key);
+    }
+
+    @Test
+    public void testSaltedPointLookupKeys() throws SQLException {
+        Connection conn = DriverManager.getConnection(getUrl());
+        conn.createStatement().execute("CREATE TABLE salted_point_test (k1 varchar not null, k2 integer not null CONSTRAINT pk PRIMARY KEY (k1, k2)) SALT_BUCKETS=4");
+        conn.close();
+
+        // Only the buckets of the keys are looked up
+        String query = "select * from salted_point_test where k1 IN (?,?) AND k2 = ?";
+        List<Object> binds = Arrays.<Object>asList("a", "b", 1);
+        ScanRanges scanRanges = compileStatement(query, new Scan(), binds).getScanRanges();
+        assertTrue(scanRanges.isPointLookup());
+        List<byte[]> keys = scanRanges.getPointKeys();
+        assertEquals(2, keys.size());
+        byte[] key1 = getSaltedKey(ByteUtil.concat(PDataType.VARCHAR.toBytes("a"), QueryConstants.SEPARATOR_BYTE_ARRAY, PDataType.INTEGER.toBytes(1)), 4);
+        byte[] key2 = getSaltedKey(ByteUtil.concat(PDataType.VARCHAR.toBytes("b"), QueryConstants.SEPARATOR_BYTE_ARRAY, PDataType.INTEGER.toBytes(1)), 4);
+        List<byte[]> expectedKeys = Arrays.asList(key1, key2);
+        Collections.sort(expectedKeys, Bytes.BYTES_COMPARATOR);
+        assertArrayEquals(expectedKeys.get(0), keys.get(0));
+        assertArrayEquals(expectedKeys.get(1), keys.get(1));
+
+        // Without the full key, every bucket is scanned
+        query = "select * from salted_point_test where k1 = ?";
+        binds = Arrays.<Object>asList("a");
+        scanRanges = compileStatement(query, new Scan(), binds).getScanRanges();
+        assertFalse(scanRanges.isPointLookup());
+        assertEquals(4, scanRanges.getRanges().get(0).size());
+    }
+
+    @Test
+    public void testSaltedOnLeadingPKColumnScansItsBucket() throws SQLException {
+        Connection conn = DriverManager.getConnection(getUrl());
+        conn.createStatement().execute("CREATE TABLE salted_pk_cols_test (k1 varchar not null, k2 integer not null CONSTRAINT pk PRIMARY KEY (k1, k2)) SALT_BUCKETS=8, SALT_HASH='MURMUR3', SALT_PK_COLUMNS=1");
+        conn.close();
+        byte[] a = PDataType.VARCHAR.toBytes("a");
+        byte[] b = PDataType.VARCHAR.toBytes("b");
+        byte saltA = SaltHashFunction.MURMUR3.getSaltingByte(a, 0, a.length, 8);
+        byte saltB = SaltHashFunction.MURMUR3.getSaltingByte(b, 0, b.length, 8);
+
+        // Only k1 is hashed into the salt byte of a point lookup key
+        String query = "select * from salted_pk_cols_test where k1 = ? AND k2 = ?";
+        List<Object> binds = Arrays.<Object>asList("a", 1);
+        ScanRanges scanRanges = compileStatement(query, new Scan(), binds).getScanRanges();
+        assertTrue(scanRanges.isPointLookup());
+        assertArrayEquals(ByteUtil.concat(new byte[] {saltA}, a, QueryConstants.SEPARATOR_BYTE_ARRAY, PDataType.INTEGER.toBytes(1)), scanRanges.getPointKeys().get(0));
+
+        // Constraining k1 alone scans only its bucket
+        query = "select * from salted_pk_cols_test where k1 = ?";
+        binds = Arrays.<Object>asList("a");
+        scanRanges = compileStatement(query, new Scan(), binds).getScanRanges();
+        List<KeyRange> saltRanges = scanRanges.getRanges().get(0);
+        assertEquals(1, saltRanges.size());
+        assertArrayEquals(new byte[] {saltA}, saltRanges.get(0).getLowerRange());
+
+        query = "select * from salted_pk_cols_test where k1 IN (?,?) AND k2 > ?";
+        binds = Arrays.<Object>asList("a", "b", 1);
+        scanRanges = compileStatement(query, new Scan(), binds).getScanRanges();
+        saltRanges = scanRanges.getRanges().get(0);
+        assertEquals(saltA == saltB ? 1 : 2, saltRanges.size());
+        assertArrayEquals(new byte[] {(byte)Math.min(saltA, saltB)}, saltRanges.get(0).getLowerRange());
+
+        // A range on k1 still scans every bucket
+        query = "select * from salted_pk_cols_test where k1 > ?";
+        binds = Arrays.<Object>asList("a");
+        scanRanges = compileStatement(query, new Scan(), binds).getScanRanges();
+        assertEquals(8, scanRanges.getRanges().get(0).size());
+    }
+
+    @Test
+    public void testRowValueConstructorFormsCompositeKey() throws SQLException {
+        Connection conn = DriverManager.getConnection(getUrl());
+        conn.createStatement().execute("CREATE TABLE rvc_test (k1 char(3) not null, k2 varchar not null, k3 varchar not null, v varchar CONSTRAINT pk PRIMARY KEY (k1, k2, k3))");
+        conn.close();
+        byte[] k1 = PDataType.CHAR.toBytes("abc");
+        byte[] k2 = PDataType.VARCHAR.toBytes("x");
+        byte[] k3 = PDataType.VARCHAR.toBytes("y");
+        byte[] startRow = ByteUtil.nextKey(ByteUtil.concat(k1, k2, QueryConstants.SEPARATOR_BYTE_ARRAY, k3, QueryConstants.SEPARATOR_BYTE_ARRAY));
+        List<Object> binds = Arrays.<Object>asList("abc", "x", "y");
+
+        // The row value constructor and its hand written expansion form the same scan
+        String[] queries = new String[] {
+                "select * from rvc_test where k1 = ? and (k2, k3) > (?, ?)",
+                "select * from rvc_test where k1 = ? and (k2 > ? or (k2 = ? and k3 > ?))",
+        };
+        for (String query : queries) {
+            Scan scan = new Scan();
+            compileStatement(query, scan, query.contains("or") ? Arrays.<Object>asList("abc", "x", "x", "y") : binds);
+            assertArrayEquals(query, startRow, scan.getStartRow());
+            assertArrayEquals(query, ByteUtil.nextKey(k1), scan.getStopRow());
+            // The comparison remains as a filter for rows with null trailing pk columns
+            assertNotNull(query, scan.getFilter());
+        }
+
+        String query = "select * from rvc_test where k1 = ? and (k2, k3) <= (?, ?)";
+        Scan scan = new Scan();
+        compileStatement(query, scan, binds);
+        assertArrayEquals(k1, scan.getStartRow());
+        assertArrayEquals(ByteUtil.nextKey(ByteUtil.concat(k1, k2, QueryConstants.SEPARATOR_BYTE_ARRAY, k3, QueryConstants.SEPARATOR_BYTE_ARRAY)), scan.getStopRow());
+
+        // Without a leading single key, the composite key starts the scan
+        query = "select * from rvc_test where (k1, k2) >= (?, ?)";
+        scan = new Scan();
+        compileStatement(query, scan, Arrays.<Object>asList("abc", "x"));
+        assertArrayEquals(ByteUtil.concat(k1, k2), scan.getStartRow());
+        assertArrayEquals(HConstants.EMPTY_END_ROW, scan.getStopRow());
+
+        // Mixed directions are not a lexicographic comparison
+        query = "select * from rvc_test where k1 = ? and (k2 > ? or (k2 = ? and k3 < ?))";
+        scan = new Scan();
+        compileStatement(query, scan, Arrays.<Object>asList("abc", "x", "x", "y"));
+        assertArrayEquals(k1, scan.getStartRow());
+        assertArrayEquals(ByteUtil.nextKey(k1), scan.getStopRow());
+    }
 }
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.end2end;
+
+import static com.salesforce.phoenix.util.TestUtil.*;
+import static org.junit.Assert.*;
+
+import java.sql.*;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+import com.salesforce.phoenix.jdbc.PhoenixConnection;
+import com.salesforce.phoenix.query.QueryConstants;
+import com.salesforce.phoenix.query.QueryServices;
+import com.salesforce.phoenix.schema.*;
+import com.salesforce.phoenix.schema.stat.TableStatistics;
+import com.salesforce.phoenix.util.QueryUtil;
+import com.salesforce.phoenix.util.ReadOnlyProps;
+
+
+public class AnalyzeTableTest extends BaseHBaseManagedTimeTest {
+    private static final int ROW_COUNT = 100;
+    
+    @BeforeClass
+    public static void doSetup() throws Exception {
+        Map<String,String> props = Maps.newHashMapWithExpectedSize(1);
+        // Use a small guide post width so that we get a few guide posts for our small table
+        props.put(QueryServices.STATS_GUIDEPOST_WIDTH_BYTES_ATTRIB, Integer.toString(500));
+        // Must update config before starting server
+        startServer(getUrl(), new ReadOnlyProps(props.entrySet().iterator()));
+    }
+    
+    private static void populateTable(Connection conn) throws SQLException {
+        conn.createStatement().execute("CREATE TABLE t (k VARCHAR NOT NULL PRIMARY KEY, v1 VARCHAR, v2 VARCHAR) IMMUTABLE_ROWS=true");
+        PreparedStatement stmt = conn.prepareStatement("UPSERT INTO t VALUES(?,?,?)");
+        for (int i = 0; i < ROW_COUNT; i++) {
+            stmt.setString(1, "k" + (1000 + i));
+            stmt.setString(2, "a" + (i % 5));
+            stmt.setString(3, "b" + i);
+            stmt.execute();
+        }
+        conn.commit();
+    }
+    
+    private static TableStatistics getTableStatistics(Connection conn, String tableName) throws SQLException {
+        PhoenixConnection pconn = conn.unwrap(PhoenixConnection.class);
+        PSchema schema = pconn.getPMetaData().getSchemas().get("");
+        TableRef tableRef = new TableRef(null, schema.getTable(tableName), schema, 0, false);
+        return pconn.getQueryServices().getStatsManager().getTableStatistics(tableRef);
+    }
+    
+    @Test
+    public void testAnalyze() throws Exception {
+        Properties props = new Properties(TEST_PROPERTIES);
+        Connection conn = DriverManager.getConnection(getUrl(), props);
+        try {
+            populateTable(conn);
+            assertEquals(ROW_COUNT, conn.createStatement().executeUpdate("ANALYZE t"));
+            
+            TableStatistics stats = getTableStatistics(conn, "T");
+            assertNotNull(stats);
+            assertEquals(ROW_COUNT, stats.getRowCount());
+            assertTrue(stats.getByteCount() > 0);
+            assertTrue(stats.getRegions().get(0).getGuidePosts().length > 0);
+            assertEquals(5, stats.getDistinctValueCount(QueryConstants.DEFAULT_COLUMN_FAMILY, "V1"));
+            long v2Count = stats.getDistinctValueCount(QueryConstants.DEFAULT_COLUMN_FAMILY, "V2");
+            assertTrue("Unexpected distinct value count: " + v2Count, v2Count > ROW_COUNT / 2 && v2Count <= ROW_COUNT);
+            
+            // Analyzing again replaces the previous statistics
+            conn.createStatement().execute("DELETE FROM t WHERE v1 = 'a0'");
+            conn.commit();
+            assertEquals(ROW_COUNT - ROW_COUNT / 5, conn.createStatement().executeUpdate("ANALYZE t"));
+            stats = getTableStatistics(conn, "T");
+            assertEquals(ROW_COUNT - ROW_COUNT / 5, stats.getRowCount());
+            assertEquals(4, stats.getDistinctValueCount(QueryConstants.DEFAULT_COLUMN_FAMILY, "V1"));
+        } finally {
+            conn.close();
+        }
+    }
+    
+    @Test
+    public void testChooseMostSelectiveIndex() throws Exception {
+        Properties props = new Properties(TEST_PROPERTIES);
+        Connection conn = DriverManager.getConnection(getUrl(), props);
+        try {
+            populateTable(conn);
+            conn.createStatement().execute("CREATE INDEX i1 ON t (v1) INCLUDE (v2)");
+            conn.createStatement().execute("CREATE INDEX i2 ON t (v2) INCLUDE (v1)");
+            
+            String query = "SELECT k FROM t WHERE v1 = 'a1' AND v2 = 'b1'";
+            // Without statistics, the first index is used
+            ResultSet rs = conn.createStatement().executeQuery("EXPLAIN " + query);
+            String plan = QueryUtil.getExplainPlan(rs);
+            assertTrue(plan, plan.contains("RANGE SCAN OVER I1 'a1'"));
+            
+            conn.createStatement().execute("ANALYZE t");
+            conn.createStatement().execute("ANALYZE i1");
+            conn.createStatement().execute("ANALYZE i2");
+            // With statistics, the index on the column with the most distinct values is used
+            rs = conn.createStatement().executeQuery("EXPLAIN " + query);
+            plan = QueryUtil.getExplainPlan(rs);
+            assertTrue(plan, plan.contains("RANGE SCAN OVER I2 'b1'"));
+            
+            rs = conn.createStatement().executeQuery(query);
+            assertTrue(rs.next());
+            assertEquals("k1001", rs.getString(1));
+            assertFalse(rs.next());
+        } finally {
+            conn.close();
+        }
+    }
+}
@@ -34,11 +34,12 @@ import java.sql.*;
 import java.util.*;
 
 import org.apache.hadoop.hbase.*;
-import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.*;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.salesforce.phoenix.compile.StatementContext;
 import com.salesforce.phoenix.iterate.DefaultParallelIteratorRegionSplitter;
@@ -46,6 +47,7 @@ import com.salesforce.phoenix.jdbc.PhoenixConnection;
 import com.salesforce.phoenix.query.*;
 import com.salesforce.phoenix.query.StatsManagerImpl.TimeKeeper;
 import com.salesforce.phoenix.schema.*;
+import com.salesforce.phoenix.schema.stat.StatisticsUtil;
 import com.salesforce.phoenix.util.PhoenixRuntime;
 import com.salesforce.phoenix.util.ReadOnlyProps;
 
@@ -75,10 +77,12 @@ public class DefaultParallelIteratorsRegionSplitterTest extends BaseClientManged
     public static void doSetup() throws Exception {
         int targetQueryConcurrency = 3;
         int maxQueryConcurrency = 5;
-        Map<String,String> props = Maps.newHashMapWithExpectedSize(3);
+        Map<String,String> props = Maps.newHashMapWithExpectedSize(4);
         props.put(QueryServices.MAX_QUERY_CONCURRENCY_ATTRIB, Integer.toString(maxQueryConcurrency));
         props.put(QueryServices.TARGET_QUERY_CONCURRENCY_ATTRIB, Integer.toString(targetQueryConcurrency));
         props.put(QueryServices.MAX_INTRA_REGION_PARALLELIZATION_ATTRIB, Integer.toString(Integer.MAX_VALUE));
+        // Place a guide post at every row but the first of each region
+        props.put(QueryServices.STATS_GUIDEPOST_WIDTH_BYTES_ATTRIB, Long.toString(1));
         // Must update config before starting server
         startServer(getUrl(), new ReadOnlyProps(props.entrySet().iterator()));
     }
@@ -194,6 +198,87 @@ public class DefaultParallelIteratorsRegionSplitterTest extends BaseClientManged
         assertEquals(newKeyRange(new byte[] {'M'}, K3), keyRanges.get(2));
     }
 
+    @Test
+    public void testGetGuidePostSplits() throws Exception {
+        long ts = nextTimestamp();
+        initTableValues(ts);
+        String url = getUrl() + ";" + PhoenixRuntime.CURRENT_SCN_ATTRIB + "=" + ts;
+        Properties props = new Properties(TEST_PROPERTIES);
+        Connection conn = DriverManager.getConnection(url, props);
+        PreparedStatement stmt = conn.prepareStatement(
+                "upsert into " + STABLE_NAME + " VALUES (?, ?)");
+        for (char c = 'd'; c < 'i'; c++) {
+            stmt.setString(1, Character.toString(c));
+            stmt.setInt(2, c);
+            stmt.execute();
+        }
+        conn.commit();
+        conn.close();
+
+        ConnectionQueryServices services = driver.getConnectionQueryServices(getUrl(), TEST_PROPERTIES);
+        url = getUrl() + ";" + PhoenixRuntime.CURRENT_SCN_ATTRIB + "=" + (ts + 1);
+        conn = DriverManager.getConnection(url, props);
+        TableRef table = getTableRef(conn, ts + 1);
+        try {
+            conn.createStatement().execute("ANALYZE " + STABLE_NAME);
+            services.getStatsManager().updateStats(table);
+
+            // Region [K4,K9) has guide posts at 'e','f','g' and 'h', giving 5 chunks of a single row
+            Scan scan = new Scan();
+            scan.setStartRow(K4);
+            scan.setStopRow(K9);
+            List<KeyRange> keyRanges = getSplits(conn, ts + 1, scan);
+            assertEquals("Unexpected number of splits: " + keyRanges, 3, keyRanges.size());
+            assertEquals(newKeyRange(K4, K6), keyRanges.get(0));
+            assertEquals(newKeyRange(K6, new byte[] {'g'}), keyRanges.get(1));
+            assertEquals(newKeyRange(new byte[] {'g'}, K9), keyRanges.get(2));
+        } finally {
+            conn.close();
+            // Remove the statistics so they don't impact the splits of the other tests
+            HTableInterface statsHTable = services.getTable(StatisticsUtil.STATS_TABLE_NAME);
+            try {
+                List<Delete> deletes = Lists.newArrayList();
+                ResultScanner scanner = statsHTable.getScanner(StatisticsUtil.newScan(table.getTableName()));
+                for (Result result = scanner.next(); result != null; result = scanner.next()) {
+                    deletes.add(new Delete(result.getRow()));
+                }
+                scanner.close();
+                statsHTable.delete(deletes);
+            } finally {
+                statsHTable.close();
+            }
+            services.getStatsManager().updateStats(table);
+        }
+    }
+
+    @Test
+    public void testSplitOnSaltBuckets() throws Exception {
+        byte[] tableName = Bytes.toBytes(STABLE_NAME);
+        ServerName server = new ServerName("localhost", HConstants.DEFAULT_REGIONSERVER_PORT, 1L);
+        byte[] splitInBucket3 = new byte[] {3, 'x'};
+        NavigableMap<HRegionInfo, ServerName> allTableRegions = new TreeMap<HRegionInfo, ServerName>();
+        allTableRegions.put(new HRegionInfo(tableName, HConstants.EMPTY_START_ROW, new byte[] {1}), server);
+        allTableRegions.put(new HRegionInfo(tableName, new byte[] {1}, splitInBucket3), server);
+        allTableRegions.put(new HRegionInfo(tableName, splitInBucket3, HConstants.EMPTY_END_ROW), server);
+        
+        List<KeyRange> keyRanges = Lists.newArrayList();
+        for (HRegionInfo region : DefaultParallelIteratorRegionSplitter.splitOnSaltBuckets(allTableRegions, 4).keySet()) {
+            keyRanges.add(newKeyRange(region.getStartKey(), region.getEndKey()));
+        }
+        assertEquals("Unexpected number of splits: " + keyRanges, 5, keyRanges.size());
+        assertEquals(newKeyRange(KeyRange.UNBOUND, new byte[] {1}), keyRanges.get(0));
+        assertEquals(newKeyRange(new byte[] {1}, new byte[] {2}), keyRanges.get(1));
+        assertEquals(newKeyRange(new byte[] {2}, new byte[] {3}), keyRanges.get(2));
+        assertEquals(newKeyRange(new byte[] {3}, splitInBucket3), keyRanges.get(3));
+        assertEquals(newKeyRange(splitInBucket3, KeyRange.UNBOUND), keyRanges.get(4));
+        
+        // Regions already aligned with the buckets are left alone
+        NavigableMap<HRegionInfo, ServerName> alignedRegions = new TreeMap<HRegionInfo, ServerName>();
+        alignedRegions.put(new HRegionInfo(tableName, HConstants.EMPTY_START_ROW, new byte[] {1}), server);
+        alignedRegions.put(new HRegionInfo(tableName, new byte[] {1}, HConstants.EMPTY_END_ROW), server);
+        assertSame(alignedRegions, DefaultParallelIteratorRegionSplitter.splitOnSaltBuckets(alignedRegions, 2));
+    }
+
     private static class ManualTimeKeeper implements TimeKeeper {
         private long currentTime = 0;
         @Override
@@ -32,11 +32,15 @@ import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.TYPE_TABLE;
 import static com.salesforce.phoenix.util.TestUtil.*;
 import static org.junit.Assert.*;
 
+import java.io.IOException;
 import java.sql.*;
+import java.util.List;
 import java.util.Properties;
 
 import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.client.*;
 import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
 import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
@@ -49,6 +53,7 @@ import com.salesforce.phoenix.exception.SQLExceptionCode;
 import com.salesforce.phoenix.jdbc.PhoenixConnection;
 import com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData;
 import com.salesforce.phoenix.join.HashJoiningRegionObserver;
+import com.salesforce.phoenix.query.QueryConstants;
 import com.salesforce.phoenix.schema.*;
 import com.salesforce.phoenix.util.*;
 
@@ -711,6 +716,44 @@ public class QueryDatabaseMetaDataTest extends BaseClientMangedTimeTest {
         
     }
     
+    @Test
+    public void testCreateIndexOnMutableView() throws Exception {
+        PhoenixConnection pconn = DriverManager.getConnection(PHOENIX_JDBC_URL, TEST_PROPERTIES).unwrap(PhoenixConnection.class);
+        byte[] htableName = SchemaUtil.getTableName("MUTABLE_VIEW_TEST");
+        HBaseAdmin admin = pconn.getQueryServices().getAdmin();
+        try {
+            try {
+                admin.disableTable(htableName);
+                admin.deleteTable(htableName);
+            } catch (org.apache.hadoop.hbase.TableNotFoundException e) {
+            }
+            HTableDescriptor descriptor = new HTableDescriptor(htableName);
+            descriptor.addFamily(new HColumnDescriptor(Bytes.toBytes("B")));
+            admin.createTable(descriptor);
+        } finally {
+            admin.close();
+        }
+        
+        long ts = nextTimestamp();
+        Properties props = new Properties();
+        props.setProperty(PhoenixRuntime.CURRENT_SCN_ATTRIB, Long.toString(ts + 5));
+        Connection conn1 = DriverManager.getConnection(PHOENIX_JDBC_URL, props);
+        conn1.createStatement().execute("CREATE VIEW mutable_view_test (id char(1) not null primary key, b.col1 integer)");
+        conn1.close();
+        
+        props.setProperty(PhoenixRuntime.CURRENT_SCN_ATTRIB, Long.toString(ts + 6));
+        Connection conn2 = DriverManager.getConnection(PHOENIX_JDBC_URL, props);
+        try {
+            conn2.createStatement().execute("CREATE INDEX idx ON mutable_view_test (b.col1)");
+            fail();
+        } catch (SQLException e) {
+            assertEquals(SQLExceptionCode.INDEX_ONLY_ON_IMMUTABLE_VIEW.getErrorCode(),e.getErrorCode());
+            assertTrue(e.getMessage(), e.getMessage().contains(SQLExceptionCode.INDEX_ONLY_ON_IMMUTABLE_VIEW.getMessage()));
+        } finally {
+            conn2.close();
+        }
+    }
+    
     @Test
     public void testAddKVColumnToExistingFamily() throws Throwable {
         long ts = nextTimestamp();
@@ -907,6 +950,63 @@ public class QueryDatabaseMetaDataTest extends BaseClientMangedTimeTest {
         conn8.close();
     }
 
+    @Test
+    public void testDropLastKVColOfEmptyColumnFamily() throws Exception {
+        long ts = nextTimestamp();
+        ensureTableCreated(getUrl(), MDTEST_NAME, null, ts);
+        
+        Properties props = new Properties();
+        props.setProperty(PhoenixRuntime.CURRENT_SCN_ATTRIB, Long.toString(ts + 2));
+        Connection conn2 = DriverManager.getConnection(PHOENIX_JDBC_URL, props);
+        conn2.createStatement().executeUpdate("UPSERT INTO " + MDTEST_NAME + "(id,col1,col2) VALUES('a',1,1)");
+        conn2.createStatement().executeUpdate("UPSERT INTO " + MDTEST_NAME + "(id,col1,col2) VALUES('b',2,2)");
+        conn2.commit();
+        conn2.close();
+        
+        props.setProperty(PhoenixRuntime.CURRENT_SCN_ATTRIB, Long.toString(ts + 3));
+        Connection conn3 = DriverManager.getConnection(PHOENIX_JDBC_URL, props);
+        conn3.createStatement().executeUpdate("UPSERT INTO " + MDTEST_NAME + "(id,col2) VALUES('a',3)");
+        conn3.commit();
+        conn3.close();
+        
+        // col1 is the only column of the first family, so the empty column moves to the B family
+        props.setProperty(PhoenixRuntime.CURRENT_SCN_ATTRIB, Long.toString(ts + 5));
+        Connection conn5 = DriverManager.getConnection(PHOENIX_JDBC_URL, props);
+        conn5.createStatement().executeUpdate("ALTER TABLE " + MDTEST_NAME + " DROP COLUMN col1");
+        conn5.close();
+        
+        // One empty key value is written per row for each distinct time stamp of its visible key values
+        byte[] cfB = Bytes.toBytes(SchemaUtil.normalizeIdentifier("b"));
+        PhoenixConnection pconn = DriverManager.getConnection(PHOENIX_JDBC_URL, TEST_PROPERTIES).unwrap(PhoenixConnection.class);
+        HTableInterface htable = pconn.getQueryServices().getTable(SchemaUtil.getTableName(MDTEST_NAME));
+        try {
+            assertEmptyColumnTimeStamps(htable, cfB, "a", ts, ts + 3, ts + 2);
+            assertEmptyColumnTimeStamps(htable, cfB, "b", ts, ts + 2);
+        } finally {
+            htable.close();
+            pconn.close();
+        }
+        
+        props.setProperty(PhoenixRuntime.CURRENT_SCN_ATTRIB, Long.toString(ts + 6));
+        Connection conn6 = DriverManager.getConnection(PHOENIX_JDBC_URL, props);
+        ResultSet rs = conn6.createStatement().executeQuery("SELECT count(1) FROM " + MDTEST_NAME);
+        assertTrue(rs.next());
+        assertEquals(2, rs.getLong(1));
+        conn6.close();
+    }
+    
+    private static void assertEmptyColumnTimeStamps(HTableInterface htable, byte[] family, String row, long minTimeStamp, long... timeStamps) throws IOException {
+        Get get = new Get(Bytes.toBytes(row));
+        get.addColumn(family, QueryConstants.EMPTY_COLUMN_BYTES);
+        get.setTimeRange(minTimeStamp, HConstants.LATEST_TIMESTAMP);
+        get.setMaxVersions();
+        List<KeyValue> kvs = htable.get(get).getColumn(family, QueryConstants.EMPTY_COLUMN_BYTES);
+        assertEquals("Empty key values of row " + row + ": " + kvs, timeStamps.length, kvs.size());
+        for (int i = 0; i < timeStamps.length; i++) {
+            assertEquals(timeStamps[i], kvs.get(i).getTimestamp());
+        }
+    }
+
     @Test
     public void testNewerTableDisallowed() throws Exception {
         long ts = nextTimestamp();
@@ -40,14 +40,25 @@ import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.junit.Test;
 
+import com.google.common.collect.Lists;
 import com.google.common.primitives.Doubles;
 import com.google.common.primitives.Floats;
+import com.salesforce.phoenix.compile.ColumnProjector;
+import com.salesforce.phoenix.compile.GroupByCompiler.GroupBy;
+import com.salesforce.phoenix.compile.QueryPlan;
+import com.salesforce.phoenix.iterate.ParallelIterators;
+import com.salesforce.phoenix.iterate.ProgressiveResultIterator;
+import com.salesforce.phoenix.iterate.ResultIterator;
+import com.salesforce.phoenix.iterate.SpoolingResultIterator.SpoolingResultIteratorFactory;
+import com.salesforce.phoenix.jdbc.PhoenixConnection;
 import com.salesforce.phoenix.jdbc.PhoenixStatement;
 import com.salesforce.phoenix.query.KeyRange;
 import com.salesforce.phoenix.schema.ConstraintViolationException;
 import com.salesforce.phoenix.schema.PDataType;
+import com.salesforce.phoenix.schema.tuple.Tuple;
 import com.salesforce.phoenix.util.ByteUtil;
 import com.salesforce.phoenix.util.PhoenixRuntime;
+import com.salesforce.phoenix.util.ScanUtil;
 
 
 
@@ -82,6 +93,71 @@ public class QueryExecTest extends BaseClientMangedTimeTest {
         }
     }
     
+    @Test
+    public void testLimitAcrossRegions() throws Exception {
+        long ts = nextTimestamp();
+        String tenantId = getOrganizationId();
+        initATableValues(tenantId, getDefaultSplits(tenantId), null, ts);
+        // Limit of more rows than the first region holds, so that more than one wave of regions is scanned
+        String query = "SELECT entity_id FROM aTable WHERE organization_id=? LIMIT 7";
+        Properties props = new Properties(TEST_PROPERTIES);
+        props.setProperty(PhoenixRuntime.CURRENT_SCN_ATTRIB, Long.toString(ts + 2)); // Execute at timestamp 2
+        Connection conn = DriverManager.getConnection(PHOENIX_JDBC_URL, props);
+        try {
+            PreparedStatement statement = conn.prepareStatement(query);
+            statement.setString(1, tenantId);
+            ResultSet rs = statement.executeQuery();
+            for (String row : new String[] {ROW1, ROW2, ROW3, ROW4, ROW5, ROW6, ROW7}) {
+                assertTrue (rs.next());
+                assertEquals(row, rs.getString(1));
+            }
+            assertFalse(rs.next());
+        } finally {
+            conn.close();
+        }
+    }
+    
+    @Test
+    public void testProgressiveScanOfUnorderedSplits() throws Exception {
+        long ts = nextTimestamp();
+        String tenantId = getOrganizationId();
+        initATableValues(tenantId, getDefaultSplits(tenantId), null, ts);
+        String query = "SELECT entity_id FROM aTable WHERE organization_id='" + tenantId + "'";
+        Properties props = new Properties(TEST_PROPERTIES);
+        props.setProperty(PhoenixRuntime.CURRENT_SCN_ATTRIB, Long.toString(ts + 2)); // Execute at timestamp 2
+        Connection conn = DriverManager.getConnection(PHOENIX_JDBC_URL, props);
+        try {
+            QueryPlan plan = conn.createStatement().unwrap(PhoenixStatement.class).optimizeQuery(query);
+            ScanUtil.setTimeRange(plan.getContext().getScan(), ts + 2);
+            // With more than one region server, the splits are grouped by server instead of being in row key order
+            ParallelIterators iterators = new ParallelIterators(plan.getContext(), plan.getTableRef(), GroupBy.EMPTY_GROUP_BY, null,
+                    new SpoolingResultIteratorFactory(conn.unwrap(PhoenixConnection.class).getQueryServices())) {
+                @Override
+                public List<KeyRange> getSplits() {
+                    List<KeyRange> splits = Lists.newArrayList(super.getSplits());
+                    Collections.reverse(splits);
+                    return splits;
+                }
+            };
+            assertTrue(iterators.getSplits().size() > 1);
+            ResultIterator scanner = new ProgressiveResultIterator(iterators, 1);
+            ColumnProjector projector = plan.getProjector().getColumnProjector(0);
+            ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+            try {
+                for (String row : new String[] {ROW1, ROW2, ROW3, ROW4, ROW5, ROW6, ROW7, ROW8, ROW9}) {
+                    Tuple tuple = scanner.next();
+                    assertNotNull(tuple);
+                    assertEquals(row, projector.getValue(tuple, PDataType.VARCHAR, ptr));
+                }
+                assertNull(scanner.next());
+            } finally {
+                scanner.close();
+            }
+        } finally {
+            conn.close();
+        }
+    }
+    
     @Test
     public void testScanByByteValue() throws Exception {
         long ts = nextTimestamp();
@@ -59,6 +59,130 @@ public class SkipScanQueryTest extends BaseHBaseManagedTimeTest {
         conn.commit();
     }
     
+    @Test
+    public void testInSubquery() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl());
+        conn.setAutoCommit(false);
+        initIntInTable(conn,Arrays.asList(2,7,10));
+        conn.createStatement().executeUpdate("CREATE TABLE IF NOT EXISTS inSubTest (k INTEGER NOT NULL PRIMARY KEY, v INTEGER)");
+        conn.createStatement().executeUpdate("UPSERT INTO inSubTest VALUES(7, 1)");
+        conn.createStatement().executeUpdate("UPSERT INTO inSubTest VALUES(10, 1)");
+        conn.createStatement().executeUpdate("UPSERT INTO inSubTest VALUES(12, 2)");
+        conn.commit();
+        try {
+            String query;
+            query = "SELECT i FROM inTest WHERE i IN (SELECT k FROM inSubTest WHERE v = ?)";
+            PreparedStatement stmt = conn.prepareStatement(query);
+            stmt.setInt(1, 1);
+            ResultSet rs = stmt.executeQuery();
+            assertTrue(rs.next());
+            assertEquals(7, rs.getInt(1));
+            assertTrue(rs.next());
+            assertEquals(10, rs.getInt(1));
+            assertFalse(rs.next());
+            
+            query = "SELECT i FROM inTest WHERE i NOT IN (SELECT k FROM inSubTest)";
+            rs = conn.createStatement().executeQuery(query);
+            assertTrue(rs.next());
+            assertEquals(2, rs.getInt(1));
+            assertFalse(rs.next());
+            
+            query = "SELECT i FROM inTest WHERE i IN (SELECT k FROM inSubTest WHERE v > 5)";
+            rs = conn.createStatement().executeQuery(query);
+            assertFalse(rs.next());
+        } finally {
+            conn.close();
+        }
+    }
+    
+    @Test
+    public void testExistsSubquery() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl());
+        conn.setAutoCommit(false);
+        initIntInTable(conn,Arrays.asList(2,7,10));
+        conn.createStatement().executeUpdate("CREATE TABLE IF NOT EXISTS existsSubTest (k INTEGER NOT NULL PRIMARY KEY, v INTEGER)");
+        conn.createStatement().executeUpdate("UPSERT INTO existsSubTest VALUES(7, 1)");
+        conn.createStatement().executeUpdate("UPSERT INTO existsSubTest VALUES(12, 2)");
+        conn.commit();
+        try {
+            String query;
+            query = "SELECT i FROM inTest WHERE EXISTS (SELECT k FROM existsSubTest WHERE v = ?)";
+            PreparedStatement stmt = conn.prepareStatement(query);
+            stmt.setInt(1, 2);
+            ResultSet rs = stmt.executeQuery();
+            assertTrue(rs.next());
+            assertEquals(2, rs.getInt(1));
+            assertTrue(rs.next());
+            assertEquals(7, rs.getInt(1));
+            assertTrue(rs.next());
+            assertEquals(10, rs.getInt(1));
+            assertFalse(rs.next());
+            
+            stmt.setInt(1, 3);
+            rs = stmt.executeQuery();
+            assertFalse(rs.next());
+            
+            query = "SELECT i FROM inTest WHERE NOT EXISTS (SELECT k FROM existsSubTest WHERE v > 5)";
+            rs = conn.createStatement().executeQuery(query);
+            assertTrue(rs.next());
+            assertEquals(2, rs.getInt(1));
+            assertTrue(rs.next());
+            assertEquals(7, rs.getInt(1));
+            assertTrue(rs.next());
+            assertEquals(10, rs.getInt(1));
+            assertFalse(rs.next());
+            
+            query = "SELECT i FROM inTest WHERE i > 5 AND NOT EXISTS (SELECT k FROM existsSubTest WHERE v = 1)";
+            rs = conn.createStatement().executeQuery(query);
+            assertFalse(rs.next());
+        } finally {
+            conn.close();
+        }
+    }
+
+    @Test
+    public void testExplainDoesNotRunSubquery() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl());
+        conn.setAutoCommit(false);
+        initIntInTable(conn,Arrays.asList(2,7,10));
+        conn.createStatement().executeUpdate("CREATE TABLE IF NOT EXISTS explainSubTest (k INTEGER NOT NULL PRIMARY KEY, v INTEGER)");
+        conn.createStatement().executeUpdate("UPSERT INTO explainSubTest VALUES(7, 1)");
+        conn.commit();
+        try {
+            String query = "SELECT i FROM inTest WHERE i IN (SELECT k FROM explainSubTest)";
+            // Once run, the subquery turns into a scan over its single key, so its key count would show up
+            ResultSet rs = conn.createStatement().executeQuery("EXPLAIN " + query);
+            assertTrue(rs.next());
+            assertTrue(rs.getString(1), rs.getString(1).contains("SKIP SCAN ON SUBQUERY KEYS OVER INTEST"));
+            rs = conn.createStatement().executeQuery(query);
+            assertTrue(rs.next());
+            assertEquals(7, rs.getInt(1));
+            assertFalse(rs.next());
+            
+            // Rows that are NOT IN the subquery don't form a key range
+            rs = conn.createStatement().executeQuery("EXPLAIN SELECT i FROM inTest WHERE i NOT IN (SELECT k FROM explainSubTest)");
+            assertTrue(rs.next());
+            assertTrue(rs.getString(1), rs.getString(1).contains("FULL SCAN OVER INTEST"));
+            
+            rs = conn.createStatement().executeQuery("EXPLAIN DELETE FROM inTest WHERE i IN (SELECT k FROM explainSubTest)");
+            assertTrue(rs.next());
+            assertEquals("DELETE ROWS", rs.getString(1));
+            assertTrue(rs.next());
+            assertTrue(rs.getString(1), rs.getString(1).contains("SKIP SCAN ON SUBQUERY KEYS OVER INTEST"));
+            
+            conn.createStatement().execute("DELETE FROM inTest WHERE i IN (SELECT k FROM explainSubTest)");
+            conn.commit();
+            rs = conn.createStatement().executeQuery("SELECT i FROM inTest");
+            assertTrue(rs.next());
+            assertEquals(2, rs.getInt(1));
+            assertTrue(rs.next());
+            assertEquals(10, rs.getInt(1));
+            assertFalse(rs.next());
+        } finally {
+            conn.close();
+        }
+    }
+
     @Test
     public void testInQuery() throws Exception {
         Connection conn = DriverManager.getConnection(getUrl());
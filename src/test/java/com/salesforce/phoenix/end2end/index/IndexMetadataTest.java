@@ -20,8 +20,8 @@ import java.util.Properties;
 import org.junit.Test;
 
 import com.salesforce.phoenix.end2end.BaseHBaseManagedTimeTest;
-import com.salesforce.phoenix.exception.SQLExceptionCode;
 import com.salesforce.phoenix.query.QueryConstants;
+import com.salesforce.phoenix.schema.AmbiguousColumnException;
 import com.salesforce.phoenix.schema.PIndexState;
 import com.salesforce.phoenix.schema.PTableType;
 import com.salesforce.phoenix.util.StringUtil;
@@ -270,8 +270,8 @@ public class IndexMetadataTest extends BaseHBaseManagedTimeTest{
             stmt = conn.prepareStatement(ddl);
             stmt.execute();
             fail("Should have caught exception.");
-        } catch (SQLException e) {
-        	assertTrue(e.getMessage(), e.getMessage().contains("ERROR 1023 (42Y82): Index may only be created on a table with immutable rows."));
+        } catch (AmbiguousColumnException e) {
+            // expected
         } finally {
             conn.close();
         }
@@ -283,13 +283,8 @@ public class IndexMetadataTest extends BaseHBaseManagedTimeTest{
         Connection conn = DriverManager.getConnection(getUrl(), props);
         conn.setAutoCommit(false);
         conn.createStatement().execute("CREATE TABLE t (k VARCHAR NOT NULL PRIMARY KEY, v VARCHAR)");
-        try {
-            conn.createStatement().execute("CREATE INDEX i ON t (v DESC)");
-            fail();
-        } catch (SQLException e) {
-            assertEquals(SQLExceptionCode.INDEX_ONLY_ON_IMMUTABLE_TABLE.getErrorCode(), e.getErrorCode());
-        }
+        conn.createStatement().execute("CREATE INDEX i1 ON t (v DESC)");
         conn.createStatement().execute("ALTER TABLE t SET IMMUTABLE_ROWS=true");
-        conn.createStatement().execute("CREATE INDEX i ON t (v DESC)");
+        conn.createStatement().execute("CREATE INDEX i2 ON t (v DESC)");
     }
 }
@@ -257,6 +257,89 @@ public class IndexTest extends BaseHBaseManagedTimeTest{
         }
     }
 
+    @Test
+    public void testMutableTableIndexMaintanenceOnServerSideMutations() throws Exception {
+        try {
+            Properties props = new Properties(TEST_PROPERTIES);
+            Connection conn = DriverManager.getConnection(getUrl(), props);
+            conn.setAutoCommit(true);
+            conn.createStatement().execute("CREATE TABLE t (k VARCHAR NOT NULL PRIMARY KEY, v VARCHAR)");
+            conn.createStatement().execute("CREATE INDEX i ON t (v)");
+            PreparedStatement stmt = conn.prepareStatement("UPSERT INTO t VALUES(?,?)");
+            stmt.setString(1,"a");
+            stmt.setString(2, "x");
+            stmt.execute();
+            stmt.setString(1,"b");
+            stmt.setString(2, "y");
+            stmt.execute();
+            stmt.setString(1,"c");
+            stmt.setString(2, "z");
+            stmt.execute();
+            
+            // Run on the server-side, since auto commit is on and the row keys don't change
+            conn.createStatement().execute("UPSERT INTO t(k,v) SELECT k, v || '1' FROM t WHERE k <= 'b'");
+            String query = "SELECT * FROM i";
+            ResultSet rs = conn.createStatement().executeQuery(query);
+            assertTrue(rs.next());
+            assertEquals("x1",rs.getString(1));
+            assertEquals("a",rs.getString(2));
+            assertTrue(rs.next());
+            assertEquals("y1",rs.getString(1));
+            assertEquals("b",rs.getString(2));
+            assertTrue(rs.next());
+            assertEquals("z",rs.getString(1));
+            assertEquals("c",rs.getString(2));
+            assertFalse(rs.next());
+            
+            conn.createStatement().execute("DELETE FROM t WHERE k >= 'b'");
+            rs = conn.createStatement().executeQuery(query);
+            assertTrue(rs.next());
+            assertEquals("x1",rs.getString(1));
+            assertEquals("a",rs.getString(2));
+            assertFalse(rs.next());
+            
+            rs = conn.createStatement().executeQuery("SELECT k FROM t WHERE v = 'y1'");
+            assertFalse(rs.next());
+            conn.close();
+        } finally {
+            destroyTables();
+        }
+    }
+
+    @Test
+    public void testMutableTableIndexMaintanenceOnSetAndNullInSameUpsert() throws Exception {
+        try {
+            Properties props = new Properties(TEST_PROPERTIES);
+            Connection conn = DriverManager.getConnection(getUrl(), props);
+            conn.setAutoCommit(false);
+            conn.createStatement().execute("CREATE TABLE t (k VARCHAR NOT NULL PRIMARY KEY, v1 VARCHAR, v2 VARCHAR)");
+            conn.createStatement().execute("CREATE INDEX i ON t (v1, v2)");
+            PreparedStatement stmt = conn.prepareStatement("UPSERT INTO t VALUES(?,?,?)");
+            stmt.setString(1,"a");
+            stmt.setString(2, "x");
+            stmt.setString(3, "y");
+            stmt.execute();
+            conn.commit();
+            
+            // Sends a Put for v1 and a Delete for v2 in the same batch
+            stmt.setString(1,"a");
+            stmt.setString(2, "x1");
+            stmt.setString(3, null);
+            stmt.execute();
+            conn.commit();
+            
+            ResultSet rs = conn.createStatement().executeQuery("SELECT * FROM i");
+            assertTrue(rs.next());
+            assertEquals("x1",rs.getString(1));
+            assertNull(rs.getString(2));
+            assertEquals("a",rs.getString(3));
+            assertFalse(rs.next());
+            conn.close();
+        } finally {
+            destroyTables();
+        }
+    }
+
     @Test
     public void testIndexWithNullableFixedWithCols() throws Exception {
     	Properties props = new Properties(TEST_PROPERTIES);
@@ -129,6 +129,63 @@ public class SaltedTableUpsertSelectTest extends BaseHBaseManagedTimeTest {
         }
     }
 
+    @Test
+    public void testUpsertSelectAndDeleteFromSaltedTableWithAndWithoutLimit() throws Exception {
+        Properties props = new Properties(TEST_PROPERTIES);
+        Connection conn = DriverManager.getConnection(getUrl(), props);
+        conn.setAutoCommit(false);
+        try {
+            String ddl = "CREATE TABLE IF NOT EXISTS source" + 
+                    " (pk VARCHAR NOT NULL PRIMARY KEY, col INTEGER) SALT_BUCKETS=4";
+            createTestTable(getUrl(), ddl);
+            ddl = "CREATE TABLE IF NOT EXISTS target" + 
+                    " (pk VARCHAR NOT NULL PRIMARY KEY, col INTEGER)";
+            createTestTable(getUrl(), ddl);
+            
+            PreparedStatement stmt = conn.prepareStatement("UPSERT INTO source(pk, col) VALUES(?,?)");
+            for (int i = 1; i <= 9; i++) {
+                stmt.setString(1, Integer.toString(i));
+                stmt.setInt(2, i);
+                stmt.execute();
+            }
+            conn.commit();
+            
+            // With a limit, the rows are still picked in row key order across the buckets
+            conn.createStatement().execute("UPSERT INTO target(pk, col) SELECT pk, col FROM source LIMIT 3");
+            conn.commit();
+            ResultSet rs = conn.createStatement().executeQuery("SELECT pk FROM target");
+            for (int i = 1; i <= 3; i++) {
+                assertTrue(rs.next());
+                assertEquals(Integer.toString(i), rs.getString(1));
+            }
+            assertFalse(rs.next());
+            
+            conn.createStatement().execute("DELETE FROM source LIMIT 2");
+            conn.commit();
+            rs = conn.createStatement().executeQuery("SELECT pk FROM source");
+            for (int i = 3; i <= 9; i++) {
+                assertTrue(rs.next());
+                assertEquals(Integer.toString(i), rs.getString(1));
+            }
+            assertFalse(rs.next());
+            
+            // Without a limit, the rows are collected as they come from each bucket
+            conn.createStatement().execute("UPSERT INTO target(pk, col) SELECT pk, col FROM source");
+            conn.commit();
+            rs = conn.createStatement().executeQuery("SELECT count(*) FROM target");
+            assertTrue(rs.next());
+            assertEquals(9, rs.getInt(1));
+            
+            conn.createStatement().execute("DELETE FROM source");
+            conn.commit();
+            rs = conn.createStatement().executeQuery("SELECT count(*) FROM source");
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+        } finally {
+            conn.close();
+        }
+    }
+
     @Test
     public void testUpsertSelectOnSameSaltedTable() throws Exception {
         Properties props = new Properties(TEST_PROPERTIES);
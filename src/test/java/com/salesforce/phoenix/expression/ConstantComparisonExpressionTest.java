@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.salesforce.phoenix.schema.ColumnModifier;
+import com.salesforce.phoenix.schema.PDataType;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+
+/**
+ * @since 2.0
+ */
+public class ConstantComparisonExpressionTest {
+    
+    private static class ValueExpression extends BaseTerminalExpression {
+        private final LiteralExpression literal;
+        
+        private ValueExpression(LiteralExpression literal) {
+            this.literal = literal;
+        }
+        
+        @Override
+        public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
+            return literal.evaluate(tuple, ptr);
+        }
+
+        @Override
+        public PDataType getDataType() {
+            return literal.getDataType();
+        }
+        
+        @Override
+        public ColumnModifier getColumnModifier() {
+            return literal.getColumnModifier();
+        }
+    }
+    
+    private static LiteralExpression literal(Object value, PDataType type, ColumnModifier columnModifier) throws Exception {
+        return LiteralExpression.newConstant(value, type, columnModifier);
+    }
+    
+    private static Boolean evaluate(Expression expression) {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        if (!expression.evaluate(null, ptr)) {
+            return null;
+        }
+        return (Boolean)PDataType.BOOLEAN.toObject(ptr);
+    }
+    
+    private static void assertSameResults(LiteralExpression value, LiteralExpression constant, boolean isSpecialized) {
+        for (CompareOp op : CompareOp.values()) {
+            if (op == CompareOp.NO_OP) {
+                continue;
+            }
+            for (boolean isConstantFirst : new boolean[] {false, true}) {
+                Expression column = new ValueExpression(value);
+                List<Expression> children = isConstantFirst ? Arrays.<Expression>asList(constant, column) : Arrays.<Expression>asList(column, constant);
+                ComparisonExpression comparison = new ComparisonExpression(op, children);
+                ComparisonExpression specialized = ConstantComparisonExpression.create(comparison);
+                assertEquals(isSpecialized, specialized instanceof ConstantComparisonExpression);
+                assertEquals(comparison + " " + value.getColumnModifier() + " " + constant.getColumnModifier(), evaluate(comparison), evaluate(specialized));
+            }
+        }
+    }
+    
+    @Test
+    public void testLongComparisons() throws Exception {
+        Object[] values = new Object[] {-5L, 0L, 3L, 7L, Long.MAX_VALUE};
+        for (ColumnModifier valueModifier : new ColumnModifier[] {null, ColumnModifier.SORT_DESC}) {
+            for (ColumnModifier constantModifier : new ColumnModifier[] {null, ColumnModifier.SORT_DESC}) {
+                for (Object value : values) {
+                    assertSameResults(literal(value, PDataType.LONG, valueModifier), literal(3, PDataType.INTEGER, constantModifier), true);
+                    assertSameResults(literal(value, PDataType.LONG, valueModifier), literal(3L, PDataType.LONG, constantModifier), true);
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testDoubleComparisons() throws Exception {
+        for (ColumnModifier valueModifier : new ColumnModifier[] {null, ColumnModifier.SORT_DESC}) {
+            for (Object value : new Object[] {-1.5, 0.0, 2.25, 9.0}) {
+                assertSameResults(literal(value, PDataType.DOUBLE, valueModifier), literal(2.25f, PDataType.FLOAT, null), true);
+            }
+        }
+    }
+    
+    @Test
+    public void testConvertedComparisons() throws Exception {
+        for (ColumnModifier valueModifier : new ColumnModifier[] {null, ColumnModifier.SORT_DESC}) {
+            for (Object value : new Object[] {new BigDecimal("-1.5"), BigDecimal.ZERO, new BigDecimal("3"), new BigDecimal("3.01")}) {
+                assertSameResults(literal(value, PDataType.DECIMAL, valueModifier), literal(3, PDataType.INTEGER, null), true);
+            }
+            for (Object value : new Object[] {2, 3, 4}) {
+                // Would require converting the column value on every row, so is left alone
+                assertSameResults(literal(value, PDataType.INTEGER, valueModifier), literal(new BigDecimal("3"), PDataType.DECIMAL, null), false);
+            }
+        }
+    }
+    
+    @Test
+    public void testBytesComparisons() throws Exception {
+        for (ColumnModifier valueModifier : new ColumnModifier[] {null, ColumnModifier.SORT_DESC}) {
+            for (ColumnModifier constantModifier : new ColumnModifier[] {null, ColumnModifier.SORT_DESC}) {
+                for (Object value : new Object[] {"a", "ab", "abc", "b"}) {
+                    assertSameResults(literal(value, PDataType.VARCHAR, valueModifier), literal("ab", PDataType.VARCHAR, constantModifier), true);
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testSpecializeTree() throws Exception {
+        Expression column = new ValueExpression(literal(5L, PDataType.LONG, null));
+        ComparisonExpression comparison = new ComparisonExpression(CompareOp.GREATER, Lists.<Expression>newArrayList(column, literal(3, PDataType.INTEGER, null)));
+        Expression not = new NotExpression(comparison);
+        Expression and = new AndExpression(Lists.<Expression>newArrayList(not, LiteralExpression.newConstant(true)));
+        assertSame(and, ExpressionSpecializer.specialize(and));
+        assertSame(not, and.getChildren().get(0));
+        Expression specialized = not.getChildren().get(0);
+        assertTrue(specialized instanceof ConstantComparisonExpression);
+        assertSame(column, specialized.getChildren().get(0));
+        assertEquals(ExpressionType.ComparisonExpression, ExpressionType.valueOf(specialized));
+        assertEquals(Boolean.FALSE, evaluate(and));
+    }
+}
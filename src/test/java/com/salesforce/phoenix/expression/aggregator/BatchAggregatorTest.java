@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.expression.aggregator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.salesforce.phoenix.expression.BaseTerminalExpression;
+import com.salesforce.phoenix.expression.Expression;
+import com.salesforce.phoenix.expression.LiteralExpression;
+import com.salesforce.phoenix.schema.PDataType;
+import com.salesforce.phoenix.schema.tuple.MultiKeyValueTuple;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+
+/**
+ * @since 2.0
+ */
+public class BatchAggregatorTest {
+    private static final byte[] FAMILY = Bytes.toBytes("0");
+    private static final byte[] QUALIFIER = Bytes.toBytes("V");
+    
+    private static class ColumnExpression extends BaseTerminalExpression {
+        private final PDataType type;
+        
+        private ColumnExpression(PDataType type) {
+            this.type = type;
+        }
+        
+        @Override
+        public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
+            KeyValue keyValue = tuple.getValue(FAMILY, QUALIFIER);
+            if (keyValue == null) {
+                return false;
+            }
+            ptr.set(keyValue.getBuffer(), keyValue.getValueOffset(), keyValue.getValueLength());
+            return true;
+        }
+
+        @Override
+        public PDataType getDataType() {
+            return type;
+        }
+    }
+    
+    private static Tuple[] newTuples(PDataType type, int length) {
+        Tuple[] tuples = new Tuple[length];
+        for (int i = 0; i < length; i++) {
+            byte[] row = Bytes.toBytes(i);
+            List<KeyValue> keyValues;
+            if (i % 3 == 0) { // leave some values null
+                keyValues = Collections.singletonList(new KeyValue(row, FAMILY, Bytes.toBytes("_"), new byte[0]));
+            } else {
+                Object value = type == PDataType.DOUBLE ? (Object)(i * 1.5) : (Object)(long)(i - 7);
+                keyValues = Collections.singletonList(new KeyValue(row, FAMILY, QUALIFIER, type.toBytes(value)));
+            }
+            tuples[i] = new MultiKeyValueTuple(keyValues);
+        }
+        return tuples;
+    }
+    
+    private static void assertSameAggregate(Aggregator rowAggregator, Aggregator batchAggregator, Expression expression, Tuple[] tuples) {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        for (int i = 0; i < tuples.length; i++) {
+            if (expression.evaluate(tuples[i], ptr)) {
+                rowAggregator.aggregate(tuples[i], ptr);
+            }
+        }
+        // Aggregate in two batches to ensure state carries over
+        int half = tuples.length / 2;
+        batchAggregator.aggregate(expression, tuples, half, ptr);
+        Tuple[] rest = new Tuple[tuples.length - half];
+        System.arraycopy(tuples, half, rest, 0, rest.length);
+        batchAggregator.aggregate(expression, rest, rest.length, ptr);
+        
+        ImmutableBytesWritable rowPtr = new ImmutableBytesWritable();
+        ImmutableBytesWritable batchPtr = new ImmutableBytesWritable();
+        assertEquals(rowAggregator.evaluate(null, rowPtr), batchAggregator.evaluate(null, batchPtr));
+        assertEquals(0, rowPtr.compareTo(batchPtr));
+    }
+    
+    @Test
+    public void testCount() {
+        Tuple[] tuples = newTuples(PDataType.LONG, 100);
+        assertSameAggregate(new CountAggregator(), new CountAggregator(), new ColumnExpression(PDataType.LONG), tuples);
+        assertSameAggregate(new CountAggregator(), new CountAggregator(), LiteralExpression.newConstant(1), tuples);
+    }
+    
+    @Test
+    public void testLongSum() {
+        Tuple[] tuples = newTuples(PDataType.LONG, 100);
+        assertSameAggregate(new LongSumAggregator(null), new LongSumAggregator(null), new ColumnExpression(PDataType.LONG), tuples);
+        // No values at all
+        Tuple[] nullTuples = newTuples(PDataType.LONG, 1);
+        assertSameAggregate(new LongSumAggregator(null), new LongSumAggregator(null), new ColumnExpression(PDataType.LONG), nullTuples);
+    }
+    
+    @Test
+    public void testDoubleSum() {
+        Tuple[] tuples = newTuples(PDataType.DOUBLE, 100);
+        assertSameAggregate(new DoubleSumAggregator(null), new DoubleSumAggregator(null), new ColumnExpression(PDataType.DOUBLE), tuples);
+    }
+    
+    @Test
+    public void testMin() {
+        Tuple[] tuples = newTuples(PDataType.LONG, 100);
+        Aggregator rowAggregator = new MinAggregator(null) {
+            @Override
+            public PDataType getDataType() {
+                return PDataType.LONG;
+            }
+        };
+        Aggregator batchAggregator = new MinAggregator(null) {
+            @Override
+            public PDataType getDataType() {
+                return PDataType.LONG;
+            }
+        };
+        assertSameAggregate(rowAggregator, batchAggregator, new ColumnExpression(PDataType.LONG), tuples);
+    }
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.expression.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.junit.Test;
+
+import com.salesforce.phoenix.schema.PDataType;
+
+/**
+ * Tests that the scaled long sum of {@link DecimalSumAggregator} always matches the
+ * sum of the same values as BigDecimal.
+ * 
+ * @since 2.0
+ */
+public class DecimalSumAggregatorTest {
+    
+    private static void assertSumsMatch(String... values) {
+        DecimalSumAggregator aggregator = new DecimalSumAggregator(null);
+        BigDecimal expected = BigDecimal.ZERO;
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        for (String value : values) {
+            BigDecimal decimal = new BigDecimal(value);
+            ptr.set(PDataType.DECIMAL.toBytes(decimal));
+            aggregator.aggregate(null, ptr);
+            expected = expected.add(decimal);
+            
+            // Check the sum after each value, as it may go in and out of a long
+            assertTrue(aggregator.evaluate(null, ptr));
+            BigDecimal sum = (BigDecimal)PDataType.DECIMAL.toObject(ptr);
+            assertEquals("Sum after " + value + " is " + sum + " instead of " + expected, 0, expected.compareTo(sum));
+            assertEquals(0, ptr.compareTo(PDataType.DECIMAL.toBytes(expected)));
+        }
+    }
+    
+    @Test
+    public void testMixedScales() {
+        assertSumsMatch("1.5", "0.25", "-3", "123.456", "-0.001", "100", "-221.205", "0.0000001");
+    }
+    
+    @Test
+    public void testSumCrossingOverflow() {
+        // The sum overflows a long on the third value, fits into one again on the fourth
+        // and overflows below the smallest long on the last
+        assertSumsMatch("4000000000000000000", "4000000000000000000", "4000000000000000000",
+                "-4000000000000000000", "-4000000000000000000", "1", "-9223372036854775807",
+                "-9223372036854775807");
+    }
+    
+    @Test
+    public void testValueTooLargeForScale() {
+        // The value fits into a long by itself, but not at the scale of the sum so far
+        assertSumsMatch("1.25", "9000000000000000000", "-9000000000000000000", "0.5");
+    }
+}
@@ -289,6 +289,27 @@ public class SkipScanFilterTest extends TestCase {
                 new SeekNext("dzzAB250", "dzzAB701"),
                 new Finished("zzzAA000"))
         );
+        // Large IN list, for which we skip over many keys at a time
+        KeyRange[] inList = new KeyRange[200];
+        for (int i = 0; i < inList.length; i++) {
+            inList[i] = PDataType.CHAR.getKeyRange(Bytes.toBytes(String.format("k%03d", i * 5)));
+        }
+        testCases.addAll(
+                foreach(new KeyRange[][]{
+                inList,
+                {
+                    PDataType.CHAR.getKeyRange(Bytes.toBytes("A")),
+                    PDataType.CHAR.getKeyRange(Bytes.toBytes("C")),
+                }},
+                new int[]{4,1},
+                new SeekNext("k001A", "k005A"),
+                new Include("k005A"),
+                new SeekNext("k502B", "k505A"),
+                new Include("k505C"),
+                new SeekNext("k505D", "k510A"),
+                new Include("k990A"),
+                new Finished("k996A"))
+        );
 // TODO variable length columns
 //        testCases.addAll(
 //                foreach(new KeyRange[][]{{
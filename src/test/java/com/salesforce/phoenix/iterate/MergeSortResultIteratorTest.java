@@ -37,9 +37,11 @@ import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.junit.Test;
 
+import com.salesforce.phoenix.schema.SaltingUtil;
 import com.salesforce.phoenix.schema.tuple.SingleKeyValueTuple;
 import com.salesforce.phoenix.schema.tuple.Tuple;
 import com.salesforce.phoenix.util.AssertResults;
+import com.salesforce.phoenix.util.ByteUtil;
 
 
 public class MergeSortResultIteratorTest {
@@ -88,4 +90,47 @@ public class MergeSortResultIteratorTest {
         AssertResults.assertResults(scanner, expectedResults);
     }
 
+    private static Tuple saltedTuple(int saltByte, String key) {
+        byte[] row = ByteUtil.concat(new byte[] {(byte)saltByte}, Bytes.toBytes(key));
+        return new SingleKeyValueTuple(new KeyValue(row, SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, Bytes.toBytes(1)));
+    }
+
+    @Test
+    public void testSaltedBucketMergeSort() throws Throwable {
+        // Splits in row key order, with two splits for bucket 0 and an empty one for bucket 2
+        final List<PeekingResultIterator>results = new ArrayList<PeekingResultIterator>(Arrays.asList(new PeekingResultIterator[] {
+                new MaterializedResultIterator(Arrays.asList(saltedTuple(0, "a"), saltedTuple(0, "c"))),
+                new MaterializedResultIterator(Arrays.asList(saltedTuple(0, "d"))),
+                new MaterializedResultIterator(Arrays.asList(saltedTuple(1, "b"), saltedTuple(1, "e"))),
+                new MaterializedResultIterator(Collections.<Tuple>emptyList()),
+            }));
+        Tuple[] expectedResults = new Tuple[] {
+                saltedTuple(0, "a"),
+                saltedTuple(1, "b"),
+                saltedTuple(0, "c"),
+                saltedTuple(0, "d"),
+                saltedTuple(1, "e"),
+            };
+
+        ResultIterators iterators = new SaltedBucketResultIterators(new ResultIterators() {
+
+            @Override
+            public List<PeekingResultIterator> getIterators() throws SQLException {
+                return results;
+            }
+
+            @Override
+            public int size() {
+                return results.size();
+            }
+
+            @Override
+            public void explain(List<String> planSteps) {
+            }
+            
+        });
+        ResultIterator scanner = new MergeSortRowKeyResultIterator(iterators, SaltingUtil.NUM_SALTING_BYTES);
+        AssertResults.assertResults(scanner, expectedResults);
+    }
+
 }
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.iterate;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.salesforce.phoenix.iterate.OrderedResultIterator.ResultEntry;
+import com.salesforce.phoenix.iterate.OrderedResultIterator.SortKeyBuilder;
+
+
+public class OrderedResultIteratorTest {
+    private static final byte[] NULL = null;
+
+    private static ResultEntry newEntry(boolean[] isAscending, boolean[] isNullsLast, byte[]... values) {
+        SortKeyBuilder builder = new SortKeyBuilder();
+        for (int i = 0; i < values.length; i++) {
+            builder.append(values[i] == null ? null : new ImmutableBytesWritable(values[i]), isAscending[i], isNullsLast[i]);
+        }
+        return new ResultEntry(builder.toSortKey(), null);
+    }
+    
+    private static ResultEntry newEntry(boolean isAscending, boolean isNullsLast, byte[] value) {
+        return newEntry(new boolean[] {isAscending}, new boolean[] {isNullsLast}, value);
+    }
+    
+    private static void assertOrdered(List<ResultEntry> entries) {
+        for (int i = 1; i < entries.size(); i++) {
+            ResultEntry e1 = entries.get(i-1);
+            ResultEntry e2 = entries.get(i);
+            assertTrue("Expected entry " + (i-1) + " before entry " + i, OrderedResultIterator.SORT_KEY_COMPARATOR.compare(e1, e2) < 0);
+            assertTrue("Expected entry " + i + " after entry " + (i-1), OrderedResultIterator.SORT_KEY_COMPARATOR.compare(e2, e1) > 0);
+            // The cached prefix must agree with a byte by byte comparison
+            assertTrue(Bytes.compareTo(e1.getSortKey(), e2.getSortKey()) < 0);
+        }
+    }
+    
+    @Test
+    public void testAscending() {
+        byte[][] values = new byte[][] {
+                NULL,
+                Bytes.toBytes("a"),
+                new byte[] {'a', 0},
+                new byte[] {'a', 0, 0},
+                new byte[] {'a', 1},
+                Bytes.toBytes("ab"),
+                Bytes.toBytes("abcdefghij"),
+                Bytes.toBytes("abcdefghik"),
+                Bytes.toBytes("b"),
+                new byte[] {(byte)0xFF},
+        };
+        List<ResultEntry> entries = new ArrayList<ResultEntry>();
+        for (byte[] value : values) {
+            entries.add(newEntry(true, false, value));
+        }
+        assertOrdered(entries);
+    }
+    
+    @Test
+    public void testDescending() {
+        byte[][] values = new byte[][] {
+                new byte[] {(byte)0xFF},
+                Bytes.toBytes("b"),
+                Bytes.toBytes("abcdefghik"),
+                Bytes.toBytes("abcdefghij"),
+                Bytes.toBytes("ab"),
+                new byte[] {'a', 1},
+                new byte[] {'a', 0, 0},
+                new byte[] {'a', 0},
+                Bytes.toBytes("a"),
+                NULL,
+        };
+        List<ResultEntry> entries = new ArrayList<ResultEntry>();
+        for (byte[] value : values) {
+            entries.add(newEntry(false, true, value));
+        }
+        assertOrdered(entries);
+    }
+    
+    @Test
+    public void testNulls() {
+        assertOrdered(Arrays.asList(newEntry(true, true, Bytes.toBytes("a")), newEntry(true, true, NULL)));
+        assertOrdered(Arrays.asList(newEntry(false, false, NULL), newEntry(false, false, Bytes.toBytes("a"))));
+        assertOrdered(Arrays.asList(newEntry(false, false, NULL), newEntry(false, false, new byte[] {(byte)0xFF})));
+    }
+    
+    @Test
+    public void testMultipleSortKeys() {
+        boolean[] isAscending = new boolean[] {true, false};
+        boolean[] isNullsLast = new boolean[] {false, false};
+        List<ResultEntry> entries = Arrays.asList(
+                newEntry(isAscending, isNullsLast, Bytes.toBytes("a"), NULL),
+                newEntry(isAscending, isNullsLast, Bytes.toBytes("a"), Bytes.toBytes("z")),
+                newEntry(isAscending, isNullsLast, Bytes.toBytes("a"), Bytes.toBytes("b")),
+                newEntry(isAscending, isNullsLast, Bytes.toBytes("ab"), Bytes.toBytes("z")),
+                newEntry(isAscending, isNullsLast, Bytes.toBytes("b"), Bytes.toBytes("a")));
+        assertOrdered(entries);
+        
+        List<ResultEntry> shuffled = new ArrayList<ResultEntry>(entries);
+        Collections.shuffle(shuffled, new Random(0));
+        Collections.sort(shuffled, OrderedResultIterator.SORT_KEY_COMPARATOR);
+        assertEquals(entries, shuffled);
+    }
+}
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.iterate;
+
+import static com.salesforce.phoenix.query.QueryConstants.SINGLE_COLUMN;
+import static com.salesforce.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.salesforce.phoenix.iterate.ScanWorkScheduler.WorkUnit;
+import com.salesforce.phoenix.iterate.ScanWorkScheduler.WorkUnitResultIterator;
+import com.salesforce.phoenix.query.KeyRange;
+import com.salesforce.phoenix.schema.tuple.SingleKeyValueTuple;
+import com.salesforce.phoenix.schema.tuple.Tuple;
+
+
+public class ScanWorkSchedulerTest {
+    private final static byte[] A = Bytes.toBytes("a");
+    private final static byte[] B = Bytes.toBytes("b");
+    private final static byte[] C = Bytes.toBytes("c");
+    private final static byte[] D = Bytes.toBytes("d");
+    private final static byte[] E = Bytes.toBytes("e");
+    private final static ServerName SERVER1 = new ServerName("host1", 60020, 1L);
+    private final static ServerName SERVER2 = new ServerName("host2", 60020, 1L);
+
+    private static Tuple newTuple(byte[] row) {
+        return new SingleKeyValueTuple(new KeyValue(row, SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, row));
+    }
+
+    @Test
+    public void testMaxServerConcurrency() throws Exception {
+        ScanWorkScheduler scheduler = new ScanWorkScheduler(new Scan(), false, 1, 10, false, null);
+        assertTrue(scheduler.addSplit(KeyRange.getKeyRange(A, B), SERVER1));
+        assertTrue(scheduler.addSplit(KeyRange.getKeyRange(B, C), SERVER1));
+        assertTrue(scheduler.addSplit(KeyRange.getKeyRange(C, D), SERVER2));
+        
+        WorkUnit unit1 = scheduler.next(null);
+        assertArrayEquals(A, unit1.getLowerRange());
+        // Skips the split of SERVER1, as it is already being scanned
+        WorkUnit unit2 = scheduler.next(null);
+        assertArrayEquals(C, unit2.getLowerRange());
+        assertNull(scheduler.next(null));
+        // Once the scan against SERVER1 completes, its next split may be scanned
+        WorkUnit unit3 = scheduler.next(unit1);
+        assertArrayEquals(B, unit3.getLowerRange());
+        assertNull(scheduler.next(unit2));
+        assertNull(scheduler.next(unit3));
+    }
+
+    @Test
+    public void testSteal() throws Exception {
+        ScanWorkScheduler scheduler = new ScanWorkScheduler(new Scan(), false, 2, 10, true, null);
+        assertTrue(scheduler.addSplit(KeyRange.getKeyRange(A, E), SERVER1));
+        WorkUnit unit = scheduler.next(null);
+        ResultIterator iterator = new WorkUnitResultIterator(new MaterializedResultIterator(
+                Arrays.asList(newTuple(A), newTuple(B), newTuple(C), newTuple(D))), unit);
+        assertArrayEquals(A, iterator.next().getValue(0).getRow());
+        
+        // An idle worker takes over the second half of the remaining key range
+        WorkUnit stolen = scheduler.next(null);
+        assertArrayEquals(C, stolen.getLowerRange());
+        assertArrayEquals(C, stolen.getScan().getStartRow());
+        assertArrayEquals(E, stolen.getScan().getStopRow());
+        
+        // The running scan stops before the stolen key range
+        assertArrayEquals(B, iterator.next().getValue(0).getRow());
+        assertNull(iterator.next());
+        
+        ResultIterator stolenIterator = new WorkUnitResultIterator(new MaterializedResultIterator(
+                Arrays.asList(newTuple(C), newTuple(D))), stolen);
+        assertArrayEquals(C, stolenIterator.next().getValue(0).getRow());
+        assertArrayEquals(D, stolenIterator.next().getValue(0).getRow());
+        assertNull(stolenIterator.next());
+        
+        // Completed scans cannot be stolen from
+        assertNull(scheduler.next(null));
+        assertNull(scheduler.next(stolen));
+        assertNull(scheduler.next(unit));
+    }
+
+    @Test
+    public void testNoStealWithoutStopRow() throws Exception {
+        ScanWorkScheduler scheduler = new ScanWorkScheduler(new Scan(), false, 2, 10, true, null);
+        assertTrue(scheduler.addSplit(KeyRange.getKeyRange(A, KeyRange.UNBOUND), SERVER1));
+        WorkUnit unit = scheduler.next(null);
+        // The remaining key range is unbounded and the max key of the table is unknown
+        assertNull(scheduler.next(null));
+        assertNull(scheduler.next(unit));
+    }
+}
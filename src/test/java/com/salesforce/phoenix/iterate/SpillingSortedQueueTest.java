@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.iterate;
+
+import static com.salesforce.phoenix.query.QueryConstants.SINGLE_COLUMN;
+import static com.salesforce.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.salesforce.phoenix.iterate.OrderedResultIterator.ResultEntry;
+import com.salesforce.phoenix.schema.tuple.SingleKeyValueTuple;
+
+
+public class SpillingSortedQueueTest {
+    private static final int ROW_COUNT = 1000;
+    private static final int THRESHOLD_BYTES = 1000;
+    
+    private static List<ResultEntry> newEntries() {
+        List<ResultEntry> entries = new ArrayList<ResultEntry>(ROW_COUNT);
+        for (int i = 0; i < ROW_COUNT; i++) {
+            byte[] key = Bytes.toBytes(i);
+            entries.add(new ResultEntry(key, new SingleKeyValueTuple(new KeyValue(key, SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, key))));
+        }
+        Collections.shuffle(entries, new Random(0));
+        return entries;
+    }
+    
+    private static void assertEntry(int expected, ResultEntry entry) {
+        assertNotNull(entry);
+        assertEquals(expected, Bytes.toInt(entry.getSortKey()));
+        assertEquals(expected, Bytes.toInt(entry.getResult().getValue(0).getRow()));
+    }
+    
+    @Test
+    public void testMultiPassMerge() throws Exception {
+        int mergeFanIn = 3;
+        SpillingSortedQueue queue = new SpillingSortedQueue(OrderedResultIterator.SORT_KEY_COMPARATOR, null, THRESHOLD_BYTES, mergeFanIn);
+        try {
+            queue.addAll(newEntries());
+            assertTrue(queue.getRunCount() > mergeFanIn * mergeFanIn);
+            assertEquals(ROW_COUNT, queue.size());
+            for (int i = 0; i < ROW_COUNT; i++) {
+                assertEntry(i, queue.poll());
+                assertEquals(ROW_COUNT - i - 1, queue.size());
+            }
+            assertNull(queue.poll());
+            assertTrue(queue.getRunCount() < mergeFanIn);
+        } finally {
+            queue.close();
+        }
+    }
+    
+    @Test
+    public void testTopN() throws Exception {
+        int limit = 10;
+        SpillingSortedQueue queue = new SpillingSortedQueue(OrderedResultIterator.SORT_KEY_COMPARATOR, limit, THRESHOLD_BYTES / 2, 2);
+        try {
+            queue.addAll(newEntries());
+            // Every run holds at most limit entries and entries that can't make the top are dropped
+            assertTrue(queue.getRunCount() > 1);
+            assertTrue(queue.size() <= limit * (queue.getRunCount() + 1));
+            for (int i = 0; i < limit; i++) {
+                assertEntry(i, queue.poll());
+            }
+        } finally {
+            queue.close();
+        }
+    }
+    
+    @Test
+    public void testInMemory() throws Exception {
+        SpillingSortedQueue queue = new SpillingSortedQueue(OrderedResultIterator.SORT_KEY_COMPARATOR, null, Integer.MAX_VALUE, 2);
+        try {
+            queue.addAll(newEntries());
+            assertEquals(0, queue.getRunCount());
+            assertTrue(queue.getByteSize() > 0);
+            assertEntry(0, queue.peek());
+            for (int i = 0; i < ROW_COUNT; i++) {
+                assertEntry(i, queue.poll());
+            }
+            assertNull(queue.peek());
+            assertNull(queue.poll());
+        } finally {
+            queue.close();
+        }
+    }
+}
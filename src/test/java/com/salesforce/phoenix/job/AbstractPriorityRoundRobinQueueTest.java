@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.job;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+
+public class AbstractPriorityRoundRobinQueueTest {
+    
+    private static class Job {
+        private final String producer;
+        private final JobPriority priority;
+        private final int id;
+        
+        private Job(String producer, JobPriority priority, int id) {
+            this.producer = producer;
+            this.priority = priority;
+            this.id = id;
+        }
+    }
+    
+    private static class JobQueue extends AbstractPriorityRoundRobinQueue<Job> {
+        private JobQueue(int maxSize, int maxHigh, int maxNormal, int maxLow) {
+            super(maxSize, new int[] {maxHigh, maxNormal, maxLow});
+        }
+        
+        @Override
+        protected Object extractProducer(Job o) {
+            return o.producer;
+        }
+
+        @Override
+        protected JobPriority extractPriority(Job o) {
+            return o.priority;
+        }
+    }
+    
+    @Test
+    public void testHigherPriorityFirst() throws Exception {
+        JobQueue queue = new JobQueue(100, 10, 10, 10);
+        for (int i = 0; i < 5; i++) {
+            queue.offer(new Job("report", JobPriority.LOW, i));
+        }
+        queue.offer(new Job("query", JobPriority.NORMAL, 0));
+        queue.offer(new Job("lookup", JobPriority.HIGH, 0));
+        assertEquals(7, queue.size());
+        assertEquals(JobPriority.HIGH, queue.poll().priority);
+        assertEquals(JobPriority.NORMAL, queue.poll().priority);
+        for (int i = 0; i < 5; i++) {
+            Job job = queue.poll();
+            assertEquals(JobPriority.LOW, job.priority);
+            assertEquals(i, job.id);
+        }
+        assertNull(queue.poll());
+        assertEquals(0, queue.size());
+        assertEquals(5, queue.getTakenCount(JobPriority.LOW));
+    }
+    
+    @Test
+    public void testRoundRobinWithinPriority() throws Exception {
+        JobQueue queue = new JobQueue(100, 10, 10, 10);
+        for (int i = 0; i < 3; i++) {
+            queue.offer(new Job("a", JobPriority.NORMAL, i));
+        }
+        for (int i = 0; i < 3; i++) {
+            queue.offer(new Job("b", JobPriority.NORMAL, i));
+        }
+        List<String> producers = new ArrayList<String>();
+        Job job;
+        while ((job = queue.poll()) != null) {
+            producers.add(job.producer + job.id);
+        }
+        assertEquals("[a0, b0, a1, b1, a2, b2]", producers.toString());
+    }
+    
+    @Test
+    public void testMaxRunning() throws Exception {
+        JobQueue queue = new JobQueue(100, 10, 10, 1);
+        queue.offer(new Job("report", JobPriority.LOW, 0));
+        queue.offer(new Job("report", JobPriority.LOW, 1));
+        assertEquals(0, queue.poll().id);
+        assertEquals(1, queue.getRunningCount(JobPriority.LOW));
+        // Low priority class is at its cap, but others still get through
+        assertNull(queue.poll());
+        queue.offer(new Job("lookup", JobPriority.HIGH, 0));
+        assertEquals(JobPriority.HIGH, queue.poll().priority);
+        queue.release(JobPriority.HIGH);
+        queue.release(JobPriority.LOW);
+        assertEquals(1, queue.poll(1, TimeUnit.SECONDS).id);
+        assertEquals(0, queue.getQueuedCount(JobPriority.LOW));
+    }
+    
+    @Test
+    public void testWaitForRelease() throws Exception {
+        final JobQueue queue = new JobQueue(100, 10, 10, 1);
+        queue.offer(new Job("report", JobPriority.LOW, 0));
+        queue.offer(new Job("report", JobPriority.LOW, 1));
+        queue.poll();
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                }
+                queue.release(JobPriority.LOW);
+            }
+        };
+        t.start();
+        Job job = queue.take();
+        assertEquals(1, job.id);
+        t.join();
+    }
+    
+    @Test
+    public void testMaxSize() throws Exception {
+        JobQueue queue = new JobQueue(2, 10, 10, 10);
+        assertTrue(queue.offer(new Job("a", JobPriority.NORMAL, 0)));
+        assertTrue(queue.offer(new Job("a", JobPriority.NORMAL, 1)));
+        assertFalse(queue.offer(new Job("a", JobPriority.NORMAL, 2)));
+        assertFalse(queue.offer(new Job("a", JobPriority.NORMAL, 2), 10, TimeUnit.MILLISECONDS));
+        List<Job> jobs = new ArrayList<Job>();
+        assertEquals(2, queue.drainTo(jobs));
+        assertTrue(queue.offer(new Job("a", JobPriority.NORMAL, 2)));
+    }
+}
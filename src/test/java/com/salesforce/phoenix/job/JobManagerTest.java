@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.job;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.salesforce.phoenix.job.JobManager.JobCallable;
+
+
+public class JobManagerTest {
+    
+    @Test
+    public void testLowPriorityCapOnIdlePool() throws Exception {
+        // Low priority jobs may use half of the 4 threads
+        ThreadPoolExecutor exec = JobManager.createThreadPoolExec(60000, 4, 100, 100, 50);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(1);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(exec.submit(new JobCallable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        int nRunning = running.incrementAndGet();
+                        int nMaxRunning;
+                        while ((nMaxRunning = maxRunning.get()) < nRunning && !maxRunning.compareAndSet(nMaxRunning, nRunning)) {
+                        }
+                        done.await();
+                        running.decrementAndGet();
+                        return null;
+                    }
+
+                    @Override
+                    public Object getJobId() {
+                        return this;
+                    }
+
+                    @Override
+                    public JobPriority getPriority() {
+                        return JobPriority.LOW;
+                    }
+                }));
+            }
+            // Give the pool time to start more jobs than it should
+            Thread.sleep(500);
+            assertEquals(2, running.get());
+            done.countDown();
+            for (Future<Void> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(2, maxRunning.get());
+        } finally {
+            done.countDown();
+            exec.shutdown();
+        }
+    }
+}
@@ -27,6 +27,7 @@
  ******************************************************************************/
 package com.salesforce.phoenix.memory;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -272,4 +273,91 @@ public class MemoryManagerTest {
         assertTrue(rmm3.getAvailableMemory() == rmm3.getMaxMemory());
         assertTrue(rmm4.getAvailableMemory() == rmm4.getMaxMemory());
     }
+
+    @Test
+    public void testLargeWaiterDoesNotBlockSmallAllocation() throws Exception {
+        final GlobalMemoryManager gmm = new GlobalMemoryManager(100,8000);
+        final MemoryChunk c1 = gmm.allocate(60);
+        final MemoryChunk[] c2 = new MemoryChunk[1];
+        Thread t1 = new Thread() {
+            @Override
+            public void run() {
+                // Waits until c1 and c3 have been freed
+                c2[0] = gmm.allocate(100);
+            }
+        };
+        t1.start();
+        while (gmm.getWaiterCount() == 0) {
+            sleepFor(10);
+        }
+        // Fits in what is left, so should be granted despite the bigger request waiting ahead of it
+        long startTime = System.currentTimeMillis();
+        MemoryChunk c3 = gmm.allocate(30);
+        assertTrue(System.currentTimeMillis() - startTime < 4000);
+        assertEquals(90, gmm.getUsedMemory());
+        c1.close();
+        c3.close();
+        t1.join();
+        assertEquals(100, c2[0].getSize());
+        assertEquals(100, gmm.getPeakMemory());
+        assertEquals(0, gmm.getWaiterCount());
+        assertTrue(gmm.getWaitCount() >= 1);
+        c2[0].close();
+        assertEquals(0, gmm.getUsedMemory());
+    }
+    
+    @Test
+    public void testInterruptedWaiterKeepsInterruptStatus() throws Exception {
+        final GlobalMemoryManager gmm = new GlobalMemoryManager(100,60000);
+        MemoryChunk c1 = gmm.allocate(100);
+        final boolean[] isInterrupted = new boolean[1];
+        final RuntimeException[] exception = new RuntimeException[1];
+        Thread t1 = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    gmm.allocate(50);
+                } catch (RuntimeException e) {
+                    exception[0] = e;
+                }
+                isInterrupted[0] = Thread.currentThread().isInterrupted();
+            }
+        };
+        t1.start();
+        while (gmm.getWaiterCount() == 0) {
+            sleepFor(10);
+        }
+        t1.interrupt();
+        t1.join();
+        assertTrue(exception[0] != null);
+        assertTrue(isInterrupted[0]);
+        assertEquals(0, gmm.getWaiterCount());
+        c1.close();
+        assertEquals(0, gmm.getUsedMemory());
+    }
+    
+    @Test
+    public void testUsageMetrics() throws Exception {
+        GlobalMemoryManager gmm = new GlobalMemoryManager(100,1);
+        ChildMemoryManager rmm1 = new ChildMemoryManager(gmm,50);
+        MemoryChunk c1 = rmm1.allocate(20);
+        MemoryChunk c2 = gmm.allocate(30);
+        c1.resize(40);
+        assertEquals(40, rmm1.getUsedMemory());
+        assertEquals(70, gmm.getUsedMemory());
+        try {
+            gmm.allocate(40);
+            fail();
+        } catch (InsufficientMemoryException e) { // expected
+        }
+        assertEquals(1, gmm.getTimeoutCount());
+        assertEquals(3, gmm.getAllocationCount());
+        c1.resize(10);
+        assertEquals(10, rmm1.getUsedMemory());
+        c1.close();
+        c2.close();
+        assertEquals(0, rmm1.getUsedMemory());
+        assertEquals(0, gmm.getUsedMemory());
+        assertEquals(70, gmm.getPeakMemory());
+    }
 }
@@ -511,6 +511,46 @@ public class QueryParserTest {
         }
     }
 
+    @Test
+    public void testRowValueConstructorComparison() throws Exception {
+        SQLParser parser = new SQLParser(new StringReader(
+                "select a from t where (a, b, c) > (?, ?, ?)"));
+        ParseNode where = parser.parseQuery().getWhere();
+        assertTrue(where instanceof OrParseNode);
+        List<ParseNode> disjuncts = where.getChildren();
+        assertEquals(3, disjuncts.size());
+        assertTrue(disjuncts.get(0) instanceof GreaterThanParseNode);
+        assertTrue(disjuncts.get(1) instanceof AndParseNode);
+        assertEquals(2, disjuncts.get(1).getChildren().size());
+        assertTrue(disjuncts.get(1).getChildren().get(0) instanceof EqualParseNode);
+        assertTrue(disjuncts.get(1).getChildren().get(1) instanceof GreaterThanParseNode);
+        assertEquals(3, disjuncts.get(2).getChildren().size());
+
+        parser = new SQLParser(new StringReader(
+                "select a from t where (a, b) = (1, 2)"));
+        where = parser.parseQuery().getWhere();
+        assertTrue(where instanceof AndParseNode);
+        assertEquals(2, where.getChildren().size());
+
+        // A parenthesized condition is still parsed as before
+        parser = new SQLParser(new StringReader(
+                "select a from t where (a = 1 or b = 2) and c = 3"));
+        where = parser.parseQuery().getWhere();
+        assertTrue(where instanceof AndParseNode);
+        assertTrue(where.getChildren().get(0) instanceof OrParseNode);
+    }
+
+    @Test
+    public void testRowValueConstructorSizeMismatch() throws Exception {
+        SQLParser parser = new SQLParser(new StringReader(
+                "select a from t where (a, b) > (1, 2, 3)"));
+        try {
+            parser.parseStatement();
+            fail();
+        } catch (SQLException e) {
+        }
+    }
+
     @Test
     public void testPercentileQuery1() throws Exception {
         SQLParser parser = new SQLParser(
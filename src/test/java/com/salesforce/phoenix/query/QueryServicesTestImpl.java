@@ -52,6 +52,7 @@ public final class QueryServicesTestImpl extends BaseQueryServicesImpl {
     private static final long DEFAULT_MAX_HASH_CACHE_SIZE = 1024*1024*10;  // 10 Mb
     private static final int DEFAULT_TARGET_QUERY_CONCURRENCY = 4;
     private static final int DEFAULT_MAX_QUERY_CONCURRENCY = 8;
+    private static final int DEFAULT_PROGRESSIVE_SCAN_INITIAL_SPLITS = 1; // Scan LIMIT queries in more than one wave
     
     private static final int DEFAULT_MASTER_INFO_PORT = -1;
     private static final int DEFAULT_REGIONSERVER_INFO_PORT = -1;
@@ -75,11 +76,14 @@ public final class QueryServicesTestImpl extends BaseQueryServicesImpl {
                 .setTargetQueryConcurrency(DEFAULT_TARGET_QUERY_CONCURRENCY)
                 .setMaxQueryConcurrency(DEFAULT_MAX_QUERY_CONCURRENCY)
                 .setRowKeyOrderSaltedTable(true)
+                .setProgressiveScanInitialSplits(DEFAULT_PROGRESSIVE_SCAN_INITIAL_SPLITS)
                 .setMaxHashCacheTTLMs(DEFAULT_MAX_HASH_CACHE_TIME_TO_LIVE_MS)
                 .setMasterInfoPort(DEFAULT_MASTER_INFO_PORT)
                 .setRegionServerInfoPort(DEFAULT_REGIONSERVER_INFO_PORT)
                 .setRegionServerLeasePeriodMs(DEFAULT_REGIONSERVER_LEASE_PERIOD_MS)
                 .setRpcTimeoutMs(DEFAULT_RPC_TIMEOUT_MS)
+                // Attach the index maintenance coprocessor without disabling the table
+                .setOnlineSchemaUpdateEnabled(true)
                 .setAll(overrideProps)
         );
     }    
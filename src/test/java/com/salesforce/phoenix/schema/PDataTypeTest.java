@@ -1181,6 +1181,41 @@ public class PDataTypeTest {
         assertEquals(o.getClass(), java.sql.Timestamp.class); 
     }
 
+    @Test
+    public void testDecimalScaledLong() {
+        BigDecimal[] values = new BigDecimal[] {
+                BigDecimal.ZERO, new BigDecimal("1"), new BigDecimal("-1"), new BigDecimal("12.34"),
+                new BigDecimal("-12.345"), new BigDecimal("0.05"), new BigDecimal("-0.001"),
+                new BigDecimal("100"), new BigDecimal("-1000.10"), new BigDecimal("12345678901234.56"),
+                new BigDecimal("-9223372036854775807"), new BigDecimal("1E+5"), new BigDecimal("7.5E-7")};
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        for (BigDecimal value : values) {
+            byte[] b = PDataType.DECIMAL.toBytes(value);
+            ptr.set(b);
+            for (int scale = 0; scale <= 8; scale++) {
+                long unscaled = PDataType.toUnscaledLong(ptr, PDataType.DECIMAL, null, scale);
+                BigDecimal expected = null;
+                try {
+                    expected = value.setScale(scale);
+                    if (expected.unscaledValue().bitLength() > 63) {
+                        expected = null;
+                    }
+                } catch (ArithmeticException e) { // More fractional digits than the scale
+                }
+                if (expected == null) {
+                    assertEquals(value + " at scale " + scale, PDataType.NOT_UNSCALED_LONG, unscaled);
+                } else {
+                    assertEquals(value + " at scale " + scale, expected.unscaledValue().longValue(), unscaled);
+                    assertArrayEquals(value.toString(), b, PDataType.toDecimalBytes(unscaled, scale));
+                }
+            }
+        }
+        ptr.set(PDataType.INTEGER.toBytes(-42));
+        assertEquals(-4200, PDataType.toUnscaledLong(ptr, PDataType.INTEGER, null, 2));
+        ptr.set(PDataType.LONG.toBytes(Long.MAX_VALUE));
+        assertEquals(PDataType.NOT_UNSCALED_LONG, PDataType.toUnscaledLong(ptr, PDataType.LONG, null, 1));
+    }
+
     private void testReadDecimalPrecisionAndScaleFromRawBytes(BigDecimal bd) {
         byte[] b = PDataType.DECIMAL.toBytes(bd);
         int[] v = PDataType.getDecimalPrecisionAndScale(b, 0, b.length);
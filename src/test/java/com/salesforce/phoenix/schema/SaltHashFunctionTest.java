@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.schema;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+
+public class SaltHashFunctionTest {
+
+    private static int murmur3(String s) {
+        byte[] b = Bytes.toBytes(s);
+        return SaltHashFunction.MURMUR3.hash(b, 0, b.length);
+    }
+
+    @Test
+    public void testMurmur3ReferenceValues() {
+        assertEquals(0, murmur3(""));
+        assertEquals(0x248bfa47, murmur3("hello"));
+        assertEquals(0xf6a5c420, murmur3("foo"));
+        assertEquals(0x149bbb7f, murmur3("hello, world"));
+        assertEquals(0x2e4ff723, murmur3("The quick brown fox jumps over the lazy dog"));
+    }
+
+    @Test
+    public void testHashOfSubRange() {
+        byte[] b = Bytes.toBytes("xxhello, worldyy");
+        assertEquals(murmur3("hello, world"), SaltHashFunction.MURMUR3.hash(b, 2, b.length - 4));
+    }
+
+    @Test
+    public void testLegacyMatchesOriginalSaltingByte() {
+        byte[] b = Bytes.toBytes("row key with a long common prefix 0001");
+        int hash = 1;
+        for (byte by : b) {
+            hash = 31 * hash + by;
+        }
+        for (int bucketNum = 1; bucketNum <= SaltingUtil.MAX_BUCKET_NUM; bucketNum++) {
+            assertEquals((byte)(Math.abs(hash) % bucketNum), SaltHashFunction.LEGACY.getSaltingByte(b, 0, b.length, bucketNum));
+        }
+    }
+
+    @Test
+    public void testSaltingByteInRange() {
+        for (int i = 0; i < 1000; i++) {
+            byte[] b = Bytes.toBytes("key" + i);
+            for (SaltHashFunction function : SaltHashFunction.values()) {
+                int saltByte = function.getSaltingByte(b, 0, b.length, 7);
+                assertTrue(saltByte >= 0 && saltByte < 7);
+            }
+        }
+    }
+
+    @Test
+    public void testMurmur3SpreadsCommonPrefix() {
+        int bucketNum = 16;
+        int[] counts = new int[bucketNum];
+        int nKeys = 16000;
+        for (int i = 0; i < nKeys; i++) {
+            byte[] b = Bytes.toBytes("00D300000000XHP" + String.format("%08d", i));
+            counts[SaltHashFunction.MURMUR3.getSaltingByte(b, 0, b.length, bucketNum)]++;
+        }
+        for (int count : counts) {
+            // Each bucket within 10% of an even share
+            assertTrue(Math.abs(count - nKeys / bucketNum) < nKeys / bucketNum / 10);
+        }
+    }
+
+    @Test
+    public void testFromName() {
+        assertEquals(SaltHashFunction.MURMUR3, SaltHashFunction.fromName("murmur3"));
+        assertEquals(SaltHashFunction.LEGACY, SaltHashFunction.fromName("LEGACY"));
+        assertNull(SaltHashFunction.fromName("md5"));
+    }
+}
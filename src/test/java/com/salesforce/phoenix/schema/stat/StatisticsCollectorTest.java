@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.schema.stat;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.salesforce.phoenix.compile.ScanRanges;
+
+public class StatisticsCollectorTest {
+    private static final byte[] FAMILY = Bytes.toBytes("0");
+    private static final byte[] QUALIFIER = Bytes.toBytes("V");
+
+    private static List<KeyValue> newRow(int i, int distinctValues) {
+        return Collections.singletonList(new KeyValue(Bytes.toBytes(String.format("k%04d", i)), FAMILY, QUALIFIER, Bytes.toBytes(i % distinctValues)));
+    }
+
+    @Test
+    public void testGuidePosts() {
+        int rowSize = newRow(0, 1).get(0).getLength();
+        StatisticsCollector collector = new StatisticsCollector(rowSize * 10);
+        for (int i = 0; i < 100; i++) {
+            collector.collect(newRow(i, 7));
+        }
+        RegionStatistics stats = collector.getStatistics(new HRegionInfo(Bytes.toBytes("T"), HConstants.EMPTY_START_ROW, HConstants.EMPTY_END_ROW));
+        assertEquals(100, stats.getRowCount());
+        assertEquals(100 * rowSize, stats.getByteCount());
+        byte[][] guidePosts = stats.getGuidePosts();
+        assertEquals(9, guidePosts.length);
+        for (int i = 0; i < guidePosts.length; i++) {
+            assertArrayEquals(newRow((i + 1) * 10, 7).get(0).getRow(), guidePosts[i]);
+        }
+        assertEquals(7, stats.getColumnSketches().get(StatisticsUtil.getColumnKey(FAMILY, QUALIFIER)).getEstimate());
+    }
+
+    @Test
+    public void testEstimates() {
+        List<RegionStatistics> regions = Lists.newArrayList();
+        for (int r = 0; r < 2; r++) {
+            StatisticsCollector collector = new StatisticsCollector(Long.MAX_VALUE);
+            for (int i = 0; i < 50; i++) {
+                collector.collect(newRow(r * 50 + i, 10));
+            }
+            regions.add(collector.getStatistics(new HRegionInfo(Bytes.toBytes("T"), HConstants.EMPTY_START_ROW, HConstants.EMPTY_END_ROW)));
+        }
+        TableStatistics stats = new TableStatistics(regions);
+        assertEquals(100, stats.getRowCount());
+        assertEquals(100, stats.estimateRowCount(ScanRanges.EVERYTHING));
+        assertEquals(0, stats.estimateRowCount(ScanRanges.NOTHING));
+        // Merged sketches from both regions
+        assertEquals(10, stats.getDistinctValueCount(Bytes.toString(FAMILY), Bytes.toString(QUALIFIER)));
+        assertEquals(-1, stats.getDistinctValueCount(Bytes.toString(FAMILY), "X"));
+    }
+
+    @Test
+    public void testDistinctValueSketch() {
+        DistinctValueSketch sketch = new DistinctValueSketch();
+        int distinctValues = 10000;
+        for (int i = 0; i < distinctValues * 3; i++) {
+            byte[] value = Bytes.toBytes(i % distinctValues);
+            sketch.add(value, 0, value.length);
+        }
+        long estimate = sketch.getEstimate();
+        // With 64 hashes, the standard error of the estimate is about 1/sqrt(64) = 12.5%
+        assertTrue("Unexpected estimate: " + estimate, Math.abs(estimate - distinctValues) < distinctValues / 2);
+    }
+}
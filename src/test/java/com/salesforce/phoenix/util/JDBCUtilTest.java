@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import com.salesforce.phoenix.exception.SQLExceptionCode;
+import com.salesforce.phoenix.job.JobPriority;
+
+
+public class JDBCUtilTest {
+
+    @Test
+    public void testGetQueryPriority() throws Exception {
+        String url = TestUtil.PHOENIX_CONNECTIONLESS_JDBC_URL;
+        Properties info = new Properties();
+        assertEquals(JobPriority.NORMAL, JDBCUtil.getQueryPriority(url, info, ReadOnlyProps.EMPTY_PROPS));
+        info.setProperty(PhoenixRuntime.QUERY_PRIORITY_ATTRIB, "low");
+        assertEquals(JobPriority.LOW, JDBCUtil.getQueryPriority(url, info, ReadOnlyProps.EMPTY_PROPS));
+    }
+
+    @Test
+    public void testInvalidQueryPriority() throws Exception {
+        Properties info = new Properties();
+        info.setProperty(PhoenixRuntime.QUERY_PRIORITY_ATTRIB, "urgent");
+        try {
+            JDBCUtil.getQueryPriority(TestUtil.PHOENIX_CONNECTIONLESS_JDBC_URL, info, ReadOnlyProps.EMPTY_PROPS);
+            fail();
+        } catch (SQLException e) {
+            assertEquals(SQLExceptionCode.INVALID_QUERY_PRIORITY.getErrorCode(), e.getErrorCode());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2013, Salesforce.com, Inc.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *     Neither the name of Salesforce.com nor the names of its contributors may 
+ *     be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR 
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE 
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.salesforce.phoenix.util;
+
+import static com.salesforce.phoenix.jdbc.PhoenixDatabaseMetaData.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import com.salesforce.phoenix.coprocessor.MetaDataProtocol;
+import com.salesforce.phoenix.jdbc.PhoenixConnection;
+import com.salesforce.phoenix.query.ConnectionlessQueryServicesImpl;
+import com.salesforce.phoenix.query.QueryServicesTestImpl;
+import com.salesforce.phoenix.schema.PColumn;
+import com.salesforce.phoenix.schema.PTable;
+import com.salesforce.phoenix.schema.PTableImpl;
+
+
+public class SchemaUtilTest {
+
+    @Test
+    public void testUpdateSystemTableFrom2_0() throws Exception {
+        String url = TestUtil.PHOENIX_CONNECTIONLESS_JDBC_URL;
+        ConnectionlessQueryServicesImpl services = new ConnectionlessQueryServicesImpl(new QueryServicesTestImpl());
+        services.init(url, new Properties());
+        
+        // Roll the system table back to the one created by 2.0: without the salt columns at timestamp 5
+        PhoenixConnection conn = services.connect(url, new Properties());
+        PTable systemTable = conn.getPMetaData().getSchema(TYPE_SCHEMA).getTable(TYPE_TABLE);
+        conn.close();
+        List<PColumn> columns = systemTable.getColumns().subList(0, systemTable.getColumns().size() - 2);
+        PTable oldSystemTable = PTableImpl.makePTable(systemTable, MetaDataProtocol.MIN_TABLE_TIMESTAMP + 5, systemTable.getSequenceNumber(), columns);
+        services.addTable(TYPE_SCHEMA, oldSystemTable);
+        assertFalse(SchemaUtil.columnExists(oldSystemTable, SALT_HASH));
+        assertFalse(SchemaUtil.columnExists(oldSystemTable, SALT_PK_COLUMNS));
+        
+        Properties props = new Properties();
+        props.setProperty(PhoenixRuntime.CURRENT_SCN_ATTRIB, Long.toString(MetaDataProtocol.MIN_SYSTEM_TABLE_TIMESTAMP));
+        PhoenixConnection metaConnection = services.connect(url, props);
+        try {
+            SchemaUtil.updateSystemTableTo2(metaConnection, oldSystemTable);
+        } finally {
+            metaConnection.close();
+        }
+        
+        conn = services.connect(url, new Properties());
+        try {
+            PTable newSystemTable = conn.getPMetaData().getSchema(TYPE_SCHEMA).getTable(TYPE_TABLE);
+            assertTrue(SchemaUtil.columnExists(newSystemTable, SALT_HASH));
+            assertTrue(SchemaUtil.columnExists(newSystemTable, SALT_PK_COLUMNS));
+            assertEquals(systemTable.getColumns().size(), newSystemTable.getColumns().size());
+            // Creating a table writes the salt columns into the system table
+            conn.createStatement().execute("CREATE TABLE upgrade_test (k VARCHAR NOT NULL PRIMARY KEY, v VARCHAR) SALT_BUCKETS=4");
+            PTable table = conn.getPMetaData().getSchema("").getTable("UPGRADE_TEST");
+            assertEquals(4, table.getBucketNum().intValue());
+        } finally {
+            conn.close();
+        }
+    }
+}